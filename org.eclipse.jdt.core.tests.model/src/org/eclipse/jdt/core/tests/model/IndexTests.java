@@ -0,0 +1,609 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.jdt.core.tests.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+import junit.framework.Test;
+
+import org.eclipse.jdt.core.search.SearchPattern;
+import org.eclipse.jdt.core.tests.junit.extension.TestCase;
+import org.eclipse.jdt.core.tests.util.Util;
+import org.eclipse.jdt.internal.core.index.EntryResult;
+import org.eclipse.jdt.internal.core.index.FileIndexLocation;
+import org.eclipse.jdt.internal.core.index.Index;
+import org.eclipse.jdt.internal.core.index.IndexLocation;
+import org.eclipse.jdt.internal.core.search.indexing.SharedIndexCache;
+
+/**
+ * Tests the index files written by {@link Index#save()}, by comparing the results of their queries with those of an
+ * index that has never been saved, whose queries only read its memory index.
+ */
+public class IndexTests extends TestCase {
+	private static final char[] REF = "ref".toCharArray();
+	private static final char[] DECL = "decl".toCharArray();
+	private static final char[][] CATEGORIES = { REF, DECL };
+	private static final String[] TYPE_NAMES = {
+		"HashMap", "HashSet", "ArrayList", "LinkedHashMap", "LinkedList", "List", "Map", "NullPointerException",
+		"IOException", "Object", "String", "StringBuilder", "X", "X1", "XY", "XYZ", "\u212Aelvin", "Kelvin", "kelvin"
+	};
+
+	private File indexFile;
+	private File oracleFile;
+
+	public IndexTests(String name) {
+		super(name);
+	}
+	public static Test suite() {
+		return buildTestSuite(IndexTests.class);
+	}
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		this.indexFile = createTempFile("index");
+		this.oracleFile = createTempFile("oracle");
+	}
+	@Override
+	protected void tearDown() throws Exception {
+		this.indexFile.delete();
+		this.oracleFile.delete();
+		super.tearDown();
+	}
+	private File createTempFile(String suffix) throws IOException {
+		File file = File.createTempFile(getName(), "." + suffix);
+		file.delete();
+		return file;
+	}
+	private Index createIndex(File file, boolean reuseExistingFile) throws IOException {
+		return new Index(new FileIndexLocation(file), "IndexTests", reuseExistingFile);
+	}
+	/*
+	 * Answers an index with the same documents as the given one, which is never saved.
+	 */
+	private Index createOracle(int[] documents) throws IOException {
+		Index oracle = createIndex(this.oracleFile, false);
+		for (int i = 0; i < documents.length; i++) {
+			addDocument(oracle, documents[i], 0);
+		}
+		return oracle;
+	}
+	private static String documentName(int document) {
+		return "p/D" + document + ".java";
+	}
+	/*
+	 * Adds the entries of the given document, which depend on its number & on its version.
+	 */
+	private static void addDocument(Index index, int document, int version) {
+		String name = documentName(document);
+		index.remove(name);
+		index.addIndexEntry(REF, ("Word" + (document % 37)).toCharArray(), name);
+		index.addIndexEntry(REF, ("Type" + document).toCharArray(), name);
+		index.addIndexEntry(DECL, TYPE_NAMES[(document + version) % TYPE_NAMES.length].toCharArray(), name);
+		index.addIndexEntry(DECL, TYPE_NAMES[(document * 7) % TYPE_NAMES.length].toCharArray(), name);
+		if (version > 0) {
+			index.addIndexEntry(REF, ("Version" + version).toCharArray(), name);
+		}
+	}
+	private static void addDocuments(Index index, int start, int end, int version) {
+		for (int i = start; i < end; i++) {
+			addDocument(index, i, version);
+		}
+	}
+	private static void removeDocuments(Index index, int start, int end) {
+		for (int i = start; i < end; i++) {
+			index.remove(documentName(i));
+		}
+	}
+	private static int[] range(int start, int end) {
+		int[] documents = new int[end - start];
+		for (int i = start; i < end; i++) {
+			documents[i - start] = i;
+		}
+		return documents;
+	}
+	/*
+	 * Answers the words found by the query with their sorted document names.
+	 */
+	private static String query(Index index, char[][] categories, String key, int matchRule) throws IOException {
+		index.startQuery();
+		try {
+			return toString(index.query(categories, key == null ? null : key.toCharArray(), matchRule), index);
+		} finally {
+			index.stopQuery();
+		}
+	}
+	private static String toString(EntryResult[] results, Index index) throws IOException {
+		if (results == null) {
+			return "";
+		}
+		Map<String, String> words = new TreeMap<>();
+		for (int i = 0; i < results.length; i++) {
+			String[] documentNames = results[i].getDocumentNames(index);
+			Arrays.sort(documentNames);
+			words.put(new String(results[i].getWord()), Arrays.toString(documentNames));
+		}
+		StringBuilder buffer = new StringBuilder();
+		for (Map.Entry<String, String> entry : words.entrySet()) {
+			buffer.append(entry.getKey()).append(' ').append(entry.getValue()).append('\n');
+		}
+		return buffer.toString();
+	}
+	private static void assertSameQueryResults(Index expected, Index actual, char[][] categories, String key, int matchRule) throws IOException {
+		assertEquals("Unexpected results for " + key + " (rule " + matchRule + ")",
+				query(expected, categories, key, matchRule),
+				query(actual, categories, key, matchRule));
+	}
+	/*
+	 * Compares the results of the exact, prefix, pattern & camel case queries which the search engine uses, along with
+	 * the queries which read whole categories.
+	 */
+	private static void assertSameQueryResults(Index expected, Index actual) throws IOException {
+		int exact = SearchPattern.R_EXACT_MATCH | SearchPattern.R_CASE_SENSITIVE;
+		int prefix = SearchPattern.R_PREFIX_MATCH | SearchPattern.R_CASE_SENSITIVE;
+		assertSameQueryResults(expected, actual, CATEGORIES, null, SearchPattern.R_PATTERN_MATCH);
+		assertSameQueryResults(expected, actual, new char[][] { REF }, "Word7", exact);
+		assertSameQueryResults(expected, actual, new char[][] { REF }, "Type12", exact);
+		assertSameQueryResults(expected, actual, new char[][] { REF }, "Type12", prefix);
+		assertSameQueryResults(expected, actual, new char[][] { REF }, "Version", prefix);
+		assertSameQueryResults(expected, actual, new char[][] { REF }, "Missing", exact);
+		assertSameQueryResults(expected, actual, CATEGORIES, "Hash", prefix);
+		assertSameQueryResults(expected, actual, CATEGORIES, "hash", SearchPattern.R_PREFIX_MATCH);
+		assertSameQueryResults(expected, actual, CATEGORIES, "*List", SearchPattern.R_PATTERN_MATCH);
+		assertSameQueryResults(expected, actual, new char[][] { DECL }, "LHM", SearchPattern.R_CAMELCASE_MATCH);
+	}
+
+	public void testSavedIndexIsReadBack() throws IOException {
+		Index index = createIndex(this.indexFile, false);
+		int[] documents = range(0, 500);
+		for (int i = 0; i < documents.length; i++) {
+			addDocument(index, documents[i], 0);
+		}
+		index.save();
+		Index oracle = createOracle(documents);
+
+		assertSameQueryResults(oracle, createIndex(this.indexFile, true));
+		// the lookups of read-only index files read a memory-mapped view of the file
+		assertSameQueryResults(oracle, new Index(FileIndexLocation.createReadOnly(this.indexFile), "IndexTests", true));
+	}
+	public void testQueriesShareTheIndexFile() throws IOException {
+		Index index = createIndex(this.indexFile, false);
+		int[] documents = range(0, 200);
+		for (int i = 0; i < documents.length; i++) {
+			addDocument(index, documents[i], 0);
+		}
+		index.save();
+		Index reopened = createIndex(this.indexFile, true);
+		int exact = SearchPattern.R_EXACT_MATCH | SearchPattern.R_CASE_SENSITIVE;
+		String expected = query(reopened, new char[][] { REF }, "Word3", exact);
+		assertTrue("Missing results", expected.length() > 0);
+
+		// several lookups between startQuery() & stopQuery(), then a new query once the file has been released
+		reopened.startQuery();
+		try {
+			for (int i = 0; i < 3; i++) {
+				assertEquals(expected, toString(reopened.query(new char[][] { REF }, "Word3".toCharArray(), exact), reopened));
+			}
+		} finally {
+			reopened.stopQuery();
+		}
+		assertEquals(expected, query(reopened, new char[][] { REF }, "Word3", exact));
+	}
+	/*
+	 * The queries which only read the words starting with some prefixes find the same words as reading the whole
+	 * category table, including keys that start with a wildcard & non-ASCII characters whose lower case is ASCII.
+	 */
+	public void testQueriesOfWordRanges() throws IOException {
+		Index index = createIndex(this.indexFile, false);
+		int[] documents = range(0, 300);
+		for (int i = 0; i < documents.length; i++) {
+			addDocument(index, documents[i], 0);
+		}
+		index.save();
+		Index oracle = createOracle(documents);
+		Index reopened = createIndex(this.indexFile, true);
+		char[][] categories = { DECL };
+
+		int pattern = SearchPattern.R_PATTERN_MATCH;
+		assertSameQueryResults(oracle, reopened, categories, "*Map", pattern);
+		assertSameQueryResults(oracle, reopened, categories, "*map", pattern | SearchPattern.R_CASE_SENSITIVE);
+		assertSameQueryResults(oracle, reopened, categories, "?ash*", pattern);
+		assertSameQueryResults(oracle, reopened, categories, "?ash*", pattern | SearchPattern.R_CASE_SENSITIVE);
+		assertSameQueryResults(oracle, reopened, categories, "H?sh*", pattern | SearchPattern.R_CASE_SENSITIVE);
+		assertSameQueryResults(oracle, reopened, categories, "x*", pattern);
+
+		int camelCase = SearchPattern.R_CAMELCASE_MATCH;
+		assertSameQueryResults(oracle, reopened, categories, "LHM", camelCase | SearchPattern.R_CASE_SENSITIVE);
+		assertSameQueryResults(oracle, reopened, categories, "lhm", camelCase);
+		assertSameQueryResults(oracle, reopened, categories, "hM", camelCase);
+		assertSameQueryResults(oracle, reopened, categories, "npe", camelCase);
+		assertSameQueryResults(oracle, reopened, categories, "HaMa", SearchPattern.R_CAMELCASE_SAME_PART_COUNT_MATCH);
+
+		// the lower case of the Kelvin sign is k
+		String kelvinQuery = query(reopened, categories, "kelvin", SearchPattern.R_EXACT_MATCH);
+		assertTrue("Missing Kelvin sign:\n" + kelvinQuery, kelvinQuery.indexOf("\u212Aelvin ") != -1);
+		assertSameQueryResults(oracle, reopened, categories, "kelvin", SearchPattern.R_EXACT_MATCH);
+		assertSameQueryResults(oracle, reopened, categories, "kel", SearchPattern.R_PREFIX_MATCH);
+		assertSameQueryResults(oracle, reopened, categories, "\u212Ael", SearchPattern.R_PREFIX_MATCH);
+		assertSameQueryResults(oracle, reopened, categories, "k*", pattern);
+		assertSameQueryResults(oracle, reopened, categories, "k", camelCase);
+	}
+	/*
+	 * The document arrays survive the round trip through the index file, with document numbers & gaps which take
+	 * several bytes, single documents, and words which no longer have any document.
+	 */
+	public void testDocumentArraysAreReadBack() throws IOException {
+		Index index = createIndex(this.indexFile, false);
+		Index oracle = createIndex(this.oracleFile, false);
+		int count = 20000; // more than 2^14 documents, so that the largest numbers take 3 bytes
+		Index[] indexes = { index, oracle };
+		for (int i = 0; i < count; i++) {
+			String name = documentName(i);
+			for (int j = 0; j < indexes.length; j++) {
+				indexes[j].addIndexEntry(REF, "All".toCharArray(), name);
+				if (i % 1000 == 999)
+					indexes[j].addIndexEntry(REF, "Sparse".toCharArray(), name);
+				if (i == 0 || i == count - 1)
+					indexes[j].addIndexEntry(REF, "FirstAndLast".toCharArray(), name);
+				if (i == count / 2)
+					indexes[j].addIndexEntry(REF, "Single".toCharArray(), name);
+				if (i == count - 1)
+					indexes[j].addIndexEntry(REF, "Last".toCharArray(), name);
+			}
+		}
+		index.save();
+		Index reopened = createIndex(this.indexFile, true);
+		int exact = SearchPattern.R_EXACT_MATCH | SearchPattern.R_CASE_SENSITIVE;
+		String[] words = { "All", "Sparse", "FirstAndLast", "Single", "Last" };
+		for (int i = 0; i < words.length; i++) {
+			assertSameQueryResults(oracle, reopened, new char[][] { REF }, words[i], exact);
+		}
+		assertSameQueryResults(oracle, reopened, new char[][] { REF }, null, SearchPattern.R_PATTERN_MATCH);
+		assertEquals("FirstAndLast [" + documentName(0) + ", " + documentName(count - 1) + "]\n",
+				query(reopened, new char[][] { REF }, "FirstAndLast", exact));
+		assertEquals("Single [" + documentName(count / 2) + "]\n",
+				query(reopened, new char[][] { REF }, "Single", exact));
+
+		// the word of a removed document has no documents left once the index file is rewritten
+		reopened.remove(documentName(count / 2));
+		oracle.remove(documentName(count / 2));
+		reopened.compact();
+		Index compacted = createIndex(this.indexFile, true);
+		assertEquals("", query(compacted, new char[][] { REF }, "Single", exact));
+		for (int i = 0; i < words.length; i++) {
+			assertSameQueryResults(oracle, compacted, new char[][] { REF }, words[i], exact);
+		}
+		assertSameQueryResults(oracle, compacted, new char[][] { REF }, null, SearchPattern.R_PATTERN_MATCH);
+	}
+	/*
+	 * Saves the index three times, the last two saves appending segments to the index file.
+	 */
+	private void saveSegments(Index index, Index oracle) throws IOException {
+		addDocuments(index, 0, 400, 0);
+		addDocuments(oracle, 0, 400, 0);
+		index.save();
+
+		// changed & removed documents
+		addDocuments(index, 10, 20, 1);
+		addDocuments(oracle, 10, 20, 1);
+		removeDocuments(index, 20, 25);
+		removeDocuments(oracle, 20, 25);
+		long length = this.indexFile.length();
+		index.save();
+		assertTrue("The segment should have been appended", this.indexFile.length() > length);
+
+		// added documents, & documents changed again
+		addDocuments(index, 400, 410, 0);
+		addDocuments(oracle, 400, 410, 0);
+		addDocuments(index, 10, 15, 2);
+		addDocuments(oracle, 10, 15, 2);
+		length = this.indexFile.length();
+		index.save();
+		assertTrue("The segment should have been appended", this.indexFile.length() > length);
+	}
+	/*
+	 * The documents of the newer segments hide their older versions, as well as the removed documents.
+	 */
+	public void testSegments() throws IOException {
+		Index index = createIndex(this.indexFile, false);
+		Index oracle = createIndex(this.oracleFile, false);
+		saveSegments(index, oracle);
+		assertSameQueryResults(oracle, index);
+
+		Index reopened = createIndex(this.indexFile, true);
+		assertSameQueryResults(oracle, reopened);
+		assertEquals("Version1 [p/D15.java, p/D16.java, p/D17.java, p/D18.java, p/D19.java]\n" +
+				"Version2 [p/D10.java, p/D11.java, p/D12.java, p/D13.java, p/D14.java]\n",
+				query(reopened, new char[][] { REF }, "Version", SearchPattern.R_PREFIX_MATCH | SearchPattern.R_CASE_SENSITIVE));
+		assertEquals("", query(reopened, new char[][] { REF }, "Type20", SearchPattern.R_EXACT_MATCH | SearchPattern.R_CASE_SENSITIVE));
+
+		// the memory index hides the segments as well
+		addDocuments(reopened, 12, 17, 3);
+		addDocuments(oracle, 12, 17, 3);
+		removeDocuments(reopened, 30, 32);
+		removeDocuments(oracle, 30, 32);
+		assertSameQueryResults(oracle, reopened);
+	}
+	/*
+	 * Compacting the index rewrites its segments as a single one, with the changes which have not been saved yet.
+	 */
+	public void testSegmentsAreCompacted() throws IOException {
+		Index index = createIndex(this.indexFile, false);
+		Index oracle = createIndex(this.oracleFile, false);
+		saveSegments(index, oracle);
+		addDocuments(index, 50, 55, 4);
+		addDocuments(oracle, 50, 55, 4);
+		long length = this.indexFile.length();
+		index.compact();
+		assertFalse(index.needsCompaction());
+		assertTrue("The index file should have been rewritten", this.indexFile.length() < length);
+		assertSameQueryResults(oracle, index);
+		assertSameQueryResults(oracle, createIndex(this.indexFile, true));
+	}
+	/*
+	 * A segment whose writing was interrupted before the offset to its header was updated is ignored, & the next
+	 * segment is appended after its bytes.
+	 */
+	public void testTruncatedSegmentIsIgnored() throws IOException {
+		Index index = createIndex(this.indexFile, false);
+		Index oracle = createIndex(this.oracleFile, false);
+		addDocuments(index, 0, 400, 0);
+		addDocuments(oracle, 0, 400, 0);
+		index.save();
+		addDocuments(index, 10, 20, 1);
+		addDocuments(oracle, 10, 20, 1);
+		index.save();
+		byte[] saved = Files.readAllBytes(this.indexFile.toPath());
+
+		addDocuments(index, 20, 30, 2);
+		index.save();
+		byte[] appended = Files.readAllBytes(this.indexFile.toPath());
+		assertTrue(appended.length > saved.length);
+		byte[] truncated = Arrays.copyOf(appended, saved.length + (appended.length - saved.length) / 2);
+		System.arraycopy(saved, 0, truncated, 0, saved.length); // the offset to the header of the last segment
+		Files.write(this.indexFile.toPath(), truncated);
+
+		Index reopened = createIndex(this.indexFile, true);
+		assertSameQueryResults(oracle, reopened);
+		addDocuments(reopened, 30, 40, 3);
+		addDocuments(oracle, 30, 40, 3);
+		reopened.save();
+		assertTrue("The segment should have been appended", this.indexFile.length() > truncated.length);
+		assertSameQueryResults(oracle, createIndex(this.indexFile, true));
+	}
+	/*
+	 * The queries run together by query(char[][][], char[][], int[]) answer the same results as each query run on its
+	 * own, on an index with appended segments & changes which have not been saved.
+	 */
+	public void testQueriesRunTogether() throws IOException {
+		Index index = createIndex(this.indexFile, false);
+		Index oracle = createIndex(this.oracleFile, false);
+		saveSegments(index, oracle);
+		// changes of the memory index
+		addDocuments(index, 30, 40, 3);
+		addDocuments(oracle, 30, 40, 3);
+		removeDocuments(index, 50, 55);
+		removeDocuments(oracle, 50, 55);
+		assertTrue("The index should have unsaved changes", index.hasChanged());
+
+		int exact = SearchPattern.R_EXACT_MATCH | SearchPattern.R_CASE_SENSITIVE;
+		int prefix = SearchPattern.R_PREFIX_MATCH | SearchPattern.R_CASE_SENSITIVE;
+		char[][] refs = { REF };
+		char[][] decls = { DECL };
+		char[][][] categories = { refs, refs, refs, CATEGORIES, CATEGORIES, decls, decls, decls, refs, refs, decls, CATEGORIES };
+		String[] keys = { "Word7", "Type12", "Version", "hash", "*List", "LHM", "L.*Map", "\u212Aelvin", "Missing", "Type12", "x", null };
+		int[] matchRules = {
+			exact, exact, prefix, SearchPattern.R_PREFIX_MATCH, SearchPattern.R_PATTERN_MATCH, SearchPattern.R_CAMELCASE_MATCH,
+			SearchPattern.R_REGEXP_MATCH, SearchPattern.R_PREFIX_MATCH, exact, exact, SearchPattern.R_PREFIX_MATCH,
+			SearchPattern.R_PATTERN_MATCH
+		};
+		char[][] keyChars = new char[keys.length][];
+		for (int i = 0; i < keys.length; i++) {
+			keyChars[i] = keys[i] == null ? null : keys[i].toCharArray();
+		}
+
+		EntryResult[][] results;
+		index.startQuery();
+		try {
+			results = index.query(categories, keyChars, matchRules);
+		} finally {
+			index.stopQuery();
+		}
+		assertEquals(keys.length, results.length);
+		for (int i = 0; i < keys.length; i++) {
+			String expected = query(index, categories[i], keys[i], matchRules[i]);
+			assertEquals("Unexpected results for " + keys[i] + " (rule " + matchRules[i] + ")", query(oracle, categories[i], keys[i], matchRules[i]), expected);
+			assertEquals("Unexpected results for " + keys[i] + " (rule " + matchRules[i] + ")", expected, toString(results[i], index));
+		}
+		assertTrue("Missing results", toString(results[3], index).length() > 0);
+		assertEquals("", toString(results[8], index));
+	}
+	private static final char[] SUPER = "super".toCharArray();
+	private static final String[] GROUPS = { "Base", "BaseX", "Other" };
+	/*
+	 * Adds words of the given documents which start with a group & a separator, like the supertype references.
+	 */
+	private static void addGroupedDocuments(Index index, int start, int end, int version) {
+		for (int i = start; i < end; i++) {
+			String name = documentName(i);
+			index.remove(name);
+			index.addIndexEntry(SUPER, (GROUPS[(i + version) % GROUPS.length] + "/" + (i % 7)).toCharArray(), name);
+			index.addIndexEntry(SUPER, (GROUPS[(i / 3) % GROUPS.length] + "/T" + i).toCharArray(), name);
+		}
+	}
+	private static String queryWordGroup(Index index, String group) throws IOException {
+		index.startQuery();
+		try {
+			return toString(index.queryWordGroup(SUPER, group == null ? null : group.toCharArray(), '/'), index);
+		} finally {
+			index.stopQuery();
+		}
+	}
+	/*
+	 * Compares the word groups with the case sensitive prefix queries they stand for.
+	 */
+	private static void assertSameWordGroups(Index index) throws IOException {
+		int prefix = SearchPattern.R_PREFIX_MATCH | SearchPattern.R_CASE_SENSITIVE;
+		for (String group : new String[] { "Base", "BaseX", "Other", "Missing", null }) {
+			assertEquals("Unexpected results for the group " + group,
+					query(index, new char[][] { SUPER }, group == null ? null : group + "/", prefix),
+					queryWordGroup(index, group));
+		}
+	}
+	/*
+	 * The groups read from the disk index answer the same entries as prefix queries, without the documents that have
+	 * been changed or removed in the memory index since the index was saved.
+	 */
+	public void testWordGroups() throws IOException {
+		Index index = createIndex(this.indexFile, false);
+		Index oracle = createIndex(this.oracleFile, false);
+		addGroupedDocuments(index, 0, 300, 0);
+		addGroupedDocuments(oracle, 0, 300, 0);
+		assertSameWordGroups(index);
+		index.save();
+		assertSameWordGroups(index);
+		assertTrue("Missing results", queryWordGroup(index, "Base").indexOf(documentName(3)) != -1);
+
+		// document 3 moves from the group Base to BaseX, document 12 is removed
+		addGroupedDocuments(index, 0, 10, 1);
+		addGroupedDocuments(oracle, 0, 10, 1);
+		removeDocuments(index, 10, 20);
+		removeDocuments(oracle, 10, 20);
+		assertSameWordGroups(index);
+		String base = queryWordGroup(index, "Base");
+		assertEquals("The changed document should not be in its former group", -1, base.indexOf(documentName(3) + ","));
+		assertEquals("The changed document should not be in its former group", -1, base.indexOf(documentName(3) + "]"));
+		assertEquals("The removed document should not be in its group", -1, base.indexOf(documentName(12) + ","));
+		assertEquals("The removed document should not be in its group", -1, base.indexOf(documentName(12) + "]"));
+		assertTrue("The changed document should be in its new group", queryWordGroup(index, "BaseX").indexOf(documentName(3)) != -1);
+
+		// the groups are read again once the changes have been saved
+		index.save();
+		assertSameWordGroups(index);
+		for (String group : new String[] { "Base", "BaseX", "Other", null }) {
+			assertEquals("Unexpected results for the group " + group, queryWordGroup(oracle, group), queryWordGroup(index, group));
+		}
+	}
+	/*
+	 * Runs the given test with a shared index cache in a temporary directory, to which new indexes are added.
+	 */
+	private void withSharedIndexCache(SharedIndexCacheTest test) throws IOException {
+		File cache = Files.createTempDirectory(getName()).toFile();
+		try {
+			SharedIndexCache.setLocation(cache.getPath(), true);
+			test.run(cache);
+		} finally {
+			SharedIndexCache.setLocation(System.getProperty(SharedIndexCache.LOCATION_PROPERTY), Boolean.getBoolean(SharedIndexCache.UPDATE_PROPERTY));
+			Util.delete(cache);
+		}
+	}
+	interface SharedIndexCacheTest {
+		void run(File cache) throws IOException;
+	}
+	private File createLibrary(File directory, String contents) throws IOException {
+		directory.mkdirs();
+		File library = new File(directory, "lib.jar");
+		Files.write(library.toPath(), contents.getBytes(StandardCharsets.UTF_8));
+		return library;
+	}
+	/*
+	 * The index published for a library is found for any library with the same contents & name, but not once the
+	 * library has changed.
+	 */
+	public void testSharedIndexIsFoundByLibraryHash() throws IOException {
+		withSharedIndexCache(cache -> {
+			File library = createLibrary(new File(cache.getParentFile(), getName() + "-lib"), "version 1");
+			File copy = createLibrary(new File(cache.getParentFile(), getName() + "-copy"), "version 1");
+			try {
+				String key = SharedIndexCache.computeKey(library);
+				assertNotNull("The library should have a key", key);
+				assertNull("The cache should be empty", SharedIndexCache.find(key));
+
+				Index index = createIndex(this.indexFile, false);
+				addDocuments(index, 0, 300, 0);
+				index.save();
+				SharedIndexCache.publish(key, index);
+
+				// a copy of the library hits the index published for it, which is used in place
+				assertEquals("The copy should have the same key", key, SharedIndexCache.computeKey(copy));
+				IndexLocation shared = SharedIndexCache.find(key);
+				assertNotNull("The published index should be found", shared);
+				assertTrue("The shared index should be read-only", shared.isReadOnly());
+				assertTrue("The shared index should belong to the cache", SharedIndexCache.contains(shared));
+				assertSameQueryResults(index, new Index(shared, "IndexTests", true));
+
+				// a changed library misses it
+				createLibrary(library.getParentFile(), "version 2");
+				String changedKey = SharedIndexCache.computeKey(library);
+				assertFalse("The changed library should have another key", key.equals(changedKey));
+				assertNull("The changed library should not find the published index", SharedIndexCache.find(changedKey));
+			} finally {
+				Util.delete(library.getParentFile());
+				Util.delete(copy.getParentFile());
+			}
+		});
+	}
+	/*
+	 * The index files of the cache are never written by the index which reads them.
+	 */
+	public void testSharedIndexIsNotWritten() throws IOException {
+		withSharedIndexCache(cache -> {
+			Index index = createIndex(this.indexFile, false);
+			addDocuments(index, 0, 300, 0);
+			index.save();
+			SharedIndexCache.publish("key", index);
+			IndexLocation location = SharedIndexCache.find("key");
+			assertNotNull("The published index should be found", location);
+			File sharedFile = location.getIndexFile();
+			byte[] published = Files.readAllBytes(sharedFile.toPath());
+
+			Index shared = new Index(location, "IndexTests", true);
+			addDocuments(shared, 0, 10, 1);
+			try {
+				shared.save();
+				fail("Saving a shared index should fail");
+			} catch (IOException e) {
+				// expected
+			}
+			try {
+				new Index(location, "IndexTests", false);
+				fail("Recreating a shared index should fail");
+			} catch (IOException e) {
+				// expected
+			}
+			assertTrue("The published index should not have changed", Arrays.equals(published, Files.readAllBytes(sharedFile.toPath())));
+		});
+	}
+	/*
+	 * An index is not published when the cache cannot be written, & no partial file is left in it.
+	 */
+	public void testSharedIndexNotPublishedToUnwritableCache() throws IOException {
+		File notADirectory = createTempFile("cache");
+		try {
+			Files.write(notADirectory.toPath(), new byte[1]);
+			SharedIndexCache.setLocation(notADirectory.getPath(), true);
+			Index index = createIndex(this.indexFile, false);
+			addDocuments(index, 0, 10, 0);
+			index.save();
+			SharedIndexCache.publish("key", index);
+			assertNull("The index should not have been published", SharedIndexCache.find("key"));
+			assertTrue("The cache location should not have changed", notADirectory.isFile() && notADirectory.length() == 1);
+		} finally {
+			SharedIndexCache.setLocation(System.getProperty(SharedIndexCache.LOCATION_PROPERTY), Boolean.getBoolean(SharedIndexCache.UPDATE_PROPERTY));
+			notADirectory.delete();
+		}
+	}
+}
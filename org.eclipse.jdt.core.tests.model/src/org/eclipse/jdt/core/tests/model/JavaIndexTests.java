@@ -18,6 +18,7 @@ import java.io.IOException;
 import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.zip.CRC32;
 
 import junit.framework.Test;
@@ -35,11 +36,16 @@ import org.eclipse.jdt.core.IJavaElement;
 import org.eclipse.jdt.core.IJavaProject;
 import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jdt.core.index.*;
+import org.eclipse.jdt.core.search.IJavaSearchScope;
 import org.eclipse.jdt.core.search.SearchEngine;
+import org.eclipse.jdt.core.search.SearchPattern;
 import org.eclipse.jdt.core.tests.util.Util;
 import org.eclipse.jdt.internal.core.ClasspathEntry;
 import org.eclipse.jdt.internal.core.JavaModelManager;
 import org.eclipse.jdt.internal.core.UserLibraryClasspathContainer;
+import org.eclipse.jdt.internal.core.index.Index;
+import org.eclipse.jdt.internal.core.index.IndexLocation;
+import org.eclipse.jdt.internal.core.search.indexing.IndexManager;
 import org.osgi.service.prefs.BackingStoreException;
 
 public class JavaIndexTests extends AbstractJavaSearchTests  {
@@ -923,4 +929,98 @@ public class JavaIndexTests extends AbstractJavaSearchTests  {
 			ClasspathEntry.setSharedIndexLocation(null, getClass());
 		}
 	}
+
+	// Test that an index which is removed while another thread reads its file is not recorded in memory again
+	public void testIndexRemovedWhileRead() throws Exception {
+		IndexManager manager = JavaModelManager.getIndexManager();
+		IPath projectPath = new Path("/P");
+		try {
+			IJavaProject project = createJavaProject("P", new String[] {"src"}, new String[] {"JCL_LIB"}, "bin");
+			createFolder("/P/src/p");
+			createFile("/P/src/p/X.java",
+					"package p;\n" +
+					"public class X {}");
+			for (int i = 0; i < 10; i++) {
+				waitUntilIndexesReady();
+				manager.saveIndexes();
+				assertTrue("The index file should exist", manager.computeIndexLocation(projectPath).exists());
+				manager.reset(); // unloads the indexes, their states are read again from the saved index names
+
+				Thread reader = new Thread(() -> manager.getIndex(projectPath, true /*reuse index file*/, false /*do not create if none*/));
+				reader.start();
+				manager.removeIndex(projectPath);
+				reader.join();
+
+				IndexLocation indexLocation = manager.computeIndexLocation(projectPath);
+				Index index = manager.getIndex(indexLocation);
+				assertTrue("The removed index should not be recorded", index == null || indexLocation.exists());
+
+				// index the project again for the next iteration
+				manager.indexAll(project.getProject());
+			}
+		} finally {
+			deleteProject("P");
+		}
+	}
+	/*
+	 * Indexing a jar with several threads decoding its class files finds the same matches as indexing it with one.
+	 */
+	public void testJarIndexedConcurrently() throws CoreException, IOException {
+		IndexManager manager = JavaModelManager.getIndexManager();
+		int threads = manager.getJarIndexingThreads();
+		String jarFilePath = getExternalResourcePath("Test.jar");
+		try {
+			String[] pathsAndContents = new String[100];
+			pathsAndContents[0] = "pkg/Base.java";
+			pathsAndContents[1] =
+				"package pkg;\n" +
+				"public class Base {\n" +
+				"  public void run() {}\n" +
+				"}";
+			for (int i = 1; i < 50; i++) {
+				pathsAndContents[i * 2] = "pkg/Test" + i + ".java";
+				pathsAndContents[i * 2 + 1] =
+					"package pkg;\n" +
+					"public class Test" + i + " extends Base {\n" +
+					"  Base field;\n" +
+					"  public void run() { this.field.run(); }\n" +
+					"}";
+			}
+			createJar(pathsAndContents, jarFilePath);
+			IJavaProject p = createJavaProject("P");
+			IPath libPath = new Path(jarFilePath);
+			setClasspath(p, new IClasspathEntry[] {JavaCore.newLibraryEntry(libPath, null, null)});
+			waitUntilIndexesReady();
+
+			String expected = null;
+			for (int indexingThreads : new int[] {1, 4}) {
+				manager.setJarIndexingThreads(indexingThreads);
+				manager.removeIndex(libPath);
+				manager.indexLibrary(libPath, p.getProject(), null);
+				waitUntilIndexesReady();
+
+				Index index = manager.getIndex(libPath, true /*reuse index file*/, false /*do not create if none*/);
+				assertNotNull("The jar should be indexed", index);
+				String[] documentNames = index.queryDocumentNames("");
+				Arrays.sort(documentNames);
+				StringBuilder results = new StringBuilder(String.join("\n", documentNames));
+				IJavaSearchScope scope = SearchEngine.createJavaSearchScope(new IJavaElement[] {p});
+				this.resultCollector = new JavaSearchResultCollector(true);
+				search("*", TYPE, DECLARATIONS, SearchPattern.R_PATTERN_MATCH, scope);
+				search("Base", TYPE, REFERENCES, scope);
+				search("run", METHOD, ALL_OCCURRENCES, scope);
+				results.append("\n").append(this.resultCollector);
+				if (expected == null) {
+					assertTrue("Missing matches:\n" + results, results.indexOf("Test49") != -1);
+					expected = results.toString();
+				} else {
+					assertEquals("Unexpected matches with " + indexingThreads + " indexing threads", expected, results.toString());
+				}
+			}
+		} finally {
+			manager.setJarIndexingThreads(threads);
+			deleteProject("P");
+			new File(jarFilePath).delete();
+		}
+	}
 }
@@ -14,6 +14,10 @@
 package org.eclipse.jdt.core.tests.model;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import junit.framework.Test;
 
@@ -21,12 +25,20 @@ import org.eclipse.core.resources.IWorkspaceRunnable;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.Path;
 import org.eclipse.jdt.core.*;
 import org.eclipse.jdt.core.search.*;
 import org.eclipse.jdt.core.tests.model.AbstractJavaSearchTests.JavaSearchResultCollector;
 import org.eclipse.jdt.core.tests.model.AbstractJavaSearchTests.TypeNameMatchCollector;
+import org.eclipse.jdt.internal.compiler.env.AccessRuleSet;
+import org.eclipse.jdt.internal.core.JavaModelManager;
+import org.eclipse.jdt.internal.core.search.IndexQueryRequestor;
+import org.eclipse.jdt.internal.core.search.PatternSearchJob;
+import org.eclipse.jdt.internal.core.search.matching.MatchLocator;
 import org.eclipse.jdt.internal.core.search.matching.PatternLocator;
+import org.eclipse.jdt.internal.core.search.processing.IJob;
 
 /**
  * Tests the Java search engine accross multiple projects.
@@ -1566,4 +1578,199 @@ public void testBug250454_jars() throws CoreException, IOException {
 		deleteProject("P2");
 	}
 }
+/*
+ * Creates the projects P1 to P<count>. The projects after the first one reference the type p1.X of P1.
+ */
+private void createReferencingProjects(int count) throws CoreException {
+	createJavaProject("P1");
+	createFolder("/P1/p1");
+	createFile(
+		"/P1/p1/X.java",
+		"package p1;\n" +
+		"public class X {\n" +
+		"	public void foo() {}\n" +
+		"}"
+	);
+	for (int i = 2; i <= count; i++) {
+		createJavaProject("P" + i, new String[] {""}, new String[] {"JCL_LIB"}, new String[] {"/P1"}, "");
+		createFolder("/P" + i + "/p" + i);
+		createFile(
+			"/P" + i + "/p" + i + "/Y.java",
+			"package p" + i + ";\n" +
+			"import p1.X;\n" +
+			"public class Y {\n" +
+			"	X x;\n" +
+			"	void bar() {\n" +
+			"		new X().foo();\n" +
+			"	}\n" +
+			"}"
+		);
+	}
+}
+private void deleteReferencingProjects(int count) throws CoreException {
+	for (int i = 1; i <= count; i++) {
+		deleteProject("P" + i);
+	}
+}
+private String searchSorted(SearchPattern pattern) throws CoreException {
+	JavaSearchResultCollector resultCollector = new JavaSearchResultCollector(true);
+	resultCollector.showProject();
+	new SearchEngine().search(
+		pattern,
+		new SearchParticipant[] {SearchEngine.getDefaultSearchParticipant()},
+		SearchEngine.createWorkspaceScope(),
+		resultCollector,
+		null
+	);
+	return resultCollector.toString();
+}
+/*
+ * Querying the indexes of several projects concurrently finds the same matches as querying them one after the other.
+ */
+public void testIndexesQueriedConcurrently() throws CoreException {
+	int threads = PatternSearchJob.INDEX_QUERY_THREADS;
+	try {
+		createReferencingProjects(4);
+		waitUntilIndexesReady();
+		SearchPattern pattern = SearchPattern.createPattern("X", TYPE, REFERENCES, SearchPattern.R_EXACT_MATCH | SearchPattern.R_CASE_SENSITIVE);
+		PatternSearchJob.INDEX_QUERY_THREADS = 1;
+		String expected = searchSorted(pattern);
+		for (int i = 2; i <= 4; i++) {
+			assertTrue("Missing references in P" + i + ":\n" + expected, expected.indexOf("[in P" + i + "]") != -1);
+		}
+		PatternSearchJob.INDEX_QUERY_THREADS = 4;
+		assertEquals("Unexpected references to X with concurrent queries", expected, searchSorted(pattern));
+	} finally {
+		PatternSearchJob.INDEX_QUERY_THREADS = threads;
+		deleteReferencingProjects(4);
+	}
+}
+/*
+ * Canceling a job that queries its indexes concurrently stops the queries before the job ends.
+ */
+public void testIndexesQueriedConcurrentlyCanceled() throws CoreException, InterruptedException {
+	int threads = PatternSearchJob.INDEX_QUERY_THREADS;
+	try {
+		createReferencingProjects(4);
+		waitUntilIndexesReady();
+		PatternSearchJob.INDEX_QUERY_THREADS = 4;
+		final NullProgressMonitor monitor = new NullProgressMonitor();
+		final AtomicInteger matches = new AtomicInteger();
+		IndexQueryRequestor requestor = new IndexQueryRequestor() {
+			@Override
+			public boolean acceptIndexMatch(String documentPath, SearchPattern indexRecord, SearchParticipant participant, AccessRuleSet access) {
+				matches.incrementAndGet();
+				monitor.setCanceled(true);
+				return true;
+			}
+		};
+		SearchPattern pattern = SearchPattern.createPattern("X", TYPE, REFERENCES, SearchPattern.R_EXACT_MATCH | SearchPattern.R_CASE_SENSITIVE);
+		PatternSearchJob job = new PatternSearchJob(pattern, SearchEngine.getDefaultSearchParticipant(), SearchEngine.createWorkspaceScope(), requestor);
+		try {
+			JavaModelManager.getIndexManager().performConcurrentJob(job, IJob.WaitUntilReady, monitor);
+			fail("The search should have been canceled");
+		} catch (OperationCanceledException e) {
+			// expected
+		}
+		int count = matches.get();
+		assertTrue("The requestor should have been called", count > 0);
+		Thread.sleep(200);
+		assertEquals("The requestor was called after the job ended", count, matches.get());
+	} finally {
+		PatternSearchJob.INDEX_QUERY_THREADS = threads;
+		deleteReferencingProjects(4);
+	}
+}
+/*
+ * Locating the possible matches of several projects concurrently finds the same matches as locating them one after
+ * the other, also when more batches are pending than the workers take at once.
+ */
+public void testMatchesLocatedConcurrently() throws CoreException {
+	int threads = MatchLocator.LOCATE_THREADS;
+	try {
+		createReferencingProjects(6);
+		waitUntilIndexesReady();
+		SearchPattern pattern = SearchPattern.createPattern("foo", METHOD, REFERENCES, SearchPattern.R_EXACT_MATCH | SearchPattern.R_CASE_SENSITIVE);
+		MatchLocator.LOCATE_THREADS = 1;
+		String expected = searchSorted(pattern);
+		for (int i = 2; i <= 6; i++) {
+			assertTrue("Missing references in P" + i + ":\n" + expected, expected.indexOf("[in P" + i + "]") != -1);
+		}
+		for (int locateThreads = 2; locateThreads <= 4; locateThreads += 2) {
+			MatchLocator.LOCATE_THREADS = locateThreads;
+			assertEquals("Unexpected references to foo() with " + locateThreads + " threads", expected, searchSorted(pattern));
+		}
+	} finally {
+		MatchLocator.LOCATE_THREADS = threads;
+		deleteReferencingProjects(6);
+	}
+}
+/*
+ * Canceling a search whose matches are located concurrently stops the threads before the search ends.
+ */
+public void testMatchesLocatedConcurrentlyCanceled() throws CoreException, InterruptedException {
+	int threads = MatchLocator.LOCATE_THREADS;
+	try {
+		createReferencingProjects(6);
+		waitUntilIndexesReady();
+		MatchLocator.LOCATE_THREADS = 4;
+		final NullProgressMonitor monitor = new NullProgressMonitor();
+		final AtomicInteger matches = new AtomicInteger();
+		SearchRequestor requestor = new SearchRequestor() {
+			@Override
+			public void acceptSearchMatch(SearchMatch match) {
+				matches.incrementAndGet();
+				monitor.setCanceled(true);
+			}
+		};
+		SearchPattern pattern = SearchPattern.createPattern("foo", METHOD, REFERENCES, SearchPattern.R_EXACT_MATCH | SearchPattern.R_CASE_SENSITIVE);
+		try {
+			new SearchEngine().search(
+				pattern,
+				new SearchParticipant[] {SearchEngine.getDefaultSearchParticipant()},
+				SearchEngine.createWorkspaceScope(),
+				requestor,
+				monitor
+			);
+			fail("The search should have been canceled");
+		} catch (OperationCanceledException e) {
+			// expected
+		}
+		int count = matches.get();
+		assertTrue("The requestor should have been called", count > 0);
+		Thread.sleep(200);
+		assertEquals("The requestor was called after the search ended", count, matches.get());
+	} finally {
+		MatchLocator.LOCATE_THREADS = threads;
+		deleteReferencingProjects(6);
+	}
+}
+/*
+ * An OR pattern, whose index queries run together, finds the matches of each of its patterns searched on its own.
+ */
+public void testOrPatternFindsTheMatchesOfEachPattern() throws CoreException {
+	try {
+		createReferencingProjects(3);
+		waitUntilIndexesReady();
+		SearchPattern[] patterns = {
+			SearchPattern.createPattern("X", TYPE, REFERENCES, SearchPattern.R_EXACT_MATCH | SearchPattern.R_CASE_SENSITIVE),
+			SearchPattern.createPattern("fo*", METHOD, REFERENCES, SearchPattern.R_PATTERN_MATCH),
+			SearchPattern.createPattern("b", METHOD, DECLARATIONS, SearchPattern.R_PREFIX_MATCH),
+			SearchPattern.createPattern("Y", TYPE, DECLARATIONS, SearchPattern.R_CAMELCASE_MATCH),
+			SearchPattern.createPattern("foo", METHOD, DECLARATIONS, SearchPattern.R_EXACT_MATCH | SearchPattern.R_CASE_SENSITIVE),
+		};
+		Set<String> expected = new TreeSet<>();
+		SearchPattern orPattern = patterns[0];
+		for (int i = 0; i < patterns.length; i++) {
+			String matches = searchSorted(patterns[i]);
+			assertTrue("Missing matches for " + patterns[i], matches.length() > 0);
+			expected.addAll(Arrays.asList(matches.split("\n")));
+			if (i > 0)
+				orPattern = SearchPattern.createOrPattern(orPattern, patterns[i]);
+		}
+		assertEquals("Unexpected matches of the OR pattern", String.join("\n", expected), searchSorted(orPattern));
+	} finally {
+		deleteReferencingProjects(3);
+	}
+}
 }
@@ -0,0 +1,213 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.jdt.core.tests.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.Test;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.jdt.core.tests.junit.extension.TestCase;
+import org.eclipse.jdt.internal.core.search.processing.IJob;
+import org.eclipse.jdt.internal.core.search.processing.JobManager;
+
+/**
+ * Tests the execution of background jobs by a {@link JobManager} with several job threads.
+ */
+public class JobManagerTests extends TestCase {
+	private static final long TIMEOUT = 60000;
+
+	static class TestJobManager extends JobManager {
+		@Override
+		public String processName() {
+			return "Test job manager";
+		}
+	}
+
+	/*
+	 * A job which records when it starts & ends, & checks that no job with the same scheduling key runs meanwhile.
+	 */
+	class TestJob implements IJob {
+		final String key;
+		final String name;
+		final int duration;
+		volatile boolean canceled;
+
+		TestJob(String key, String name, int duration) {
+			this.key = key;
+			this.name = name;
+			this.duration = duration;
+		}
+		@Override
+		public boolean belongsTo(String jobFamily) {
+			return jobFamily.equals(getJobFamily());
+		}
+		@Override
+		public void cancel() {
+			this.canceled = true;
+		}
+		@Override
+		public void ensureReadyToRun() {
+			// always ready
+		}
+		@Override
+		public boolean execute(IProgressMonitor progress) {
+			int active = JobManagerTests.this.activeJobs.incrementAndGet();
+			AtomicInteger activeWithKey;
+			synchronized (JobManagerTests.this.activeJobsPerKey) {
+				activeWithKey = JobManagerTests.this.activeJobsPerKey.computeIfAbsent(getJobFamily(), k -> new AtomicInteger());
+			}
+			try {
+				if (activeWithKey.incrementAndGet() != 1)
+					JobManagerTests.this.errors.add(this.name + " ran together with a job of the same key");
+				if (this.key == null && active != 1)
+					JobManagerTests.this.errors.add(this.name + " ran together with other jobs");
+				JobManagerTests.this.started.add(this.name);
+				long end = System.currentTimeMillis() + this.duration;
+				while (!this.canceled && System.currentTimeMillis() < end) {
+					Thread.sleep(1);
+				}
+				if (!this.canceled)
+					JobManagerTests.this.completed.add(this.name);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				activeWithKey.decrementAndGet();
+				JobManagerTests.this.activeJobs.decrementAndGet();
+			}
+			return COMPLETE;
+		}
+		@Override
+		public String getJobFamily() {
+			return String.valueOf(this.key);
+		}
+		@Override
+		public Object getSchedulingKey() {
+			return this.key;
+		}
+		@Override
+		public String toString() {
+			return this.name;
+		}
+	}
+
+	TestJobManager manager;
+	final AtomicInteger activeJobs = new AtomicInteger();
+	final Map<String, AtomicInteger> activeJobsPerKey = new HashMap<>();
+	final List<String> started = Collections.synchronizedList(new ArrayList<>());
+	final List<String> completed = Collections.synchronizedList(new ArrayList<>());
+	final List<String> errors = Collections.synchronizedList(new ArrayList<>());
+
+	public JobManagerTests(String name) {
+		super(name);
+	}
+	public static Test suite() {
+		return buildTestSuite(JobManagerTests.class);
+	}
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		this.manager = new TestJobManager();
+		this.manager.reset(); // starts the processing thread
+	}
+	@Override
+	protected void tearDown() throws Exception {
+		this.manager.shutdown();
+		super.tearDown();
+	}
+	private void waitUntilIdle() throws InterruptedException {
+		long end = System.currentTimeMillis() + TIMEOUT;
+		while (this.manager.awaitingJobsCount() > 0) {
+			assertTrue("The jobs did not complete", System.currentTimeMillis() < end);
+			Thread.sleep(10);
+		}
+	}
+	/*
+	 * Requests jobs with a few scheduling keys, & some jobs without key which must run alone, & answers the order in
+	 * which the jobs of each key were executed.
+	 */
+	private Map<String, List<String>> executeJobs(int jobThreads) throws InterruptedException {
+		this.manager.setJobThreads(jobThreads);
+		this.started.clear();
+		List<TestJob> jobs = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			String key = i % 37 == 36 ? null : "key" + (i * 7 % 5);
+			TestJob job = new TestJob(key, key + "#" + i, 2);
+			jobs.add(job);
+			this.manager.request(job);
+		}
+		waitUntilIdle();
+		assertEquals("Unexpected errors", "[]", this.errors.toString());
+
+		// the jobs requested before a job without key were executed before it, the later ones after it
+		List<String> order = new ArrayList<>(this.started);
+		assertEquals(jobs.size(), order.size());
+		for (int i = 0; i < jobs.size(); i++) {
+			if (jobs.get(i).key != null)
+				continue;
+			int position = order.indexOf(jobs.get(i).name);
+			for (int j = 0; j < jobs.size(); j++) {
+				int otherPosition = order.indexOf(jobs.get(j).name);
+				if (j < i ? otherPosition > position : j > i && otherPosition < position)
+					fail(jobs.get(j).name + " was not executed in the order of the requests with " + jobs.get(i).name);
+			}
+		}
+		Map<String, List<String>> orderPerKey = new HashMap<>();
+		for (String name : order) {
+			orderPerKey.computeIfAbsent(name.substring(0, name.indexOf('#')), k -> new ArrayList<>()).add(name);
+		}
+		return orderPerKey;
+	}
+	public void testConcurrentJobsKeepTheOrderOfEachKey() throws InterruptedException {
+		Map<String, List<String>> expected = executeJobs(1);
+		assertEquals(expected, executeJobs(4));
+	}
+	/*
+	 * Discarding the jobs of a family cancels the running ones & waits until they have ended, the jobs of the other
+	 * families still complete.
+	 */
+	public void testDiscardingConcurrentJobs() throws InterruptedException {
+		this.manager.setJobThreads(4);
+		List<String> otherJobs = new ArrayList<>();
+		for (int i = 0; i < 40; i++) {
+			String key = "key" + (i % 4);
+			String name = key + "#" + i;
+			this.manager.request(new TestJob(key, name, 20));
+			if (!key.equals("key1"))
+				otherJobs.add(name);
+		}
+		long end = System.currentTimeMillis() + TIMEOUT;
+		while (!this.started.contains("key1#1")) {
+			assertTrue("The job did not start", System.currentTimeMillis() < end);
+			Thread.sleep(1);
+		}
+		this.manager.discardJobs("key1");
+		assertEquals("A discarded job is still running", 0, this.activeJobsPerKey.get("key1").get());
+		int startedJobs = this.started.size();
+
+		waitUntilIdle();
+		assertEquals("Unexpected errors", "[]", this.errors.toString());
+		for (String name : this.started.subList(startedJobs, this.started.size())) {
+			assertFalse("The discarded job " + name + " was started", name.startsWith("key1#"));
+		}
+		assertFalse("The discarded job should not have completed", this.completed.contains("key1#1"));
+		List<String> completedOtherJobs = new ArrayList<>(this.completed);
+		completedOtherJobs.removeIf(name -> name.startsWith("key1#"));
+		Collections.sort(completedOtherJobs);
+		Collections.sort(otherJobs);
+		assertEquals(otherJobs, completedOtherJobs);
+	}
+}
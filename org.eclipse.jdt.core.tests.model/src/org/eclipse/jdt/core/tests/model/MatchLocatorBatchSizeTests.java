@@ -0,0 +1,53 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.jdt.core.tests.model;
+
+import junit.framework.Test;
+
+import org.eclipse.jdt.core.tests.junit.extension.TestCase;
+import org.eclipse.jdt.internal.core.search.matching.MatchLocator;
+
+/**
+ * Tests the sizes of the batches of possible matches computed by {@link MatchLocator#nextBatchSize(int, double, long, long)}
+ * when the batches are adapted to the heap.
+ */
+public class MatchLocatorBatchSizeTests extends TestCase {
+
+	public MatchLocatorBatchSizeTests(String name) {
+		super(name);
+	}
+	public static Test suite() {
+		return buildTestSuite(MatchLocatorBatchSizeTests.class);
+	}
+	public void testBatchesShrinkWhenTheHeapIsFull() {
+		assertEquals(100, MatchLocator.nextBatchSize(200, 0.9, 1000, 1000));
+		assertEquals(100, MatchLocator.nextBatchSize(200, 0.9, 0, 1000));
+		assertEquals(MatchLocator.MIN_BATCH_SIZE, MatchLocator.nextBatchSize(MatchLocator.MIN_BATCH_SIZE + 1, 0.9, 1000, 1000));
+		assertEquals(MatchLocator.MIN_BATCH_SIZE, MatchLocator.nextBatchSize(MatchLocator.MIN_BATCH_SIZE, 0.9, 1000, 1000));
+	}
+	public void testBatchesShrinkWhenTheResolutionSlowsDown() {
+		assertEquals(150, MatchLocator.nextBatchSize(200, 0.5, 1000, 2001));
+		assertEquals(MatchLocator.MIN_BATCH_SIZE, MatchLocator.nextBatchSize(MatchLocator.MIN_BATCH_SIZE, 0.5, 1000, 5000));
+		// the first batch has no previous time to compare with
+		assertEquals(200, MatchLocator.nextBatchSize(200, 0.5, 0, 5000));
+		// slower batches are not shrunk while the heap is mostly free
+		assertEquals(300, MatchLocator.nextBatchSize(200, 0.1, 1000, 5000));
+	}
+	public void testBatchesGrowWhenTheHeapIsFree() {
+		assertEquals(300, MatchLocator.nextBatchSize(200, 0.1, 1000, 1000));
+		assertEquals(MatchLocator.MAX_BATCH_SIZE, MatchLocator.nextBatchSize(MatchLocator.MAX_BATCH_SIZE - 1, 0.1, 1000, 1000));
+		assertEquals(MatchLocator.MAX_BATCH_SIZE, MatchLocator.nextBatchSize(MatchLocator.MAX_BATCH_SIZE, 0.1, 1000, 1000));
+	}
+	public void testBatchesKeepTheirSize() {
+		assertEquals(200, MatchLocator.nextBatchSize(200, 0.5, 1000, 1500));
+		assertEquals(200, MatchLocator.nextBatchSize(200, 0.5, 0, 1000));
+	}
+}
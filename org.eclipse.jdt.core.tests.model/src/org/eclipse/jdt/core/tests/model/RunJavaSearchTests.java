@@ -73,6 +73,10 @@ public class RunJavaSearchTests extends junit.framework.TestCase {
 		allClasses.add(JavaSearchScopeTests.class);
 		allClasses.add(MatchingRegionsTest.class);
 		allClasses.add(JavaIndexTests.class);
+		allClasses.add(IndexTests.class);
+		allClasses.add(JobManagerTests.class);
+		allClasses.add(MatchLocatorBatchSizeTests.class);
+		allClasses.add(WorkerPoolsTests.class);
 		allClasses.add(Bug376673Test.class);
 		allClasses.add(JavaSearchNameEnvironmentTest.class);
 
@@ -18,6 +18,7 @@ package org.eclipse.jdt.core.tests.model;
 import java.io.File;
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import junit.framework.Test;
 
@@ -25,6 +26,7 @@ import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.resources.IncrementalProjectBuilder;
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.Path;
@@ -45,6 +47,9 @@ import org.eclipse.jdt.core.JavaModelException;
 import org.eclipse.jdt.core.tests.model.SearchTests.WaitingJob;
 import org.eclipse.jdt.core.tests.model.Semaphore.TimeOutException;
 import org.eclipse.jdt.core.tests.util.Util;
+import org.eclipse.jdt.internal.core.JavaModelManager;
+import org.eclipse.jdt.internal.core.hierarchy.HierarchyResolver;
+import org.eclipse.jdt.internal.core.hierarchy.SupertypeGraph;
 
 @SuppressWarnings("rawtypes")
 public class TypeHierarchyTests extends ModifyingResourceTests {
@@ -3358,4 +3363,177 @@ public void testBug559210() throws CoreException {
 		deleteProject("P");
 	}
 }
+private void createSubtypes(int count) throws CoreException {
+	createJavaProject("P", new String[] {"src"}, new String[] {"JCL_LIB"}, "bin");
+	createFolder("/P/src/p");
+	createFile(
+		"/P/src/p/X.java",
+		"package p;\n" +
+		"public class X {}"
+	);
+	createFile(
+		"/P/src/p/I.java",
+		"package p;\n" +
+		"public interface I {}"
+	);
+	for (int i = 0; i < count; i++) {
+		createFile(
+			"/P/src/p/Y" + i + ".java",
+			"package p;\n" +
+			"public class Y" + i + " extends " + (i % 3 == 0 ? "X" : "Y" + (i - 1)) + (i % 4 == 0 ? " implements I" : "") + " {\n" +
+			"	void foo() {\n" +
+			"		new X() {};\n" +
+			"	}\n" +
+			"}"
+		);
+	}
+}
+/*
+ * Computes the hierarchy of X, with its subtypes parsed from their files since none of them is open.
+ */
+private String computeHierarchyOfX(IProgressMonitor monitor) throws CoreException {
+	getJavaProject("P").close();
+	// resolve the types again rather than connecting them from the supertype graph
+	JavaModelManager.getJavaModelManager().supertypeGraph.clear();
+	IType type = getCompilationUnit("/P/src/p/X.java").getType("X");
+	return type.newTypeHierarchy(monitor).toString();
+}
+/*
+ * Diet parsing the potential subtypes on several threads builds the same hierarchy as parsing them one by one.
+ */
+public void testSubtypesParsedConcurrently() throws CoreException {
+	int threads = HierarchyResolver.PARSER_THREADS;
+	try {
+		createSubtypes(30);
+		HierarchyResolver.PARSER_THREADS = 1;
+		String expected = computeHierarchyOfX(null);
+		assertTrue("Missing subtypes:\n" + expected, expected.indexOf("Y29") != -1 && expected.indexOf("<anonymous #1>") != -1);
+		for (int parserThreads = 2; parserThreads <= 4; parserThreads += 2) {
+			HierarchyResolver.PARSER_THREADS = parserThreads;
+			assertEquals("Unexpected hierarchy with " + parserThreads + " threads", expected, computeHierarchyOfX(null));
+		}
+	} finally {
+		HierarchyResolver.PARSER_THREADS = threads;
+		deleteProject("P");
+	}
+}
+/*
+ * Canceling the computation of a hierarchy while its subtypes are parsed on several threads stops them, and the
+ * hierarchy can be computed again.
+ */
+public void testSubtypesParsedConcurrentlyCanceled() throws CoreException {
+	int threads = HierarchyResolver.PARSER_THREADS;
+	try {
+		createSubtypes(30);
+		HierarchyResolver.PARSER_THREADS = 1;
+		String expected = computeHierarchyOfX(null);
+		HierarchyResolver.PARSER_THREADS = 4;
+		final AtomicBoolean parsing = new AtomicBoolean();
+		IProgressMonitor monitor = new NullProgressMonitor() {
+			@Override
+			public boolean isCanceled() {
+				// cancels the computation once the subtypes are being parsed
+				for (StackTraceElement element : Thread.currentThread().getStackTrace()) {
+					if ("dietParseConcurrently".equals(element.getMethodName())) {
+						parsing.set(true);
+						return true;
+					}
+				}
+				return super.isCanceled();
+			}
+		};
+		try {
+			computeHierarchyOfX(monitor);
+			fail("The computation should have been canceled");
+		} catch (OperationCanceledException e) {
+			// expected
+		}
+		assertTrue("The computation should have been canceled while parsing", parsing.get());
+		assertEquals("Unexpected hierarchy after a cancellation", expected, computeHierarchyOfX(null));
+	} finally {
+		HierarchyResolver.PARSER_THREADS = threads;
+		deleteProject("P");
+	}
+}
+/*
+ * A monitor which tells whether the hierarchy resolver was run.
+ */
+static class ResolutionMonitor extends NullProgressMonitor {
+	boolean resolved;
+	@Override
+	public boolean isCanceled() {
+		for (StackTraceElement element : Thread.currentThread().getStackTrace()) {
+			if (HierarchyResolver.class.getName().equals(element.getClassName()) && "resolve".equals(element.getMethodName()))
+				this.resolved = true;
+		}
+		return super.isCanceled();
+	}
+}
+/*
+ * A hierarchy whose types were already resolved is built from the supertype graph, without resolving them again.
+ */
+public void testSupertypeGraph() throws CoreException {
+	try {
+		createSubtypes(10);
+		String expected = computeHierarchyOfX(null);
+		ResolutionMonitor monitor = new ResolutionMonitor();
+		String actual = getCompilationUnit("/P/src/p/X.java").getType("X").newTypeHierarchy(monitor).toString();
+		assertFalse("The types should not have been resolved again", monitor.resolved);
+		assertEquals("Unexpected hierarchy from the supertype graph", expected, actual);
+	} finally {
+		deleteProject("P");
+	}
+}
+/*
+ * The supertype graph forgets the types whose compilation units are changed, and the subtypes of these types.
+ */
+public void testSupertypeGraphUpdatedFromDeltas() throws CoreException {
+	try {
+		createSubtypes(10);
+		computeHierarchyOfX(null);
+		IType type = getCompilationUnit("/P/src/p/X.java").getType("X");
+		editFile(
+			"/P/src/p/Y1.java",
+			"package p;\n" +
+			"public class Y1 {}"
+		);
+		createFile(
+			"/P/src/p/Z.java",
+			"package p;\n" +
+			"public class Z extends X {}"
+		);
+		String actual = type.newTypeHierarchy(null).toString();
+		assertEquals("Unexpected hierarchy after the changes", computeHierarchyOfX(null), actual);
+		assertTrue("Unexpected subtypes:\n" + actual, actual.indexOf("Y1 [") == -1 && actual.indexOf("Y2 [") == -1);
+		assertTrue("Missing subtype:\n" + actual, actual.indexOf("Z [") != -1);
+	} finally {
+		deleteProject("P");
+	}
+}
+/*
+ * The supertype graph is read back from the file it was saved to.
+ */
+public void testSupertypeGraphSaved() throws CoreException, IOException {
+	JavaModelManager manager = JavaModelManager.getJavaModelManager();
+	SupertypeGraph graph = manager.supertypeGraph;
+	File file = File.createTempFile("supertypeGraph", ".dat");
+	try {
+		createSubtypes(10);
+		String expected = computeHierarchyOfX(null);
+		assertTrue(file.delete());
+		manager.supertypeGraph = new SupertypeGraph(file);
+		IType type = getCompilationUnit("/P/src/p/X.java").getType("X");
+		type.newTypeHierarchy(null);
+		manager.supertypeGraph.save();
+		manager.supertypeGraph = new SupertypeGraph(file);
+		ResolutionMonitor monitor = new ResolutionMonitor();
+		String actual = type.newTypeHierarchy(monitor).toString();
+		assertFalse("The types should not have been resolved again", monitor.resolved);
+		assertEquals("Unexpected hierarchy from the saved supertype graph", expected, actual);
+	} finally {
+		manager.supertypeGraph = graph;
+		file.delete();
+		deleteProject("P");
+	}
+}
 }
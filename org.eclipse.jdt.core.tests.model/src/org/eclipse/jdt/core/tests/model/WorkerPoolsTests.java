@@ -0,0 +1,129 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.jdt.core.tests.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.Test;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.jdt.core.tests.junit.extension.TestCase;
+import org.eclipse.jdt.internal.core.util.WorkerPools;
+
+/**
+ * Tests the thread pools shared by the concurrent parts of the search engine, the indexer and the hierarchy resolver.
+ */
+public class WorkerPoolsTests extends TestCase {
+
+	public WorkerPoolsTests(String name) {
+		super(name);
+	}
+	public static Test suite() {
+		return buildTestSuite(WorkerPoolsTests.class);
+	}
+	private static List<Callable<Integer>> createTasks(int count, AtomicInteger running, AtomicBoolean canceled) {
+		List<Callable<Integer>> tasks = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			final int value = i;
+			tasks.add(() -> {
+				running.incrementAndGet();
+				try {
+					for (int j = 0; j < 20 && !canceled.get(); j++)
+						Thread.sleep(1);
+				} finally {
+					running.decrementAndGet();
+				}
+				return Integer.valueOf(value);
+			});
+		}
+		return tasks;
+	}
+	/*
+	 * Changing the number of threads must not break the callers which use the pool with the previous number.
+	 */
+	public void testPoolInUseIsNotShutDown() throws Exception {
+		ForkJoinPool pool = WorkerPools.getPool("Test worker", 2); //$NON-NLS-1$
+		assertSame(pool, WorkerPools.getPool("Test worker", 2)); //$NON-NLS-1$
+		ForkJoinPool otherPool = WorkerPools.getPool("Test worker", 3); //$NON-NLS-1$
+		assertNotSame(pool, otherPool);
+		assertEquals(3, otherPool.getParallelism());
+		assertFalse(pool.isShutdown());
+
+		List<Integer> results = new ArrayList<>();
+		WorkerPools.invokeAll(pool, createTasks(10, new AtomicInteger(), new AtomicBoolean()), null, new AtomicBoolean(), results::add);
+		Collections.sort(results);
+		assertEquals("[0, 1, 2, 3, 4, 5, 6, 7, 8, 9]", results.toString()); //$NON-NLS-1$
+	}
+	/*
+	 * A canceled monitor stops the remaining tasks, which have all ended when the cancellation is thrown.
+	 */
+	public void testCanceledTasksHaveEnded() throws Exception {
+		AtomicInteger running = new AtomicInteger();
+		AtomicBoolean canceled = new AtomicBoolean();
+		NullProgressMonitor monitor = new NullProgressMonitor();
+		CountDownLatch firstResult = new CountDownLatch(1);
+		Thread canceler = new Thread(() -> {
+			try {
+				if (firstResult.await(60, TimeUnit.SECONDS))
+					monitor.setCanceled(true);
+			} catch (InterruptedException e) {
+				// ignore
+			}
+		});
+		canceler.start();
+		List<Integer> results = new ArrayList<>();
+		try {
+			WorkerPools.invokeAll(WorkerPools.getPool("Test worker", 4), createTasks(100, running, canceled), monitor, canceled, result -> { //$NON-NLS-1$
+				results.add(result);
+				firstResult.countDown();
+			});
+			fail("Should have been canceled"); //$NON-NLS-1$
+		} catch (OperationCanceledException e) {
+			// expected
+		} finally {
+			canceler.join();
+		}
+		assertTrue(canceled.get());
+		assertEquals("A task is still running", 0, running.get()); //$NON-NLS-1$
+		assertTrue("All tasks were completed", results.size() < 100); //$NON-NLS-1$
+	}
+	/*
+	 * The core exception of a task is thrown by the calling thread, once the other tasks have ended.
+	 */
+	public void testTaskExceptionIsRethrown() throws Exception {
+		AtomicInteger running = new AtomicInteger();
+		AtomicBoolean canceled = new AtomicBoolean();
+		List<Callable<Integer>> tasks = createTasks(20, running, canceled);
+		CoreException failure = new CoreException(new Status(IStatus.ERROR, "test", "failed")); //$NON-NLS-1$ //$NON-NLS-2$
+		tasks.add(0, () -> {
+			throw failure;
+		});
+		try {
+			WorkerPools.invokeAll(WorkerPools.getPool("Test worker", 2), tasks, null, canceled, result -> {/* ignored */}); //$NON-NLS-1$
+			fail("Should have thrown the exception of the task"); //$NON-NLS-1$
+		} catch (CoreException e) {
+			assertSame(failure, e);
+		}
+		assertEquals("A task is still running", 0, running.get()); //$NON-NLS-1$
+	}
+}
@@ -22,6 +22,7 @@ import org.eclipse.jdt.internal.core.nd.Nd;
 import org.eclipse.jdt.internal.core.nd.db.BTree;
 import org.eclipse.jdt.internal.core.nd.db.Database;
 import org.eclipse.jdt.internal.core.nd.db.IBTreeComparator;
+import org.eclipse.jdt.internal.core.nd.db.IBTreePrefixComparator;
 import org.eclipse.jdt.internal.core.nd.db.IBTreeVisitor;
 
 import java.io.File;
@@ -45,6 +46,10 @@ public class BTreeTests extends BaseTestCase {
 	protected BTree btree;
 	protected int rootRecord;
 	protected IBTreeComparator comparator;
+	/**
+	 * Whether the b-trees created by {@link #init(int)} store key prefixes.
+	 */
+	protected boolean useKeyPrefixes;
 
 	public static Test suite() {
 		return suite(BTreeTests.class);
@@ -58,13 +63,14 @@ public class BTreeTests extends BaseTestCase {
 		this.db = this.nd.getDB();
 		this.db.setExclusiveLock();
 		this.rootRecord = Database.DATA_AREA_OFFSET;
-		this.comparator = new BTMockRecordComparator();
+		this.comparator = this.useKeyPrefixes ? new BTMockRecordPrefixComparator() : new BTMockRecordComparator();
 		this.btree = new BTree(this.nd, this.rootRecord, degree, this.comparator);
 	}
 
 	// tearDown is not used for the same reason as above
 	protected void finish() throws Exception {
-		this.db.close();
+		// Trials that start within the same millisecond would otherwise reopen the previous database
+		DatabaseTestUtil.deleteDatabase(this.db);
 		this.dbFile.deleteOnExit();
 	}
 
@@ -73,6 +79,16 @@ public class BTreeTests extends BaseTestCase {
 		sortedMirrorTest(8);
 	}
 
+	public void testBySortedSetMirrorWithKeyPrefixes() throws Exception {
+		this.useKeyPrefixes = true;
+		sortedMirrorTest(8);
+	}
+
+	public void testBulkLoadWithKeyPrefixes() throws Exception {
+		this.useKeyPrefixes = true;
+		testBulkLoad();
+	}
+
 	/**
 	 * Test random (but reproducible via known seed) sequences of insertions/deletions
 	 * and use TreeSet as a reference implementation to check behaviour against.
@@ -122,6 +138,106 @@ public class BTreeTests extends BaseTestCase {
 		}
 	}
 
+	/**
+	 * Bulk-loads sorted sequences of various sizes into empty B-trees of various degrees and checks that the result
+	 * contains the same records as a TreeSet and satisfies the B-tree invariants, also after further modifications.
+	 */
+	public void testBulkLoad() throws Exception {
+		Random random = new Random(4711);
+		int[] sizes = { 0, 1, 2, 3, 7, 15, 16, 17, 100, 1000, 12345 };
+		for (int degree = 2; degree <= 12; degree += 5) {
+			for (int size : sizes) {
+				init(degree);
+				try {
+					SortedSet<Integer> expected = new TreeSet<>();
+					while (expected.size() < size) {
+						expected.add(Integer.valueOf(random.nextInt(Integer.MAX_VALUE)));
+					}
+					long[] records = new long[size];
+					int i = 0;
+					for (Integer next : expected) {
+						records[i++] = new BTMockRecord(this.db, next.intValue()).getRecord();
+					}
+					this.btree.bulkLoad(records);
+					String msg = "[degree " + degree + ", size " + size + "] ";
+					assertBTreeMatchesSortedSet(msg, this.btree, expected);
+					assertBTreeInvariantsHold(msg);
+
+					// The tree must remain usable for ordinary insertions and deletions
+					for (int j = 0; j < 200; j++) {
+						Integer value = Integer.valueOf(random.nextInt(Integer.MAX_VALUE));
+						if (expected.add(value)) {
+							this.btree.insert(new BTMockRecord(this.db, value.intValue()).getRecord());
+						}
+					}
+					for (int j = 0; j < records.length; j += 2) {
+						expected.remove(Integer.valueOf(new BTMockRecord(records[j], this.db).intValue()));
+						this.btree.delete(records[j]);
+					}
+					assertBTreeMatchesSortedSet(msg, this.btree, expected);
+					assertBTreeInvariantsHold(msg);
+				} finally {
+					finish();
+				}
+			}
+		}
+	}
+
+	public void testBulkLoadSkipsDuplicates() throws Exception {
+		init(3);
+		try {
+			long first = new BTMockRecord(this.db, 1).getRecord();
+			long duplicate = new BTMockRecord(this.db, 1).getRecord();
+			long second = new BTMockRecord(this.db, 2).getRecord();
+			this.btree.bulkLoad(new long[] { first, duplicate, second });
+
+			SortedSet<Integer> expected = new TreeSet<>();
+			expected.add(Integer.valueOf(1));
+			expected.add(Integer.valueOf(2));
+			assertBTreeMatchesSortedSet("", this.btree, expected);
+			assertEquals(first, this.btree.insert(duplicate));
+		} finally {
+			finish();
+		}
+	}
+
+	public void testBulkLoadRejectsUnsortedRecords() throws Exception {
+		init(3);
+		try {
+			long first = new BTMockRecord(this.db, 2).getRecord();
+			long second = new BTMockRecord(this.db, 1).getRecord();
+			try {
+				this.btree.bulkLoad(new long[] { first, second });
+				fail("Expected an IllegalArgumentException");
+			} catch (IllegalArgumentException e) {
+				// Expected
+			}
+		} finally {
+			finish();
+		}
+	}
+
+	public void testBulkLoadIntoNonEmptyTree() throws Exception {
+		init(2);
+		try {
+			SortedSet<Integer> expected = new TreeSet<>();
+			for (int i = 0; i < 50; i += 2) {
+				expected.add(Integer.valueOf(i));
+				this.btree.insert(new BTMockRecord(this.db, i).getRecord());
+			}
+			long[] records = new long[25];
+			for (int i = 0; i < records.length; i++) {
+				expected.add(Integer.valueOf(2 * i + 1));
+				records[i] = new BTMockRecord(this.db, 2 * i + 1).getRecord();
+			}
+			this.btree.bulkLoad(records);
+			assertBTreeMatchesSortedSet("", this.btree, expected);
+			assertBTreeInvariantsHold("");
+		} finally {
+			finish();
+		}
+	}
+
 	/**
 	 * Insert/Delete a random number of records into/from the B-tree
 	 * @param seed the seed for obtaining the deterministic random testing
@@ -264,4 +380,22 @@ public class BTreeTests extends BaseTestCase {
 			return dbToCompare.getInt(record1) - dbToCompare.getInt(record2);
 		}
 	}
+
+	/**
+	 * Uses the two most significant bytes of the (non-negative) values as key prefixes, so that comparisons of values
+	 * that are close to each other still need to dereference the records.
+	 */
+	private class BTMockRecordPrefixComparator extends BTMockRecordComparator implements IBTreePrefixComparator {
+		@Override
+		public int getKeyPrefixSize() {
+			return 2;
+		}
+
+		@Override
+		public void getKeyPrefix(Nd ndToCompare, long record, byte[] prefix) {
+			int value = ndToCompare.getDB().getInt(record);
+			prefix[0] = (byte) (value >>> 24);
+			prefix[1] = (byte) (value >>> 16);
+		}
+	}
 }
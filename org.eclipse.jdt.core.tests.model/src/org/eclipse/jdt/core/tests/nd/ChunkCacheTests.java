@@ -0,0 +1,147 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.jdt.core.tests.nd;
+
+import org.eclipse.jdt.core.tests.nd.util.BaseTestCase;
+import org.eclipse.jdt.internal.core.nd.db.ChunkCache;
+import org.eclipse.jdt.internal.core.nd.db.ChunkCache.EvictionPolicy;
+import org.eclipse.jdt.internal.core.nd.db.Database;
+
+import junit.framework.Test;
+
+/**
+ * Tests for the {@link ChunkCache} eviction policies.
+ */
+public class ChunkCacheTests extends BaseTestCase {
+	private static final int CACHE_CHUNKS = 64;
+	private static final int NUM_RECORDS = 400;
+	private static final int NUM_HOT_RECORDS = 8;
+
+	private ChunkCache cache;
+	private Database db;
+	private long[] records;
+
+	public static Test suite() {
+		return BaseTestCase.suite(ChunkCacheTests.class);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		if (this.db != null) {
+			DatabaseTestUtil.deleteDatabase(this.db);
+			this.db = null;
+		}
+		super.tearDown();
+	}
+
+	/**
+	 * Creates a database holding one record per chunk, whose chunks are all evicted from a cache that only has room
+	 * for {@link #CACHE_CHUNKS} chunks.
+	 */
+	private void createDatabase(EvictionPolicy policy) throws Exception {
+		this.cache = new ChunkCache(CACHE_CHUNKS * Database.CHUNK_SIZE, 1, policy);
+		this.db = new Database(DatabaseTestUtil.getTempDbName(getName()), this.cache,
+				DatabaseTestUtil.CURRENT_VERSION, false);
+		this.db.setExclusiveLock();
+		this.records = new long[NUM_RECORDS];
+		for (int i = 0; i < NUM_RECORDS; i++) {
+			this.records[i] = this.db.malloc(Database.MAX_SINGLE_BLOCK_MALLOC_SIZE, Database.POOL_MISC);
+			this.db.putInt(this.records[i], i);
+			this.db.putRecPtr(this.records[i] + Database.INT_SIZE, this.records[i]);
+		}
+		this.db.flush();
+		this.cache.clear();
+		this.db.resetCacheCounters();
+	}
+
+	private void readRecords(int start, int end) {
+		for (int i = start; i < end; i++) {
+			assertEquals(i, this.db.getInt(this.records[i]));
+		}
+	}
+
+	/**
+	 * Reads the given records the way a rescan would, accessing each of them several times in a row.
+	 */
+	private void scanRecords(int start, int end) {
+		for (int i = start; i < end; i++) {
+			assertEquals(i, this.db.getInt(this.records[i]));
+			assertEquals(this.records[i], this.db.getRecPtr(this.records[i] + Database.INT_SIZE));
+		}
+	}
+
+	/**
+	 * Establishes a small working set of records that are used repeatedly over a longer period, performs a
+	 * sequential scan over records that haven't been used before and returns the number of cache misses when the
+	 * working set is used again.
+	 */
+	private long getWorkingSetMissesAfterScan(EvictionPolicy policy) throws Exception {
+		createDatabase(policy);
+		int otherRecords = NUM_RECORDS - CACHE_CHUNKS - NUM_HOT_RECORDS;
+		readRecords(0, NUM_HOT_RECORDS);
+		readRecords(otherRecords, NUM_RECORDS);
+		for (int i = 0; i < 4; i++) {
+			readRecords(0, NUM_HOT_RECORDS);
+		}
+
+		scanRecords(NUM_HOT_RECORDS, otherRecords);
+
+		long missesBefore = this.db.getCacheMisses(policy);
+		readRecords(0, NUM_HOT_RECORDS);
+		return this.db.getCacheMisses(policy) - missesBefore;
+	}
+
+	public void testClockIsFlushedByScan() throws Exception {
+		assertEquals(NUM_HOT_RECORDS, getWorkingSetMissesAfterScan(EvictionPolicy.CLOCK));
+	}
+
+	public void testScanResistantPolicyRetainsWorkingSet() throws Exception {
+		assertEquals(0, getWorkingSetMissesAfterScan(EvictionPolicy.SCAN_RESISTANT));
+	}
+
+	public void testCountersArePerPolicy() throws Exception {
+		createDatabase(EvictionPolicy.CLOCK);
+		readRecords(0, 10);
+		readRecords(0, 10);
+		assertEquals(10, this.db.getCacheMisses(EvictionPolicy.CLOCK));
+		assertEquals(10, this.db.getCacheHits(EvictionPolicy.CLOCK));
+
+		this.cache.setEvictionPolicy(EvictionPolicy.SCAN_RESISTANT);
+		assertEquals(EvictionPolicy.SCAN_RESISTANT, this.cache.getEvictionPolicy());
+		assertEquals(CACHE_CHUNKS * Database.CHUNK_SIZE, this.cache.getMaxSize());
+		// Chunks that were cached before the switch are still cached
+		readRecords(0, 10);
+		readRecords(10, NUM_RECORDS);
+		assertEquals(10, this.db.getCacheHits(EvictionPolicy.SCAN_RESISTANT));
+		assertEquals(NUM_RECORDS - 10, this.db.getCacheMisses(EvictionPolicy.SCAN_RESISTANT));
+		assertEquals(20, this.db.getCacheHits());
+		assertEquals(NUM_RECORDS, this.db.getCacheMisses());
+	}
+
+	public void testResizeScanResistantCache() throws Exception {
+		createDatabase(EvictionPolicy.SCAN_RESISTANT);
+		readRecords(0, NUM_RECORDS);
+		this.cache.setMaxSize(CACHE_CHUNKS / 4 * Database.CHUNK_SIZE);
+		readRecords(0, NUM_RECORDS);
+		this.cache.setMaxSize(CACHE_CHUNKS * 2 * Database.CHUNK_SIZE);
+		readRecords(0, NUM_RECORDS);
+		readRecords(NUM_RECORDS - CACHE_CHUNKS, NUM_RECORDS);
+		assertEquals(CACHE_CHUNKS * 2 * Database.CHUNK_SIZE, this.cache.getMaxSize());
+	}
+
+	public void testPolicyIds() throws Exception {
+		for (EvictionPolicy next : EvictionPolicy.values()) {
+			assertEquals(next, EvictionPolicy.fromId(next.getId(), null));
+		}
+		assertEquals(EvictionPolicy.SCAN_RESISTANT, EvictionPolicy.fromId("ScanResistant", EvictionPolicy.CLOCK));
+		assertEquals(EvictionPolicy.CLOCK, EvictionPolicy.fromId("unknown", EvictionPolicy.CLOCK));
+	}
+}
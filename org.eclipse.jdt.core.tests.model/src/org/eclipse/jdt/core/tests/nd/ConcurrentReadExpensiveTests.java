@@ -0,0 +1,37 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.jdt.core.tests.nd;
+
+import junit.framework.Test;
+
+/**
+ * Benchmark which is too expensive to run as part of normal testing, but should be run after development on the
+ * chunk cache or the database locking. It measures the read throughput of an increasing number of reader threads.
+ */
+public class ConcurrentReadExpensiveTests extends ConcurrentReadTests {
+	private static final int READS_PER_THREAD = 2000000;
+
+	public static Test suite() {
+		return suite(ConcurrentReadExpensiveTests.class);
+	}
+
+	public void testReaderScalability() throws Exception {
+		// Warm up
+		runReaders(1, READS_PER_THREAD);
+
+		int maxThreads = Runtime.getRuntime().availableProcessors();
+		for (int numThreads = 1; numThreads <= maxThreads; numThreads *= 2) {
+			long elapsedMs = Math.max(1, runReaders(numThreads, READS_PER_THREAD));
+			long readsPerMs = (long) numThreads * READS_PER_THREAD / elapsedMs;
+			System.out.println(numThreads + " reader threads: " + elapsedMs + " ms, " + readsPerMs + " reads/ms");
+		}
+	}
+}
@@ -0,0 +1,110 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.jdt.core.tests.nd;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.eclipse.jdt.core.tests.nd.util.BaseTestCase;
+import org.eclipse.jdt.internal.core.nd.IReader;
+import org.eclipse.jdt.internal.core.nd.Nd;
+import org.eclipse.jdt.internal.core.nd.NdNode;
+import org.eclipse.jdt.internal.core.nd.NdNodeTypeRegistry;
+import org.eclipse.jdt.internal.core.nd.db.ChunkCache;
+import org.eclipse.jdt.internal.core.nd.db.Database;
+
+import junit.framework.Test;
+
+/**
+ * Runs several reader threads against a populated {@link Nd} whose chunk cache is much smaller than the database,
+ * so that the readers continuously fetch and evict chunks concurrently.
+ */
+public class ConcurrentReadTests extends BaseTestCase {
+	private static final int RECORD_SIZE = 512;
+	protected static final int NUM_RECORDS = 8000;
+	protected Nd nd;
+	protected long[] records;
+
+	public static Test suite() {
+		return BaseTestCase.suite(ConcurrentReadTests.class);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		this.nd = new Nd(DatabaseTestUtil.getTempDbName(getName()), new ChunkCache(256 * Database.CHUNK_SIZE),
+				new NdNodeTypeRegistry<NdNode>(), 0, 0, 0);
+		this.records = new long[NUM_RECORDS];
+		this.nd.acquireWriteLock(null);
+		try {
+			Database db = this.nd.getDB();
+			for (int i = 0; i < NUM_RECORDS; i++) {
+				this.records[i] = db.malloc(RECORD_SIZE, Database.POOL_MISC);
+				db.putInt(this.records[i], i);
+				db.putLong(this.records[i] + RECORD_SIZE - Database.LONG_SIZE, this.records[i]);
+			}
+		} finally {
+			this.nd.releaseWriteLock(0, true);
+		}
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		this.nd.acquireWriteLock(null);
+		DatabaseTestUtil.deleteDatabase(this.nd.getDB());
+		this.nd = null;
+		super.tearDown();
+	}
+
+	public void testConcurrentReaders() throws Exception {
+		runReaders(8, 20000);
+	}
+
+	/**
+	 * Starts the given number of threads, each of which performs the given number of random record reads under a
+	 * read lock and verifies their content. Returns the elapsed time in milliseconds.
+	 */
+	protected long runReaders(int numThreads, int readsPerThread) throws Exception {
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+		List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < numThreads; t++) {
+			final long seed = t;
+			threads.add(new Thread(() -> {
+				Random random = new Random(seed);
+				Database db = this.nd.getDB();
+				try (IReader reader = this.nd.acquireReadLock()) {
+					for (int i = 0; i < readsPerThread; i++) {
+						int next = random.nextInt(NUM_RECORDS);
+						long address = this.records[next];
+						assertEquals(next, db.getInt(address));
+						assertEquals(address, db.getLong(address + RECORD_SIZE - Database.LONG_SIZE));
+					}
+				} catch (Throwable e) {
+					failure.compareAndSet(null, e);
+				}
+			}, "Reader " + t));
+		}
+		long startTime = System.nanoTime();
+		for (Thread next : threads) {
+			next.start();
+		}
+		for (Thread next : threads) {
+			next.join();
+		}
+		long elapsedMs = (System.nanoTime() - startTime) / 1000000;
+		if (failure.get() != null) {
+			throw new AssertionError("Reader thread failed", failure.get());
+		}
+		return elapsedMs;
+	}
+}
@@ -143,6 +143,185 @@ public class DatabaseTest extends BaseTestCase {
 		assertEquals(mem2, mem1);
 	}
 
+	public void testMemoryMappedReads() throws Exception {
+		File location = DatabaseTestUtil.getTempDbName(getName() + "Mapped");
+		ChunkCache cache = new ChunkCache();
+		Database mapped = new Database(location, cache, DatabaseTestUtil.CURRENT_VERSION, false, true, false);
+		try {
+			mapped.setExclusiveLock();
+			assertTrue(mapped.isMemoryMapped());
+			long[] records = new long[500];
+			for (int i = 0; i < records.length; i++) {
+				records[i] = mapped.malloc(Database.MAX_SINGLE_BLOCK_MALLOC_SIZE / 4, Database.POOL_MISC);
+				mapped.putLong(records[i], i * 31L);
+				mapped.putRecPtr(records[i] + Database.LONG_SIZE, records[i]);
+			}
+			mapped.flush();
+
+			// Force the chunks to be fetched again from the mapped file
+			cache.clear();
+			for (int i = 0; i < records.length; i++) {
+				assertEquals(i * 31L, mapped.getLong(records[i]));
+				assertEquals(records[i], mapped.getRecPtr(records[i] + Database.LONG_SIZE));
+			}
+
+			// Modify a mapped chunk and make sure the change survives a flush and reload
+			mapped.putLong(records[7], -1L);
+			assertEquals(-1L, mapped.getLong(records[7]));
+			mapped.flush();
+			cache.clear();
+			assertEquals(-1L, mapped.getLong(records[7]));
+			assertEquals(8 * 31L, mapped.getLong(records[8]));
+		} finally {
+			DatabaseTestUtil.deleteDatabase(mapped);
+		}
+	}
+
+	public void testCompressedChunks() throws Exception {
+		File location = DatabaseTestUtil.getTempDbName(getName() + "Compressed");
+		ChunkCache cache = new ChunkCache();
+		Database compressed = new Database(location, cache, DatabaseTestUtil.CURRENT_VERSION, false, false, true);
+		Random random = new Random(42);
+		long[] records = new long[500];
+		try {
+			compressed.setExclusiveLock();
+			assertTrue(compressed.isCompressed());
+			for (int i = 0; i < records.length; i++) {
+				records[i] = compressed.malloc(Database.MAX_SINGLE_BLOCK_MALLOC_SIZE / 4, Database.POOL_MISC);
+				compressed.putLong(records[i], i * 31L);
+				compressed.putRecPtr(records[i] + Database.LONG_SIZE, records[i]);
+			}
+			compressed.flush();
+			assertTrue(location.length() < compressed.getDatabaseSize());
+
+			// Force the chunks to be fetched again from the compressed file
+			cache.clear();
+			for (int i = 0; i < records.length; i++) {
+				assertEquals(i * 31L, compressed.getLong(records[i]));
+				assertEquals(records[i], compressed.getRecPtr(records[i] + Database.LONG_SIZE));
+			}
+
+			// Make some of the chunks incompressible, so that they have to move to larger slots, and others compressible
+			// again, so that they can reuse the freed slots
+			for (int round = 0; round < 3; round++) {
+				for (int i = round; i < records.length; i += 3) {
+					long value = round == 1 ? i : random.nextLong();
+					for (int offset = 2 * Database.LONG_SIZE; offset + Database.LONG_SIZE
+							<= Database.MAX_SINGLE_BLOCK_MALLOC_SIZE / 4; offset += Database.LONG_SIZE) {
+						compressed.putLong(records[i] + offset, value);
+					}
+				}
+				compressed.flush();
+				cache.clear();
+			}
+			compressed.putLong(records[7], -1L);
+			compressed.flush();
+		} finally {
+			compressed.close();
+		}
+
+		// The chunks must survive reopening the database
+		compressed = new Database(location, cache, 0, false, false, true);
+		try {
+			compressed.setExclusiveLock();
+			assertEquals(DatabaseTestUtil.CURRENT_VERSION, compressed.getVersion());
+			assertEquals(-1L, compressed.getLong(records[7]));
+			for (int i = 8; i < records.length; i++) {
+				assertEquals(i * 31L, compressed.getLong(records[i]));
+				assertEquals(records[i], compressed.getRecPtr(records[i] + Database.LONG_SIZE));
+			}
+			assertEquals(4L, compressed.getLong(records[4] + 2 * Database.LONG_SIZE));
+
+			// Writing after reopening must not overwrite the slots of other chunks
+			for (int i = 0; i < records.length; i += 2) {
+				compressed.putLong(records[i] + 2 * Database.LONG_SIZE, random.nextLong());
+				compressed.putLong(records[i] + 3 * Database.LONG_SIZE, random.nextLong());
+			}
+			compressed.flush();
+			cache.clear();
+			for (int i = 8; i < records.length; i++) {
+				assertEquals(i * 31L, compressed.getLong(records[i]));
+			}
+		} finally {
+			compressed.close();
+		}
+
+		// A database opened with the other format has an unsupported version
+		Database uncompressed = new Database(location, cache, 0, true, false, false);
+		try {
+			assertFalse(uncompressed.isCompressed());
+			assertEquals(0, uncompressed.getVersion());
+		} finally {
+			uncompressed.setExclusiveLock();
+			DatabaseTestUtil.deleteDatabase(uncompressed);
+		}
+	}
+
+	public void testCompactingCompressedDatabase() throws Exception {
+		File location = DatabaseTestUtil.getTempDbName(getName() + "Compressed");
+		ChunkCache cache = new ChunkCache();
+		Database compressed = new Database(location, cache, DatabaseTestUtil.CURRENT_VERSION, false, false, true);
+		long[] records = new long[200];
+		int chunkCount;
+		try {
+			compressed.setExclusiveLock();
+			for (int i = 0; i < records.length; i++) {
+				records[i] = compressed.malloc(Database.MAX_SINGLE_BLOCK_MALLOC_SIZE / 4, Database.POOL_MISC);
+				compressed.putLong(records[i], i * 31L);
+			}
+			compressed.flush();
+
+			// Free the second half of the records and remove the space they used from the end of the database
+			for (int i = records.length / 2; i < records.length; i++) {
+				compressed.free(records[i], Database.POOL_MISC);
+			}
+			chunkCount = compressed.getChunkCount();
+			assertTrue(compressed.compact(null) > 0);
+			assertTrue(compressed.getChunkCount() < chunkCount);
+			chunkCount = compressed.getChunkCount();
+			compressed.flush();
+		} finally {
+			compressed.close();
+		}
+
+		compressed = new Database(location, cache, 0, false, false, true);
+		try {
+			compressed.setExclusiveLock();
+			assertEquals(DatabaseTestUtil.CURRENT_VERSION, compressed.getVersion());
+			assertEquals(chunkCount, compressed.getChunkCount());
+			for (int i = 0; i < records.length / 2; i++) {
+				assertEquals(i * 31L, compressed.getLong(records[i]));
+			}
+			compressed.validateFreeSpace();
+
+			// Chunks that are added again must not reuse the slots of the remaining chunks
+			for (int i = records.length / 2; i < records.length; i++) {
+				records[i] = compressed.malloc(Database.MAX_SINGLE_BLOCK_MALLOC_SIZE / 4, Database.POOL_MISC);
+				compressed.putLong(records[i], i * 17L);
+			}
+			compressed.flush();
+			cache.clear();
+			for (int i = 0; i < records.length; i++) {
+				assertEquals(i * (i < records.length / 2 ? 31L : 17L), compressed.getLong(records[i]));
+			}
+		} finally {
+			DatabaseTestUtil.deleteDatabase(compressed);
+		}
+	}
+
+	public void testDatabaseOpenedWithOtherFormat() throws Exception {
+		this.db.malloc(42, Database.POOL_MISC);
+		this.db.flush();
+		Database other = new Database(this.db.getLocation(), new ChunkCache(), 0, true, false,
+				!this.db.isCompressed());
+		try {
+			assertEquals(0, other.getVersion());
+		} finally {
+			other.setExclusiveLock();
+			other.close();
+		}
+	}
+
 	private static class FindVisitor implements IBTreeVisitor {
 		private Database db;
 		private String key;
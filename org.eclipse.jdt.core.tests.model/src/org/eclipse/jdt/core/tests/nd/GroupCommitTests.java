@@ -0,0 +1,195 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.jdt.core.tests.nd;
+
+import org.eclipse.jdt.core.tests.nd.util.BaseTestCase;
+import org.eclipse.jdt.internal.core.nd.Nd;
+import org.eclipse.jdt.internal.core.nd.NdNode;
+import org.eclipse.jdt.internal.core.nd.NdNodeTypeRegistry;
+import org.eclipse.jdt.internal.core.nd.db.ChunkCache;
+import org.eclipse.jdt.internal.core.nd.db.Database;
+
+import junit.framework.Test;
+
+/**
+ * Tests for {@link Nd#setGroupCommitInterval(long)}.
+ */
+public class GroupCommitTests extends BaseTestCase {
+	private static final int NUM_TRANSACTIONS = 20;
+	private Nd nd;
+
+	public static Test suite() {
+		return BaseTestCase.suite(GroupCommitTests.class);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		this.nd = new Nd(DatabaseTestUtil.getTempDbName(getName()), new ChunkCache(), new NdNodeTypeRegistry<NdNode>(),
+				0, 0, 0);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		if (this.nd == null) {
+			// Closed by the test
+			super.tearDown();
+			return;
+		}
+		this.nd.setGroupCommitInterval(0);
+		this.nd.acquireWriteLock(null);
+		DatabaseTestUtil.deleteDatabase(this.nd.getDB());
+		this.nd = null;
+		super.tearDown();
+	}
+
+	/**
+	 * Performs a write transaction that asks for a flush and returns the address of the record it wrote.
+	 */
+	private long writeRecord(long value) {
+		this.nd.acquireWriteLock(null);
+		try {
+			Database db = this.nd.getDB();
+			long record = db.malloc(Database.LONG_SIZE, Database.POOL_MISC);
+			db.putLong(record, value);
+			return record;
+		} finally {
+			this.nd.releaseWriteLock(0, true);
+		}
+	}
+
+	private static boolean isFlusherRunning() {
+		for (Thread thread : Thread.getAllStackTraces().keySet()) {
+			if (thread.isAlive() && "Java index flusher".equals(thread.getName())) { //$NON-NLS-1$
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Asserts that the file contains the given values, using a second {@link Database} that reads it from disk.
+	 */
+	private void assertValuesOnDisk(long[] records) {
+		Database db = this.nd.getDB();
+		Database onDisk = new Database(db.getLocation(), new ChunkCache(), 0, true, false, db.isCompressed());
+		try {
+			onDisk.setLocked(true);
+			for (int i = 0; i < records.length; i++) {
+				assertEquals(i, onDisk.getLong(records[i]));
+			}
+		} finally {
+			onDisk.setExclusiveLock();
+			onDisk.close();
+		}
+	}
+
+	private void checkFlushesAreCombined() {
+		this.nd.setGroupCommitInterval(60000);
+		long[] records = new long[NUM_TRANSACTIONS];
+		for (int i = 0; i < records.length; i++) {
+			records[i] = writeRecord(i);
+		}
+		assertTrue("The write transactions should not have flushed the database",
+				this.nd.getDB().getDirtyChunkCount() > 0);
+
+		this.nd.awaitGroupCommit();
+		assertEquals(0, this.nd.getDB().getDirtyChunkCount());
+		assertValuesOnDisk(records);
+	}
+
+	public void testFlushesAreCombined() throws Exception {
+		checkFlushesAreCombined();
+	}
+
+	public void testFlushesAreCombinedWithSnapshotReads() throws Exception {
+		this.nd.setSnapshotReads(true);
+		checkFlushesAreCombined();
+	}
+
+	public void testFlushHappensAfterInterval() throws Exception {
+		this.nd.setGroupCommitInterval(20);
+		long[] records = new long[] { writeRecord(0) };
+		long timeout = System.currentTimeMillis() + 10000;
+		while (this.nd.getDB().getDirtyChunkCount() > 0) {
+			assertTrue("The database was not flushed in the background", System.currentTimeMillis() < timeout);
+			Thread.sleep(10);
+		}
+		this.nd.awaitGroupCommit();
+		assertValuesOnDisk(records);
+	}
+
+	public void testDisablingGroupCommitsFlushesPendingChanges() throws Exception {
+		this.nd.setGroupCommitInterval(60000);
+		long[] records = new long[] { writeRecord(0), writeRecord(1) };
+		this.nd.setGroupCommitInterval(0);
+		assertEquals(0, this.nd.getGroupCommitInterval());
+		assertEquals(0, this.nd.getDB().getDirtyChunkCount());
+		assertValuesOnDisk(records);
+
+		// Write transactions flush the database themselves again
+		writeRecord(2);
+		assertEquals(0, this.nd.getDB().getDirtyChunkCount());
+	}
+
+	public void testDisablingGroupCommitsWaitsForTheFlusher() throws Exception {
+		this.nd.setGroupCommitInterval(60000);
+		writeRecord(0);
+		assertTrue(isFlusherRunning());
+		this.nd.setGroupCommitInterval(0);
+		assertFalse("The flusher thread should have ended", isFlusherRunning());
+	}
+
+	public void testChangingIntervalHandsOverPendingFlushes() throws Exception {
+		this.nd.setGroupCommitInterval(60000);
+		long[] records = new long[NUM_TRANSACTIONS * 10];
+		Thread writer = new Thread(() -> {
+			for (int i = 0; i < records.length; i++) {
+				records[i] = writeRecord(i);
+			}
+		});
+		writer.start();
+		for (int i = 0; writer.isAlive(); i++) {
+			this.nd.setGroupCommitInterval(i % 2 == 0 ? 50000 : 60000);
+		}
+		writer.join();
+
+		// None of the requests went to a flusher that had already been replaced
+		this.nd.awaitGroupCommit();
+		assertEquals(0, this.nd.getDB().getDirtyChunkCount());
+		assertValuesOnDisk(records);
+	}
+
+	private void checkClosingWaitsForTheFlusher() throws Exception {
+		this.nd.setGroupCommitInterval(20);
+		long[] records = new long[] { writeRecord(0) };
+		this.nd.acquireWriteLock(null);
+		// Let the flusher wait for the lock
+		Thread.sleep(100);
+		this.nd.close();
+		assertFalse("The flusher thread should have ended", isFlusherRunning());
+		assertValuesOnDisk(records);
+		Database db = this.nd.getDB();
+		this.nd = null;
+		if (!db.getLocation().delete()) {
+			db.getLocation().deleteOnExit();
+		}
+	}
+
+	public void testClosingWaitsForTheFlusher() throws Exception {
+		checkClosingWaitsForTheFlusher();
+	}
+
+	public void testClosingWaitsForTheFlusherWithSnapshotReads() throws Exception {
+		this.nd.setSnapshotReads(true);
+		checkClosingWaitsForTheFlusher();
+	}
+}
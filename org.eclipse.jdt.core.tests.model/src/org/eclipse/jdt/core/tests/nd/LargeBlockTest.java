@@ -15,6 +15,9 @@
  *******************************************************************************/
 package org.eclipse.jdt.core.tests.nd;
 
+import java.util.HashSet;
+import java.util.Set;
+
 import org.eclipse.jdt.core.tests.nd.util.BaseTestCase;
 import org.eclipse.jdt.internal.core.nd.Nd;
 import org.eclipse.jdt.internal.core.nd.db.Database;
@@ -406,4 +409,108 @@ public class LargeBlockTest extends BaseTestCase {
 		assertNotSame("The second chunk should not be null", 0, secondDoubleChunk);
 		this.db.validateFreeSpace();
 	}
+
+	private long[] mallocSmallBlocks(int count) {
+		long[] result = new long[count];
+		for (int i = 0; i < count; i++) {
+			result[i] = malloc(Database.MAX_SINGLE_BLOCK_MALLOC_SIZE / 8);
+		}
+		return result;
+	}
+
+	private static int countChunks(long[] addresses) {
+		Set<Long> chunks = new HashSet<>();
+		for (long next : addresses) {
+			chunks.add(next / Database.CHUNK_SIZE);
+		}
+		return chunks.size();
+	}
+
+	/**
+	 * Frees a number of small blocks and verifies that compacting the database makes the chunks that contained them
+	 * available for large allocations.
+	 */
+	public void testCompactionReclaimsFreeSmallBlocks() throws Exception {
+		long[] smallBlocks = mallocSmallBlocks(80);
+		int numSmallBlockChunks = countChunks(smallBlocks);
+		mallocChunks(1);
+		for (long next : smallBlocks) {
+			free(next);
+		}
+		int chunkCount = this.db.getChunkCount();
+
+		long bytesReclaimed = this.db.compact(null);
+
+		assertEquals(numSmallBlockChunks * Database.CHUNK_SIZE, bytesReclaimed);
+		assertEquals("Chunks followed by an allocated block must not be removed", chunkCount,
+				this.db.getChunkCount());
+		assertEquals(1, this.db.getMemoryStats().getNumCompactions());
+		assertEquals(bytesReclaimed, this.db.getMemoryStats().getBytesReclaimedByCompaction());
+		assertEquals(1.0, this.db.getMemoryStats().getCompactionProgress(), 0.0);
+		this.db.validateFreeSpace();
+
+		mallocChunks(numSmallBlockChunks);
+		assertEquals("The reclaimed chunks should have been reused", chunkCount, this.db.getChunkCount());
+		this.db.validateFreeSpace();
+	}
+
+	/**
+	 * Verifies that compacting the database doesn't touch chunks that still contain allocated small blocks.
+	 */
+	public void testCompactionKeepsChunksWithAllocatedSmallBlocks() throws Exception {
+		long[] smallBlocks = mallocSmallBlocks(3);
+		mallocChunks(1);
+		for (int i = 1; i < smallBlocks.length; i++) {
+			free(smallBlocks[i]);
+		}
+		this.db.putLong(smallBlocks[0], 1234L);
+
+		assertEquals(0, this.db.compact(null));
+		assertEquals(1234L, this.db.getLong(smallBlocks[0]));
+
+		// The free small blocks must still be available
+		long[] newBlocks = mallocSmallBlocks(2);
+		for (long next : newBlocks) {
+			assertEquals(smallBlocks[0] / Database.CHUNK_SIZE, next / Database.CHUNK_SIZE);
+		}
+		this.db.validateFreeSpace();
+	}
+
+	/**
+	 * Verifies that compacting the database removes the free space at its end, and that the file is truncated when
+	 * the database is flushed.
+	 */
+	public void testCompactionTruncatesFile() throws Exception {
+		int chunkCount = this.db.getChunkCount();
+		long[] smallBlocks = mallocSmallBlocks(40);
+		int numSmallBlockChunks = countChunks(smallBlocks);
+		long largeBlock = mallocChunks(3);
+		this.db.flush();
+		long fileLength = this.db.getLocation().length();
+
+		for (long next : smallBlocks) {
+			free(next);
+		}
+		free(largeBlock);
+		assertEquals((numSmallBlockChunks + 3) * Database.CHUNK_SIZE, this.db.compact(null));
+		assertEquals(chunkCount, this.db.getChunkCount());
+		assertEquals((numSmallBlockChunks + 3) * Database.CHUNK_SIZE,
+				this.db.getMemoryStats().getBytesTruncatedByCompaction());
+		this.db.validateFreeSpace();
+
+		this.db.flush();
+		if (this.db.isCompressed()) {
+			assertTrue(this.db.getLocation().length() <= fileLength);
+		} else {
+			assertEquals(this.db.getDatabaseSize(), this.db.getLocation().length());
+		}
+
+		// The database must still be usable after being truncated
+		long address = mallocChunks(2);
+		this.db.putLong(address, 5678L);
+		this.db.flush();
+		assertEquals(chunkCount + 2, this.db.getChunkCount());
+		assertEquals(5678L, this.db.getLong(address));
+		this.db.validateFreeSpace();
+	}
 }
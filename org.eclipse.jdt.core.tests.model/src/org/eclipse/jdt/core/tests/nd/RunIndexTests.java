@@ -30,15 +30,20 @@ public RunIndexTests(String name) {
 public static Class[] getAllTestClasses() {
 	return new Class[] {
 		BTreeTests.class,
+		ChunkCacheTests.class,
 		ChunkWriterTests.class,
+		ConcurrentReadTests.class,
 		DatabaseTest.class,
 		FieldBackPointerTest.class,
 		FieldListTest.class,
 		FieldOneToOneTest.class,
+		GroupCommitTests.class,
 		IndexerTest.class,
 		InheritenceTests.class,
 		LargeBlockTest.class,
-		SearchKeyTests.class
+		SearchIndexPrefixTests.class,
+		SearchKeyTests.class,
+		SnapshotReadTests.class
 	};
 }
 public static Test suite() {
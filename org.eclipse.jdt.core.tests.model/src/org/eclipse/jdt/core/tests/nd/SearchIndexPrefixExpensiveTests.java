@@ -0,0 +1,75 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.jdt.core.tests.nd;
+
+import java.util.Random;
+
+import org.eclipse.jdt.internal.core.nd.IReader;
+import org.eclipse.jdt.internal.core.nd.field.FieldSearchIndex;
+import org.eclipse.jdt.internal.core.nd.field.FieldSearchIndex.SearchCriteria;
+import org.eclipse.jdt.internal.core.nd.db.Database;
+
+import junit.framework.Test;
+
+/**
+ * Benchmark which is too expensive to run as part of normal testing, but should be run after development on the
+ * b-tree or the search indices. It compares the lookup time of search indices with and without key prefixes, using a
+ * chunk cache that is much smaller than the database.
+ */
+public class SearchIndexPrefixExpensiveTests extends SearchIndexPrefixTests {
+	private static final int NUM_ELEMENTS = 100000;
+	private static final int NUM_LOOKUPS = 100000;
+
+	public static Test suite() {
+		return suite(SearchIndexPrefixExpensiveTests.class);
+	}
+
+	/**
+	 * Makes the names unique, so that the lookups measure the search rather than visiting many equal keys.
+	 */
+	@Override
+	protected String createName(Random random, int index) {
+		return randomName(random) + index;
+	}
+
+	public void testLookupPerformance() throws Exception {
+		Random random = new Random(4711);
+		addElements(random, NUM_ELEMENTS);
+		SearchCriteria[] searches = new SearchCriteria[NUM_LOOKUPS];
+		for (int i = 0; i < searches.length; i++) {
+			searches[i] = SearchCriteria.create(this.names.get(random.nextInt(this.names.size())));
+		}
+
+		// Warm up
+		runLookups(TestSearchIndex.PLAIN_INDEX, searches);
+		runLookups(TestSearchIndex.PREFIX_INDEX, searches);
+
+		for (int i = 0; i < 3; i++) {
+			long plainMs = runLookups(TestSearchIndex.PLAIN_INDEX, searches);
+			long prefixMs = runLookups(TestSearchIndex.PREFIX_INDEX, searches);
+			System.out.println(NUM_LOOKUPS + " lookups without key prefixes: " + plainMs + " ms, with key prefixes: "
+					+ prefixMs + " ms");
+		}
+	}
+
+	/**
+	 * Performs the given searches on the given index and returns the elapsed time in milliseconds.
+	 */
+	private long runLookups(FieldSearchIndex<Element> index, SearchCriteria[] searches) {
+		long startTime = System.nanoTime();
+		try (IReader reader = this.nd.acquireReadLock()) {
+			for (SearchCriteria next : searches) {
+				index.findFirst(this.nd, Database.DATA_AREA_OFFSET, next);
+			}
+		}
+		return (System.nanoTime() - startTime) / 1000000;
+	}
+}
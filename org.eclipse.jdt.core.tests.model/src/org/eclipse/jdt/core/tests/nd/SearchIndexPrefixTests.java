@@ -0,0 +1,245 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.jdt.core.tests.nd;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.eclipse.jdt.core.tests.nd.util.BaseTestCase;
+import org.eclipse.jdt.internal.core.nd.IReader;
+import org.eclipse.jdt.internal.core.nd.Nd;
+import org.eclipse.jdt.internal.core.nd.NdNode;
+import org.eclipse.jdt.internal.core.nd.NdNodeTypeRegistry;
+import org.eclipse.jdt.internal.core.nd.db.ChunkCache;
+import org.eclipse.jdt.internal.core.nd.db.Database;
+import org.eclipse.jdt.internal.core.nd.field.FieldSearchIndex;
+import org.eclipse.jdt.internal.core.nd.field.FieldSearchIndex.SearchCriteria;
+import org.eclipse.jdt.internal.core.nd.field.FieldSearchKey;
+import org.eclipse.jdt.internal.core.nd.field.StructDef;
+
+import junit.framework.Test;
+
+/**
+ * Checks that a {@link FieldSearchIndex} that stores key prefixes in its b-tree nodes returns the same results as one
+ * that doesn't.
+ */
+public class SearchIndexPrefixTests extends BaseTestCase {
+	private static final String[] STEMS = { "", "get", "Get", "set", "AbstractTypeDeclaration", "java/util/",
+			"java/util/concurrent/", "\u00e9t\u00e9", "_", "$" };
+	private static final String CHARACTERS = "aAbBcCyYzZ09_$/[`{\u00e9\u00c9\u4e2d";
+
+	public static class TestSearchIndex {
+		public static final FieldSearchIndex<Element> PLAIN_INDEX;
+		public static final FieldSearchIndex<Element> PREFIX_INDEX;
+
+		public static final StructDef<TestSearchIndex> type;
+
+		static {
+			type = StructDef.create(TestSearchIndex.class);
+			PLAIN_INDEX = FieldSearchIndex.create(type, Element.PLAIN_NAME);
+			PREFIX_INDEX = FieldSearchIndex.create(type, Element.PREFIX_NAME, true);
+			type.done();
+		}
+
+		public TestSearchIndex(Nd nd, long address) {
+		}
+	}
+
+	public static class Element extends NdNode {
+		public static final FieldSearchKey<TestSearchIndex> PLAIN_NAME;
+		public static final FieldSearchKey<TestSearchIndex> PREFIX_NAME;
+
+		@SuppressWarnings("hiding")
+		public static StructDef<Element> type;
+
+		static {
+			type = StructDef.create(Element.class, NdNode.type);
+
+			PLAIN_NAME = FieldSearchKey.create(type, TestSearchIndex.PLAIN_INDEX);
+			PREFIX_NAME = FieldSearchKey.create(type, TestSearchIndex.PREFIX_INDEX);
+			type.done();
+		}
+
+		public Element(Nd nd, long record) {
+			super(nd, record);
+		}
+
+		public Element(Nd nd) {
+			super(nd);
+		}
+
+		public void setName(String name) {
+			PLAIN_NAME.put(getNd(), this.address, name);
+			PREFIX_NAME.put(getNd(), this.address, name);
+		}
+	}
+
+	protected Nd nd;
+	protected List<Element> elements = new ArrayList<>();
+	protected List<String> names = new ArrayList<>();
+
+	public static Test suite() {
+		return BaseTestCase.suite(SearchIndexPrefixTests.class);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		NdNodeTypeRegistry<NdNode> registry = new NdNodeTypeRegistry<>();
+		registry.register(0, Element.type.getFactory());
+		this.nd = new Nd(DatabaseTestUtil.getTempDbName(getName()), new ChunkCache(getCacheSize()), registry, 0, 0,
+				0);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		this.nd.acquireWriteLock(null);
+		DatabaseTestUtil.deleteDatabase(this.nd.getDB());
+		this.nd = null;
+		super.tearDown();
+	}
+
+	protected long getCacheSize() {
+		return 64 * Database.CHUNK_SIZE;
+	}
+
+	/**
+	 * Adds the given number of elements with random names that share a few common stems.
+	 */
+	protected void addElements(Random random, int count) {
+		this.nd.acquireWriteLock(null);
+		try {
+			for (int i = 0; i < count; i++) {
+				String name = createName(random, i);
+				Element element = new Element(this.nd);
+				element.setName(name);
+				this.elements.add(element);
+				this.names.add(name);
+			}
+		} finally {
+			this.nd.releaseWriteLock(0, true);
+		}
+	}
+
+	/**
+	 * Returns the name of the element with the given index.
+	 */
+	protected String createName(Random random, int index) {
+		return randomName(random);
+	}
+
+	protected static String randomName(Random random) {
+		StringBuilder result = new StringBuilder(STEMS[random.nextInt(STEMS.length)]);
+		int length = random.nextInt(random.nextBoolean() ? 4 : 24);
+		for (int i = 0; i < length; i++) {
+			result.append(CHARACTERS.charAt(random.nextInt(CHARACTERS.length())));
+		}
+		return result.toString();
+	}
+
+	/**
+	 * Returns a search string derived from one of the names, which may have changed case, been truncated or had a
+	 * character appended.
+	 */
+	protected String randomSearchString(Random random) {
+		String name = this.names.get(random.nextInt(this.names.size()));
+		switch (random.nextInt(4)) {
+			case 0:
+				return name.toUpperCase();
+			case 1:
+				return name.substring(0, random.nextInt(name.length() + 1));
+			case 2:
+				return name + CHARACTERS.charAt(random.nextInt(CHARACTERS.length()));
+			default:
+				return name;
+		}
+	}
+
+	private void assertSameResults(SearchCriteria criteria) {
+		String msg = new String(criteria.getSearchString()) + " (prefix " + criteria.isPrefixSearch() + ", case "
+				+ criteria.isMatchingCase() + ")";
+		List<Element> expected = TestSearchIndex.PLAIN_INDEX.findAll(this.nd, Database.DATA_AREA_OFFSET, criteria);
+		List<Element> actual = TestSearchIndex.PREFIX_INDEX.findAll(this.nd, Database.DATA_AREA_OFFSET, criteria);
+		assertEquals(msg, expected, actual);
+	}
+
+	protected void assertSameResults(Random random, int numSearches) {
+		try (IReader reader = this.nd.acquireReadLock()) {
+			for (int i = 0; i < numSearches; i++) {
+				String searchString = randomSearchString(random);
+				for (int options = 0; options < 4; options++) {
+					assertSameResults(SearchCriteria.create(searchString).prefix((options & 1) != 0)
+							.matchCase((options & 2) != 0));
+				}
+			}
+		}
+	}
+
+	private void assertInvariantsHold() {
+		try (IReader reader = this.nd.acquireReadLock()) {
+			assertEquals("", TestSearchIndex.PREFIX_INDEX.get(this.nd, Database.DATA_AREA_OFFSET)
+					.getInvariantsErrorReport());
+			assertEquals(TestSearchIndex.PLAIN_INDEX.asList(this.nd, Database.DATA_AREA_OFFSET),
+					TestSearchIndex.PREFIX_INDEX.asList(this.nd, Database.DATA_AREA_OFFSET));
+		}
+	}
+
+	public void testSearchesMatchIndexWithoutPrefixes() {
+		Random random = new Random(1234);
+		addElements(random, 3000);
+		assertInvariantsHold();
+		assertSameResults(random, 500);
+	}
+
+	public void testRenamingAndDeletingElements() {
+		Random random = new Random(5678);
+		addElements(random, 2000);
+		this.nd.acquireWriteLock(null);
+		try {
+			for (int i = 0; i < 1500; i++) {
+				int index = random.nextInt(this.elements.size());
+				if (random.nextBoolean()) {
+					String name = randomName(random);
+					this.elements.get(index).setName(name);
+					this.names.set(index, name);
+				} else {
+					this.elements.remove(index).delete();
+					this.names.remove(index);
+				}
+			}
+			this.nd.processDeletions();
+		} finally {
+			this.nd.releaseWriteLock(0, true);
+		}
+		assertInvariantsHold();
+		assertSameResults(random, 500);
+	}
+
+	public void testDeferredInsertions() {
+		Random random = new Random(9012);
+		this.nd.acquireWriteLock(null);
+		try {
+			TestSearchIndex.PREFIX_INDEX.deferInsertions(this.nd);
+		} finally {
+			this.nd.releaseWriteLock(0, true);
+		}
+		addElements(random, 2000);
+		this.nd.acquireWriteLock(null);
+		try {
+			TestSearchIndex.PREFIX_INDEX.finishDeferredInsertions(this.nd, Database.DATA_AREA_OFFSET);
+		} finally {
+			this.nd.releaseWriteLock(0, true);
+		}
+		assertInvariantsHold();
+		assertSameResults(random, 500);
+	}
+}
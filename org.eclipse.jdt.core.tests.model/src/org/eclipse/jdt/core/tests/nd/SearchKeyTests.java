@@ -13,10 +13,13 @@
  *******************************************************************************/
 package org.eclipse.jdt.core.tests.nd;
 
+import java.io.File;
+
 import org.eclipse.jdt.core.tests.nd.util.BaseTestCase;
 import org.eclipse.jdt.internal.core.nd.Nd;
 import org.eclipse.jdt.internal.core.nd.NdNode;
 import org.eclipse.jdt.internal.core.nd.NdNodeTypeRegistry;
+import org.eclipse.jdt.internal.core.nd.db.ChunkCache;
 import org.eclipse.jdt.internal.core.nd.db.Database;
 import org.eclipse.jdt.internal.core.nd.field.FieldSearchIndex;
 import org.eclipse.jdt.internal.core.nd.field.FieldSearchKey;
@@ -152,6 +155,78 @@ public class SearchKeyTests extends BaseTestCase {
 		assertEquals(null, foundElementA);
 	}
 
+	public void testDeferredInsertions() {
+		TestSearchIndex.NAME_INDEX.deferInsertions(this.nd);
+		this.elementA.setName(SEARCH_STRING_A);
+		this.elementB.setName(SEARCH_STRING_B);
+		Element elementC = new Element(this.nd);
+		elementC.setName(SEARCH_STRING_C);
+		elementC.delete();
+		this.nd.processDeletions();
+
+		assertEquals(null, this.index.findName(SEARCH_STRING_A));
+
+		TestSearchIndex.NAME_INDEX.finishDeferredInsertions(this.nd, Database.DATA_AREA_OFFSET);
+		assertEquals(this.elementA, this.index.findName(SEARCH_STRING_A));
+		assertEquals(this.elementB, this.index.findName(SEARCH_STRING_B));
+		assertEquals(null, this.index.findName(SEARCH_STRING_C));
+
+		// Insertions are no longer deferred
+		this.elementA.setName(SEARCH_STRING_C);
+		assertEquals(this.elementA, this.index.findName(SEARCH_STRING_C));
+		assertEquals(null, this.index.findName(SEARCH_STRING_A));
+	}
+
+	private static Nd openVersionedNd(File location, NdNodeTypeRegistry<NdNode> registry) {
+		Nd result = new Nd(location, new ChunkCache(), registry, 1, 1, 1);
+		result.getDB().setExclusiveLock();
+		return result;
+	}
+
+	/**
+	 * A database that is reopened while insertions are still deferred must not look complete, since the deferred
+	 * records only existed in memory.
+	 */
+	public void testReopeningBeforeDeferredInsertionsAreFinished() throws Exception {
+		NdNodeTypeRegistry<NdNode> registry = new NdNodeTypeRegistry<>();
+		registry.register(0, Element.type.getFactory());
+		File location = DatabaseTestUtil.getTempDbName(getName());
+		deleteOnTearDown(location);
+		Nd versionedNd = openVersionedNd(location, registry);
+		Element elementA = new Element(versionedNd);
+		elementA.setName(SEARCH_STRING_A);
+		elementA.setNickName(SEARCH_STRING_C);
+		TestSearchIndex.NAME_INDEX.deferInsertions(versionedNd);
+		Element elementB = new Element(versionedNd);
+		elementB.setName(SEARCH_STRING_B);
+		versionedNd.getDB().flush();
+		versionedNd.getDB().close();
+
+		// The database is recreated instead of lacking the deferred record
+		versionedNd = openVersionedNd(location, registry);
+		TestSearchIndex reopenedIndex = TestSearchIndex.getIndex(versionedNd);
+		assertEquals(null, reopenedIndex.findNickName(SEARCH_STRING_C));
+		assertEquals(null, reopenedIndex.findName(SEARCH_STRING_A));
+		assertEquals(null, reopenedIndex.findName(SEARCH_STRING_B));
+
+		// Once the deferred insertions are finished, the next flush marks the database as complete again
+		elementA = new Element(versionedNd);
+		elementA.setName(SEARCH_STRING_A);
+		TestSearchIndex.NAME_INDEX.deferInsertions(versionedNd);
+		elementB = new Element(versionedNd);
+		elementB.setName(SEARCH_STRING_B);
+		versionedNd.getDB().flush();
+		TestSearchIndex.NAME_INDEX.finishDeferredInsertions(versionedNd, Database.DATA_AREA_OFFSET);
+		versionedNd.getDB().flush();
+		versionedNd.getDB().close();
+
+		versionedNd = openVersionedNd(location, registry);
+		reopenedIndex = TestSearchIndex.getIndex(versionedNd);
+		assertEquals(elementA.address, reopenedIndex.findName(SEARCH_STRING_A).address);
+		assertEquals(elementB.address, reopenedIndex.findName(SEARCH_STRING_B).address);
+		versionedNd.getDB().close();
+	}
+
 	public void testDeletingElementRemovesFromIndex() {
 		this.elementA.setName(SEARCH_STRING_A);
 		this.elementA.setNickName(SEARCH_STRING_B);
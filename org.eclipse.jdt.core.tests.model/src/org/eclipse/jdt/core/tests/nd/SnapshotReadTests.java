@@ -0,0 +1,227 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.jdt.core.tests.nd;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.eclipse.jdt.core.tests.nd.util.BaseTestCase;
+import org.eclipse.jdt.internal.core.nd.IReader;
+import org.eclipse.jdt.internal.core.nd.Nd;
+import org.eclipse.jdt.internal.core.nd.NdNode;
+import org.eclipse.jdt.internal.core.nd.NdNodeTypeRegistry;
+import org.eclipse.jdt.internal.core.nd.db.ChunkCache;
+import org.eclipse.jdt.internal.core.nd.db.Database;
+
+import junit.framework.Test;
+
+/**
+ * Tests for {@link Nd#setSnapshotReads(boolean)}.
+ */
+public class SnapshotReadTests extends BaseTestCase {
+	private static final int RECORD_SIZE = 512;
+	private static final int NUM_RECORDS = 2000;
+	private Nd nd;
+	private long[] records;
+
+	public static Test suite() {
+		return BaseTestCase.suite(SnapshotReadTests.class);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		// Use a cache that is much smaller than the database so that committed chunks get evicted and read again
+		this.nd = new Nd(DatabaseTestUtil.getTempDbName(getName()), new ChunkCache(64 * Database.CHUNK_SIZE, 1),
+				new NdNodeTypeRegistry<NdNode>(), 0, 0, 0);
+		this.nd.setSnapshotReads(true);
+		this.records = new long[NUM_RECORDS];
+		this.nd.acquireWriteLock(null);
+		try {
+			Database db = this.nd.getDB();
+			for (int i = 0; i < NUM_RECORDS; i++) {
+				this.records[i] = db.malloc(RECORD_SIZE, Database.POOL_MISC);
+				db.putLong(this.records[i], 0);
+			}
+		} finally {
+			this.nd.releaseWriteLock(0, true);
+		}
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		this.nd.acquireWriteLock(null);
+		DatabaseTestUtil.deleteDatabase(this.nd.getDB());
+		this.nd = null;
+		super.tearDown();
+	}
+
+	private void writeAll(long value) {
+		Database db = this.nd.getDB();
+		for (long next : this.records) {
+			db.putLong(next, value);
+		}
+	}
+
+	private void assertAllEqual(long expected) {
+		Database db = this.nd.getDB();
+		for (long next : this.records) {
+			assertEquals(expected, db.getLong(next));
+		}
+	}
+
+	public void testReaderSeesCommittedVersionDuringWrite() throws Exception {
+		CountDownLatch written = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+		Thread writer = new Thread(() -> {
+			try {
+				this.nd.acquireWriteLock(null);
+				try {
+					writeAll(1);
+					written.countDown();
+					release.await();
+				} finally {
+					this.nd.releaseWriteLock();
+				}
+			} catch (Throwable e) {
+				failure.set(e);
+				written.countDown();
+			}
+		}, "Writer");
+		writer.start();
+		assertTrue(written.await(30, TimeUnit.SECONDS));
+
+		long writeNumber;
+		try (IReader reader = this.nd.acquireReadLock()) {
+			// The uncommitted changes aren't visible
+			assertAllEqual(0);
+			writeNumber = this.nd.getDB().getLong(Database.WRITE_NUMBER_OFFSET);
+			release.countDown();
+			writer.join();
+			// Neither are the changes committed after the read lock was acquired
+			assertAllEqual(0);
+			assertEquals(writeNumber, this.nd.getDB().getLong(Database.WRITE_NUMBER_OFFSET));
+		}
+		assertNull(failure.get());
+
+		try (IReader reader = this.nd.acquireReadLock()) {
+			assertAllEqual(1);
+			assertEquals(writeNumber + 1, this.nd.getDB().getLong(Database.WRITE_NUMBER_OFFSET));
+		}
+	}
+
+	public void testWriterNotBlockedByReader() throws Exception {
+		try (IReader reader = this.nd.acquireReadLock()) {
+			Thread writer = new Thread(() -> {
+				this.nd.acquireWriteLock(null);
+				try {
+					writeAll(2);
+				} finally {
+					this.nd.releaseWriteLock(0, true);
+				}
+			}, "Writer");
+			writer.start();
+			writer.join(30000);
+			assertFalse("The writer was blocked by the reader", writer.isAlive());
+			assertAllEqual(0);
+		}
+		try (IReader reader = this.nd.acquireReadLock()) {
+			assertAllEqual(2);
+		}
+	}
+
+	public void testWriterSeesOwnChanges() throws Exception {
+		this.nd.acquireWriteLock(null);
+		try {
+			writeAll(3);
+			assertAllEqual(3);
+			Database db = this.nd.getDB();
+			long newRecord = db.malloc(Database.MAX_SINGLE_BLOCK_MALLOC_SIZE, Database.POOL_MISC);
+			db.putLong(newRecord, 42);
+			assertEquals(42, db.getLong(newRecord));
+		} finally {
+			this.nd.releaseWriteLock();
+		}
+	}
+
+	public void testReadersSeeConsistentVersions() throws Exception {
+		final int numWrites = 30;
+		AtomicBoolean done = new AtomicBoolean();
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+		List<Thread> readers = new ArrayList<>();
+		for (int t = 0; t < 4; t++) {
+			readers.add(new Thread(() -> {
+				try {
+					Database db = this.nd.getDB();
+					while (!done.get()) {
+						try (IReader reader = this.nd.acquireReadLock()) {
+							long expected = db.getLong(this.records[0]);
+							long writeNumber = db.getLong(Database.WRITE_NUMBER_OFFSET);
+							for (long next : this.records) {
+								assertEquals(expected, db.getLong(next));
+							}
+							assertEquals(writeNumber, db.getLong(Database.WRITE_NUMBER_OFFSET));
+						}
+					}
+				} catch (Throwable e) {
+					failure.compareAndSet(null, e);
+				}
+			}, "Reader " + t));
+		}
+		for (Thread next : readers) {
+			next.start();
+		}
+		try {
+			Database db = this.nd.getDB();
+			for (int i = 1; i <= numWrites && failure.get() == null; i++) {
+				this.nd.acquireWriteLock(null);
+				try {
+					writeAll(i);
+					// Also add new chunks to the database
+					db.malloc(Database.MAX_SINGLE_BLOCK_MALLOC_SIZE, Database.POOL_MISC);
+				} finally {
+					this.nd.releaseWriteLock(0, i % 5 == 0);
+				}
+			}
+		} finally {
+			done.set(true);
+			for (Thread next : readers) {
+				next.join();
+			}
+		}
+		if (failure.get() != null) {
+			throw new AssertionError("Reader thread failed", failure.get());
+		}
+		try (IReader reader = this.nd.acquireReadLock()) {
+			assertAllEqual(numWrites);
+		}
+	}
+
+	public void testSnapshotReadsCanOnlyBeChangedWhenUnlocked() throws Exception {
+		try (IReader reader = this.nd.acquireReadLock()) {
+			try {
+				this.nd.setSnapshotReads(false);
+				fail("Expected an IllegalStateException");
+			} catch (IllegalStateException e) {
+				// Expected
+			}
+		}
+		this.nd.setSnapshotReads(false);
+		try (IReader reader = this.nd.acquireReadLock()) {
+			assertAllEqual(0);
+		}
+	}
+}
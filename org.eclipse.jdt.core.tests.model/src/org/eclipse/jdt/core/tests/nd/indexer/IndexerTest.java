@@ -13,8 +13,11 @@
  *******************************************************************************/
 package org.eclipse.jdt.core.tests.nd.indexer;
 
+import java.io.File;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.Semaphore;
@@ -24,6 +27,7 @@ import java.util.stream.Collectors;
 import org.eclipse.core.resources.IWorkspaceRoot;
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.SubMonitor;
 import org.eclipse.jdt.core.IClassFile;
@@ -32,19 +36,28 @@ import org.eclipse.jdt.core.IJavaProject;
 import org.eclipse.jdt.core.IOrdinaryClassFile;
 import org.eclipse.jdt.core.IPackageFragmentRoot;
 import org.eclipse.jdt.core.IParent;
+import org.eclipse.jdt.core.compiler.CharOperation;
+import org.eclipse.jdt.core.search.IJavaSearchConstants;
+import org.eclipse.jdt.core.search.SearchPattern;
 import org.eclipse.jdt.core.tests.model.AbstractJavaModelTests;
+import org.eclipse.jdt.core.tests.nd.DatabaseTestUtil;
 import org.eclipse.jdt.internal.compiler.classfmt.ClassFileReader;
 import org.eclipse.jdt.internal.core.nd.IReader;
+import org.eclipse.jdt.internal.core.nd.Nd;
 import org.eclipse.jdt.internal.core.nd.db.ChunkCache;
 import org.eclipse.jdt.internal.core.nd.db.Database;
 import org.eclipse.jdt.internal.core.nd.indexer.IndexTester;
 import org.eclipse.jdt.internal.core.nd.indexer.Indexer;
 import org.eclipse.jdt.internal.core.nd.java.JavaIndex;
+import org.eclipse.jdt.internal.core.nd.java.NdReference;
 import org.eclipse.jdt.internal.core.nd.java.NdType;
 import org.eclipse.jdt.internal.core.nd.java.NdTypeId;
 import org.eclipse.jdt.internal.core.nd.java.model.BinaryTypeDescriptor;
 import org.eclipse.jdt.internal.core.nd.java.model.BinaryTypeFactory;
 import org.eclipse.jdt.internal.core.nd.java.model.IndexBinaryType;
+import org.eclipse.jdt.internal.core.search.matching.IndexedMethodReferences;
+import org.eclipse.jdt.internal.core.search.matching.MethodLocator;
+import org.eclipse.jdt.internal.core.search.matching.MethodPattern;
 
 import junit.framework.Test;
 
@@ -142,6 +155,149 @@ public class IndexerTest extends AbstractJavaModelTests {
 		}
 	}
 
+	public void testReferencesFromConstantPoolCanBeFound() throws Exception {
+		createJavaProject(PROJECT_NAME, new String[] {"src"}, new String[] {"JCL18_FULL"}, "bin", "1.8", true);
+		IWorkspaceRoot root = ResourcesPlugin.getWorkspace().getRoot();
+		Indexer indexer = new Indexer(index.getNd(), root);
+
+		indexer.rescan(SubMonitor.convert(null));
+
+		try (IReader reader = IndexerTest.index.getNd().acquireReadLock()) {
+			NdTypeId javaLangStringBuilder = IndexerTest.index.findType("Ljava/lang/StringBuilder;".toCharArray());
+
+			List<NdReference> references = IndexerTest.index.findReferences(
+					"Ljava/lang/AbstractStringBuilder;".toCharArray(), "length".toCharArray(), null);
+			boolean found = false;
+			for (NdReference next : references) {
+				assertEquals(NdReference.KIND_METHOD, next.getKind());
+				if (Objects.equals(next.getReferencingType().getTypeId(), javaLangStringBuilder)) {
+					found = true;
+				}
+			}
+			assertTrue("StringBuilder was found as a caller of AbstractStringBuilder.length", found);
+
+			references = IndexerTest.index.findReferences("Ljava/lang/AbstractStringBuilder;".toCharArray(), null, null);
+			for (NdReference next : references) {
+				assertEquals(NdReference.KIND_TYPE, next.getKind());
+			}
+			assertFalse("AbstractStringBuilder was found as a referenced type", references.isEmpty());
+		}
+	}
+
+	public void testClassFilesReferencingASearchedMethodCanBeFound() throws Exception {
+		createJavaProject(PROJECT_NAME, new String[] {"src"}, new String[] {"JCL18_FULL"}, "bin", "1.8", true);
+		IWorkspaceRoot root = ResourcesPlugin.getWorkspace().getRoot();
+		Indexer indexer = new Indexer(index.getNd(), root);
+
+		indexer.rescan(SubMonitor.convert(null));
+
+		// the bridge methods of StringBuilder call the methods of AbstractStringBuilder
+		IndexedMethodReferences builderLength = createIndexedMethodReferences("java.lang.AbstractStringBuilder.length()");
+		IndexedMethodReferences charSequenceLength = createIndexedMethodReferences("java.lang.CharSequence.length()");
+		IndexedMethodReferences anyLength = createIndexedMethodReferences("length");
+		IndexedMethodReferences stringLength = createIndexedMethodReferences("java.lang.String.length()");
+		IndexedMethodReferences builderLengthWithParameter = createIndexedMethodReferences(
+				"java.lang.AbstractStringBuilder.length(int)");
+		try (IReader reader = IndexerTest.index.getNd().acquireReadLock()) {
+			NdType javaLangStringBuilder = IndexerTest.index.findType("Ljava/lang/StringBuilder;".toCharArray())
+					.getTypes().get(0);
+			NdType javaLangObject = IndexerTest.index.findType("Ljava/lang/Object;".toCharArray()).getTypes().get(0);
+
+			assertTrue(builderLength.mayReference(javaLangStringBuilder));
+			assertTrue("The receiver is a subtype of the declaring type",
+					charSequenceLength.mayReference(javaLangStringBuilder));
+			assertTrue(anyLength.mayReference(javaLangStringBuilder));
+			assertFalse("The receiver is not in the hierarchy of the declaring type",
+					stringLength.mayReference(javaLangStringBuilder));
+			assertFalse("The number of parameters differs", builderLengthWithParameter.mayReference(javaLangStringBuilder));
+			assertFalse(builderLength.mayReference(javaLangObject));
+		}
+	}
+
+	private static IndexedMethodReferences createIndexedMethodReferences(String method) {
+		SearchPattern pattern = SearchPattern.createPattern(method, IJavaSearchConstants.METHOD,
+				IJavaSearchConstants.REFERENCES, SearchPattern.R_EXACT_MATCH | SearchPattern.R_CASE_SENSITIVE);
+		MethodLocator locator = new MethodLocator((MethodPattern) pattern);
+		// the super types of the declaring type, as collected by the polymorphic search
+		locator.allSuperDeclaringTypeNames = new char[][][] {CharOperation.splitOn('.', "java.lang.Object".toCharArray())};
+		return IndexedMethodReferences.create(pattern, locator);
+	}
+
+	public void testArchivesReadOnSeveralThreadsAreIndexedLikeOnOne() throws Exception {
+		createJavaProject(PROJECT_NAME, new String[] {"src"}, new String[] {"JCL18_FULL"}, "bin", "1.8", true);
+		IWorkspaceRoot root = ResourcesPlugin.getWorkspace().getRoot();
+		Indexer indexer = new Indexer(index.getNd(), root);
+		indexer.setArchiveReaderThreads(1);
+
+		indexer.rescan(SubMonitor.convert(null));
+
+		JavaIndex concurrentIndex = JavaIndexTestUtil.createTempIndex(getName() + "Concurrent");
+		try {
+			Indexer concurrentIndexer = new Indexer(concurrentIndex.getNd(), root);
+			concurrentIndexer.setArchiveReaderThreads(4);
+
+			concurrentIndexer.rescan(SubMonitor.convert(null));
+
+			List<String> types = describeAllTypes(IndexerTest.index);
+			assertFalse("No classes found in the index", types.isEmpty());
+			assertEquals(types, describeAllTypes(concurrentIndex));
+		} finally {
+			concurrentIndex.getNd().getPath().delete();
+		}
+	}
+
+	public void testCancelingArchiveReadersStopsTheirThreads() throws Exception {
+		createJavaProject(PROJECT_NAME, new String[] {"src"}, new String[] {"JCL18_FULL"}, "bin", "1.8", true);
+		IWorkspaceRoot root = ResourcesPlugin.getWorkspace().getRoot();
+		Indexer indexer = new Indexer(index.getNd(), root);
+		indexer.setArchiveReaderThreads(4);
+
+		NullProgressMonitor cancelingMonitor = new NullProgressMonitor() {
+			private int workReported;
+
+			@Override
+			public void internalWorked(double work) {
+				if (++this.workReported == 5) {
+					setCanceled(true);
+				}
+			}
+		};
+		try {
+			indexer.rescan(cancelingMonitor);
+			fail("The rescan should have been canceled");
+		} catch (OperationCanceledException e) {
+			// expected
+		}
+		for (Thread next : Thread.getAllStackTraces().keySet()) {
+			assertFalse("An archive reader is still running", next.isAlive()
+					&& "Java indexer archive reader".equals(next.getName()));
+		}
+
+		indexer.rescan(SubMonitor.convert(null));
+
+		try (IReader reader = IndexerTest.index.getNd().acquireReadLock()) {
+			assertNotNull(IndexerTest.index.findType("Ljava/util/ArrayList;".toCharArray()));
+		}
+	}
+
+	/**
+	 * Describes all the types of the index with the number of their fields and methods, in a stable order.
+	 */
+	private static List<String> describeAllTypes(JavaIndex javaIndex) {
+		List<String> result = new ArrayList<>();
+		try (IReader reader = javaIndex.getNd().acquireReadLock()) {
+			for (NdTypeId typeId : javaIndex.findTypesBySimpleName(new char[0])) {
+				for (NdType type : typeId.getTypes()) {
+					result.add(typeId.toString() + " " + type.getSourceName().length + " " + type.getModifiers()
+							+ " " + type.getVariables().size() + " " + type.getMethods().size() + " "
+							+ type.getInterfaces().size());
+				}
+			}
+		}
+		Collections.sort(result);
+		return result;
+	}
+
 	private void collectAllClassFiles(List<? super IClassFile> result, IParent nextRoot) throws CoreException {
 		for (IJavaElement child : nextRoot.getChildren()) {
 			int type = child.getElementType();
@@ -241,6 +397,61 @@ public class IndexerTest extends AbstractJavaModelTests {
 		}
 	}
 
+	/*
+	 * Opens a copy of the index file as it is on disk at this point, as if the process had ended.
+	 */
+	private static JavaIndex openCopyOfIndex(String name) throws Exception {
+		File copy = DatabaseTestUtil.getTempDbName(name);
+		Files.copy(index.getNd().getDB().getLocation().toPath(), copy.toPath());
+		return JavaIndex.getIndex(JavaIndex.createNd(copy, new ChunkCache()));
+	}
+
+	private static void closeCopyOfIndex(JavaIndex copy) {
+		copy.getNd().close();
+		copy.getNd().getPath().delete();
+	}
+
+	/**
+	 * A rebuild defers the simple name index until its end, so a database reopened before then must be recreated
+	 * instead of lacking the simple names of the types that were already indexed.
+	 */
+	public void testReopeningTheIndexDuringARebuild() throws Exception {
+		createJavaProject(PROJECT_NAME, new String[] {"src"}, new String[] {"JCL18_FULL"}, "bin", "1.8", true);
+		IWorkspaceRoot root = ResourcesPlugin.getWorkspace().getRoot();
+		Indexer indexer = new Indexer(index.getNd(), root);
+		Nd nd = index.getNd();
+
+		// The same steps as Indexer.rebuildIndex, which doesn't return before the end of the rebuild
+		nd.acquireWriteLock(null);
+		try {
+			index.startBulkIndexing();
+		} finally {
+			nd.releaseWriteLock();
+		}
+		indexer.rescan(SubMonitor.convert(null)); // flushes the database
+		JavaIndex copy = openCopyOfIndex(getName() + "During");
+		try (IReader reader = copy.getNd().acquireReadLock()) {
+			assertNull("The index should have been recreated", copy.findType("Ljava/util/ArrayList;".toCharArray()));
+		} finally {
+			closeCopyOfIndex(copy);
+		}
+
+		nd.acquireWriteLock(null);
+		try {
+			index.finishBulkIndexing();
+		} finally {
+			nd.releaseWriteLock(0, true);
+		}
+		copy = openCopyOfIndex(getName() + "After");
+		try (IReader reader = copy.getNd().acquireReadLock()) {
+			List<String> types = copy.findTypesBySimpleName("ArrayList".toCharArray()).stream()
+					.map(NdTypeId::toString).collect(Collectors.toList());
+			assertTrue("ArrayList not found in " + types, types.contains("Ljava/util/ArrayList;"));
+		} finally {
+			closeCopyOfIndex(copy);
+		}
+	}
+
 	public void testFindTypesBySimpleNameFirstWord() throws CoreException {
 		createJavaProject(PROJECT_NAME, new String[] {"src"}, new String[] {"JCL18_FULL"}, "bin", "1.8", true);
 		IWorkspaceRoot root = ResourcesPlugin.getWorkspace().getRoot();
@@ -40,6 +40,7 @@ import org.eclipse.jdt.internal.compiler.SourceElementParser;
 import org.eclipse.jdt.internal.compiler.lookup.TypeConstants;
 import org.eclipse.jdt.internal.core.JavaModelManager.PerProjectInfo;
 import org.eclipse.jdt.internal.core.builder.JavaBuilder;
+import org.eclipse.jdt.internal.core.hierarchy.SupertypeGraph;
 import org.eclipse.jdt.internal.core.hierarchy.TypeHierarchy;
 import org.eclipse.jdt.internal.core.search.AbstractSearchScope;
 import org.eclipse.jdt.internal.core.search.JavaWorkspaceScope;
@@ -1120,6 +1121,8 @@ public class DeltaProcessor {
 		if (hasDelta){
 			// flush jar type cache
 			JavaModelManager.getJavaModelManager().resetJarTypeCache();
+			if (this.manager.supertypeGraph != null)
+				this.manager.supertypeGraph.clear();
 		}
 		return hasDelta;
 	}
@@ -2007,6 +2010,9 @@ public class DeltaProcessor {
 			return;
 
 		JavaModelManager.getJavaModelManager().resetJarTypeCache();
+		// the supertypes of the types of the dependent projects may be found elsewhere now
+		if (this.manager.supertypeGraph != null)
+			this.manager.supertypeGraph.clear();
 
 		Iterator<IJavaElement> iterator = this.projectCachesToReset.iterator();
 		Map<IJavaProject, IJavaProject[]> projectDepencies = this.state.projectDependencies;
@@ -2681,6 +2687,7 @@ public class DeltaProcessor {
 								currentDelta().closed(element);
 								this.manager.indexManager.discardJobs(element.getElementName());
 								this.manager.indexManager.removeIndexFamily(res.getFullPath());
+								this.manager.supertypeGraph.clear();
 							}
 						}
 						return false; // when a project is open/closed don't process children
@@ -2700,6 +2707,7 @@ public class DeltaProcessor {
 								elementRemoved(element, delta, rootInfo);
 								this.manager.indexManager.discardJobs(element.getElementName());
 								this.manager.indexManager.removeIndexFamily(res.getFullPath());
+								this.manager.supertypeGraph.clear();
 								// reset the corresponding project built state, since cannot reuse if added back
 								if (JavaBuilder.DEBUG)
 									System.out.println("Clearing last state for project loosing Java nature: " + res); //$NON-NLS-1$
@@ -2718,15 +2726,18 @@ public class DeltaProcessor {
 		IndexManager indexManager = this.manager.indexManager;
 		if (indexManager == null)
 			return;
+		SupertypeGraph supertypeGraph = this.manager.supertypeGraph;
 
 		switch (element.getElementType()) {
 			case IJavaElement.JAVA_PROJECT :
 				switch (delta.getKind()) {
 					case IResourceDelta.ADDED :
 						indexManager.indexAll(element.getJavaProject().getProject());
+						supertypeGraph.clear();
 						break;
 					case IResourceDelta.REMOVED :
 						indexManager.removeIndexFamily(element.getJavaProject().getProject().getFullPath());
+						supertypeGraph.clear();
 						// NB: Discarding index jobs belonging to this project was done during PRE_DELETE
 						break;
 					// NB: Update of index if project is opened, closed, or its java nature is added or removed
@@ -2738,6 +2749,8 @@ public class DeltaProcessor {
 					JarPackageFragmentRoot root = (JarPackageFragmentRoot)element;
 					// index jar file only once (if the root is in its declaring project)
 					IPath jarPath = root.getPath();
+					// the types of a jar may be seen by any project
+					supertypeGraph.clear();
 					switch (delta.getKind()) {
 						case IResourceDelta.ADDED:
 							// index the new jar
@@ -2761,6 +2774,7 @@ public class DeltaProcessor {
 				if (kind == IResourceDelta.ADDED || kind == IResourceDelta.REMOVED || (kind == IResourceDelta.CHANGED && (delta.getFlags() & IResourceDelta.LOCAL_CHANGED) != 0)) {
 					PackageFragmentRoot root = (PackageFragmentRoot)element;
 					updateRootIndex(root, CharOperation.NO_STRINGS, delta);
+					supertypeGraph.clear();
 					break;
 				}
 				// don't break as packages of the package fragment root can be indexed below
@@ -2828,10 +2842,12 @@ public class DeltaProcessor {
 						// $FALL-THROUGH$
 					case IResourceDelta.ADDED :
 						indexManager.addBinary(file, binaryFolderPath);
+						supertypeGraph.documentChanged(element);
 						break;
 					case IResourceDelta.REMOVED :
 						String containerRelativePath = Util.relativePath(file.getFullPath(), binaryFolderPath.segmentCount());
 						indexManager.remove(containerRelativePath, binaryFolderPath);
+						supertypeGraph.documentRemoved(element);
 						break;
 				}
 				break;
@@ -2848,11 +2864,13 @@ public class DeltaProcessor {
 						indexManager.addSource(file, file.getProject().getFullPath(), getSourceElementParser(element));
 						// Clean file from secondary types cache but do not update indexing secondary type cache as it will be updated through indexing itself
 						this.manager.secondaryTypesRemoving(file, false);
+						supertypeGraph.documentChanged(element);
 						break;
 					case IResourceDelta.REMOVED :
 						indexManager.remove(Util.relativePath(file.getFullPath(), 1/*remove project segment*/), file.getProject().getFullPath());
 						// Clean file from secondary types cache and update indexing secondary type cache as indexing cannot remove secondary types from cache
 						this.manager.secondaryTypesRemoving(file, true);
+						supertypeGraph.documentRemoved(element);
 						break;
 				}
 		}
@@ -140,6 +140,7 @@ import org.eclipse.jdt.internal.core.JavaProjectElementInfo.ProjectCache;
 import org.eclipse.jdt.internal.core.builder.JavaBuilder;
 import org.eclipse.jdt.internal.core.dom.SourceRangeVerifier;
 import org.eclipse.jdt.internal.core.dom.rewrite.RewriteEventStore;
+import org.eclipse.jdt.internal.core.hierarchy.SupertypeGraph;
 import org.eclipse.jdt.internal.core.hierarchy.TypeHierarchy;
 import org.eclipse.jdt.internal.core.nd.IReader;
 import org.eclipse.jdt.internal.core.nd.Nd;
@@ -1239,6 +1240,11 @@ public class JavaModelManager implements ISaveParticipant, IContentTypeChangeLis
 
 	public IndexManager indexManager = null;
 
+	/**
+	 * The supertypes of the types already connected by the type hierarchies, kept up to date by the delta processor.
+	 */
+	public SupertypeGraph supertypeGraph = null;
+
 	/**
 	 * Table from IProject to PerProjectInfo.
 	 * NOTE: this object itself is used as a lock to synchronize creation/removal of per project infos
@@ -1787,6 +1793,7 @@ public class JavaModelManager implements ISaveParticipant, IContentTypeChangeLis
 		 */
 		if (Platform.isRunning()) {
 			this.indexManager = new IndexManager();
+			this.supertypeGraph = new SupertypeGraph(JavaCore.getPlugin().getStateLocation().append(SupertypeGraph.FILE_NAME).toFile());
 			this.nonChainingJars = loadClasspathListCache(NON_CHAINING_JARS_CACHE);
 			this.externalFiles = loadClasspathListCache(EXTERNAL_FILES_CACHE);
 			this.assumedExternalFiles = loadClasspathListCache(ASSUMED_EXTERNAL_FILES_CACHE);
@@ -4688,6 +4695,8 @@ public class JavaModelManager implements ISaveParticipant, IContentTypeChangeLis
 				saveClasspathListCache(NON_CHAINING_JARS_CACHE);
 				saveClasspathListCache(EXTERNAL_FILES_CACHE);
 				saveClasspathListCache(ASSUMED_EXTERNAL_FILES_CACHE);
+				if (this.supertypeGraph != null)
+					this.supertypeGraph.save();
 
 				// will need delta since this save (see https://bugs.eclipse.org/bugs/show_bug.cgi?id=38658)
 				context.needDelta();
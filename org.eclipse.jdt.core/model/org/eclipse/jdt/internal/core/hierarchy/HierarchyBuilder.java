@@ -144,6 +144,17 @@ public abstract class HierarchyBuilder {
 		IType superclassHandle,
 		IType[] superinterfaceHandles) {
 
+		connect(type.getModifiers(), typeHandle, superclassHandle, superinterfaceHandles);
+	}
+	/**
+	 * Connect the type with the given modifiers to its superclass & superinterfaces.
+	 */
+	protected void connect(
+		int modifiers,
+		IType typeHandle,
+		IType superclassHandle,
+		IType[] superinterfaceHandles) {
+
 		/*
 		 * Temporary workaround for 1G2O5WK: ITPJCORE:WINNT - NullPointerException when selecting "Show in Type Hierarchy" for a inner class
 		 */
@@ -170,7 +181,7 @@ public abstract class HierarchyBuilder {
 			}
 		}
 		// now do the caching
-		switch (TypeDeclaration.kind(type.getModifiers())) {
+		switch (TypeDeclaration.kind(modifiers)) {
 			case TypeDeclaration.CLASS_DECL :
 			case TypeDeclaration.ENUM_DECL :
 			case TypeDeclaration.RECORD_DECL :
@@ -193,7 +204,27 @@ public abstract class HierarchyBuilder {
 		this.hierarchy.cacheSuperInterfaces(typeHandle, superinterfaceHandles);
 
 		// record flags
-		this.hierarchy.cacheFlags(typeHandle, type.getModifiers());
+		this.hierarchy.cacheFlags(typeHandle, modifiers);
+	}
+	/**
+	 * Returns whether the hierarchy resolver should report all the types it resolved with
+	 * {@link #recordSupertypes(IGenericType, IType, IType, IType[], boolean)}, including the types outside of
+	 * the hierarchy which are not connected.
+	 */
+	protected boolean recordsAllTypes() {
+		return false;
+	}
+	/**
+	 * Records the supertypes of a type resolved by the hierarchy resolver, whether it was connected or not.
+	 * The supertypes are not consistent if the resolver had to fix them, or could not find them all.
+	 */
+	protected void recordSupertypes(
+		IGenericType type,
+		IType typeHandle,
+		IType superclassHandle,
+		IType[] superinterfaceHandles,
+		boolean consistent) {
+		// nothing to record by default
 	}
 	/**
 	 * Returns a handle for the given generic type or null if not found.
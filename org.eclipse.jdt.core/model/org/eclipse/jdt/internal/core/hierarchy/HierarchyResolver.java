@@ -27,12 +27,19 @@ package org.eclipse.jdt.internal.core.hierarchy;
  * implements I & J?
  */
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.OperationCanceledException;
@@ -68,6 +75,7 @@ import org.eclipse.jdt.internal.compiler.util.Messages;
 import org.eclipse.jdt.internal.core.*;
 import org.eclipse.jdt.internal.core.util.ASTNodeFinder;
 import org.eclipse.jdt.internal.core.util.HandleFactory;
+import org.eclipse.jdt.internal.core.util.WorkerPools;
 
 @SuppressWarnings({"rawtypes", "unchecked"})
 public class HierarchyResolver implements ITypeRequestor {
@@ -85,6 +93,15 @@ public class HierarchyResolver implements ITypeRequestor {
 	private IGenericType[] typeModels;
 	private Parser basicParser;
 
+	/**
+	 * The number of threads on which {@link #resolve(Openable[], HashSet, IProgressMonitor)} diet parses the compilation
+	 * units which aren't open before building their type bindings, or 1 to parse each of them when its bindings are
+	 * built (the default). Read when the resolution starts.
+	 */
+	public static final String PARSER_THREADS_PROPERTY = "jdt.core.hierarchyParserThreads"; //$NON-NLS-1$
+	public static int PARSER_THREADS = Math.max(1, Integer.getInteger(PARSER_THREADS_PROPERTY, 1).intValue());
+	private static final String PARSER_THREAD_NAME = "Type hierarchy parser"; //$NON-NLS-1$
+
 	private static final CompilationUnitDeclaration FakeUnit;
 	static {
 		IErrorHandlingPolicy policy = DefaultErrorHandlingPolicies.exitAfterAllProblems();
@@ -580,6 +597,7 @@ private void reportHierarchy(IType focus, TypeDeclaration focusLocalType, Refere
 	fixSupertypeBindings();
 
 	int objectIndex = -1;
+	boolean recordsAllTypes = this.builder.recordsAllTypes();
 	IProgressMonitor progressMonitor = this.builder.hierarchy.progressMonitor;
 	for (int current = this.typeIndex; current >= 0; current--) {
 		if (progressMonitor != null && progressMonitor.isCanceled())
@@ -596,6 +614,8 @@ private void reportHierarchy(IType focus, TypeDeclaration focusLocalType, Refere
 		IGenericType suppliedType = this.typeModels[current];
 
 		if (!subOrSuperOfFocus(typeBinding)) {
+			if (recordsAllTypes)
+				recordSupertypes(suppliedType, typeBinding);
 			continue; // ignore types outside of hierarchy
 		}
 
@@ -607,13 +627,55 @@ private void reportHierarchy(IType focus, TypeDeclaration focusLocalType, Refere
 		}
 		IType[] superinterfaces = findSuperInterfaces(suppliedType, typeBinding);
 
-		this.builder.connect(suppliedType, this.builder.getHandle(suppliedType, typeBinding), superclass, superinterfaces);
+		IType typeHandle = this.builder.getHandle(suppliedType, typeBinding);
+		this.builder.connect(suppliedType, typeHandle, superclass, superinterfaces);
+		if (recordsAllTypes)
+			this.builder.recordSupertypes(suppliedType, typeHandle, superclass, superinterfaces, !typeBinding.isHierarchyInconsistent());
 	}
 	// add java.lang.Object only if the super class is not missing
 	if (objectIndex > -1 && (!this.hasMissingSuperClass || this.focusType == null)) {
 		IGenericType objectType = this.typeModels[objectIndex];
-		this.builder.connect(objectType, this.builder.getHandle(objectType, this.typeBindings[objectIndex]), null, null);
+		IType objectHandle = this.builder.getHandle(objectType, this.typeBindings[objectIndex]);
+		this.builder.connect(objectType, objectHandle, null, null);
+		if (recordsAllTypes)
+			this.builder.recordSupertypes(objectType, objectHandle, null, null, true);
+	}
+}
+/*
+ * Reports the supertypes of a type outside of the hierarchy to a builder which records all the types.
+ * Unlike findSuperClass() and findSuperInterfaces(), this doesn't add the supertypes which are not found
+ * to the missing types of the hierarchy: the supertypes are reported as inconsistent instead.
+ */
+private void recordSupertypes(IGenericType suppliedType, ReferenceBinding typeBinding) {
+	boolean consistent = !typeBinding.isHierarchyInconsistent();
+	IType superclass = null;
+	IType[] superinterfaces = null;
+	try {
+		if (consistent && !typeBinding.isInterface()) {
+			ReferenceBinding superBinding = typeBinding.superclass();
+			if (superBinding != null) {
+				superclass = findHandle((ReferenceBinding) superBinding.erasure());
+				consistent = superclass != null;
+			}
+		}
+		if (consistent) {
+			ReferenceBinding[] interfaceBindings = typeBinding.superInterfaces();
+			int length = interfaceBindings == null ? 0 : interfaceBindings.length;
+			superinterfaces = new IType[length];
+			for (int i = 0; i < length && consistent; i++) {
+				superinterfaces[i] = findHandle((ReferenceBinding) interfaceBindings[i].erasure());
+				consistent = superinterfaces[i] != null;
+			}
+		}
+	} catch (AbortCompilation e) {
+		// unresolved superclass/superinterface
+		consistent = false;
 	}
+	this.builder.recordSupertypes(suppliedType, this.builder.getHandle(suppliedType, typeBinding), superclass, superinterfaces, consistent);
+}
+private IType findHandle(ReferenceBinding typeBinding) {
+	IGenericType typeModel = this.bindingMap.get(typeBinding);
+	return typeModel == null ? null : this.builder.getHandle(typeModel, typeBinding);
 }
 private void reset(){
 	this.lookupEnvironment.reset();
@@ -713,6 +775,10 @@ public void resolve(Openable[] openables, HashSet localTypes, IProgressMonitor m
 		}
 
 		subMonitor.split(1);
+		// parsing needs no binding, so the units which aren't open may be parsed on several threads first
+		int parserThreads = PARSER_THREADS;
+		CompilationUnitDeclaration[] dietParsedUnits = parserThreads > 1 ? dietParseConcurrently(openables, parserThreads, subMonitor) : null;
+
 		// build type bindings
 		Parser parser = new Parser(this.lookupEnvironment.problemReporter, true);
 		final boolean isJava8 = this.options.sourceLevel >= ClassFileConstants.JDK1_8;
@@ -762,6 +828,8 @@ public void resolve(Openable[] openables, HashSet localTypes, IProgressMonitor m
 					// to parse the method bodies. Parser.getMethodBodies, which is called latter in this function,
 					// will not parse the method statements if ASTNode.HasAllMethodBodies is set.
 					if (containsLocalType && parsedUnit != null) parsedUnit.bits |= ASTNode.HasAllMethodBodies;
+				} else if (dietParsedUnits != null && dietParsedUnits[i] != null) {
+					parsedUnit = dietParsedUnits[i];
 				} else {
 					// create parsed unit from file
 					IFile file = (IFile) cu.getResource();
@@ -905,6 +973,55 @@ public void resolve(Openable[] openables, HashSet localTypes, IProgressMonitor m
 	}
 }
 
+/*
+ * Diet parses the compilation units which aren't open on the threads of the parser pool, each with its own parser.
+ * Answers the parsed units at the indexes of their openables, or null if there are too few units to parse.
+ */
+private CompilationUnitDeclaration[] dietParseConcurrently(Openable[] openables, int threads, IProgressMonitor monitor) {
+	int openablesLength = openables.length;
+	int unitsToParse = 0;
+	for (int i = 0; i < openablesLength; i++) {
+		if (openables[i] instanceof org.eclipse.jdt.core.ICompilationUnit && !openables[i].isOpen())
+			unitsToParse++;
+	}
+	if (unitsToParse < 2) return null;
+
+	// the source units are created on this thread since the builder remembers their handles
+	final Queue<CompilationResult> unitResults = new ConcurrentLinkedQueue<>();
+	for (int i = 0; i < openablesLength; i++) {
+		Openable openable = openables[i];
+		if (openable instanceof org.eclipse.jdt.core.ICompilationUnit && !openable.isOpen()) {
+			IFile file = (IFile) openable.getResource();
+			ICompilationUnit sourceUnit = this.builder.createCompilationUnitFromPath(openable, file, findAssociatedModuleName(openable));
+			unitResults.add(new CompilationResult(sourceUnit, i, openablesLength, this.options.maxProblemsPerUnit));
+		}
+	}
+
+	final CompilationUnitDeclaration[] parsedUnits = new CompilationUnitDeclaration[openablesLength];
+	final ProblemReporter problemReporter = this.lookupEnvironment.problemReporter;
+	final CompilerOptions compilerOptions = this.options;
+	final AtomicBoolean canceled = new AtomicBoolean();
+	List<Callable<Void>> workers = new ArrayList<>();
+	for (int i = 0, length = Math.min(threads, unitsToParse); i < length; i++) {
+		workers.add(() -> {
+			// neither the parser nor its problem reporter can be shared between threads
+			Parser parser = new Parser(new ProblemReporter(problemReporter.policy, compilerOptions, problemReporter.problemFactory), true);
+			CompilationResult unitResult;
+			while (!canceled.get() && (unitResult = unitResults.poll()) != null)
+				parsedUnits[unitResult.unitIndex] = parser.dietParse(unitResult.compilationUnit, unitResult);
+			return null;
+		});
+	}
+	// the remaining workers are stopped and waited for on cancellation, the units must not be parsed once the
+	// resolution has ended
+	try {
+		WorkerPools.invokeAll(WorkerPools.getPool(PARSER_THREAD_NAME, threads), workers, monitor, canceled, result -> {/* nothing to collect */});
+	} catch (CoreException e) {
+		throw new IllegalStateException(e); // not thrown by the parsers
+	}
+	return parsedUnits;
+}
+
 private char[] findAssociatedModuleName(Openable openable) {
 	IModuleDescription module = null;
 	IPackageFragmentRoot root = openable.getPackageFragmentRoot();
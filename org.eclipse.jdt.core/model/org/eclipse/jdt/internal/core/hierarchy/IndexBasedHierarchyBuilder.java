@@ -20,6 +20,7 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -45,15 +46,18 @@ import org.eclipse.jdt.core.search.SearchPattern;
 import org.eclipse.jdt.internal.compiler.env.AccessRuleSet;
 import org.eclipse.jdt.internal.compiler.env.IBinaryType;
 import org.eclipse.jdt.internal.compiler.env.ICompilationUnit;
+import org.eclipse.jdt.internal.compiler.env.IGenericType;
 import org.eclipse.jdt.internal.compiler.problem.DefaultProblemFactory;
 import org.eclipse.jdt.internal.compiler.util.HashtableOfObject;
 import org.eclipse.jdt.internal.compiler.util.HashtableOfObjectToInt;
 import org.eclipse.jdt.internal.compiler.util.SuffixConstants;
 import org.eclipse.jdt.internal.core.ClassFile;
+import org.eclipse.jdt.internal.core.CompilationUnit;
 import org.eclipse.jdt.internal.core.IPathRequestor;
 import org.eclipse.jdt.internal.core.JavaModelManager;
 import org.eclipse.jdt.internal.core.JavaProject;
 import org.eclipse.jdt.internal.core.Member;
+import org.eclipse.jdt.internal.core.NameLookup;
 import org.eclipse.jdt.internal.core.Openable;
 import org.eclipse.jdt.internal.core.PackageFragment;
 import org.eclipse.jdt.internal.core.SearchableEnvironment;
@@ -98,6 +102,16 @@ public class IndexBasedHierarchyBuilder extends HierarchyBuilder implements Suff
 	 */
 	protected Map binariesFromIndexMatches;
 
+	/**
+	 * The types reported by the hierarchy resolver while they are recorded in the supertype graph, or null
+	 */
+	private List<SupertypeGraph.TypeNode> recordedTypes;
+	private boolean recordedConsistently;
+	/*
+	 * The focus type as found in the project whose types are recorded, see #recordedHandle(IType)
+	 */
+	private IType projectFocus;
+
 	/**
 	 * Collection used to queue subtype index queries
 	 */
@@ -262,9 +276,142 @@ private void buildForProject(JavaProject project, ArrayList potentialSubtypes, o
 				return;
 			}
 		}
-		this.hierarchyResolver.resolve(openables, localTypes, subMonitor.split(9));
+		SupertypeGraph graph = getSupertypeGraph(openables, unitsToLookInside);
+		IType focusInProject = graph == null || focusType == null ? null : findFocusInProject(project);
+		if (focusInProject == null) {
+			this.hierarchyResolver.resolve(openables, localTypes, subMonitor.split(9));
+			return;
+		}
+
+		// connect the types from the supertype graph if it knows them all
+		graph.readChangedUnits();
+		boolean[] withLocalTypes = new boolean[openablesLength];
+		for (int i = 0; i < openablesLength; i++) {
+			withLocalTypes[i] = containsLocalTypes(openables[i], localTypes);
+		}
+		List<SupertypeGraph.TypeNode> connectedTypes = graph.getConnectedTypes(project, openables, withLocalTypes, focusType, focusInProject);
+		if (connectedTypes != null) {
+			for (SupertypeGraph.TypeNode node : connectedTypes) {
+				connect(node.modifiers, node.type, node.superclass, node.superinterfaces);
+			}
+			return;
+		}
+
+		// otherwise resolve them, and record them in the graph if their supertypes were all found
+		int modificationCount = graph.getModificationCount();
+		int missingTypes = this.hierarchy.missingTypes.size();
+		this.recordedTypes = new ArrayList<>();
+		this.recordedConsistently = true;
+		this.projectFocus = focusInProject;
+		try {
+			this.hierarchyResolver.resolve(openables, localTypes, subMonitor.split(9));
+			if (this.recordedConsistently && this.hierarchy.missingTypes.size() == missingTypes) {
+				Set<String> recordedDocuments = new HashSet<>();
+				for (SupertypeGraph.TypeNode node : this.recordedTypes) {
+					recordedDocuments.add(SupertypeGraph.documentKey(node.type));
+				}
+				// the documents without any reported type were not resolved
+				Map<String, Boolean> completeDocuments = new HashMap<>();
+				for (int i = 0; i < openablesLength; i++) {
+					String key = SupertypeGraph.documentKey(openables[i]);
+					if (recordedDocuments.contains(key))
+						completeDocuments.put(key, Boolean.valueOf(withLocalTypes[i]));
+				}
+				graph.record(project, modificationCount, this.recordedTypes, completeDocuments);
+			}
+		} finally {
+			this.recordedTypes = null;
+			this.projectFocus = null;
+		}
 	}
 }
+/*
+ * Returns the supertype graph if the given units are the same as their files, or null.
+ */
+private SupertypeGraph getSupertypeGraph(Openable[] openables, org.eclipse.jdt.core.ICompilationUnit[] unitsToLookInside) throws JavaModelException {
+	SupertypeGraph graph = JavaModelManager.getJavaModelManager().supertypeGraph;
+	if (graph == null || !SupertypeGraph.ENABLED)
+		return null;
+	for (int i = 0; i < openables.length; i++) {
+		if (!isSaved(openables[i]))
+			return null;
+	}
+	if (unitsToLookInside != null) {
+		for (int i = 0; i < unitsToLookInside.length; i++) {
+			if (!isSaved((Openable) unitsToLookInside[i]))
+				return null;
+		}
+	}
+	return graph;
+}
+private static boolean isSaved(Openable openable) throws JavaModelException {
+	if (!(openable instanceof CompilationUnit))
+		return true;
+	CompilationUnit unit = (CompilationUnit) openable;
+	// the handles of a primary working copy are the handles of its compilation unit
+	return !unit.isWorkingCopy() || (unit.isPrimary() && !unit.hasUnsavedChanges());
+}
+/*
+ * Returns whether the hierarchy resolver builds the local types of the given compilation unit or class file,
+ * see HierarchyResolver#resolve(Openable[], HashSet, IProgressMonitor).
+ */
+private static boolean containsLocalTypes(Openable openable, HashSet localTypes) {
+	if (!(openable instanceof org.eclipse.jdt.core.ICompilationUnit))
+		return false;
+	return ((org.eclipse.jdt.core.ICompilationUnit) openable).isWorkingCopy() || localTypes.contains(openable.getPath().toString());
+}
+/*
+ * Returns the focus type, or the binary type with the same name that the given project sees if the focus type is
+ * a binary type from another project. Returns null if there is no such type.
+ */
+private IType findFocusInProject(JavaProject project) {
+	IType focusType = getType();
+	if (!focusType.isBinary() || focusType.getJavaProject().equals(project))
+		return focusType;
+	NameLookup.Answer answer = this.nameLookup.findType(this.focusQualifiedName,
+		false,
+		NameLookup.ACCEPT_ALL,
+		true/* consider secondary types */,
+		false/* do NOT wait for indexes */,
+		false/*don't check restrictions*/,
+		null);
+	return answer == null || answer.type == null || !answer.type.isBinary() ? null : answer.type;
+}
+@Override
+protected boolean recordsAllTypes() {
+	return this.recordedTypes != null;
+}
+@Override
+protected void recordSupertypes(IGenericType type, IType typeHandle, IType superclassHandle, IType[] superinterfaceHandles, boolean consistent) {
+	if (this.recordedTypes == null)
+		return;
+	if (!consistent) {
+		this.recordedConsistently = false;
+		return;
+	}
+	if (typeHandle == null)
+		return; // not connected either
+	IType[] superinterfaces = null;
+	if (superinterfaceHandles != null) {
+		superinterfaces = new IType[superinterfaceHandles.length];
+		for (int i = 0; i < superinterfaces.length; i++) {
+			superinterfaces[i] = recordedHandle(superinterfaceHandles[i]);
+		}
+	}
+	this.recordedTypes.add(new SupertypeGraph.TypeNode(
+		recordedHandle(typeHandle),
+		type.getModifiers(),
+		recordedHandle(superclassHandle),
+		superinterfaces,
+		SupertypeGraph.supertypeNames(type)));
+}
+/*
+ * The binary types named like a binary focus type are reported with the handle of the focus type, see
+ * #lookupBinaryHandle(IBinaryType). The graph rather records the handle of the type that the project sees.
+ */
+private IType recordedHandle(IType handle) {
+	return handle != null && handle.equals(getType()) ? this.projectFocus : handle;
+}
 /**
  * Configure this type hierarchy based on the given potential subtypes.
  */
@@ -0,0 +1,636 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.jdt.internal.core.hierarchy;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.JavaModelException;
+import org.eclipse.jdt.core.search.IJavaSearchScope;
+import org.eclipse.jdt.internal.compiler.ast.TypeDeclaration;
+import org.eclipse.jdt.internal.compiler.env.IBinaryType;
+import org.eclipse.jdt.internal.compiler.env.IGenericType;
+import org.eclipse.jdt.internal.compiler.env.ISourceType;
+import org.eclipse.jdt.internal.core.BinaryType;
+import org.eclipse.jdt.internal.core.ClassFile;
+import org.eclipse.jdt.internal.core.JavaElement;
+import org.eclipse.jdt.internal.core.Openable;
+import org.eclipse.jdt.internal.core.ResolvedBinaryType;
+import org.eclipse.jdt.internal.core.ResolvedSourceType;
+import org.eclipse.jdt.internal.core.SourceType;
+import org.eclipse.jdt.internal.core.util.Util;
+
+/**
+ * The supertypes of the types resolved for the type hierarchies, so that the hierarchy of a type whose candidate
+ * subtypes have not changed since they were last resolved is connected without parsing and resolving them again,
+ * see {@link IndexBasedHierarchyBuilder}.
+ * <p>
+ * The supertypes of a type are resolved on the classpath of the project whose part of the hierarchy is being
+ * built, so the graph has one part per project. Each part records, for each document (a compilation unit or a class
+ * file), the supertypes of the types of the document that the hierarchy resolver reported, and whether they were
+ * all reported.
+ * <p>
+ * The graph is kept up to date from the resource deltas, see <code>DeltaProcessor</code>:
+ * <ul>
+ * <li>a document which changes or is removed is dropped, together with the documents which declare subtypes of its
+ * types, since their member types may inherit the member types named by their supertypes;</li>
+ * <li>a compilation unit or a class file which is added or changed may declare a type that a simple name now
+ * refers to, so the documents whose supertypes are named with one of the simple names it declares are dropped. The
+ * names declared by a compilation unit are only read when the graph is next used;</li>
+ * <li>the whole graph is dropped when a project, a library or a classpath changes.</li>
+ * </ul>
+ * It is saved on full workspace saves and read when it is first used.
+ */
+public class SupertypeGraph {
+
+	/**
+	 * The system property which disables the graph when set to <code>false</code>.
+	 */
+	public static final String ENABLED_PROPERTY = "jdt.core.supertypeGraph"; //$NON-NLS-1$
+	public static boolean ENABLED = Boolean.parseBoolean(System.getProperty(ENABLED_PROPERTY, "true")); //$NON-NLS-1$
+
+	public static final String FILE_NAME = "supertypeGraph.dat"; //$NON-NLS-1$
+	private static final int VERSION = 1;
+	private static final String OBJECT = "Object"; //$NON-NLS-1$
+	private static final String JAVA_LANG = "java.lang"; //$NON-NLS-1$
+
+	/**
+	 * A type and the supertypes it was connected to.
+	 */
+	static final class TypeNode {
+		final IType type;
+		final int modifiers;
+		final IType superclass;
+		final IType[] superinterfaces;
+		/* the simple names found in the names of the supertypes in the type declaration */
+		final String[] supertypeNames;
+
+		TypeNode(IType type, int modifiers, IType superclass, IType[] superinterfaces, String[] supertypeNames) {
+			this.type = type;
+			this.modifiers = modifiers;
+			this.superclass = superclass;
+			this.superinterfaces = superinterfaces == null ? TypeHierarchy.NO_TYPE : superinterfaces;
+			this.supertypeNames = supertypeNames;
+		}
+
+		TypeNode replace(IType oldType, IType newType) {
+			IType[] newInterfaces = this.superinterfaces;
+			for (int i = 0; i < newInterfaces.length; i++) {
+				if (oldType.equals(newInterfaces[i])) {
+					if (newInterfaces == this.superinterfaces)
+						newInterfaces = this.superinterfaces.clone();
+					newInterfaces[i] = newType;
+				}
+			}
+			return new TypeNode(
+				oldType.equals(this.type) ? newType : this.type,
+				this.modifiers,
+				oldType.equals(this.superclass) ? newType : this.superclass,
+				newInterfaces,
+				this.supertypeNames);
+		}
+	}
+
+	private static final class Document {
+		final Map<IType, TypeNode> types = new LinkedHashMap<>();
+		/* whether all the types of the document were reported, with their local types or not */
+		boolean complete;
+		boolean withLocalTypes;
+		/* the documents which declare the supertypes of its types */
+		final Set<String> supertypeDocuments = new HashSet<>();
+	}
+
+	private static final class ProjectGraph {
+		final Map<String, Document> documents = new HashMap<>();
+		final Map<IType, TypeNode> types = new HashMap<>();
+		/* the documents whose supertypes are named with a given simple name */
+		final Map<String, Set<String>> nameDependents = new HashMap<>();
+		/* the documents which declare subtypes of the types of a given document */
+		final Map<String, Set<String>> subtypeDocuments = new HashMap<>();
+	}
+
+	private final File file;
+	private boolean loaded;
+	private final Map<String, ProjectGraph> projects = new HashMap<>();
+	/* the compilation units added or changed since the graph was last used, whose declared names are not read yet */
+	private final Map<String, org.eclipse.jdt.core.ICompilationUnit> changedUnits = new HashMap<>();
+	private int modificationCount;
+
+	/**
+	 * Creates a graph which is read from & saved to the given file, or which is not persisted if it is null.
+	 */
+	public SupertypeGraph(File file) {
+		this.file = file;
+	}
+
+	/**
+	 * Returns the key of the compilation unit or class file which declares the given type.
+	 */
+	static String documentKey(IType type) {
+		return documentKey((Openable) ((JavaElement) type).getOpenableParent());
+	}
+
+	/**
+	 * Returns the key of the given compilation unit or class file in the graph.
+	 */
+	static String documentKey(Openable openable) {
+		String path = openable.getPath().toString();
+		if (openable instanceof ClassFile && ((ClassFile) openable).getPackageFragmentRoot().isArchive()) {
+			String packageName = openable.getParent().getElementName();
+			return path + IJavaSearchScope.JAR_FILE_ENTRY_SEPARATOR
+				+ (packageName.length() == 0 ? "" : packageName.replace('.', '/') + '/') + openable.getElementName(); //$NON-NLS-1$
+		}
+		return path;
+	}
+
+	/**
+	 * Returns the simple names found in the names of the supertypes of the given type, as written in its declaration.
+	 */
+	static String[] supertypeNames(IGenericType type) {
+		char[] superclassName;
+		char[][] interfaceNames;
+		if (type instanceof IBinaryType) {
+			superclassName = ((IBinaryType) type).getSuperclassName();
+			interfaceNames = ((IBinaryType) type).getInterfaceNames();
+		} else if (type instanceof ISourceType) {
+			superclassName = ((ISourceType) type).getSuperclassName();
+			interfaceNames = ((ISourceType) type).getInterfaceNames();
+		} else if (type instanceof HierarchyType) {
+			superclassName = ((HierarchyType) type).superclassName;
+			interfaceNames = ((HierarchyType) type).superInterfaceNames;
+		} else {
+			return null;
+		}
+		Set<String> names = new HashSet<>();
+		addIdentifiers(superclassName, names);
+		if (interfaceNames != null) {
+			for (char[] interfaceName : interfaceNames)
+				addIdentifiers(interfaceName, names);
+		}
+		return names.toArray(new String[names.size()]);
+	}
+
+	private static void addIdentifiers(char[] name, Set<String> identifiers) {
+		if (name == null)
+			return;
+		int start = -1;
+		for (int i = 0; i <= name.length; i++) {
+			if (i < name.length && Character.isJavaIdentifierPart(name[i]) && name[i] != '$') {
+				if (start < 0)
+					start = i;
+			} else if (start >= 0) {
+				identifiers.add(new String(name, start, i - start));
+				start = -1;
+			}
+		}
+	}
+
+	/**
+	 * Drops the whole graph.
+	 */
+	public synchronized void clear() {
+		ensureLoaded();
+		this.projects.clear();
+		this.changedUnits.clear();
+		this.modificationCount++;
+	}
+
+	/**
+	 * Updates the graph for a compilation unit or a class file which was added or whose content changed.
+	 */
+	public synchronized void documentChanged(Openable openable) {
+		ensureLoaded();
+		drop(documentKey(openable));
+		declaredNamesChanged(openable);
+	}
+
+	/**
+	 * Updates the graph for a compilation unit or a class file which was removed.
+	 */
+	public synchronized void documentRemoved(Openable openable) {
+		ensureLoaded();
+		String key = documentKey(openable);
+		drop(key);
+		this.changedUnits.remove(key);
+	}
+
+	private void declaredNamesChanged(Openable openable) {
+		if (openable instanceof org.eclipse.jdt.core.ICompilationUnit) {
+			this.changedUnits.put(documentKey(openable), (org.eclipse.jdt.core.ICompilationUnit) openable);
+		} else {
+			// the types of a class file are named by the file
+			Set<String> names = new HashSet<>();
+			String fileName = openable.getElementName();
+			addIdentifiers(fileName.substring(0, fileName.lastIndexOf('.')).toCharArray(), names);
+			dropDependents(names);
+		}
+	}
+
+	/**
+	 * Drops the documents whose supertypes are named with the names declared by the compilation units which were
+	 * added or changed since the graph was last used. Reads the units which were added or changed, if any.
+	 */
+	public void readChangedUnits() {
+		Collection<org.eclipse.jdt.core.ICompilationUnit> units;
+		synchronized (this) {
+			ensureLoaded();
+			if (this.changedUnits.isEmpty())
+				return;
+			units = new ArrayList<>(this.changedUnits.values());
+			this.changedUnits.clear();
+		}
+		// the units are read outside of the lock of the graph, which is taken when processing the deltas
+		Set<String> names = new HashSet<>();
+		for (org.eclipse.jdt.core.ICompilationUnit unit : units) {
+			try {
+				for (IType type : unit.getAllTypes())
+					names.add(type.getElementName());
+			} catch (JavaModelException e) {
+				// the unit doesn't exist anymore: it was dropped when it was removed
+			}
+		}
+		synchronized (this) {
+			dropDependents(names);
+		}
+	}
+
+	/**
+	 * Returns a count which changes each time the graph is updated from the deltas. The types resolved for a
+	 * hierarchy are only recorded if the graph was not updated in the meantime.
+	 */
+	public synchronized int getModificationCount() {
+		ensureLoaded();
+		return this.modificationCount;
+	}
+
+	private void drop(String key) {
+		for (ProjectGraph projectGraph : this.projects.values())
+			drop(projectGraph, key);
+		this.modificationCount++;
+	}
+
+	private void drop(ProjectGraph projectGraph, String key) {
+		List<String> keys = new ArrayList<>();
+		keys.add(key);
+		while (!keys.isEmpty()) {
+			String next = keys.remove(keys.size() - 1);
+			Document document = projectGraph.documents.remove(next);
+			if (document != null)
+				unindex(projectGraph, next, document);
+			Set<String> subtypeDocuments = projectGraph.subtypeDocuments.remove(next);
+			if (subtypeDocuments != null)
+				keys.addAll(subtypeDocuments);
+		}
+	}
+
+	private void dropDependents(Set<String> names) {
+		if (names.isEmpty())
+			return;
+		for (ProjectGraph projectGraph : this.projects.values()) {
+			for (String name : names) {
+				Set<String> dependents = projectGraph.nameDependents.get(name);
+				if (dependents == null)
+					continue;
+				for (String key : new ArrayList<>(dependents))
+					drop(projectGraph, key);
+			}
+		}
+		this.modificationCount++;
+	}
+
+	private static void index(ProjectGraph projectGraph, String key, Document document) {
+		for (TypeNode node : document.types.values()) {
+			projectGraph.types.put(node.type, node);
+			if (node.supertypeNames != null) {
+				for (String name : node.supertypeNames)
+					projectGraph.nameDependents.computeIfAbsent(name, n -> new HashSet<>()).add(key);
+			}
+			addSupertypeDocument(node.superclass, key, document);
+			for (IType superinterface : node.superinterfaces)
+				addSupertypeDocument(superinterface, key, document);
+		}
+		for (String supertypeDocument : document.supertypeDocuments)
+			projectGraph.subtypeDocuments.computeIfAbsent(supertypeDocument, k -> new HashSet<>()).add(key);
+	}
+
+	private static void addSupertypeDocument(IType supertype, String key, Document document) {
+		if (supertype == null)
+			return;
+		String supertypeDocument = documentKey(supertype);
+		if (!supertypeDocument.equals(key))
+			document.supertypeDocuments.add(supertypeDocument);
+	}
+
+	private static void unindex(ProjectGraph projectGraph, String key, Document document) {
+		for (TypeNode node : document.types.values()) {
+			projectGraph.types.remove(node.type);
+			if (node.supertypeNames != null) {
+				for (String name : node.supertypeNames)
+					removeFrom(projectGraph.nameDependents, name, key);
+			}
+		}
+		for (String supertypeDocument : document.supertypeDocuments)
+			removeFrom(projectGraph.subtypeDocuments, supertypeDocument, key);
+		document.supertypeDocuments.clear();
+	}
+
+	private static void removeFrom(Map<String, Set<String>> map, String mapKey, String value) {
+		Set<String> values = map.get(mapKey);
+		if (values != null && values.remove(value) && values.isEmpty())
+			map.remove(mapKey);
+	}
+
+	/**
+	 * Records the types resolved for the hierarchy of a project, unless the graph was updated since the given
+	 * modification count was read.
+	 *
+	 * @param types the resolved types, with the supertypes they were connected to
+	 * @param completeDocuments the keys of the documents whose types were all resolved, mapped to whether their
+	 * local types were resolved too
+	 */
+	synchronized void record(IJavaProject project, int expectedModificationCount, List<TypeNode> types, Map<String, Boolean> completeDocuments) {
+		ensureLoaded();
+		if (this.modificationCount != expectedModificationCount)
+			return;
+		ProjectGraph projectGraph = this.projects.computeIfAbsent(project.getElementName(), p -> new ProjectGraph());
+		Map<String, Document> documents = new HashMap<>();
+		for (TypeNode node : types) {
+			String key = documentKey(node.type);
+			Document document = documents.get(key);
+			if (document == null) {
+				document = new Document();
+				Document previous = projectGraph.documents.get(key);
+				Boolean withLocalTypes = completeDocuments.get(key);
+				if (withLocalTypes != null) {
+					// all the types of the document were resolved again
+					document.complete = true;
+					document.withLocalTypes = withLocalTypes.booleanValue();
+				} else if (previous != null) {
+					// some types of the document were resolved as supertypes
+					document.complete = previous.complete;
+					document.withLocalTypes = previous.withLocalTypes;
+					document.types.putAll(previous.types);
+				}
+				if (previous != null)
+					unindex(projectGraph, key, previous);
+				documents.put(key, document);
+			}
+			document.types.put(node.type, node);
+		}
+		for (Map.Entry<String, Document> entry : documents.entrySet()) {
+			projectGraph.documents.put(entry.getKey(), entry.getValue());
+			index(projectGraph, entry.getKey(), entry.getValue());
+		}
+	}
+
+	/**
+	 * Returns the types to connect in the hierarchy of the given focus type for the given compilation units and
+	 * class files of a project, in the order in which to connect them, or null if the graph doesn't know them all.
+	 * These are the types that the hierarchy resolver would connect: the subtypes and the supertypes of the focus
+	 * type among the types of the given documents, the focus type and their supertypes.
+	 *
+	 * @param openables the documents whose types are resolved
+	 * @param withLocalTypes whether the local types of each document are resolved
+	 * @param focus the focus type of the hierarchy
+	 * @param projectFocus the focus type as found on the classpath of the project, which differs from the
+	 * focus type if it is a binary type from another project
+	 */
+	synchronized List<TypeNode> getConnectedTypes(IJavaProject project, Openable[] openables, boolean[] withLocalTypes, IType focus, IType projectFocus) {
+		ensureLoaded();
+		ProjectGraph projectGraph = this.projects.get(project.getElementName());
+		if (projectGraph == null)
+			return null;
+
+		// the types that the resolver would build: the types of the documents, the focus type, and their supertypes
+		Set<IType> documentTypes = new HashSet<>();
+		List<IType> typesToVisit = new ArrayList<>();
+		for (int i = 0; i < openables.length; i++) {
+			Document document = projectGraph.documents.get(documentKey(openables[i]));
+			if (document == null || !document.complete || document.withLocalTypes != withLocalTypes[i])
+				return null;
+			documentTypes.addAll(document.types.keySet());
+			typesToVisit.addAll(document.types.keySet());
+		}
+		if (!focus.isBinary())
+			typesToVisit.add(projectFocus); // see HierarchyResolver#setFocusType(char[][])
+		Map<IType, TypeNode> resolvedTypes = new LinkedHashMap<>();
+		while (!typesToVisit.isEmpty()) {
+			IType type = typesToVisit.remove(typesToVisit.size() - 1);
+			if (resolvedTypes.containsKey(type))
+				continue;
+			TypeNode node = projectGraph.types.get(type);
+			if (node == null)
+				return null;
+			resolvedTypes.put(type, node);
+			if (node.superclass != null)
+				typesToVisit.add(node.superclass);
+			Collections.addAll(typesToVisit, node.superinterfaces);
+		}
+		if (!resolvedTypes.containsKey(projectFocus))
+			return Collections.emptyList(); // no potential subtype is a real subtype of the binary focus type
+
+		Set<IType> supertypesOfFocus = new HashSet<>();
+		addSupertypes(projectFocus, resolvedTypes, supertypesOfFocus);
+		Map<IType, Boolean> subtypesOfFocus = new HashMap<>();
+		// the handle of a binary focus type is used for the binary types that are not among the documents,
+		// see HierarchyBuilder#lookupBinaryHandle(IBinaryType)
+		boolean replaceFocus = focus.isBinary() && !projectFocus.equals(focus) && !documentTypes.contains(projectFocus);
+		List<TypeNode> connectedTypes = new ArrayList<>();
+		TypeNode object = null;
+		for (TypeNode node : resolvedTypes.values()) {
+			if (node.superclass == null && TypeDeclaration.kind(node.modifiers) == TypeDeclaration.CLASS_DECL
+					&& OBJECT.equals(node.type.getElementName())
+					&& JAVA_LANG.equals(node.type.getPackageFragment().getElementName())) {
+				object = node; // connected at the end, see HierarchyResolver#reportHierarchy
+				continue;
+			}
+			if (supertypesOfFocus.contains(node.type) || isSubtype(node.type, projectFocus, resolvedTypes, subtypesOfFocus))
+				connectedTypes.add(replaceFocus ? node.replace(projectFocus, focus) : node);
+		}
+		if (object != null)
+			connectedTypes.add(object);
+		return connectedTypes;
+	}
+
+	private static void addSupertypes(IType type, Map<IType, TypeNode> resolvedTypes, Set<IType> supertypes) {
+		if (type == null || !supertypes.add(type))
+			return;
+		TypeNode node = resolvedTypes.get(type);
+		addSupertypes(node.superclass, resolvedTypes, supertypes);
+		for (IType superinterface : node.superinterfaces)
+			addSupertypes(superinterface, resolvedTypes, supertypes);
+	}
+
+	private static boolean isSubtype(IType type, IType focus, Map<IType, TypeNode> resolvedTypes, Map<IType, Boolean> subtypes) {
+		if (type == null)
+			return false;
+		Boolean known = subtypes.get(type);
+		if (known != null)
+			return known.booleanValue();
+		subtypes.put(type, Boolean.FALSE); // the hierarchies with cycles are not recorded
+		boolean result = type.equals(focus);
+		if (!result) {
+			TypeNode node = resolvedTypes.get(type);
+			result = isSubtype(node.superclass, focus, resolvedTypes, subtypes);
+			for (int i = 0; !result && i < node.superinterfaces.length; i++)
+				result = isSubtype(node.superinterfaces[i], focus, resolvedTypes, subtypes);
+		}
+		subtypes.put(type, Boolean.valueOf(result));
+		return result;
+	}
+
+	private void ensureLoaded() {
+		if (this.loaded)
+			return;
+		this.loaded = true;
+		if (this.file == null || !this.file.exists())
+			return;
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(this.file)))) {
+			if (in.readInt() != VERSION)
+				return;
+			for (int projectCount = in.readInt(); projectCount > 0; projectCount--) {
+				ProjectGraph projectGraph = new ProjectGraph();
+				this.projects.put(in.readUTF(), projectGraph);
+				for (int documentCount = in.readInt(); documentCount > 0; documentCount--) {
+					String key = in.readUTF();
+					Document document = new Document();
+					document.complete = in.readBoolean();
+					document.withLocalTypes = in.readBoolean();
+					for (int typeCount = in.readInt(); typeCount > 0; typeCount--) {
+						IType type = readType(in);
+						int modifiers = in.readInt();
+						IType superclass = in.readBoolean() ? readType(in) : null;
+						IType[] superinterfaces = new IType[in.readInt()];
+						for (int i = 0; i < superinterfaces.length; i++)
+							superinterfaces[i] = readType(in);
+						String[] supertypeNames = null;
+						int nameCount = in.readInt();
+						if (nameCount >= 0) {
+							supertypeNames = new String[nameCount];
+							for (int i = 0; i < nameCount; i++)
+								supertypeNames[i] = in.readUTF();
+						}
+						document.types.put(type, new TypeNode(type, modifiers, superclass, superinterfaces, supertypeNames));
+					}
+					projectGraph.documents.put(key, document);
+					index(projectGraph, key, document);
+				}
+			}
+			for (int unitCount = in.readInt(); unitCount > 0; unitCount--) {
+				String key = in.readUTF();
+				IJavaElement unit = JavaCore.create(in.readUTF());
+				if (!(unit instanceof org.eclipse.jdt.core.ICompilationUnit))
+					throw new IOException("Invalid compilation unit: " + key); //$NON-NLS-1$
+				this.changedUnits.put(key, (org.eclipse.jdt.core.ICompilationUnit) unit);
+			}
+		} catch (IOException | RuntimeException e) {
+			Util.log(e, "Unable to read the supertype graph"); //$NON-NLS-1$
+			this.projects.clear();
+			this.changedUnits.clear();
+		}
+	}
+
+	private static IType readType(DataInputStream in) throws IOException {
+		String identifier = in.readUTF();
+		String key = in.readUTF();
+		IJavaElement element = JavaCore.create(identifier);
+		if (!(element instanceof IType))
+			throw new IOException("Invalid type: " + identifier); //$NON-NLS-1$
+		if (key.length() == 0)
+			return (IType) element;
+		JavaElement parent = (JavaElement) element.getParent();
+		if (element instanceof BinaryType) {
+			ResolvedBinaryType resolvedType = new ResolvedBinaryType(parent, element.getElementName(), key);
+			resolvedType.occurrenceCount = ((BinaryType) element).occurrenceCount;
+			return resolvedType;
+		}
+		ResolvedSourceType resolvedType = new ResolvedSourceType(parent, element.getElementName(), key);
+		resolvedType.occurrenceCount = ((SourceType) element).occurrenceCount;
+		resolvedType.localOccurrenceCount = ((SourceType) element).localOccurrenceCount;
+		return resolvedType;
+	}
+
+	/**
+	 * Saves the graph to its file.
+	 */
+	public synchronized void save() throws CoreException {
+		if (this.file == null || !this.loaded)
+			return; // not changed since it was read
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(this.file)))) {
+			out.writeInt(VERSION);
+			out.writeInt(this.projects.size());
+			for (Map.Entry<String, ProjectGraph> project : this.projects.entrySet()) {
+				out.writeUTF(project.getKey());
+				Map<String, Document> documents = project.getValue().documents;
+				out.writeInt(documents.size());
+				for (Map.Entry<String, Document> entry : documents.entrySet()) {
+					Document document = entry.getValue();
+					out.writeUTF(entry.getKey());
+					out.writeBoolean(document.complete);
+					out.writeBoolean(document.withLocalTypes);
+					out.writeInt(document.types.size());
+					for (TypeNode node : document.types.values()) {
+						writeType(node.type, out);
+						out.writeInt(node.modifiers);
+						out.writeBoolean(node.superclass != null);
+						if (node.superclass != null)
+							writeType(node.superclass, out);
+						out.writeInt(node.superinterfaces.length);
+						for (IType superinterface : node.superinterfaces)
+							writeType(superinterface, out);
+						if (node.supertypeNames == null) {
+							out.writeInt(-1);
+						} else {
+							out.writeInt(node.supertypeNames.length);
+							for (String name : node.supertypeNames)
+								out.writeUTF(name);
+						}
+					}
+				}
+			}
+			out.writeInt(this.changedUnits.size());
+			for (Map.Entry<String, org.eclipse.jdt.core.ICompilationUnit> entry : this.changedUnits.entrySet()) {
+				out.writeUTF(entry.getKey());
+				out.writeUTF(entry.getValue().getHandleIdentifier());
+			}
+		} catch (IOException e) {
+			IStatus status = new Status(IStatus.ERROR, JavaCore.PLUGIN_ID, IStatus.ERROR, "Problems while saving the supertype graph", e); //$NON-NLS-1$
+			throw new CoreException(status);
+		}
+	}
+
+	private static void writeType(IType type, DataOutputStream out) throws IOException {
+		out.writeUTF(type.getHandleIdentifier());
+		out.writeUTF(type.isResolved() ? type.getKey() : ""); //$NON-NLS-1$
+	}
+}
@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.jdt.internal.core.util;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+
+/**
+ * The thread pools on which the search engine, the indexer and the type hierarchy resolver split their work, and the
+ * loop that waits for the tasks submitted to them.
+ * <p>
+ * There is one pool per kind of work and number of threads. A pool is never shut down, since another caller may have
+ * just fetched it: changing the number of threads of some kind of work only makes the next callers use another pool.
+ * The idle threads of a pool end by themselves, so an unused pool holds no thread.
+ */
+public final class WorkerPools {
+
+	private static final long CANCELLATION_CHECK_INTERVAL = 100; // ms
+	private static final Map<String, ForkJoinPool> pools = new HashMap<>();
+
+	private WorkerPools() {
+		// not instantiated
+	}
+
+	/**
+	 * Answers the pool whose threads have the given name and which runs at most the given number of tasks at the same
+	 * time, creating it if necessary.
+	 */
+	public static synchronized ForkJoinPool getPool(final String threadName, int threads) {
+		String key = threadName + '#' + threads;
+		ForkJoinPool pool = pools.get(key);
+		if (pool == null) {
+			pool = new ForkJoinPool(threads, p -> {
+				ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+				thread.setName(threadName);
+				thread.setDaemon(true);
+				return thread;
+			}, null, false);
+			pools.put(key, pool);
+		}
+		return pool;
+	}
+
+	/**
+	 * Runs the given tasks on the given pool and passes their results to the given handler, on the calling thread and
+	 * in the order in which the tasks end.
+	 * <p>
+	 * When the given monitor is canceled, when the calling thread is interrupted or when a task or the handler fails,
+	 * the given flag is set so that the remaining tasks stop early, and this method waits until they have all ended
+	 * before throwing. So no task is running anymore once this method has returned.
+	 *
+	 * @throws OperationCanceledException if the monitor was canceled or the calling thread was interrupted
+	 * @throws CoreException the first core exception thrown by a task
+	 */
+	public static <T> void invokeAll(ForkJoinPool pool, List<? extends Callable<T>> tasks, IProgressMonitor monitor,
+			AtomicBoolean canceled, Consumer<T> resultHandler) throws CoreException {
+		// the pool is only used to execute the tasks: the futures that it creates would wrap checked exceptions
+		ExecutorCompletionService<T> completionService = new ExecutorCompletionService<>(pool::execute);
+		int submitted = 0;
+		int finished = 0;
+		try {
+			for (Callable<T> task : tasks) {
+				completionService.submit(task);
+				submitted++;
+			}
+			while (finished < submitted) {
+				if (monitor != null && monitor.isCanceled()) throw new OperationCanceledException();
+				Future<T> result = completionService.poll(CANCELLATION_CHECK_INTERVAL, TimeUnit.MILLISECONDS);
+				if (result == null) continue;
+				finished++;
+				resultHandler.accept(getResult(result));
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new OperationCanceledException();
+		} finally {
+			if (finished < submitted) {
+				canceled.set(true);
+				boolean interrupted = false;
+				while (finished < submitted) {
+					try {
+						completionService.take();
+						finished++;
+					} catch (InterruptedException e) {
+						interrupted = true;
+					}
+				}
+				if (interrupted)
+					Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Waits for the result of the given task, rethrowing the exception that ended it if any. The tasks submitted to a
+	 * {@link ForkJoinPool} can only end with an unchecked exception.
+	 *
+	 * @throws CoreException the core exception thrown by the task
+	 */
+	public static <T> T getResult(Future<T> result) throws CoreException, InterruptedException {
+		try {
+			return result.get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof CoreException)
+				throw (CoreException) cause;
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause; // includes the OperationCanceledException of a requestor
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw new IllegalStateException(cause);
+		}
+	}
+}
@@ -14,12 +14,15 @@
 package org.eclipse.jdt.internal.core.index;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.regex.Pattern;
 
 import org.eclipse.jdt.core.compiler.CharOperation;
 import org.eclipse.jdt.core.search.*;
 import org.eclipse.jdt.internal.core.util.*;
 import org.eclipse.osgi.util.NLS;
+import org.eclipse.jdt.internal.compiler.parser.ScannerHelper;
 import org.eclipse.jdt.internal.compiler.util.HashtableOfIntValues;
 import org.eclipse.jdt.internal.compiler.util.HashtableOfObject;
 import org.eclipse.jdt.internal.compiler.util.SimpleLookupTable;
@@ -34,14 +37,22 @@ private int headerInfoOffset;
 private int numberOfChunks;
 private int sizeOfLastChunk;
 private int[] chunkOffsets;
-private int documentReferenceSize; // 1, 2 or more bytes... depends on # of document names
 private int startOfCategoryTables;
 private HashtableOfIntValues categoryOffsets, categoryEnds;
+private HashtableOfIntValues categoryWordIndexes; // category name -> offset to the offsets of its words, in sorted order
 
 private int cacheUserCount;
 private String[][] cachedChunks; // decompressed chunks of document names
 private HashtableOfObject categoryTables; // category name -> HashtableOfObject(words -> int[] of document #'s) or offset if not read yet
 private char[] cachedCategoryName;
+private HashtableOfObject categoryTableBytes; // category name -> bytes of the cached table, if some of its document arrays have not been read yet
+private ByteBuffer mappedIndexFile; // only used if USE_MEMORY_MAPPED_IO is true or the index file is read-only, kept until the file is replaced
+private FileChannel queryChannel; // shared by the lookups between startQuery() & the matching stopQuery()
+
+private DiskIndex previousSegment; // older segment of the same index file, null for the first segment
+private int previousSegmentHeaderOffset;
+private String[] removedDocumentNames; // documents removed from the older segments by this segment
+private String[] segmentDocumentNames; // documents of this segment, which hide the same documents in the older segments
 
 private static final int DEFAULT_BUFFER_SIZE = 2048;
 private static int BUFFER_READ_SIZE = DEFAULT_BUFFER_SIZE;
@@ -51,8 +62,9 @@ private int bufferIndex, bufferEnd; // used when reading from the file into the
 private int streamEnd; // used when writing data from the streamBuffer to the file
 char separator = Index.DEFAULT_SEPARATOR;
 
-public static final String SIGNATURE= "INDEX VERSION 1.131"; //$NON-NLS-1$
+public static final String SIGNATURE= "INDEX VERSION 1.134"; //$NON-NLS-1$
 private static final char[] SIGNATURE_CHARS = SIGNATURE.toCharArray();
+private static final int HEADER_INFO_OFFSET_POSITION = 2 + SIGNATURE_CHARS.length; // the offset to the header of the newest segment follows the signature
 public static boolean DEBUG = false;
 
 private static final int RE_INDEXED = -1;
@@ -60,6 +72,35 @@ private static final int DELETED = -2;
 
 private static final int CHUNK_SIZE = 100;
 
+/**
+ * Saving an index appends the changed documents to the index file as a new segment instead of rewriting the whole file,
+ * as long as there are less than MAX_SEGMENTS segments after the first one & they hold less than 1/SEGMENT_DOCUMENTS_RATIO
+ * of the documents of the first segment. Compacting the index once half of these limits are reached is left to a
+ * background job, see needsCompaction().
+ */
+private static final int MAX_SEGMENTS = 8;
+private static final int SEGMENT_DOCUMENTS_RATIO = 4;
+
+/**
+ * True iff exact and prefix queries should look up words in memory-mapped index files rather than reading the
+ * parts of the file they need with explicit reads. Note that a mapping is only released once it is garbage collected,
+ * so some platforms refuse to delete or replace the index file until then.
+ */
+public static final boolean USE_MEMORY_MAPPED_IO = Boolean.getBoolean("jdt.core.mapIndexFiles"); //$NON-NLS-1$
+private static final int RANDOM_ACCESS_READ_SIZE = 4096;
+
+/**
+ * The characters above {@link ScannerHelper#MAX_OBVIOUS} whose lower case is below it, e.g. the Kelvin sign.
+ */
+private static final char[] NON_ASCII_CHARS_WITH_ASCII_LOWER_CASE;
+static {
+	StringBuilder chars = new StringBuilder();
+	for (int c = ScannerHelper.MAX_OBVIOUS; c <= Character.MAX_VALUE; c++)
+		if (Character.toLowerCase((char) c) < ScannerHelper.MAX_OBVIOUS)
+			chars.append((char) c);
+	NON_ASCII_CHARS_WITH_ASCII_LOWER_CASE = chars.toString().toCharArray();
+}
+
 private static final SimpleSetOfCharArray INTERNED_CATEGORY_NAMES = new SimpleSetOfCharArray(20);
 private static final String TMP_EXT = ".tmp"; //$NON-NLS-1$
 
@@ -87,19 +128,145 @@ int[] asArray() {
 }
 }
 
+/**
+ * Reads from arbitrary positions of an index file, either through a memory-mapped view of the whole file or through
+ * a window of the file which is refilled with positional reads when needed.
+ */
+static class RandomAccessReader {
+
+FileChannel channel; // null if the buffer is a view of the whole file
+boolean closeChannel; // false if the channel is shared by the lookups of a query
+ByteBuffer buffer;
+int bufferStart; // offset in the file of the first byte of the buffer
+
+RandomAccessReader(ByteBuffer mappedFile) {
+	this.buffer = mappedFile;
+	this.bufferStart = 0;
+}
+RandomAccessReader(FileChannel channel, boolean closeChannel) {
+	this.channel = channel;
+	this.closeChannel = closeChannel;
+	this.buffer = ByteBuffer.allocate(RANDOM_ACCESS_READ_SIZE);
+	this.buffer.limit(0);
+	this.bufferStart = 0;
+}
+void close() throws IOException {
+	if (this.closeChannel)
+		this.channel.close();
+}
+private void ensureAvailable(int length) throws IOException {
+	if (this.buffer.remaining() < length)
+		fill(this.bufferStart + this.buffer.position(), length);
+}
+private void fill(int offset, int length) throws IOException {
+	if (this.channel == null)
+		throw new EOFException();
+	int size = length > RANDOM_ACCESS_READ_SIZE ? length : RANDOM_ACCESS_READ_SIZE;
+	if (this.buffer.capacity() < size)
+		this.buffer = ByteBuffer.allocate(size);
+	this.buffer.clear();
+	while (this.buffer.hasRemaining() && this.channel.read(this.buffer, offset + this.buffer.position()) >= 0) {
+		// keep reading until the buffer is full or the end of the file is reached
+	}
+	this.buffer.flip();
+	this.bufferStart = offset;
+	if (this.buffer.remaining() < length)
+		throw new EOFException();
+}
+int position() {
+	return this.bufferStart + this.buffer.position();
+}
+void seek(int offset) throws IOException {
+	int position = offset - this.bufferStart;
+	if (position >= 0 && position <= this.buffer.limit())
+		this.buffer.position(position);
+	else
+		fill(offset, 0);
+}
+int readInt() throws IOException {
+	ensureAvailable(4);
+	return this.buffer.getInt();
+}
+/**
+ * Reads a char array in the format written by {@link DiskIndex#writeStreamChars(FileOutputStream, char[])}.
+ */
+char[] readChars() throws IOException {
+	ensureAvailable(2);
+	int length = this.buffer.getShort() & 0xFFFF;
+	char[] word = new char[length];
+	for (int i = 0; i < length; i++) {
+		ensureAvailable(1);
+		int b = this.buffer.get() & 0xFF;
+		switch (b & 0xF0) {
+			case 0xC0 :
+			case 0xD0 :
+				ensureAvailable(1);
+				int next = this.buffer.get();
+				if ((next & 0xC0) != 0x80)
+					throw new UTFDataFormatException();
+				word[i] = (char) (((b & 0x1F) << 6) | (next & 0x3F));
+				break;
+			case 0xE0 :
+				ensureAvailable(2);
+				int first = this.buffer.get();
+				int second = this.buffer.get();
+				if ((first & second & 0xC0) != 0x80)
+					throw new UTFDataFormatException();
+				word[i] = (char) (((b & 0x0F) << 12) | ((first & 0x3F) << 6) | (second & 0x3F));
+				break;
+			default :
+				if (b >= 0x80)
+					throw new UTFDataFormatException();
+				word[i] = (char) b;
+		}
+	}
+	return word;
+}
+int readVarInt() throws IOException {
+	int val = 0;
+	int shift = 0;
+	int b;
+	do {
+		ensureAvailable(1);
+		b = this.buffer.get();
+		val |= (b & 0x7F) << shift;
+		shift += 7;
+	} while (b < 0);
+	return val;
+}
+/**
+ * Reads an array in the format written by {@link DiskIndex#writeDocumentNumbers(int[], FileOutputStream)}, after
+ * its size has been read.
+ */
+int[] readDocumentArray(int arraySize) throws IOException {
+	int[] indexes = new int[arraySize];
+	int value = 0;
+	for (int i = 0; i < arraySize; i++)
+		indexes[i] = value += readVarInt();
+	return indexes;
+}
+void skipDocumentArray(int arraySize) throws IOException {
+	for (int i = 0; i < arraySize; i++)
+		readVarInt();
+}
+}
+
 
 DiskIndex() {
 	this.headerInfoOffset = -1;
 	this.numberOfChunks = -1;
 	this.sizeOfLastChunk = -1;
 	this.chunkOffsets = null;
-	this.documentReferenceSize = -1;
 	this.cacheUserCount = -1;
 	this.cachedChunks = null;
 	this.categoryTables = null;
 	this.cachedCategoryName = null;
 	this.categoryOffsets = null;
 	this.categoryEnds = null;
+	this.categoryWordIndexes = null;
+	this.previousSegment = null;
+	this.previousSegmentHeaderOffset = -1;
+	this.removedDocumentNames = CharOperation.NO_STRINGS;
 }
 DiskIndex(IndexLocation location) throws IOException {
 	this();
@@ -110,53 +277,65 @@ DiskIndex(IndexLocation location) throws IOException {
 }
 SimpleSet addDocumentNames(String substring, MemoryIndex memoryIndex) throws IOException {
 	// must skip over documents which have been added/changed/deleted in the memory index
+	if (this.previousSegment == null)
+		return addDocumentNames(substring, memoryIndex == null ? null : memoryIndex.docsToReferences, null);
+
+	// each segment must also skip over the documents of the newer segments
+	SimpleLookupTable excludedDocuments = newExcludedDocuments(memoryIndex);
+	SimpleSet results = null;
+	for (DiskIndex segment = this; segment != null; segment = segment.previousSegment) {
+		results = segment.addDocumentNames(substring, excludedDocuments, results);
+		if (segment.previousSegment != null)
+			segment.excludeSegmentDocuments(excludedDocuments);
+	}
+	return results;
+}
+private SimpleSet addDocumentNames(String substring, SimpleLookupTable excludedDocuments, SimpleSet results) throws IOException {
 	String[] docNames = readAllDocumentNames();
-	SimpleSet results = new SimpleSet(docNames.length);
+	if (results == null)
+		results = new SimpleSet(docNames.length);
 	if (substring == null) {
-		if (memoryIndex == null) {
+		if (excludedDocuments == null) {
 			for (int i = 0, l = docNames.length; i < l; i++)
 				results.add(docNames[i]);
 		} else {
-			SimpleLookupTable docsToRefs = memoryIndex.docsToReferences;
 			for (int i = 0, l = docNames.length; i < l; i++) {
 				String docName = docNames[i];
-				if (!docsToRefs.containsKey(docName))
+				if (!excludedDocuments.containsKey(docName))
 					results.add(docName);
 			}
 		}
 	} else {
-		if (memoryIndex == null) {
+		if (excludedDocuments == null) {
 			for (int i = 0, l = docNames.length; i < l; i++)
 				if (docNames[i].startsWith(substring, 0))
 					results.add(docNames[i]);
 		} else {
-			SimpleLookupTable docsToRefs = memoryIndex.docsToReferences;
 			for (int i = 0, l = docNames.length; i < l; i++) {
 				String docName = docNames[i];
-				if (docName.startsWith(substring, 0) && !docsToRefs.containsKey(docName))
+				if (docName.startsWith(substring, 0) && !excludedDocuments.containsKey(docName))
 					results.add(docName);
 			}
 		}
 	}
 	return results;
 }
-private HashtableOfObject addQueryResult(HashtableOfObject results, char[] word, Object docs, MemoryIndex memoryIndex, boolean prevResults) throws IOException {
-	// must skip over documents which have been added/changed/deleted in the memory index
+private HashtableOfObject addQueryResult(HashtableOfObject results, char[] word, Object docs, SimpleLookupTable excludedDocuments, boolean prevResults) throws IOException {
+	// must skip over documents which have been added/changed/deleted in the memory index or in newer segments
 	if (results == null)
 		results = new HashtableOfObject(13);
 	EntryResult result = prevResults ? (EntryResult) results.get(word) : null;
-	if (memoryIndex == null) {
+	if (excludedDocuments == null) {
 		if (result == null)
 			results.putUnsafely(word, new EntryResult(word, docs));
 		else
 			result.addDocumentTable(docs);
 	} else {
-		SimpleLookupTable docsToRefs = memoryIndex.docsToReferences;
 		if (result == null) result = new EntryResult(word, null);
 		int[] docNumbers = readDocumentNumbers(docs);
 		for (int i = 0, l = docNumbers.length; i < l; i++) {
 			String docName = readDocumentName(docNumbers[i]);
-			if (!docsToRefs.containsKey(docName))
+			if (!excludedDocuments.containsKey(docName))
 				result.addDocumentName(docName);
 		}
 		if (!result.isEmpty())
@@ -166,13 +345,26 @@ private HashtableOfObject addQueryResult(HashtableOfObject results, char[] word,
 }
 HashtableOfObject addQueryResults(char[][] categories, char[] key, int matchRule, MemoryIndex memoryIndex) throws IOException {
 	// assumes sender has called startQuery() & will call stopQuery() when finished
-	if (this.categoryOffsets == null) return null; // file is empty
+	if (this.previousSegment == null)
+		return addQueryResults(categories, key, matchRule, memoryIndex == null ? null : memoryIndex.docsToReferences, null);
 
-	HashtableOfObject results = null; // initialized if needed
+	// the newest segment is searched first since its documents hide the same documents in the older segments
+	// the document names are always read since an EntryResult can only read the document arrays of the newest segment
+	SimpleLookupTable excludedDocuments = newExcludedDocuments(memoryIndex);
+	HashtableOfObject results = null;
+	for (DiskIndex segment = this; segment != null; segment = segment.previousSegment) {
+		results = segment.addQueryResults(categories, key, matchRule, excludedDocuments, results);
+		if (segment.previousSegment != null)
+			segment.excludeSegmentDocuments(excludedDocuments);
+	}
+	return results;
+}
+private HashtableOfObject addQueryResults(char[][] categories, char[] key, int matchRule, SimpleLookupTable excludedDocuments, HashtableOfObject results) throws IOException {
+	if (this.categoryOffsets == null) return results; // file is empty
 
 	// No need to check the results table for duplicates while processing the
 	// first category table or if the first category tables doesn't have any results.
-	boolean prevResults = false;
+	boolean prevResults = results != null;
 	if (key == null) {
 		for (int i = 0, l = categories.length; i < l; i++) {
 			HashtableOfObject wordsToDocNumbers = readCategoryTable(categories[i], true); // cache if key is null since its a definite match
@@ -183,20 +375,38 @@ HashtableOfObject addQueryResults(char[][] categories, char[] key, int matchRule
 					results = new HashtableOfObject(wordsToDocNumbers.elementSize);
 				for (int j = 0, m = words.length; j < m; j++)
 					if (words[j] != null)
-						results = addQueryResult(results, words[j], values[j], memoryIndex, prevResults);
+						results = addQueryResult(results, words[j], values[j], excludedDocuments, prevResults);
 			}
 			prevResults = results != null;
 		}
-		if (results != null && this.cachedChunks == null)
+		if (results != null && this.cachedChunks == null && this.numberOfChunks > 0)
 			cacheDocumentNames();
 	} else {
+		char[][] wordPrefixes = getWordPrefixes(key, matchRule);
+		if (wordPrefixes != null) {
+			// look up the matching words in the file where possible, the remaining categories are searched below
+			char[][] remainingCategories = new char[categories.length][];
+			int count = 0;
+			for (int i = 0, l = categories.length; i < l; i++) {
+				if (canLookUpWords(categories[i])) {
+					results = lookUpWords(results, categories[i], wordPrefixes, key, matchRule, excludedDocuments, prevResults);
+					prevResults = results != null;
+				} else {
+					remainingCategories[count++] = categories[i];
+				}
+			}
+			if (count == 0)
+				return results;
+			if (count < categories.length)
+				System.arraycopy(remainingCategories, 0, categories = new char[count][], 0, count);
+		}
 		switch (matchRule) {
 			case SearchPattern.R_EXACT_MATCH | SearchPattern.R_CASE_SENSITIVE:
 				for (int i = 0, l = categories.length; i < l; i++) {
 					HashtableOfObject wordsToDocNumbers = readCategoryTable(categories[i], false);
 					Object value;
 					if (wordsToDocNumbers != null && (value = wordsToDocNumbers.get(key)) != null)
-						results = addQueryResult(results, key, value, memoryIndex, prevResults);
+						results = addQueryResult(results, key, value, excludedDocuments, prevResults);
 					prevResults = results != null;
 				}
 				break;
@@ -209,7 +419,7 @@ HashtableOfObject addQueryResults(char[][] categories, char[] key, int matchRule
 						for (int j = 0, m = words.length; j < m; j++) {
 							char[] word = words[j];
 							if (word != null && key[0] == word[0] && CharOperation.prefixEquals(key, word))
-								results = addQueryResult(results, word, values[j], memoryIndex, prevResults);
+								results = addQueryResult(results, word, values[j], excludedDocuments, prevResults);
 						}
 					}
 					prevResults = results != null;
@@ -225,7 +435,7 @@ HashtableOfObject addQueryResults(char[][] categories, char[] key, int matchRule
 						for (int j = 0, m = words.length; j < m; j++) {
 							char[] word = words[j];
 							if (word != null && pattern.matcher(new String(word)).matches())
-								results = addQueryResult(results, word, values[j], memoryIndex, prevResults);
+								results = addQueryResult(results, word, values[j], excludedDocuments, prevResults);
 						}
 					}
 					prevResults = results != null;
@@ -240,7 +450,7 @@ HashtableOfObject addQueryResults(char[][] categories, char[] key, int matchRule
 						for (int j = 0, m = words.length; j < m; j++) {
 							char[] word = words[j];
 							if (word != null && Index.isMatch(key, word, matchRule))
-								results = addQueryResult(results, word, values[j], memoryIndex, prevResults);
+								results = addQueryResult(results, word, values[j], excludedDocuments, prevResults);
 						}
 					}
 					prevResults = results != null;
@@ -250,6 +460,151 @@ HashtableOfObject addQueryResults(char[][] categories, char[] key, int matchRule
 
 	return results;
 }
+HashtableOfObject[] addQueryResults(char[][][] categories, char[][] keys, int[] matchRules, MemoryIndex memoryIndex) throws IOException {
+	// assumes sender has called startQuery() & will call stopQuery() when finished
+	HashtableOfObject[] results = new HashtableOfObject[keys.length];
+	if (this.previousSegment == null)
+		return addQueryResults(categories, keys, matchRules, memoryIndex == null ? null : memoryIndex.docsToReferences, results);
+
+	SimpleLookupTable excludedDocuments = newExcludedDocuments(memoryIndex);
+	for (DiskIndex segment = this; segment != null; segment = segment.previousSegment) {
+		segment.addQueryResults(categories, keys, matchRules, excludedDocuments, results);
+		if (segment.previousSegment != null)
+			segment.excludeSegmentDocuments(excludedDocuments);
+	}
+	return results;
+}
+private HashtableOfObject[] addQueryResults(char[][][] categories, char[][] keys, int[] matchRules, SimpleLookupTable excludedDocuments, HashtableOfObject[] results) throws IOException {
+	if (this.categoryOffsets == null) return results; // file is empty
+
+	// queries which only need a lookup of their key are run one at a time, the others are grouped by the category
+	// tables they have to scan so that each table is read & walked once for all of them
+	int numberOfQueries = keys.length;
+	char[][][] scannedCategories = new char[numberOfQueries][][];
+	Pattern[] patterns = new Pattern[numberOfQueries];
+	HashtableOfObject queriesByCategory = new HashtableOfObject(8);
+	for (int q = 0; q < numberOfQueries; q++) {
+		char[] key = keys[q];
+		int matchRule = matchRules[q];
+		if (key == null || matchRule == (SearchPattern.R_EXACT_MATCH | SearchPattern.R_CASE_SENSITIVE)) {
+			results[q] = addQueryResults(categories[q], key, matchRule, excludedDocuments, results[q]);
+			continue;
+		}
+
+		char[][] wordPrefixes = getWordPrefixes(key, matchRule);
+		char[][] remainingCategories = new char[categories[q].length][];
+		int count = 0;
+		for (int i = 0, l = categories[q].length; i < l; i++) {
+			char[] category = categories[q][i];
+			if (wordPrefixes != null && canLookUpWords(category)) {
+				results[q] = lookUpWords(results[q], category, wordPrefixes, key, matchRule, excludedDocuments, results[q] != null);
+			} else {
+				remainingCategories[count++] = category;
+				int[] queries = (int[]) queriesByCategory.get(category);
+				if (queries == null) {
+					queries = new int[] {q};
+				} else if (queries[queries.length - 1] != q) { // the same category may be listed twice by a query
+					System.arraycopy(queries, 0, queries = new int[queries.length + 1], 0, queries.length - 1);
+					queries[queries.length - 1] = q;
+				}
+				queriesByCategory.put(category, queries);
+			}
+		}
+		if (count > 0 && matchRule == SearchPattern.R_REGEXP_MATCH)
+			patterns[q] = Pattern.compile(new String(key));
+	}
+
+	char[][] categoryNames = queriesByCategory.keyTable;
+	Object[] categoryQueries = queriesByCategory.valueTable;
+	boolean[] prevResults = new boolean[numberOfQueries];
+	for (int i = 0, l = categoryNames.length; i < l; i++) {
+		if (categoryNames[i] == null) continue;
+		HashtableOfObject wordsToDocNumbers = readCategoryTable(categoryNames[i], false);
+		if (wordsToDocNumbers == null) continue;
+
+		// no need to check the results table of a query for duplicates while processing its first category table
+		int[] queries = (int[]) categoryQueries[i];
+		for (int j = 0, m = queries.length; j < m; j++)
+			prevResults[queries[j]] = results[queries[j]] != null;
+		char[][] words = wordsToDocNumbers.keyTable;
+		Object[] values = wordsToDocNumbers.valueTable;
+		for (int j = 0, m = words.length; j < m; j++) {
+			char[] word = words[j];
+			if (word == null) continue;
+			for (int k = 0, n = queries.length; k < n; k++) {
+				int q = queries[k];
+				if (isMatch(keys[q], matchRules[q], patterns[q], word))
+					results[q] = addQueryResult(results[q], word, values[j], excludedDocuments, prevResults[q]);
+			}
+		}
+	}
+	return results;
+}
+private static boolean isMatch(char[] key, int matchRule, Pattern pattern, char[] word) {
+	switch (matchRule) {
+		case SearchPattern.R_PREFIX_MATCH | SearchPattern.R_CASE_SENSITIVE:
+			return key[0] == word[0] && CharOperation.prefixEquals(key, word);
+		case SearchPattern.R_REGEXP_MATCH:
+			return pattern.matcher(new String(word)).matches();
+		default:
+			return Index.isMatch(key, word, matchRule);
+	}
+}
+/**
+ * Appends the changes of the memory index to the index file as a new segment, which hides the added, changed & removed
+ * documents in the older segments. Returns the new segment, whose previous segment is the receiver.
+ */
+DiskIndex appendSegment(MemoryIndex memoryIndex) throws IOException {
+	// assume write lock is held
+	// the segment holds the added & changed documents, followed by the names of the removed documents in its header
+	SimpleLookupTable docsToRefs = memoryIndex.docsToReferences;
+	String[] docNames = new String[docsToRefs.elementSize];
+	String[] removedNames = new String[docsToRefs.elementSize];
+	int numberOfDocs = 0, numberOfRemovedDocs = 0;
+	Object[] names = docsToRefs.keyTable;
+	Object[] referenceTables = docsToRefs.valueTable;
+	for (int i = 0, l = names.length; i < l; i++) {
+		if (names[i] != null) {
+			if (referenceTables[i] == null)
+				removedNames[numberOfRemovedDocs++] = (String) names[i];
+			else
+				docNames[numberOfDocs++] = (String) names[i];
+		}
+	}
+	System.arraycopy(docNames, 0, docNames = new String[numberOfDocs], 0, numberOfDocs);
+	System.arraycopy(removedNames, 0, removedNames = new String[numberOfRemovedDocs], 0, numberOfRemovedDocs);
+	Util.sort(docNames);
+
+	DiskIndex segment = new DiskIndex(this.indexLocation);
+	segment.previousSegment = this;
+	segment.separator = this.separator;
+	segment.removedDocumentNames = removedNames;
+	segment.categoryOffsets = new HashtableOfIntValues(8);
+	segment.categoryEnds = new HashtableOfIntValues(8);
+	segment.categoryWordIndexes = new HashtableOfIntValues(8);
+	segment.categoryTables = new HashtableOfObject(8);
+	for (int i = 0; i < numberOfDocs; i++)
+		segment.copyQueryResults((HashtableOfObject) docsToRefs.get(docNames[i]), i);
+
+	// a failure leaves unused bytes at the end of the file, the segment is only visible once the offset to its header is written
+	FileOutputStream stream = new FileOutputStream(this.indexLocation.getIndexFile(), true);
+	int offsetToHeader = -1;
+	try {
+		segment.streamBuffer = new byte[BUFFER_WRITE_SIZE];
+		segment.bufferIndex = 0;
+		segment.streamEnd = (int) stream.getChannel().size();
+		segment.writeDocumentNames(docNames, stream);
+		segment.writeCategories(stream);
+		offsetToHeader = segment.streamEnd;
+		segment.writeHeaderInfo(stream);
+	} finally {
+		stream.close();
+		segment.streamBuffer = null;
+	}
+	segment.headerInfoOffset = HEADER_INFO_OFFSET_POSITION;
+	segment.writeOffsetToHeader(offsetToHeader);
+	return segment;
+}
 private void cacheDocumentNames() throws IOException {
 	// will need all document names so get them now
 	this.cachedChunks = new String[this.numberOfChunks][];
@@ -275,6 +630,28 @@ private void cacheDocumentNames() throws IOException {
 		BUFFER_READ_SIZE = DEFAULT_BUFFER_SIZE;
 	}
 }
+/**
+ * Answers whether saving the changes of the memory index should append a segment to the index file rather than
+ * rewriting it, see MAX_SEGMENTS.
+ */
+boolean canAppendSegment(MemoryIndex memoryIndex) {
+	if (this.categoryOffsets == null || this.indexLocation.getIndexFile() == null || this.indexLocation.isReadOnly())
+		return false;
+	int numberOfSegments = 0;
+	int numberOfChangedDocs = memoryIndex.docsToReferences.elementSize;
+	DiskIndex firstSegment = this;
+	for (; firstSegment.previousSegment != null; firstSegment = firstSegment.previousSegment) {
+		numberOfSegments++;
+		numberOfChangedDocs += firstSegment.getSegmentDocumentCount();
+	}
+	return numberOfSegments < MAX_SEGMENTS
+		&& numberOfChangedDocs * SEGMENT_DOCUMENTS_RATIO < firstSegment.getSegmentDocumentCount();
+}
+private synchronized boolean canLookUpWords(char[] categoryName) {
+	// tables which are cached already are faster to search than the file
+	return this.categoryWordIndexes != null && this.indexLocation.getIndexFile() != null
+		&& (this.categoryTables == null || this.categoryTables.get(categoryName) == null);
+}
 private String[] computeDocumentNames(String[] onDiskNames, int[] positions, SimpleLookupTable indexedDocuments, MemoryIndex memoryIndex) {
 	int onDiskLength = onDiskNames.length;
 	Object[] docNames = memoryIndex.docsToReferences.keyTable;
@@ -393,7 +770,131 @@ private void copyQueryResults(HashtableOfObject categoryToWords, int newPosition
 		}
 	}
 }
+/**
+ * Adds the documents & the index entries of this segment to the given memory index, replacing any previous entries
+ * of the same documents.
+ */
+private synchronized void copySegmentInto(MemoryIndex memoryIndex) throws IOException {
+	String[] docNames = readAllDocumentNames();
+	for (int i = 0, l = docNames.length; i < l; i++)
+		memoryIndex.remove(docNames[i]);
+	for (int i = 0, l = this.removedDocumentNames.length; i < l; i++)
+		memoryIndex.remove(this.removedDocumentNames[i]);
+
+	char[][] categoryNames = this.categoryOffsets.keyTable;
+	for (int i = 0, l = categoryNames.length; i < l; i++) {
+		char[] categoryName = categoryNames[i];
+		if (categoryName != null) {
+			HashtableOfObject wordsToDocNumbers = readCategoryTable(categoryName, true);
+			char[][] words = wordsToDocNumbers.keyTable;
+			Object[] values = wordsToDocNumbers.valueTable;
+			for (int j = 0, m = words.length; j < m; j++) {
+				if (words[j] != null) {
+					int[] docNumbers = readDocumentNumbers(values[j]);
+					for (int k = 0, n = docNumbers.length; k < n; k++)
+						memoryIndex.addIndexEntry(categoryName, words[j], docNames[docNumbers[k]]);
+				}
+			}
+		}
+	}
+}
+/**
+ * Adds the documents of this segment, including the removed ones, to the documents which the older segments must skip over.
+ */
+private synchronized void excludeSegmentDocuments(SimpleLookupTable excludedDocuments) throws IOException {
+	if (this.segmentDocumentNames == null) {
+		// segments never change once they are written, so their document names can be kept
+		String[] docNames = readAllDocumentNames();
+		int length = docNames.length;
+		System.arraycopy(docNames, 0, docNames = new String[length + this.removedDocumentNames.length], 0, length);
+		System.arraycopy(this.removedDocumentNames, 0, docNames, length, this.removedDocumentNames.length);
+		this.segmentDocumentNames = docNames;
+	}
+	for (int i = 0, l = this.segmentDocumentNames.length; i < l; i++)
+		excludedDocuments.put(this.segmentDocumentNames[i], null);
+}
+private int getSegmentDocumentCount() {
+	// the removed documents are counted as well since they hide documents of the older segments
+	int count = this.removedDocumentNames.length;
+	if (this.numberOfChunks > 0)
+		count += (this.numberOfChunks - 1) * CHUNK_SIZE + this.sizeOfLastChunk;
+	return count;
+}
+/**
+ * Returns the prefixes one of which starts each word that can match the key with the given match rule, or null if
+ * the match rule does not restrict the beginning of the words.
+ */
+static char[][] getWordPrefixes(char[] key, int matchRule) {
+	int length = key.length;
+	if (length == 0)
+		return null;
+	switch (matchRule) {
+		case SearchPattern.R_EXACT_MATCH | SearchPattern.R_CASE_SENSITIVE :
+		case SearchPattern.R_PREFIX_MATCH | SearchPattern.R_CASE_SENSITIVE :
+			return new char[][] {key};
+		case SearchPattern.R_PATTERN_MATCH | SearchPattern.R_CASE_SENSITIVE :
+			int end = 0;
+			while (end < length && key[end] != '*' && key[end] != '?')
+				end++;
+			return end == 0 ? null : new char[][] {CharOperation.subarray(key, 0, end)};
+		case SearchPattern.R_CAMELCASE_MATCH | SearchPattern.R_CASE_SENSITIVE :
+		case SearchPattern.R_CAMELCASE_SAME_PART_COUNT_MATCH | SearchPattern.R_CASE_SENSITIVE :
+			// the characters of the key up to the first uppercase character or digit must be matched exactly,
+			// see CharOperation.camelCaseMatch()
+			end = 1;
+			while (end < length && !isCamelCaseBoundary(key[end]))
+				end++;
+			return new char[][] {CharOperation.subarray(key, 0, end)};
+		case SearchPattern.R_PATTERN_MATCH :
+			if (key[0] == '*' || key[0] == '?')
+				return null;
+			//$FALL-THROUGH$
+		case SearchPattern.R_EXACT_MATCH :
+		case SearchPattern.R_PREFIX_MATCH :
+		case SearchPattern.R_CAMELCASE_MATCH :
+		case SearchPattern.R_CAMELCASE_SAME_PART_COUNT_MATCH :
+			// the first character of the word must be equal to the first character of the key if case is ignored
+			return getCaseVariants(key[0]);
+	}
+	return null;
+}
+private static char[][] getCaseVariants(char c) {
+	if (c >= ScannerHelper.MAX_OBVIOUS)
+		return null;
+	char lowerCase = ScannerHelper.toLowerCase(c);
+	char[][] variants = new char[3][];
+	int count = 0;
+	variants[count++] = new char[] {lowerCase};
+	if (ScannerHelper.toUpperCase(lowerCase) != lowerCase)
+		variants[count++] = new char[] {ScannerHelper.toUpperCase(lowerCase)};
+	for (int i = 0, l = NON_ASCII_CHARS_WITH_ASCII_LOWER_CASE.length; i < l; i++)
+		if (Character.toLowerCase(NON_ASCII_CHARS_WITH_ASCII_LOWER_CASE[i]) == lowerCase) {
+			if (count == variants.length)
+				System.arraycopy(variants, 0, variants = new char[count * 2][], 0, count);
+			variants[count++] = new char[] {NON_ASCII_CHARS_WITH_ASCII_LOWER_CASE[i]};
+		}
+	if (count < variants.length)
+		System.arraycopy(variants, 0, variants = new char[count][], 0, count);
+	return variants;
+}
+private static boolean isCamelCaseBoundary(char c) {
+	if (c < ScannerHelper.MAX_OBVIOUS)
+		return (ScannerHelper.OBVIOUS_IDENT_CHAR_NATURES[c] & (ScannerHelper.C_UPPER_LETTER | ScannerHelper.C_DIGIT)) != 0;
+	return !Character.isJavaIdentifierPart(c) || Character.isUpperCase(c) || Character.isDigit(c);
+}
+boolean hasAppendedSegments() {
+	return this.previousSegment != null;
+}
+/*
+ * Read-only index files, such as those of the shared index cache, are never rewritten or deleted.
+ */
+private void checkWritable() throws IOException {
+	if (this.indexLocation.isReadOnly())
+		throw new IOException("Cannot write the read-only index " + this.indexLocation); //$NON-NLS-1$
+}
 void initialize(boolean reuseExistingFile) throws IOException {
+	if (!reuseExistingFile || !this.indexLocation.exists())
+		checkWritable(); // the index file is about to be created
 	if (this.indexLocation.exists()) {
 		if (reuseExistingFile) {
 			InputStream stream = this.indexLocation.getInputStream();
@@ -419,6 +920,11 @@ void initialize(boolean reuseExistingFile) throws IOException {
 				stream.close();
 				this.indexLocation.close();
 			}
+			// the header of each segment is followed by the offset to the header of the previous one
+			for (DiskIndex segment = this; segment.previousSegmentHeaderOffset > 0; segment = segment.previousSegment) {
+				segment.previousSegment = new DiskIndex(this.indexLocation);
+				segment.previousSegment.readSegmentHeaderInfo(segment.previousSegmentHeaderOffset);
+			}
 			return;
 		}
 		if (!this.indexLocation.delete()) {
@@ -461,9 +967,78 @@ private void initializeFrom(DiskIndex diskIndex, File newIndexFile) throws IOExc
 	int size = diskIndex.categoryOffsets == null ? 8 : diskIndex.categoryOffsets.elementSize;
 	this.categoryOffsets = new HashtableOfIntValues(size);
 	this.categoryEnds = new HashtableOfIntValues(size);
+	this.categoryWordIndexes = new HashtableOfIntValues(size);
 	this.categoryTables = new HashtableOfObject(size);
 	this.separator = diskIndex.separator;
 }
+/**
+ * Adds the words of the given category which match the key to the results. Only the words which start with one of the
+ * given prefixes are read, using binary search on the sorted words of the category table to find the first one.
+ */
+private synchronized HashtableOfObject lookUpWords(HashtableOfObject results, char[] categoryName, char[][] wordPrefixes, char[] key, int matchRule, SimpleLookupTable excludedDocuments, boolean prevResults) throws IOException {
+	int offset = this.categoryOffsets.get(categoryName);
+	int wordIndexOffset = this.categoryWordIndexes.get(categoryName);
+	if (offset == HashtableOfIntValues.NO_VALUE || wordIndexOffset == HashtableOfIntValues.NO_VALUE)
+		return results;
+
+	boolean isExactMatch = matchRule == (SearchPattern.R_EXACT_MATCH | SearchPattern.R_CASE_SENSITIVE);
+	RandomAccessReader reader = openRandomAccessReader();
+	try {
+		reader.seek(offset);
+		int size = reader.readInt();
+		for (int p = 0, n = wordPrefixes.length; p < n; p++) {
+			char[] prefix = wordPrefixes[p];
+
+			// find the first word which is not less than the prefix
+			int low = 0, high = size - 1;
+			while (low <= high) {
+				int middle = (low + high) >>> 1;
+				reader.seek(wordIndexOffset + middle * 4);
+				reader.seek(reader.readInt());
+				if (Util.compare(reader.readChars(), prefix) < 0)
+					low = middle + 1;
+				else
+					high = middle - 1;
+			}
+			if (low == size)
+				continue;
+
+			// the words which start with the prefix follow each other in the table
+			reader.seek(wordIndexOffset + low * 4);
+			reader.seek(reader.readInt());
+			for (int i = low; i < size; i++) {
+				char[] word = reader.readChars();
+				if (!CharOperation.prefixEquals(prefix, word))
+					break;
+				boolean isMatch = Index.isMatch(key, word, matchRule);
+				int header = reader.readVarInt();
+				// see readCategoryTable() for the meaning of header
+				if ((header & 1) == 0) {
+					if (isMatch)
+						results = addQueryResult(results, word, new int[] {header >>> 1}, excludedDocuments, prevResults);
+				} else if (header != 1) {
+					if (isMatch)
+						results = addQueryResult(results, word, reader.readDocumentArray(header >>> 1), excludedDocuments, prevResults);
+					else
+						reader.skipDocumentArray(header >>> 1);
+				} else {
+					int arrayOffset = reader.readInt();
+					if (isMatch) {
+						int next = reader.position();
+						reader.seek(arrayOffset);
+						results = addQueryResult(results, word, reader.readDocumentArray(reader.readVarInt() >>> 1), excludedDocuments, prevResults);
+						reader.seek(next);
+					}
+				}
+				if (isExactMatch)
+					break; // the prefix is the key
+			}
+		}
+	} finally {
+		reader.close();
+	}
+	return results;
+}
 private void mergeCategories(DiskIndex onDisk, int[] positions, FileOutputStream stream) throws IOException {
 	// at this point, this.categoryTables contains the names -> wordsToDocs added in copyQueryResults()
 	char[][] oldNames = onDisk.categoryOffsets.keyTable;
@@ -527,6 +1102,31 @@ private void mergeCategory(char[] categoryName, DiskIndex onDisk, int[] position
 }
 DiskIndex mergeWith(MemoryIndex memoryIndex) throws IOException {
  	// assume write lock is held
+	checkWritable();
+	if (this.previousSegment != null) {
+		// rewrite the first segment with the changes of the newer segments & of the memory index, from the oldest to the newest
+		DiskIndex[] segments = new DiskIndex[MAX_SEGMENTS + 1];
+		int count = 0;
+		for (DiskIndex segment = this; segment.previousSegment != null; segment = segment.previousSegment) {
+			if (count == segments.length)
+				System.arraycopy(segments, 0, segments = new DiskIndex[count * 2], 0, count);
+			segments[count++] = segment;
+		}
+		MemoryIndex changes = new MemoryIndex();
+		for (int i = count; --i >= 0;) {
+			segments[i].copySegmentInto(changes);
+			segments[i].releaseIndexFile();
+		}
+		Object[] names = memoryIndex.docsToReferences.keyTable;
+		Object[] referenceTables = memoryIndex.docsToReferences.valueTable;
+		for (int i = 0, l = names.length; i < l; i++)
+			if (names[i] != null)
+				changes.docsToReferences.put(names[i], referenceTables[i]); // replaces the entries of the segments
+		DiskIndex firstSegment = segments[count - 1].previousSegment;
+		firstSegment.separator = this.separator;
+		return firstSegment.mergeWith(changes);
+	}
+
 	// compute & write out new docNames
 	if (this.indexLocation == null) {
 		throw new IOException("Pre-built index file not writeable");  //$NON-NLS-1$
@@ -589,6 +1189,7 @@ DiskIndex mergeWith(MemoryIndex memoryIndex) throws IOException {
 		newDiskIndex.writeOffsetToHeader(offsetToHeader);
 
 		// rename file by deleting previous index file & renaming temp one
+		releaseIndexFile();
 		if (oldIndexFile.exists() && !oldIndexFile.delete()) {
 			if (DEBUG)
 				System.out.println("mergeWith - Failed to delete " + this.indexLocation); //$NON-NLS-1$
@@ -618,6 +1219,69 @@ DiskIndex mergeWith(MemoryIndex memoryIndex) throws IOException {
 		newDiskIndex.indexLocation = this.indexLocation;
 	return newDiskIndex;
 }
+/**
+ * Drops the memory-mapped view of the index file & closes its channel, before the file is replaced or deleted.
+ */
+synchronized void releaseIndexFile() {
+	this.mappedIndexFile = null;
+	closeQueryChannel();
+	if (this.previousSegment != null)
+		this.previousSegment.releaseIndexFile();
+}
+/**
+ * Answers whether the segments appended to the index file should be merged into a single segment, before saving the
+ * index has to rewrite the whole file anyway, see canAppendSegment().
+ */
+boolean needsCompaction() {
+	if (this.previousSegment == null)
+		return false;
+	int numberOfSegments = 0;
+	int numberOfChangedDocs = 0;
+	DiskIndex firstSegment = this;
+	for (; firstSegment.previousSegment != null; firstSegment = firstSegment.previousSegment) {
+		numberOfSegments++;
+		numberOfChangedDocs += firstSegment.getSegmentDocumentCount();
+	}
+	return numberOfSegments >= MAX_SEGMENTS / 2
+		|| numberOfChangedDocs * SEGMENT_DOCUMENTS_RATIO * 2 >= firstSegment.getSegmentDocumentCount();
+}
+private static SimpleLookupTable newExcludedDocuments(MemoryIndex memoryIndex) {
+	SimpleLookupTable excludedDocuments = new SimpleLookupTable(memoryIndex == null ? 13 : memoryIndex.docsToReferences.elementSize + 13);
+	if (memoryIndex != null) {
+		Object[] names = memoryIndex.docsToReferences.keyTable;
+		for (int i = 0, l = names.length; i < l; i++)
+			if (names[i] != null)
+				excludedDocuments.put(names[i], null);
+	}
+	return excludedDocuments;
+}
+private RandomAccessReader openRandomAccessReader() throws IOException {
+	File indexFile = this.indexLocation.getIndexFile();
+	if (USE_MEMORY_MAPPED_IO || this.indexLocation.isReadOnly()) {
+		if (this.mappedIndexFile == null) {
+			try (FileInputStream stream = new FileInputStream(indexFile)) {
+				FileChannel channel = stream.getChannel();
+				this.mappedIndexFile = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			}
+		}
+		return new RandomAccessReader(this.mappedIndexFile.duplicate());
+	}
+	if (this.cacheUserCount < 0)
+		return new RandomAccessReader(new FileInputStream(indexFile).getChannel(), true);
+	if (this.queryChannel == null)
+		this.queryChannel = new FileInputStream(indexFile).getChannel();
+	return new RandomAccessReader(this.queryChannel, false);
+}
+private void closeQueryChannel() {
+	if (this.queryChannel != null) {
+		try {
+			this.queryChannel.close();
+		} catch (IOException e) {
+			// ignore
+		}
+		this.queryChannel = null;
+	}
+}
 private synchronized String[] readAllDocumentNames() throws IOException {
 	if (this.numberOfChunks <= 0)
 		return CharOperation.NO_STRINGS;
@@ -657,22 +1321,37 @@ private synchronized HashtableOfObject readCategoryTable(char[] categoryName, bo
 				for (int i = 0, l = arrayOffsets.length; i < l; i++)
 					if (arrayOffsets[i] instanceof Integer)
 						arrayOffsets[i] = readDocumentNumbers(arrayOffsets[i]);
+				if (this.categoryTableBytes != null)
+					this.categoryTableBytes.removeKey(categoryName);
 			}
 			return cachedTable;
 		}
 	}
 
+	// the words of the table end where the offsets of the words start
+	int end = this.categoryWordIndexes.get(categoryName);
+	byte[] tableBytes = new byte[end - offset];
 	InputStream stream = this.indexLocation.getInputStream();
+	try {
+		stream.skip(offset);
+		for (int read = 0, n; read < tableBytes.length; read += n)
+			if ((n = stream.read(tableBytes, read, tableBytes.length - read)) < 0)
+				throw new EOFException();
+	} finally {
+		stream.close();
+		this.indexLocation.close();
+	}
+
 	HashtableOfObject categoryTable = null;
 	char[][] matchingWords = null;
 	int count = 0;
 	int firstOffset = -1;
-	this.streamBuffer = new byte[BUFFER_READ_SIZE];
+	boolean hasUnreadArrays = false;
+	this.streamBuffer = tableBytes;
+	this.bufferIndex = 0;
+	this.bufferEnd = tableBytes.length;
 	try {
-		stream.skip(offset);
-		this.bufferIndex = 0;
-		this.bufferEnd = stream.read(this.streamBuffer, 0, this.streamBuffer.length);
-		int size = readStreamInt(stream);
+		int size = readStreamInt(null);
 		try {
 			if (size < 0) { // DEBUG
 				System.err.println("-------------------- DEBUG --------------------"); //$NON-NLS-1$
@@ -692,20 +1371,27 @@ private synchronized HashtableOfObject readCategoryTable(char[] categoryName, bo
 			System.err.println("--------------------   END   --------------------"); //$NON-NLS-1$
 			throw oom;
 		}
-		int largeArraySize = 256;
 		for (int i = 0; i < size; i++) {
-			char[] word = readStreamChars(stream);
-			int arrayOffset = readStreamInt(stream);
-			// if arrayOffset is:
-			//		<= 0 then the array size == 1 with the value -> -arrayOffset
-			//		> 1 & < 256 then the size of the array is > 1 & < 256, the document array follows immediately
-			//		256 if the array size >= 256 followed by another int which is the offset to the array (written prior to the table)
-			if (arrayOffset <= 0) {
-				categoryTable.putUnsafely(word, new int[] {-arrayOffset}); // store 1 element array by negating documentNumber
-			} else if (arrayOffset < largeArraySize) {
-				categoryTable.putUnsafely(word, readStreamDocumentArray(stream, arrayOffset)); // read in-lined array providing size
+			char[] word = readStreamChars(null);
+			int arrayOffset = offset + this.bufferIndex;
+			int header = readStreamVarInt(null);
+			// if header is:
+			//		even then the array size == 1 with the value -> header >>> 1
+			//		odd & > 1 then the size of the array is header >>> 1, the document array follows immediately
+			//		1 if the array size >= 256 followed by an int which is the offset to the array (written prior to the table)
+			if ((header & 1) == 0) {
+				categoryTable.putUnsafely(word, new int[] {header >>> 1}); // store 1 element array
+			} else if (header != 1) {
+				if (readDocNumbers) {
+					categoryTable.putUnsafely(word, readStreamDocumentArray(null, header >>> 1)); // read in-lined array providing size
+				} else {
+					// only decode the array if the word is used, see readDocumentNumbers()
+					skipStreamDocumentArray(header >>> 1);
+					categoryTable.putUnsafely(word, Integer.valueOf(arrayOffset));
+					hasUnreadArrays = true;
+				}
 			} else {
-				arrayOffset = readStreamInt(stream); // read actual offset
+				arrayOffset = readStreamInt(null); // read actual offset
 				if (readDocNumbers) {
 					if (matchingWords == null)
 						matchingWords = new char[size][];
@@ -716,26 +1402,29 @@ private synchronized HashtableOfObject readCategoryTable(char[] categoryName, bo
 				categoryTable.putUnsafely(word, Integer.valueOf(arrayOffset)); // offset to array in the file
 			}
 		}
-		this.categoryTables.put(INTERNED_CATEGORY_NAMES.get(categoryName), categoryTable);
+		categoryName = INTERNED_CATEGORY_NAMES.get(categoryName);
+		this.categoryTables.put(categoryName, categoryTable);
+		if (hasUnreadArrays) {
+			if (this.categoryTableBytes == null)
+				this.categoryTableBytes = new HashtableOfObject(3);
+			this.categoryTableBytes.put(categoryName, tableBytes);
+		}
 		// cache the table as long as its not too big
 		// in practice, some tables can be greater than 500K when they contain more than 10K elements
 		this.cachedCategoryName = categoryTable.elementSize < 20000 ? categoryName : null;
-	} catch (IOException ioe) {
-		this.streamBuffer = null;
-		throw ioe;
 	} finally {
-		stream.close();
-		this.indexLocation.close();
+		this.streamBuffer = null;
 	}
 
 	if (matchingWords != null && count > 0) {
 		stream = this.indexLocation.getInputStream();
+		this.streamBuffer = new byte[BUFFER_READ_SIZE];
 		try {
 			stream.skip(firstOffset);
 			this.bufferIndex = 0;
 			this.bufferEnd = stream.read(this.streamBuffer, 0, this.streamBuffer.length);
 			for (int i = 0; i < count; i++) { // each array follows the previous one
-				categoryTable.put(matchingWords[i], readStreamDocumentArray(stream, readStreamInt(stream)));
+				categoryTable.put(matchingWords[i], readStreamDocumentNumbers(stream));
 			}
 		} catch (IOException ioe) {
 			this.streamBuffer = null;
@@ -820,14 +1509,36 @@ synchronized int[] readDocumentNumbers(Object arrayOffset) throws IOException {
 	if (arrayOffset instanceof int[])
 		return (int[]) arrayOffset;
 
+	int offset = ((Integer) arrayOffset).intValue();
+	if (this.categoryTableBytes != null) {
+		// the arrays in-lined in cached tables are decoded from the bytes of the table
+		char[][] categoryNames = this.categoryTableBytes.keyTable;
+		Object[] tableBytes = this.categoryTableBytes.valueTable;
+		for (int i = 0, l = categoryNames.length; i < l; i++) {
+			if (categoryNames[i] != null) {
+				int start = this.categoryOffsets.get(categoryNames[i]);
+				byte[] bytes = (byte[]) tableBytes[i];
+				if (offset >= start && offset < start + bytes.length) {
+					this.streamBuffer = bytes;
+					this.bufferIndex = offset - start;
+					this.bufferEnd = bytes.length;
+					try {
+						return readStreamDocumentNumbers(null);
+					} finally {
+						this.streamBuffer = null;
+					}
+				}
+			}
+		}
+	}
+
 	InputStream stream = this.indexLocation.getInputStream();
 	try {
-		int offset = ((Integer) arrayOffset).intValue();
 		stream.skip(offset);
 		this.streamBuffer = new byte[BUFFER_READ_SIZE];
 		this.bufferIndex = 0;
 		this.bufferEnd = stream.read(this.streamBuffer, 0, this.streamBuffer.length);
-		return readStreamDocumentArray(stream, readStreamInt(stream));
+		return readStreamDocumentNumbers(stream);
 	} finally {
 		stream.close();
 		this.indexLocation.close();
@@ -839,7 +1550,6 @@ private void readHeaderInfo(InputStream stream) throws IOException {
 	// must be same order as writeHeaderInfo()
 	this.numberOfChunks = readStreamInt(stream);
 	this.sizeOfLastChunk = this.streamBuffer[this.bufferIndex++] & 0xFF;
-	this.documentReferenceSize = this.streamBuffer[this.bufferIndex++] & 0xFF;
 	this.separator = (char) (this.streamBuffer[this.bufferIndex++] & 0xFF);
 	long length = this.indexLocation.length();
 	if (length != -1 && this.numberOfChunks > length) {
@@ -857,6 +1567,7 @@ private void readHeaderInfo(InputStream stream) throws IOException {
 	int size = readStreamInt(stream);
 	this.categoryOffsets = new HashtableOfIntValues(size);
 	this.categoryEnds = new HashtableOfIntValues(size);
+	this.categoryWordIndexes = new HashtableOfIntValues(size);
 	if (length != -1 && size > length) {
 		//  not an accurate check, but good enough  https://bugs.eclipse.org/bugs/show_bug.cgi?id=350612
 		if (DEBUG)
@@ -869,6 +1580,7 @@ private void readHeaderInfo(InputStream stream) throws IOException {
 		char[] categoryName = INTERNED_CATEGORY_NAMES.get(readStreamChars(stream));
 		offset = readStreamInt(stream);
 		this.categoryOffsets.put(categoryName, offset); // cache offset to category table
+		this.categoryWordIndexes.put(categoryName, readStreamInt(stream)); // cache offset to the sorted word offsets
 		if (previousCategory != null) {
 			this.categoryEnds.put(previousCategory, offset); // cache end of the category table
 		}
@@ -877,26 +1589,66 @@ private void readHeaderInfo(InputStream stream) throws IOException {
 	if (previousCategory != null) {
 		this.categoryEnds.put(previousCategory, this.headerInfoOffset); // cache end of the category table
 	}
+
+	this.previousSegmentHeaderOffset = readStreamInt(stream);
+	size = readStreamInt(stream);
+	if (this.previousSegmentHeaderOffset >= this.headerInfoOffset || (length != -1 && size > length)) {
+		if (DEBUG)
+			System.out.println("Index file is corrupted " + this.indexLocation); //$NON-NLS-1$
+		throw new IOException("Index file is corrupted " + this.indexLocation); //$NON-NLS-1$
+	}
+	this.removedDocumentNames = new String[size];
+	for (int i = 0; i < size; i++)
+		this.removedDocumentNames[i] = new String(readStreamChars(stream));
 	this.categoryTables = new HashtableOfObject(3);
 }
+private void readSegmentHeaderInfo(int offset) throws IOException {
+	InputStream stream = this.indexLocation.getInputStream();
+	try {
+		stream.skip(offset);
+		this.headerInfoOffset = offset;
+		this.streamBuffer = new byte[BUFFER_READ_SIZE];
+		this.bufferIndex = 0;
+		this.bufferEnd = stream.read(this.streamBuffer, 0, this.streamBuffer.length);
+		readHeaderInfo(stream);
+	} finally {
+		stream.close();
+		this.indexLocation.close();
+		this.streamBuffer = null;
+	}
+}
 synchronized void startQuery() {
 	this.cacheUserCount++;
+	if (this.previousSegment != null)
+		this.previousSegment.startQuery();
 }
 synchronized void stopQuery() {
 	if (--this.cacheUserCount < 0) {
 		// clear cached items
 		this.cacheUserCount = -1;
 		this.cachedChunks = null;
+		closeQueryChannel();
 		if (this.categoryTables != null) {
 			if (this.cachedCategoryName == null) {
 				this.categoryTables = null;
+				this.categoryTableBytes = null;
 			} else if (this.categoryTables.elementSize > 1) {
 				HashtableOfObject newTables = new HashtableOfObject(3);
 				newTables.put(this.cachedCategoryName, this.categoryTables.get(this.cachedCategoryName));
 				this.categoryTables = newTables;
+				if (this.categoryTableBytes != null) {
+					Object tableBytes = this.categoryTableBytes.get(this.cachedCategoryName);
+					this.categoryTableBytes = null;
+					if (tableBytes != null) {
+						this.categoryTableBytes = new HashtableOfObject(3);
+						this.categoryTableBytes.put(this.cachedCategoryName, tableBytes);
+					}
+				}
 			}
 		}
 	}
+	if (this.previousSegment != null)
+		this.previousSegment.stopQuery();
 }
 private void readStreamBuffer(InputStream stream) throws IOException {
 	// if we're about to read a known amount at the end of the existing buffer, but it does not completely fit
@@ -992,48 +1744,31 @@ private char[] readStreamChars(InputStream stream) throws IOException {
 	return word;
 }
 private int[] readStreamDocumentArray(InputStream stream, int arraySize) throws IOException {
+	// see writeDocumentNumbers() for the format
 	int[] indexes = new int[arraySize];
-	if (arraySize == 0) return indexes;
-
-	int i = 0;
-	switch (this.documentReferenceSize) {
-		case 1 :
-			while (i < arraySize) {
-				// how many bytes without refilling the buffer?
-				int bytesInBuffer = i + this.bufferEnd - this.bufferIndex;
-				if (bytesInBuffer > arraySize)
-					bytesInBuffer = arraySize;
-				while (i < bytesInBuffer) {
-					indexes[i++] = this.streamBuffer[this.bufferIndex++] & 0xFF;
-				}
-				if (i < arraySize && stream != null)
-					readStreamBuffer(stream);
-			}
-			break;
-		case 2 :
-			while (i < arraySize) {
-				// how many shorts without refilling the buffer?
-				int shortsInBuffer = i + ((this.bufferEnd - this.bufferIndex) / 2);
-				if (shortsInBuffer > arraySize)
-					shortsInBuffer = arraySize;
-				while (i < shortsInBuffer) {
-					int val = (this.streamBuffer[this.bufferIndex++] & 0xFF) << 8;
-					indexes[i++] = val + (this.streamBuffer[this.bufferIndex++] & 0xFF);
-				}
-				if (i < arraySize && stream != null)
-					readStreamBuffer(stream);
-			}
-			break;
-		default :
-			while (i < arraySize) {
-				indexes[i++] = readStreamInt(stream);
-			}
-			break;
-	}
+	int value = 0;
+	for (int i = 0; i < arraySize; i++)
+		indexes[i] = value += readStreamVarInt(stream);
 	return indexes;
 }
+/**
+ * Reads an array of document numbers which starts with its size, or a single document number.
+ */
+private int[] readStreamDocumentNumbers(InputStream stream) throws IOException {
+	int header = readStreamVarInt(stream);
+	if ((header & 1) == 0)
+		return new int[] {header >>> 1};
+	return readStreamDocumentArray(stream, header >>> 1);
+}
+private void skipStreamDocumentArray(int arraySize) {
+	// must only be used when the whole array is in the buffer
+	for (int i = 0; i < arraySize; i++)
+		while (this.streamBuffer[this.bufferIndex++] < 0) {
+			// skip the bytes of the variable length int
+		}
+}
 private int readStreamInt(InputStream stream) throws IOException {
-	if (this.bufferIndex + 4 >= this.bufferEnd) {
+	if (stream != null && this.bufferIndex + 4 >= this.bufferEnd) {
 		readStreamBuffer(stream);
 	}
 	int val = (this.streamBuffer[this.bufferIndex++] & 0xFF) << 24;
@@ -1041,6 +1776,23 @@ private int readStreamInt(InputStream stream) throws IOException {
 	val += (this.streamBuffer[this.bufferIndex++] & 0xFF) << 8;
 	return val + (this.streamBuffer[this.bufferIndex++] & 0xFF);
 }
+/**
+ * Reads an int written by {@link #writeStreamVarInt(FileOutputStream, int)}.
+ */
+private int readStreamVarInt(InputStream stream) throws IOException {
+	if (stream != null && this.bufferIndex + 5 >= this.bufferEnd) {
+		readStreamBuffer(stream);
+	}
+	int val = 0;
+	int shift = 0;
+	byte b;
+	do {
+		b = this.streamBuffer[this.bufferIndex++];
+		val |= (b & 0x7F) << shift;
+		shift += 7;
+	} while (b < 0);
+	return val;
+}
 private void writeAllDocumentNames(String[] sortedDocNames, FileOutputStream stream) throws IOException {
 	if (sortedDocNames.length == 0)
 		throw new IllegalArgumentException();
@@ -1054,7 +1806,10 @@ private void writeAllDocumentNames(String[] sortedDocNames, FileOutputStream str
 	writeStreamChars(stream, SIGNATURE_CHARS);
 	this.headerInfoOffset = this.streamEnd;
 	writeStreamInt(stream, -1); // will overwrite with correct value later
-
+	writeDocumentNames(sortedDocNames, stream);
+}
+private void writeDocumentNames(String[] sortedDocNames, FileOutputStream stream) throws IOException {
+	// a segment which only removes documents has no chunks
 	int size = sortedDocNames.length;
 	this.numberOfChunks = (size / CHUNK_SIZE) + 1;
 	this.sizeOfLastChunk = size % CHUNK_SIZE;
@@ -1062,7 +1817,6 @@ private void writeAllDocumentNames(String[] sortedDocNames, FileOutputStream str
 		this.numberOfChunks--;
 		this.sizeOfLastChunk = CHUNK_SIZE;
 	}
-	this.documentReferenceSize = size <= 0x7F ? 1 : (size <= 0x7FFF ? 2 : 4); // number of bytes used to encode a reference
 
 	this.chunkOffsets = new int[this.numberOfChunks];
 	int lastIndex = this.numberOfChunks - 1;
@@ -1119,103 +1873,84 @@ private void writeCategoryTable(char[] categoryName, HashtableOfObject wordsToDo
 	// the format of a category table is as follows:
 	// any document number arrays with >= 256 elements are written before the table (the offset to each array is remembered)
 	// then the number of word->int[] pairs in the table is written
-	// for each word -> int[] pair, the word is written followed by:
-	//		an int <= 0 if the array size == 1
-	//		an int > 1 & < 256 for the size of the array if its > 1 & < 256, the document array follows immediately
-	//		256 if the array size >= 256 followed by another int which is the offset to the array (written prior to the table)
+	// for each word -> int[] pair, the word is written followed by a variable length int which is:
+	//		the document number shifted left by 1 if the array size == 1
+	//		the size of the array shifted left by 1 & or'ed with 1 if its > 1 & < 256, the document array follows immediately
+	//		1 if the array size >= 256 followed by an int which is the offset to the array (written prior to the table)
+	// the words are written in sorted order, followed by the offset of each word in the table so it can be binary searched
+	// see writeDocumentNumbers() for the format of the document arrays
 
 	int largeArraySize = 256;
+	char[][] words = new char[wordsToDocs.elementSize][];
+	int size = 0;
+	char[][] keys = wordsToDocs.keyTable;
 	Object[] values = wordsToDocs.valueTable;
-	for (int i = 0, l = values.length; i < l; i++) {
-		Object o = values[i];
-		if (o != null) {
-			if (o instanceof IntList)
-				o = values[i] = ((IntList) values[i]).asArray();
-			int[] documentNumbers = (int[]) o;
-			if (documentNumbers.length >= largeArraySize) {
-				values[i] = Integer.valueOf(this.streamEnd);
-				writeDocumentNumbers(documentNumbers, stream);
-			}
+	for (int i = 0, l = keys.length; i < l; i++)
+		if (values[i] != null)
+			words[size++] = keys[i];
+	if (size < words.length)
+		System.arraycopy(words, 0, words = new char[size][], 0, size);
+	Util.sort(words);
+
+	// the large arrays are written in the same order as the words, so they can be read one after the other
+	Object[] documentArrays = new Object[size];
+	for (int i = 0; i < size; i++) {
+		Object o = wordsToDocs.get(words[i]);
+		if (o instanceof IntList)
+			o = ((IntList) o).asArray();
+		int[] documentNumbers = (int[]) o;
+		if (documentNumbers.length >= largeArraySize) {
+			documentArrays[i] = Integer.valueOf(this.streamEnd);
+			writeDocumentNumbers(documentNumbers, stream);
+		} else {
+			documentArrays[i] = documentNumbers;
 		}
 	}
 
 	this.categoryOffsets.put(categoryName, this.streamEnd); // remember the offset to the start of the table
 	this.categoryTables.put(categoryName, null); // flush cached table
-	writeStreamInt(stream, wordsToDocs.elementSize);
-	char[][] words = wordsToDocs.keyTable;
-	for (int i = 0, l = words.length; i < l; i++) {
-		Object o = values[i];
-		if (o != null) {
-			writeStreamChars(stream, words[i]);
-			if (o instanceof int[]) {
-				int[] documentNumbers = (int[]) o;
-				if (documentNumbers.length == 1)
-					writeStreamInt(stream, -documentNumbers[0]); // store an array of 1 element by negating the documentNumber (can be zero)
-				else
-					writeDocumentNumbers(documentNumbers, stream);
-			} else {
-				writeStreamInt(stream, largeArraySize); // mark to identify that an offset follows
-				writeStreamInt(stream, ((Integer) o).intValue()); // offset in the file of the array of document numbers
-			}
+	int[] wordOffsets = new int[size];
+	writeStreamInt(stream, size);
+	for (int i = 0; i < size; i++) {
+		wordOffsets[i] = this.streamEnd;
+		writeStreamChars(stream, words[i]);
+		Object o = documentArrays[i];
+		if (o instanceof int[]) {
+			int[] documentNumbers = (int[]) o;
+			if (documentNumbers.length == 1)
+				writeStreamVarInt(stream, documentNumbers[0] << 1); // store an array of 1 element by its documentNumber (can be zero)
+			else
+				writeDocumentNumbers(documentNumbers, stream);
+		} else {
+			writeStreamVarInt(stream, 1); // mark to identify that an offset follows
+			writeStreamInt(stream, ((Integer) o).intValue()); // offset in the file of the array of document numbers
 		}
 	}
+	this.categoryWordIndexes.put(categoryName, this.streamEnd);
+	for (int i = 0; i < size; i++)
+		writeStreamInt(stream, wordOffsets[i]);
 }
 private void writeDocumentNumbers(int[] documentNumbers, FileOutputStream stream) throws IOException {
-	// must store length as a positive int to detect in-lined array of 1 element
+	// the length is shifted left by 1 & or'ed with 1 to tell it apart from an in-lined array of 1 element,
+	// then the sorted document numbers are written as the differences to their predecessors
 	int length = documentNumbers.length;
-	writeStreamInt(stream, length);
+	writeStreamVarInt(stream, (length << 1) | 1);
 	Util.sort(documentNumbers);
-	int start = 0;
-	switch (this.documentReferenceSize) {
-		case 1 :
-			while ((this.bufferIndex + length - start) >= BUFFER_WRITE_SIZE) {
-				// when documentNumbers is large, write BUFFER_WRITE_SIZE parts & fall thru to write the last part
-				int bytesLeft = BUFFER_WRITE_SIZE - this.bufferIndex;
-				for (int i=0; i < bytesLeft; i++) {
-					this.streamBuffer[this.bufferIndex++] = (byte) documentNumbers[start++];
-				}
-				stream.write(this.streamBuffer, 0, this.bufferIndex);
-				this.bufferIndex = 0;
-			}
-			while (start < length) {
-				this.streamBuffer[this.bufferIndex++] = (byte) documentNumbers[start++];
-			}
-			this.streamEnd += length;
-			break;
-		case 2 :
-			while ((this.bufferIndex + ((length - start) * 2)) >= BUFFER_WRITE_SIZE) {
-				// when documentNumbers is large, write BUFFER_WRITE_SIZE parts & fall thru to write the last part
-				int shortsLeft = (BUFFER_WRITE_SIZE - this.bufferIndex) / 2;
-				for (int i=0; i < shortsLeft; i++) {
-					this.streamBuffer[this.bufferIndex++] = (byte) (documentNumbers[start] >> 8);
-					this.streamBuffer[this.bufferIndex++] = (byte) documentNumbers[start++];
-				}
-				stream.write(this.streamBuffer, 0, this.bufferIndex);
-				this.bufferIndex = 0;
-			}
-			while (start < length) {
-				this.streamBuffer[this.bufferIndex++] = (byte) (documentNumbers[start] >> 8);
-				this.streamBuffer[this.bufferIndex++] = (byte) documentNumbers[start++];
-			}
-			this.streamEnd += length * 2;
-			break;
-		default :
-			while (start < length) {
-				writeStreamInt(stream, documentNumbers[start++]);
-			}
-			break;
+	int previous = 0;
+	for (int i = 0; i < length; i++) {
+		writeStreamVarInt(stream, documentNumbers[i] - previous);
+		previous = documentNumbers[i];
 	}
 }
 private void writeHeaderInfo(FileOutputStream stream) throws IOException {
 	writeStreamInt(stream, this.numberOfChunks);
-	if ((this.bufferIndex + 3) >= BUFFER_WRITE_SIZE)  {
+	if ((this.bufferIndex + 2) >= BUFFER_WRITE_SIZE)  {
 		stream.write(this.streamBuffer, 0, this.bufferIndex);
 		this.bufferIndex = 0;
 	}
 	this.streamBuffer[this.bufferIndex++] = (byte) this.sizeOfLastChunk;
-	this.streamBuffer[this.bufferIndex++] = (byte) this.documentReferenceSize;
 	this.streamBuffer[this.bufferIndex++] = (byte) this.separator;
-	this.streamEnd += 3;
+	this.streamEnd += 2;
 
 	// apend the file with chunk offsets
 	for (int i = 0; i < this.numberOfChunks; i++) {
@@ -1224,7 +1959,8 @@ private void writeHeaderInfo(FileOutputStream stream) throws IOException {
 
 	writeStreamInt(stream, this.startOfCategoryTables);
 
-	// append the file with the category offsets... # of name -> offset pairs, followed by each name & an offset to its word->doc# table
+	// append the file with the category offsets... # of name -> offset pairs, followed by each name, an offset to its word->doc# table
+	// & an offset to the sorted offsets of its words
 	writeStreamInt(stream, this.categoryOffsets.elementSize);
 	char[][] categoryNames = this.categoryOffsets.keyTable;
 	int[] offsets = this.categoryOffsets.valueTable;
@@ -1232,8 +1968,15 @@ private void writeHeaderInfo(FileOutputStream stream) throws IOException {
 		if (categoryNames[i] != null) {
 			writeStreamChars(stream, categoryNames[i]);
 			writeStreamInt(stream, offsets[i]);
+			writeStreamInt(stream, this.categoryWordIndexes.get(categoryNames[i]));
 		}
 	}
+
+	// then the offset to the header of the previous segment, followed by the documents removed from the older segments
+	writeStreamInt(stream, this.previousSegment == null ? -1 : this.previousSegment.headerInfoOffset);
+	writeStreamInt(stream, this.removedDocumentNames.length);
+	for (int i = 0, l = this.removedDocumentNames.length; i < l; i++)
+		writeStreamChars(stream, this.removedDocumentNames[i].toCharArray());
 	// ensure buffer is written to the stream
 	if (this.bufferIndex > 0) {
 		stream.write(this.streamBuffer, 0, this.bufferIndex);
@@ -1352,4 +2095,21 @@ private void writeStreamInt(FileOutputStream stream, int val) throws IOException
 	this.streamBuffer[this.bufferIndex++] = (byte) val;
 	this.streamEnd += 4;
 }
+/**
+ * Writes a non-negative int using 7 bits of each byte, starting with the lowest bits. The highest bit is set
+ * in all bytes but the last one.
+ */
+private void writeStreamVarInt(FileOutputStream stream, int val) throws IOException {
+	if ((this.bufferIndex + 5) >= BUFFER_WRITE_SIZE)  {
+		stream.write(this.streamBuffer, 0, this.bufferIndex);
+		this.bufferIndex = 0;
+	}
+	int oldIndex = this.bufferIndex;
+	while ((val & ~0x7F) != 0) {
+		this.streamBuffer[this.bufferIndex++] = (byte) ((val & 0x7F) | 0x80);
+		val >>>= 7;
+	}
+	this.streamBuffer[this.bufferIndex++] = (byte) val;
+	this.streamEnd += this.bufferIndex - oldIndex;
+}
 }
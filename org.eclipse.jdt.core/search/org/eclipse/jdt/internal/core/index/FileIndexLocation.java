@@ -40,6 +40,15 @@ public class FileIndexLocation extends IndexLocation {
 		this.participantIndex = true;
 	}
 
+	/**
+	 * Answers the location of an index file that is never written, so that it can be memory-mapped.
+	 */
+	public static FileIndexLocation createReadOnly(File file) {
+		FileIndexLocation location = new FileIndexLocation(file);
+		location.readOnly = true;
+		return location;
+	}
+
 	@Override
 	public boolean createNewFile() throws IOException {
 		File directory = this.indexFile.getParentFile();
@@ -41,6 +41,7 @@ static final char JAR_SEPARATOR = IJavaSearchScope.JAR_FILE_ENTRY_SEPARATOR.char
 
 protected DiskIndex diskIndex;
 protected MemoryIndex memoryIndex;
+private WordGroups wordGroups; // the groups read by the last queryWordGroup(), valid as long as the disk index is not replaced
 
 /**
  * Mask used on match rule for indexing.
@@ -107,6 +108,12 @@ public static boolean isMatch(char[] pattern, char[] word, int matchRule) {
 }
 
 
+/*
+ * Creates an index without memory and disk storage, used by {@link IndexEntryBuffer}.
+ */
+Index(String containerPath) {
+	this.containerPath = containerPath;
+}
 public Index(IndexLocation location, String containerPath, boolean reuseExistingFile) throws IOException {
 	this.containerPath = containerPath;
 	this.monitor = new ReadWriteMonitor();
@@ -140,6 +147,12 @@ public long getIndexLastModified() {
 public boolean hasChanged() {
 	return this.memoryIndex.hasChanged();
 }
+/**
+ * Answers whether the segments appended to the index file by {@link #save()} should be merged by {@link #compact()}.
+ */
+public boolean needsCompaction() {
+	return this.diskIndex.needsCompaction();
+}
 /**
  * Returns the entries containing the given key in a group of categories, or null if no matches are found.
  * The matchRule dictates whether its an exact, prefix or pattern match, as well as case sensitive or insensitive.
@@ -162,6 +175,72 @@ public EntryResult[] query(char[][] categories, char[] key, int matchRule) throw
 	} else {
 		results = this.diskIndex.addQueryResults(categories, key, rule, null);
 	}
+	return toEntryResults(results);
+}
+/**
+ * Runs several queries in one pass: each category table is read & searched once for all the queries on that category.
+ * Answers the results of each query, as {@link #query(char[][], char[], int)} would answer them.
+ */
+public EntryResult[][] query(char[][][] categories, char[][] keys, int[] matchRules) throws IOException {
+	if (this.memoryIndex.shouldMerge() && this.monitor.exitReadEnterWrite()) {
+		try {
+			save();
+		} finally {
+			this.monitor.exitWriteEnterRead();
+		}
+	}
+
+	int[] rules = new int[matchRules.length];
+	for (int i = 0, l = matchRules.length; i < l; i++)
+		rules[i] = matchRules[i] & MATCH_RULE_INDEX_MASK;
+	HashtableOfObject[] results;
+	if (this.memoryIndex.hasChanged()) {
+		results = this.diskIndex.addQueryResults(categories, keys, rules, this.memoryIndex);
+		for (int i = 0, l = results.length; i < l; i++)
+			results[i] = this.memoryIndex.addQueryResults(categories[i], keys[i], rules[i], results[i]);
+	} else {
+		results = this.diskIndex.addQueryResults(categories, keys, rules, null);
+	}
+
+	EntryResult[][] entryResults = new EntryResult[results.length][];
+	for (int i = 0, l = results.length; i < l; i++)
+		entryResults[i] = toEntryResults(results[i]);
+	return entryResults;
+}
+/**
+ * Returns the entries of the given category whose words start with the given group followed by the separator, or all
+ * of its entries if the group is null: the same entries as a case sensitive prefix query on the group and separator.
+ * The words of the category are read once and kept grouped until the disk index is replaced, so that the repeated
+ * queries of a type hierarchy computation are answered without searching the index file again.
+ */
+public EntryResult[] queryWordGroup(char[] category, char[] group, char groupSeparator) throws IOException {
+	if (this.memoryIndex.shouldMerge() && this.monitor.exitReadEnterWrite()) {
+		try {
+			save();
+		} finally {
+			this.monitor.exitWriteEnterRead();
+		}
+	}
+
+	WordGroups groups = getWordGroups(category, groupSeparator);
+	HashtableOfObject results;
+	if (this.memoryIndex.hasChanged()) {
+		results = groups.addQueryResults(group, this.memoryIndex, null);
+		char[] key = group == null ? null : CharOperation.append(group, groupSeparator);
+		results = this.memoryIndex.addQueryResults(new char[][] {category}, key, SearchPattern.R_PREFIX_MATCH | SearchPattern.R_CASE_SENSITIVE, results);
+	} else {
+		results = groups.addQueryResults(group, null, null);
+	}
+	return toEntryResults(results);
+}
+private synchronized WordGroups getWordGroups(char[] category, char groupSeparator) throws IOException {
+	// several threads may query the index at once, but the groups are only read once
+	WordGroups groups = this.wordGroups;
+	if (groups == null || groups.diskIndex != this.diskIndex || groups.separator != groupSeparator || !CharOperation.equals(groups.category, category))
+		this.wordGroups = groups = new WordGroups(this, category, groupSeparator);
+	return groups;
+}
+private static EntryResult[] toEntryResults(HashtableOfObject results) {
 	if (results == null) return null;
 
 	EntryResult[] entryResults = new EntryResult[results.elementSize];
@@ -205,6 +284,7 @@ public void remove(String containerRelativePath) {
  */
 public void reset() throws IOException {
 	this.memoryIndex = new MemoryIndex();
+	this.diskIndex.releaseIndexFile();
 	this.diskIndex = new DiskIndex(this.diskIndex.indexLocation);
 	this.diskIndex.initialize(false/*do not reuse the index file*/);
 }
@@ -212,6 +292,21 @@ public void save() throws IOException {
 	// must own the write lock of the monitor
 	if (!hasChanged()) return;
 
+	this.diskIndex.separator = this.separator;
+	if (this.diskIndex.canAppendSegment(this.memoryIndex))
+		this.diskIndex = this.diskIndex.appendSegment(this.memoryIndex);
+	else
+		this.diskIndex = this.diskIndex.mergeWith(this.memoryIndex);
+	this.memoryIndex = new MemoryIndex();
+}
+/**
+ * Rewrites the index file as a single segment, including the changes which have not been saved yet.
+ * Saving an index only appends its changes to the file as long as there are few of them, see {@link #needsCompaction()}.
+ */
+public void compact() throws IOException {
+	// must own the write lock of the monitor
+	if (!hasChanged() && !this.diskIndex.hasAppendedSegments()) return;
+
 	this.diskIndex.separator = this.separator;
 	this.diskIndex = this.diskIndex.mergeWith(this.memoryIndex);
 	this.memoryIndex = new MemoryIndex();
@@ -0,0 +1,61 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.jdt.internal.core.index;
+
+import java.util.ArrayList;
+
+/**
+ * An <code>Index</code> that only records the entries added to it and the documents removed from it.
+ * <p>
+ * Documents can be indexed into a buffer by another thread, the recorded changes are then applied
+ * to the actual index in the same order by {@link #addTo(Index)}. No other operation is supported.
+ * </p>
+ */
+public class IndexEntryBuffer extends Index {
+
+// a null category records the removal of the document
+private final ArrayList<char[]> categories = new ArrayList<>();
+private final ArrayList<char[]> keys = new ArrayList<>();
+private final ArrayList<String> documentNames = new ArrayList<>();
+
+public IndexEntryBuffer(Index index) {
+	super(index.containerPath);
+	this.separator = index.separator;
+}
+@Override
+public void addIndexEntry(char[] category, char[] key, String containerRelativePath) {
+	this.categories.add(category);
+	this.keys.add(key);
+	this.documentNames.add(containerRelativePath);
+}
+/**
+ * Applies the recorded changes to the given index, which must be held for writing.
+ */
+public void addTo(Index index) {
+	for (int i = 0, length = this.categories.size(); i < length; i++) {
+		char[] category = this.categories.get(i);
+		if (category == null)
+			index.remove(this.documentNames.get(i));
+		else
+			index.addIndexEntry(category, this.keys.get(i), this.documentNames.get(i));
+	}
+}
+@Override
+public void remove(String containerRelativePath) {
+	this.categories.add(null);
+	this.keys.add(null);
+	this.documentNames.add(containerRelativePath);
+}
+@Override
+public String toString() {
+	return "Index entries buffer for " + this.containerPath; //$NON-NLS-1$
+}
+}
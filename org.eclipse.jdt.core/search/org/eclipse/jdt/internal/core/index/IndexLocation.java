@@ -63,6 +63,11 @@ public abstract class IndexLocation {
 	 */
 	protected boolean participantIndex;
 
+	/**
+	 * Set to true if the index file is never written, such as an index of a shared index cache
+	 */
+	protected boolean readOnly;
+
 	protected IndexLocation(File file) {
 		URL tempUrl = null;
 		try {
@@ -119,6 +124,10 @@ public abstract class IndexLocation {
 		return this.participantIndex;
 	}
 
+	public boolean isReadOnly() {
+		return this.readOnly;
+	}
+
 	/**
 	 * @return the last modified time if the location is a file or -1 otherwise
 	 */
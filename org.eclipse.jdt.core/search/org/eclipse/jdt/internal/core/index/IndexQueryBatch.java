@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.jdt.internal.core.index;
+
+import java.io.IOException;
+import java.util.ArrayList;
+
+import org.eclipse.jdt.core.compiler.CharOperation;
+
+/**
+ * An <code>Index</code> that answers queries from the results of a batch of queries run together on another index.
+ * <p>
+ * The queries are first recorded: while recording, {@link #query(char[][], char[], int)} answers null.
+ * {@link #runQueries()} then runs all of them in one pass over the index, and the same queries are answered from
+ * their results afterwards. Any other query is forwarded to the index.
+ * </p>
+ */
+public class IndexQueryBatch extends Index {
+
+private final Index index;
+private final ArrayList<char[][]> categories = new ArrayList<>();
+private final ArrayList<char[]> keys = new ArrayList<>();
+private final ArrayList<Integer> matchRules = new ArrayList<>();
+private EntryResult[][] results; // null while recording
+
+public IndexQueryBatch(Index index) {
+	super(index.containerPath);
+	this.index = index;
+	this.separator = index.separator;
+	this.monitor = index.monitor;
+	this.diskIndex = index.diskIndex;
+}
+public int getQueryCount() {
+	return this.keys.size();
+}
+@Override
+public EntryResult[] query(char[][] queryCategories, char[] key, int matchRule) throws IOException {
+	if (this.results == null) {
+		this.categories.add(queryCategories);
+		this.keys.add(key);
+		this.matchRules.add(Integer.valueOf(matchRule));
+		return null;
+	}
+	for (int i = 0, length = this.keys.size(); i < length; i++)
+		if (this.matchRules.get(i).intValue() == matchRule
+				&& CharOperation.equals(this.keys.get(i), key)
+				&& CharOperation.equals(this.categories.get(i), queryCategories))
+			return this.results[i];
+
+	EntryResult[] entries = this.index.query(queryCategories, key, matchRule);
+	this.diskIndex = this.index.diskIndex; // the query may have saved the index
+	return entries;
+}
+@Override
+public EntryResult[] queryWordGroup(char[] category, char[] group, char groupSeparator) throws IOException {
+	if (this.results == null) return null; // not batched
+
+	EntryResult[] entries = this.index.queryWordGroup(category, group, groupSeparator);
+	this.diskIndex = this.index.diskIndex; // the query may have saved the index
+	return entries;
+}
+/**
+ * Runs the recorded queries on the index, which must be held for reading.
+ */
+public void runQueries() throws IOException {
+	int length = this.keys.size();
+	int[] rules = new int[length];
+	for (int i = 0; i < length; i++)
+		rules[i] = this.matchRules.get(i).intValue();
+	this.results = this.index.query(this.categories.toArray(new char[length][][]), this.keys.toArray(new char[length][]), rules);
+	this.diskIndex = this.index.diskIndex; // the query may have saved the index
+}
+@Override
+public void startQuery() {
+	this.index.startQuery();
+}
+@Override
+public void stopQuery() {
+	this.index.stopQuery();
+}
+@Override
+public String toString() {
+	return "Index query batch for " + this.containerPath; //$NON-NLS-1$
+}
+}
@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.jdt.internal.core.index;
+
+import java.io.IOException;
+
+import org.eclipse.jdt.core.compiler.CharOperation;
+import org.eclipse.jdt.internal.compiler.util.HashtableOfObject;
+import org.eclipse.jdt.internal.compiler.util.SimpleLookupTable;
+
+/**
+ * The words of one category of a disk index with their document names, grouped by the part of the words which
+ * precedes a separator (e.g. the simple name of the supertype of the SUPER_REF entries).
+ * <p>
+ * A type hierarchy computation queries the same category once per type of the hierarchy: the groups are read once
+ * and answer all of these queries, until the disk index is replaced by saving the index. The changes of the memory
+ * index are not part of the groups, they are merged into the results by {@link Index#queryWordGroup(char[], char[], char)}.
+ * </p>
+ */
+class WordGroups {
+
+final DiskIndex diskIndex;
+final char[] category;
+final char separator;
+private final HashtableOfObject groups; // first part of the words -> HashtableOfObject(word -> String[] document names)
+
+/**
+ * Reads the words of the category from the disk index of the given index, which must be held for reading.
+ */
+WordGroups(Index index, char[] category, char separator) throws IOException {
+	this.diskIndex = index.diskIndex;
+	this.category = category;
+	this.separator = separator;
+	this.groups = new HashtableOfObject(13);
+
+	this.diskIndex.startQuery();
+	try {
+		HashtableOfObject entries = this.diskIndex.addQueryResults(new char[][] {category}, null, 0, null);
+		if (entries == null) return;
+		Object[] values = entries.valueTable;
+		for (int i = 0, l = values.length; i < l; i++) {
+			EntryResult entry = (EntryResult) values[i];
+			if (entry == null) continue;
+			char[] word = entry.getWord();
+			int end = CharOperation.indexOf(separator, word);
+			char[] group = end == -1 ? word : CharOperation.subarray(word, 0, end);
+			HashtableOfObject words = (HashtableOfObject) this.groups.get(group);
+			if (words == null)
+				this.groups.put(group, words = new HashtableOfObject(3));
+			words.put(word, entry.getDocumentNames(index));
+		}
+	} finally {
+		this.diskIndex.stopQuery();
+	}
+}
+/**
+ * Adds the entries of the given group, or of all the groups if it is null, to the results. Skips the documents
+ * which have been added, changed or deleted in the memory index.
+ */
+HashtableOfObject addQueryResults(char[] group, MemoryIndex memoryIndex, HashtableOfObject results) {
+	SimpleLookupTable excludedDocuments = memoryIndex == null ? null : memoryIndex.docsToReferences;
+	if (group != null)
+		return addQueryResults((HashtableOfObject) this.groups.get(group), excludedDocuments, results);
+
+	Object[] values = this.groups.valueTable;
+	for (int i = 0, l = values.length; i < l; i++)
+		if (values[i] != null)
+			results = addQueryResults((HashtableOfObject) values[i], excludedDocuments, results);
+	return results;
+}
+private HashtableOfObject addQueryResults(HashtableOfObject words, SimpleLookupTable excludedDocuments, HashtableOfObject results) {
+	if (words == null) return results;
+
+	char[][] keys = words.keyTable;
+	Object[] values = words.valueTable;
+	for (int i = 0, l = keys.length; i < l; i++) {
+		if (keys[i] == null) continue;
+		// the results are completed by the memory index, so they must not share the cached names
+		EntryResult result = new EntryResult(keys[i], null);
+		String[] documentNames = (String[]) values[i];
+		for (int j = 0, m = documentNames.length; j < m; j++)
+			if (excludedDocuments == null || !excludedDocuments.containsKey(documentNames[j]))
+				result.addDocumentName(documentNames[j]);
+		if (!result.isEmpty()) {
+			if (results == null)
+				results = new HashtableOfObject(13);
+			results.put(keys[i], result);
+		}
+	}
+	return results;
+}
+}
@@ -0,0 +1,184 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.jdt.internal.core.nd;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.jdt.internal.core.nd.db.Database;
+
+/**
+ * Flushes the changes of several write transactions to disk together. Write transactions that would flush the
+ * database when releasing the write lock request a flush instead, which happens on a background thread once the
+ * durability interval has passed since the first request. The dirty chunks of all transactions committed in the
+ * meantime are written by a single {@link Database#flush()}, which sorts them by their position in the file and
+ * combines adjacent chunks into large sequential writes.
+ * <p>
+ * The thread is started when a flush is requested and ends when no more flushes are pending. Once the flusher has
+ * been stopped, it rejects further requests, see {@link #requestFlush()}.
+ */
+final class GroupCommitFlusher {
+	private final Nd nd;
+	private final long intervalMs;
+
+	// Synchronize on this before accessing the following fields
+	private Thread thread;
+	/**
+	 * Time (in the units of {@link System#currentTimeMillis()}) at which the pending flush is due.
+	 */
+	private long deadline;
+	/**
+	 * Number of flushes that have been requested.
+	 */
+	private long numRequests;
+	/**
+	 * Number of requests that are covered by the flush in progress or by a completed flush.
+	 */
+	private long numStartedRequests;
+	/**
+	 * Number of requests that are covered by a completed flush.
+	 */
+	private long numFlushedRequests;
+	private boolean stopped;
+	/**
+	 * True if the flushes that are still pending when the flusher is stopped are discarded.
+	 */
+	private volatile boolean discardPending;
+	/**
+	 * Cancels waiting for the lock on the database when the pending flushes are discarded, e.g. because the database
+	 * is being closed by the owner of the write lock.
+	 */
+	private final NullProgressMonitor lockMonitor = new NullProgressMonitor() {
+		@Override
+		public boolean isCanceled() {
+			return GroupCommitFlusher.this.discardPending;
+		}
+	};
+
+	GroupCommitFlusher(Nd nd, long intervalMs) {
+		this.nd = nd;
+		this.intervalMs = intervalMs;
+	}
+
+	long getInterval() {
+		return this.intervalMs;
+	}
+
+	/**
+	 * Requests that the changes committed so far are flushed before the durability interval has passed. Returns false
+	 * if the flusher has been stopped, in which case the caller must flush the changes in some other way.
+	 */
+	synchronized boolean requestFlush() {
+		if (this.stopped) {
+			return false;
+		}
+		if (this.numRequests == this.numStartedRequests) {
+			this.deadline = System.currentTimeMillis() + this.intervalMs;
+		}
+		this.numRequests++;
+		if (this.thread == null) {
+			this.thread = new Thread(this::run, "Java index flusher"); //$NON-NLS-1$
+			this.thread.setDaemon(true);
+			this.thread.start();
+		}
+		return true;
+	}
+
+	/**
+	 * Performs the pending flush immediately and waits until all requested flushes are complete. Must not be called
+	 * while holding a read or write lock on the database.
+	 */
+	synchronized void awaitFlush() {
+		long target = this.numRequests;
+		this.deadline = System.currentTimeMillis();
+		notifyAll();
+		boolean interrupted = false;
+		while (this.numFlushedRequests < target && this.thread != null) {
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Rejects further requests and waits until the thread has ended. If flushPending is true, the flushes that have
+	 * been requested so far are performed first; this must not be called while holding a read or write lock on the
+	 * database. Otherwise they are discarded, which is used when the database is closed since closing flushes it
+	 * anyway.
+	 */
+	void stop(boolean flushPending) {
+		Thread flushThread;
+		synchronized (this) {
+			this.stopped = true;
+			this.discardPending = !flushPending;
+			this.deadline = System.currentTimeMillis();
+			notifyAll();
+			flushThread = this.thread;
+		}
+		if (flushThread == null || flushThread == Thread.currentThread()) {
+			return;
+		}
+		boolean interrupted = false;
+		while (true) {
+			try {
+				flushThread.join();
+				break;
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void run() {
+		while (true) {
+			long requests;
+			synchronized (this) {
+				while (true) {
+					if (this.discardPending || this.numRequests == this.numStartedRequests) {
+						this.thread = null;
+						notifyAll();
+						return;
+					}
+					long delay = this.deadline - System.currentTimeMillis();
+					if (delay <= 0) {
+						break;
+					}
+					try {
+						wait(delay);
+					} catch (InterruptedException e) {
+						// Flush now
+						break;
+					}
+				}
+				requests = this.numRequests;
+				this.numStartedRequests = requests;
+			}
+			try {
+				this.nd.flushCommittedWrites(this.lockMonitor);
+			} catch (OperationCanceledException e) {
+				// Discarded while waiting for the lock
+			} catch (RuntimeException e) {
+				Package.log(e);
+			}
+			synchronized (this) {
+				this.numFlushedRequests = requests;
+				notifyAll();
+			}
+		}
+	}
+}
@@ -42,6 +42,14 @@ public final class Nd {
 	 * of the cache is dirty.
 	 */
 	private static final double MAX_DIRTY_CACHE_RATIO = 0.25;
+	/**
+	 * True iff new {@link Nd} instances should use snapshot reads by default. See {@link #setSnapshotReads(boolean)}.
+	 */
+	public static final boolean USE_SNAPSHOT_READS = Boolean.getBoolean("org.eclipse.jdt.core.nd.snapshots"); //$NON-NLS-1$
+	/**
+	 * Group commit interval (in milliseconds) of new {@link Nd} instances. See {@link #setGroupCommitInterval(long)}.
+	 */
+	public static final long GROUP_COMMIT_INTERVAL_MS = Long.getLong("org.eclipse.jdt.core.nd.groupCommitInterval", 0); //$NON-NLS-1$
 	public static boolean sDEBUG_LOCKS= false;
 	public static boolean DEBUG_DUPLICATE_DELETIONS = false;
 
@@ -116,6 +124,12 @@ public final class Nd {
 		this.minVersion = minVersion;
 		this.fNodeTypeRegistry = nodeTypes;
 		loadDatabase(dbPath, chunkCache);
+		if (USE_SNAPSHOT_READS && !isPermanentlyReadOnly()) {
+			setSnapshotReads(true);
+		}
+		if (GROUP_COMMIT_INTERVAL_MS > 0 && !isPermanentlyReadOnly()) {
+			setGroupCommitInterval(GROUP_COMMIT_INTERVAL_MS);
+		}
 		if (sDEBUG_LOCKS) {
 			this.fLockDebugging = new HashMap<>();
 			System.out.println("Debugging database Locks"); //$NON-NLS-1$
@@ -241,27 +255,154 @@ public final class Nd {
 
 	// Read-write lock rules. Readers don't conflict with other readers,
 	// Writers conflict with readers, and everyone conflicts with writers.
+	// With snapshot reads, readers and writers don't conflict either, but writers still conflict with each other.
 	private final Object mutex = new Object();
 	private int lockCount;
 	private int waitingReaders;
+	private boolean snapshotReads;
+	/**
+	 * True while a writer holds the write lock when using snapshot reads. In that mode, {@link #lockCount} only counts
+	 * read locks.
+	 */
+	private boolean writeLocked;
+	/**
+	 * True while a writer with snapshot reads needs to exclude readers as well, see {@link #clear(IProgressMonitor)}.
+	 */
+	private boolean excludeReaders;
+	/**
+	 * Performs the flushes requested by write transactions in the background, or null if each write transaction
+	 * flushes the database itself. See {@link #setGroupCommitInterval(long)}.
+	 */
+	private volatile GroupCommitFlusher groupCommitFlusher;
 	private long lastWriteAccess= 0;
 	//private long lastReadAccess= 0;
 	private long timeWriteLockAcquired;
 	private Thread writeLockOwner;
 
+	/**
+	 * Enables or disables snapshot reads. With snapshot reads, acquiring a read lock doesn't wait for the writer and
+	 * acquiring the write lock doesn't wait for readers. Each reader sees the version of the database that was
+	 * committed when it acquired its outermost read lock, and the changes made while holding the write lock become
+	 * visible atomically when it is released. See {@link Database#setSnapshotReads(boolean)}.
+	 *
+	 * @throws IllegalStateException if any read or write locks are currently held
+	 */
+	public void setSnapshotReads(boolean enabled) {
+		synchronized (this.mutex) {
+			if (this.lockCount != 0 || this.writeLocked) {
+				throw new IllegalStateException("Snapshot reads can only be changed while the index is not locked"); //$NON-NLS-1$
+			}
+			this.snapshotReads = enabled;
+			this.db.setSnapshotReads(enabled);
+		}
+	}
+
+	public boolean isSnapshotReads() {
+		synchronized (this.mutex) {
+			return this.snapshotReads;
+		}
+	}
+
+	/**
+	 * Sets the durability interval for group commits. If it is positive, a write transaction that asks for a flush
+	 * when releasing the write lock doesn't flush the database itself. Instead, the database is flushed on a
+	 * background thread once the given number of milliseconds have passed, together with the changes of all write
+	 * transactions that were committed in the meantime. Writers that dirty too large a part of the cache still flush
+	 * the database themselves. If the interval is 0, every write transaction that asks for a flush performs it before
+	 * releasing its locks.
+	 * <p>
+	 * Changing the interval performs the pending flush. Flushes that are requested while the interval is changed are
+	 * handed over to the new flusher. Must not be called while holding a read or write lock.
+	 */
+	public void setGroupCommitInterval(long milliseconds) {
+		GroupCommitFlusher previous;
+		synchronized (this.mutex) {
+			previous = this.groupCommitFlusher;
+			this.groupCommitFlusher = milliseconds > 0 ? new GroupCommitFlusher(this, milliseconds) : null;
+		}
+		if (previous != null) {
+			previous.stop(true);
+		}
+	}
+
+	/**
+	 * Returns the durability interval for group commits in milliseconds, or 0 if group commits are disabled. See
+	 * {@link #setGroupCommitInterval(long)}.
+	 */
+	public long getGroupCommitInterval() {
+		GroupCommitFlusher flusher = this.groupCommitFlusher;
+		return flusher == null ? 0 : flusher.getInterval();
+	}
+
+	/**
+	 * Waits until the changes of all write transactions that asked for a flush have been written to disk. Returns
+	 * immediately if group commits are disabled. Must not be called while holding a read or write lock.
+	 */
+	public void awaitGroupCommit() {
+		GroupCommitFlusher flusher = this.groupCommitFlusher;
+		if (flusher != null) {
+			flusher.awaitFlush();
+		}
+	}
+
+	/**
+	 * Flushes the changes of the write transactions that have been committed so far. Writers are excluded while the
+	 * chunks are written, in the same way as when a write transaction flushes the database itself.
+	 */
+	void flushCommittedWrites(IProgressMonitor monitor) {
+		if (isSnapshotReads()) {
+			acquireWriteLock(monitor);
+			try {
+				this.db.flush();
+			} finally {
+				releaseWriteLock();
+			}
+		} else {
+			acquireReadLock(monitor);
+			try {
+				this.db.flush();
+			} finally {
+				releaseReadLock();
+			}
+		}
+	}
+
+	private boolean isLocked() {
+		return this.lockCount != 0 || this.writeLocked;
+	}
+
 	public IReader acquireReadLock() {
+		return acquireReadLock(null);
+	}
+
+	/**
+	 * Acquires a read lock, giving up with an {@link OperationCanceledException} if the given monitor is canceled
+	 * while waiting for the writer.
+	 */
+	private IReader acquireReadLock(IProgressMonitor monitor) {
 		try {
 			long t = sDEBUG_LOCKS ? System.nanoTime() : 0;
 			synchronized (this.mutex) {
 				++this.waitingReaders;
 				try {
-					while (this.lockCount < 0)
-						this.mutex.wait();
+					while (this.lockCount < 0 || this.excludeReaders) {
+						if (monitor == null) {
+							this.mutex.wait();
+						} else {
+							this.mutex.wait(CANCELLATION_CHECK_INTERVAL);
+							if (monitor.isCanceled()) {
+								throw new OperationCanceledException();
+							}
+						}
+					}
 				} finally {
 					--this.waitingReaders;
 				}
 				++this.lockCount;
 				this.db.setLocked(true);
+				if (this.snapshotReads) {
+					this.db.beginSnapshot();
+				}
 
 				if (sDEBUG_LOCKS) {
 					t = (System.nanoTime() - t) / 1000000;
@@ -287,8 +428,11 @@ public final class Nd {
 			//this.lastReadAccess= System.currentTimeMillis();
 			if (this.lockCount > 0)
 				--this.lockCount;
+			if (this.snapshotReads) {
+				this.db.endSnapshot();
+			}
 			this.mutex.notifyAll();
-			this.db.setLocked(this.lockCount != 0);
+			this.db.setLocked(isLocked());
 		}
 		// A lock release probably means that some AST is going away. The result cache has to be
 		// cleared since it may contain objects belonging to the AST that is going away. A failure
@@ -335,18 +479,36 @@ public final class Nd {
 				giveupReadLocks= 0;
 			}
 
-			// Let the readers go first
 			long start= sDEBUG_LOCKS ? System.currentTimeMillis() : 0;
-			while (this.lockCount > giveupReadLocks || this.waitingReaders > 0 || (this.lockCount < 0)) {
-				this.mutex.wait(CANCELLATION_CHECK_INTERVAL);
-				if (monitor != null && monitor.isCanceled()) {
-					throw new OperationCanceledException();
+			if (this.snapshotReads) {
+				// Readers don't need to be waited for, only other writers
+				while (this.writeLocked) {
+					this.mutex.wait(CANCELLATION_CHECK_INTERVAL);
+					if (monitor != null && monitor.isCanceled()) {
+						throw new OperationCanceledException();
+					}
+					if (sDEBUG_LOCKS) {
+						start = reportBlockedWriteLock(start, giveupReadLocks);
+					}
 				}
-				if (sDEBUG_LOCKS) {
-					start = reportBlockedWriteLock(start, giveupReadLocks);
+				this.lockCount -= giveupReadLocks;
+				for (int i = 0; i < giveupReadLocks; i++) {
+					this.db.endSnapshot();
+				}
+				this.writeLocked = true;
+			} else {
+				// Let the readers go first
+				while (this.lockCount > giveupReadLocks || this.waitingReaders > 0 || (this.lockCount < 0)) {
+					this.mutex.wait(CANCELLATION_CHECK_INTERVAL);
+					if (monitor != null && monitor.isCanceled()) {
+						throw new OperationCanceledException();
+					}
+					if (sDEBUG_LOCKS) {
+						start = reportBlockedWriteLock(start, giveupReadLocks);
+					}
 				}
+				this.lockCount= -1;
 			}
-			this.lockCount= -1;
 			if (sDEBUG_LOCKS)
 				this.timeWriteLockAcquired = System.currentTimeMillis();
 			this.db.setExclusiveLock();
@@ -354,6 +516,9 @@ public final class Nd {
 				throw new IllegalStateException("We somehow managed to acquire a write lock while another thread already holds it."); //$NON-NLS-1$
 			}
 			this.writeLockOwner = Thread.currentThread();
+			if (this.snapshotReads) {
+				this.db.beginWrite();
+			}
 		}
 	}
 
@@ -383,8 +548,11 @@ public final class Nd {
 		} catch (RuntimeException e) {
 			exception = e;
 		} finally {
+			if (this.snapshotReads) {
+				this.db.commitWrite();
+			}
 			this.db.giveUpExclusiveLock();
-			assert this.lockCount == -1;
+			assert this.snapshotReads ? this.writeLocked : this.lockCount == -1;
 			this.lastWriteAccess = System.currentTimeMillis();
 			try {
 				releaseWriteLockAndFlush(establishReadLocks, flush);
@@ -408,6 +576,28 @@ public final class Nd {
 		int totalCacheSize = (int) (this.db.getCache().getMaxSize() / Database.CHUNK_SIZE);
 		if (dirtyPages > totalCacheSize * MAX_DIRTY_CACHE_RATIO) {
 			flush = true;
+		} else if (flush) {
+			// A flusher that is being replaced rejects the request, which then goes to its successor
+			GroupCommitFlusher flusher;
+			while ((flusher = this.groupCommitFlusher) != null) {
+				if (flusher.requestFlush()) {
+					flush = false;
+					break;
+				}
+			}
+		}
+
+		if (this.snapshotReads) {
+			// Readers aren't blocked by the write lock, so the flush can happen before it is released. This also
+			// prevents the next writer from modifying the header while it is being flushed.
+			try {
+				if (flush) {
+					this.db.flush();
+				}
+			} finally {
+				releaseSnapshotWriteLock(establishReadLocks);
+			}
+			return;
 		}
 
 		int initialReadLocks = flush ? establishReadLocks + 1 : establishReadLocks;
@@ -438,6 +628,51 @@ public final class Nd {
 		}
 	}
 
+	private void releaseSnapshotWriteLock(int establishReadLocks) {
+		synchronized (this.mutex) {
+			if (sDEBUG_LOCKS) {
+				long timeHeld = this.lastWriteAccess - this.timeWriteLockAcquired;
+				if (timeHeld >= LONG_WRITE_LOCK_REPORT_THRESHOLD) {
+					System.out.println("Index write lock held for " + timeHeld + " ms");  //$NON-NLS-1$//$NON-NLS-2$
+				}
+				decWriteLock(establishReadLocks);
+			}
+
+			this.writeLocked = false;
+			this.excludeReaders = false;
+			this.lockCount += establishReadLocks;
+			for (int i = 0; i < establishReadLocks; i++) {
+				this.db.beginSnapshot();
+			}
+			this.mutex.notifyAll();
+			this.db.setLocked(isLocked());
+		}
+	}
+
+	/**
+	 * When using snapshot reads, waits until all readers have released their read locks and prevents new ones from
+	 * being acquired until the write lock is released. Must be called while holding the write lock. This is used for
+	 * changes that can't be isolated from readers.
+	 */
+	private void excludeReaders(IProgressMonitor monitor) {
+		synchronized (this.mutex) {
+			if (!this.snapshotReads) {
+				return;
+			}
+			this.excludeReaders = true;
+			try {
+				while (this.lockCount > 0) {
+					this.mutex.wait(CANCELLATION_CHECK_INTERVAL);
+					if (monitor != null && monitor.isCanceled()) {
+						throw new OperationCanceledException();
+					}
+				}
+			} catch (InterruptedException e) {
+				throw new OperationCanceledException();
+			}
+		}
+	}
+
 	public boolean hasWaitingReaders() {
 		synchronized (this.mutex) {
 			return this.waitingReaders > 0;
@@ -454,6 +689,15 @@ public final class Nd {
 	}
 
 	public void close() throws IndexException {
+		GroupCommitFlusher flusher;
+		synchronized (this.mutex) {
+			flusher = this.groupCommitFlusher;
+			this.groupCommitFlusher = null;
+		}
+		if (flusher != null) {
+			// Closing the database flushes it
+			flusher.stop(false);
+		}
 		this.db.close();
 		clearCaches();
 	}
@@ -702,10 +946,24 @@ public final class Nd {
 	}
 
 	public void clear(IProgressMonitor monitor) {
+		// Clearing truncates the database file, which readers of older versions may still need
+		excludeReaders(monitor);
 		this.pendingDeletions.clear();
 		getDB().clear(getDefaultVersion());
 	}
 
+	/**
+	 * Returns free space to the allocator and shrinks the database where possible, see
+	 * {@link Database#compact(IProgressMonitor)}. Must be called while holding the write lock.
+	 *
+	 * @return the number of bytes that were reclaimed
+	 */
+	public long compact(IProgressMonitor monitor) {
+		// Compaction may truncate the database file, which readers of older versions may still need
+		excludeReaders(monitor);
+		return getDB().compact(monitor);
+	}
+
 	public boolean isValidAddress(long address) {
 		return address > 0 && address < (long) getDB().getChunkCount() * Database.CHUNK_SIZE;
 	}
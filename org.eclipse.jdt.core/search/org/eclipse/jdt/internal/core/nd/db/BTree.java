@@ -26,6 +26,9 @@ import org.eclipse.jdt.internal.core.nd.Nd;
 
 /**
  * Implements B-Tree search structure.
+ * <p>
+ * If the comparator is an {@link IBTreePrefixComparator}, each node also stores the key prefix of each of its records,
+ * which is used to decide most of the comparisons made while searching the node without dereferencing the records.
  */
 public class BTree {
 	private static final int DEFAULT_DEGREE = 8;
@@ -46,6 +49,12 @@ public class BTree {
 	protected final int minRecords;
 	protected final int offsetChildren;
 	protected final int medianRecord;
+	/**
+	 * Size of the key prefixes stored for each record, or 0 if the comparator is not an
+	 * {@link IBTreePrefixComparator}. The prefixes are stored after the children.
+	 */
+	protected final int keyPrefixSize;
+	protected final int offsetKeyPrefixes;
 
 	protected final IBTreeComparator cmp;
 
@@ -74,6 +83,9 @@ public class BTree {
 		this.maxChildren = 2*this.degree;
 		this.offsetChildren = this.maxRecords * Database.INT_SIZE;
 		this.medianRecord = this.degree - 1;
+		this.keyPrefixSize = cmp instanceof IBTreePrefixComparator ? ((IBTreePrefixComparator) cmp).getKeyPrefixSize()
+				: 0;
+		this.offsetKeyPrefixes = this.offsetChildren + this.maxChildren * Database.INT_SIZE;
 	}
 
 	public static ITypeFactory<BTree> getFactory(final IBTreeComparator cmp) {
@@ -129,6 +141,89 @@ public class BTree {
 		return chunk.getRecPtr(node + this.offsetChildren + index * Database.INT_SIZE);
 	}
 
+	/**
+	 * Stores the given record along with its key prefix, which may be null if the b-tree doesn't store prefixes.
+	 */
+	protected final void putRecord(Chunk chunk, long node, int index, long record, byte[] prefix) {
+		putRecord(chunk, node, index, record);
+		if (this.keyPrefixSize != 0) {
+			chunk.putBytes(node + this.offsetKeyPrefixes + index * this.keyPrefixSize, prefix);
+		}
+	}
+
+	/**
+	 * Copies a record along with its key prefix from one slot to another, which may be in the same node.
+	 */
+	protected final void copyRecord(Chunk src, long srcNode, int srcIndex, Chunk dst, long dstNode, int dstIndex) {
+		putRecord(dst, dstNode, dstIndex, getRecord(src, srcNode, srcIndex), readKeyPrefix(src, srcNode, srcIndex));
+	}
+
+	/**
+	 * Returns a copy of the key prefix stored for the given slot, or null if the b-tree doesn't store prefixes.
+	 */
+	protected final byte[] readKeyPrefix(Chunk chunk, long node, int index) {
+		if (this.keyPrefixSize == 0) {
+			return null;
+		}
+		return chunk.getBytes(node + this.offsetKeyPrefixes + index * this.keyPrefixSize, this.keyPrefixSize);
+	}
+
+	/**
+	 * Computes the key prefix of the given record, or returns null if the b-tree doesn't store prefixes. This
+	 * dereferences the record, so it must not be called between fetching a chunk and dirtying it.
+	 */
+	protected final byte[] getKeyPrefix(long record) {
+		if (this.keyPrefixSize == 0) {
+			return null;
+		}
+		byte[] result = new byte[this.keyPrefixSize];
+		((IBTreePrefixComparator) this.cmp).getKeyPrefix(this.nd, record, result);
+		return result;
+	}
+
+	/**
+	 * Compares the key prefix stored for the given slot with the given prefix, as unsigned bytes. Returns 0 if they are
+	 * equal or if the b-tree doesn't store prefixes.
+	 */
+	private int compareKeyPrefix(Chunk chunk, long node, int index, byte[] prefix) {
+		if (prefix == null) {
+			return 0;
+		}
+		long address = node + this.offsetKeyPrefixes + index * this.keyPrefixSize;
+		for (int i = 0; i < this.keyPrefixSize; i++) {
+			int diff = (chunk.getByte(address + i) & 0xFF) - (prefix[i] & 0xFF);
+			if (diff != 0) {
+				return diff;
+			}
+		}
+		return 0;
+	}
+
+	private static int compareKeyPrefixes(byte[] prefix1, byte[] prefix2) {
+		if (prefix1 == null) {
+			return 0;
+		}
+		for (int i = 0; i < prefix1.length; i++) {
+			int diff = (prefix1[i] & 0xFF) - (prefix2[i] & 0xFF);
+			if (diff != 0) {
+				return diff;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Compares the record stored in the given slot with the given record, whose key prefix is given. Only
+	 * dereferences the records if their prefixes are equal.
+	 */
+	private int compareRecord(Chunk chunk, long node, int index, long record, byte[] prefix) {
+		int result = compareKeyPrefix(chunk, node, index, prefix);
+		if (result != 0) {
+			return result;
+		}
+		return this.cmp.compare(this.nd, getRecord(chunk, node, index), record);
+	}
+
 	public void destruct() {
 		long root = getRoot();
 
@@ -171,16 +266,20 @@ public class BTree {
 	public long insert(long record) throws IndexException {
 		long root = getRoot();
 
+		// Computed up front, since it may fetch other chunks
+		byte[] prefix = getKeyPrefix(record);
+
 		// Is this our first time in.
 		if (root == 0) {
-			firstInsert(record);
+			firstInsert(record, prefix);
 			return record;
 		}
 
-		return insert(null, 0, 0, root, record);
+		return insert(null, 0, 0, root, record, prefix);
 	}
 
-	private long insert(Chunk pChunk, long parent, int iParent, long node, long record) throws IndexException {
+	private long insert(Chunk pChunk, long parent, int iParent, long node, long record, byte[] prefix)
+			throws IndexException {
 		Chunk chunk = this.db.getChunk(node);
 
 		// If this node is full (last record isn't null), split it.
@@ -193,10 +292,11 @@ public class BTree {
 				chunk.makeDirty();
 				// Split it.
 				// Create the new node and move the larger records over.
+				byte[] medianPrefix = readKeyPrefix(chunk, node, this.medianRecord);
 				long newnode = allocateNode();
 				Chunk newchunk = this.db.getChunk(newnode);
 				for (int i = 0; i < this.medianRecord; ++i) {
-					putRecord(newchunk, newnode, i, getRecord(chunk, node, this.medianRecord + 1 + i));
+					copyRecord(chunk, node, this.medianRecord + 1 + i, newchunk, newnode, i);
 					putRecord(chunk, node, this.medianRecord + 1 + i, 0);
 					putChild(newchunk, newnode, i, getChild(chunk, node, this.medianRecord + 1 + i));
 					putChild(chunk, node, this.medianRecord + 1 + i, 0);
@@ -218,19 +318,23 @@ public class BTree {
 							// Re-fetch pChunk since we can only dirty the page that was fetched most recently from
 							// the database (anything fetched earlier may have been paged out)
 							pChunk = pChunk.getWritableChunk();
-							putRecord(pChunk, parent, i + 1, r);
+							copyRecord(pChunk, parent, i, pChunk, parent, i + 1);
 							putChild(pChunk, parent, i + 2, getChild(pChunk, parent, i + 1));
 						}
 					}
 				}
 				pChunk = pChunk.getWritableChunk();
-				putRecord(pChunk, parent, iParent, median);
+				putRecord(pChunk, parent, iParent, median, medianPrefix);
 				putChild(pChunk, parent, iParent + 1, newnode);
 
 				putRecord(chunk, node, this.medianRecord, 0);
 
 				// Set the node to the correct one to follow.
-				if (this.cmp.compare(this.nd, record, median) > 0) {
+				int compare = compareKeyPrefixes(prefix, medianPrefix);
+				if (compare == 0) {
+					compare = this.cmp.compare(this.nd, record, median);
+				}
+				if (compare > 0) {
 					node = newnode;
 					chunk = newchunk;
 				}
@@ -250,7 +354,7 @@ public class BTree {
 			if (checkRec == 0) {
 				upper= middle;
 			} else {
-				int compare= this.cmp.compare(this.nd, checkRec, record);
+				int compare= compareRecord(chunk, node, middle, record, prefix);
 				if (compare > 0) {
 					upper= middle;
 				} else if (compare < 0) {
@@ -268,30 +372,136 @@ public class BTree {
 		long child = getChild(chunk, node, i);
 		if (child != 0) {
 			// Visit the children.
-			return insert(chunk, node, i, child, record);
+			return insert(chunk, node, i, child, record, prefix);
 		} else {
 			// We are at the leaf, add us in.
 			// First copy everything after over one.
 			for (int j = this.maxRecords - 2; j >= i; --j) {
 				long r = getRecord(chunk, node, j);
 				if (r != 0)
-					putRecord(chunk, node, j + 1, r);
+					copyRecord(chunk, node, j, chunk, node, j + 1);
 			}
-			putRecord(chunk, node, i, record);
+			putRecord(chunk, node, i, record, prefix);
 			return record;
 		}
 	}
 
-	private void firstInsert(long record) throws IndexException {
+	private void firstInsert(long record, byte[] prefix) throws IndexException {
 		// Create the node and save it as root.
 		long root = allocateNode();
 		this.db.putRecPtr(this.rootPointer, root);
 		// Put the record in the first slot of the node.
-		putRecord(this.db.getChunk(root), root, 0, record);
+		putRecord(this.db.getChunk(root), root, 0, record, prefix);
+	}
+
+	/**
+	 * Adds the given records, which must be sorted in ascending order according to the comparator of this b-tree. If
+	 * the b-tree is empty, it is built bottom-up from nodes that are packed as densely as the b-tree invariants permit.
+	 * This only needs to compare each record with its predecessor and never splits a node, which makes it much faster
+	 * than inserting the records one at a time. Otherwise, the records are simply inserted one at a time.
+	 * <p>
+	 * Just like {@link #insert(long)}, records that compare equal to a record that was already added are skipped.
+	 *
+	 * @param sortedRecords offsets of the records, sorted in ascending order
+	 * @throws IllegalArgumentException if the records aren't sorted
+	 */
+	public void bulkLoad(long[] sortedRecords) throws IndexException {
+		if (getRoot() != 0) {
+			for (long record : sortedRecords) {
+				insert(record);
+			}
+			return;
+		}
+
+		long[] records = new long[sortedRecords.length];
+		int count = 0;
+		for (long record : sortedRecords) {
+			if (count > 0) {
+				int compare = this.cmp.compare(this.nd, records[count - 1], record);
+				if (compare > 0) {
+					throw new IllegalArgumentException("Records passed to bulkLoad are not sorted"); //$NON-NLS-1$
+				} else if (compare == 0) {
+					continue;
+				}
+			}
+			records[count++] = record;
+		}
+		if (count == 0) {
+			return;
+		}
+
+		byte[][] prefixes = new byte[count][];
+		for (int i = 0; i < count; i++) {
+			prefixes[i] = getKeyPrefix(records[i]);
+		}
+
+		int height = 1;
+		while (getCapacity(height) < count) {
+			height++;
+		}
+		long root = buildSubtree(records, prefixes, 0, count, height, true);
+		this.db.putRecPtr(this.rootPointer, root);
+	}
+
+	/**
+	 * Returns the maximum number of records in a subtree of the given height (where 1 is a single leaf node).
+	 */
+	private long getCapacity(int height) {
+		long result = this.maxRecords;
+		for (int i = 1; i < height; i++) {
+			result = result * this.maxChildren + this.maxRecords;
+		}
+		return result;
+	}
+
+	/**
+	 * Builds a subtree of the given height holding the given range of records and returns the address of its root
+	 * node. The records are distributed evenly over as few children as possible, but each node other than the root
+	 * receives at least the minimum number of records, so the result satisfies the same invariants as a b-tree built
+	 * by {@link #insert(long)}.
+	 */
+	private long buildSubtree(long[] records, byte[][] prefixes, int from, int count, int height, boolean isRoot)
+			throws IndexException {
+		long node = allocateNode();
+		if (height == 1) {
+			Chunk chunk = this.db.getChunk(node);
+			for (int i = 0; i < count; i++) {
+				putRecord(chunk, node, i, records[from + i], prefixes[from + i]);
+			}
+			return node;
+		}
+
+		// Each child, along with the record that follows it, occupies this many records at most
+		long childSlots = getCapacity(height - 1) + 1;
+		int numChildren = (int) ((count + childSlots) / childSlots);
+		if (!isRoot) {
+			numChildren = Math.max(numChildren, this.degree);
+		}
+		int slots = count + 1;
+		long[] children = new long[numChildren];
+		int[] keys = new int[numChildren - 1];
+		int next = from;
+		for (int i = 0; i < numChildren; i++) {
+			int childCount = slots / numChildren + (i < slots % numChildren ? 1 : 0) - 1;
+			children[i] = buildSubtree(records, prefixes, next, childCount, height - 1, false);
+			next += childCount;
+			if (i < keys.length) {
+				keys[i] = next++;
+			}
+		}
+
+		Chunk chunk = this.db.getChunk(node);
+		for (int i = 0; i < keys.length; i++) {
+			putRecord(chunk, node, i, records[keys[i]], prefixes[keys[i]]);
+		}
+		for (int i = 0; i < children.length; i++) {
+			putChild(chunk, node, i, children[i]);
+		}
+		return node;
 	}
 
 	private long allocateNode() throws IndexException {
-		return this.db.malloc((2 * this.maxRecords + 1) * Database.INT_SIZE, Database.POOL_BTREE);
+		return this.db.malloc(this.offsetKeyPrefixes + this.maxRecords * this.keyPrefixSize, Database.POOL_BTREE);
 	}
 
 	/**
@@ -310,7 +520,8 @@ public class BTree {
 	 */
 	public void delete(long record) throws IndexException {
 		try {
-			deleteImp(record, getRoot(), DELMODE_NORMAL);
+			byte[] prefix = getKeyPrefix(record);
+			deleteImp(record, prefix, getRoot(), DELMODE_NORMAL);
 		} catch (BTreeKeyNotFoundException e) {
 			// Contract of this method is to NO-OP upon this event.
 		}
@@ -362,6 +573,8 @@ public class BTree {
 	 * This implements a single downward pass (with minor exceptions) deletion
 	 * <p>
 	 * @param key the address of the record to delete
+	 * @param keyPrefix the key prefix of the record to delete, or null if the b-tree doesn't store prefixes or
+	 *        the mode isn't DELMODE_NORMAL
 	 * @param nodeRecord a node that (directly or indirectly) contains the specified key/record
 	 * @param mode one of DELMODE_NORMAL, DELMODE_DELETE_MINIMUM, DELMODE_DELETE_MAXIMUM
 	 * 	where DELMODE_NORMAL: locates the specified key/record using the comparator provided
@@ -370,7 +583,7 @@ public class BTree {
 	 * @return the address of the record removed from the B-tree
 	 * @throws IndexException
 	 */
-	private long deleteImp(long key, long nodeRecord, int mode)
+	private long deleteImp(long key, byte[] keyPrefix, long nodeRecord, int mode)
 	throws IndexException, BTreeKeyNotFoundException {
 		BTNode node = new BTNode(nodeRecord);
 
@@ -408,8 +621,9 @@ public class BTree {
 				if (succ != null && succ.keyCount > this.minRecords) {
 					node.makeWritable();
 					/* Case 2a: Delete key by overwriting it with its successor (which occurs in a leaf node) */
-					long subst = deleteImp(-1, succ.node, DELMODE_DELETE_MINIMUM);
-					putRecord(node.chunk, node.node, keyIndexInNode, subst);
+					long subst = deleteImp(-1, null, succ.node, DELMODE_DELETE_MINIMUM);
+					// The node's chunk is dirty, so it can't have been paged out by computing the prefix
+					putRecord(node.chunk, node.node, keyIndexInNode, subst, getKeyPrefix(subst));
 					return key;
 				}
 
@@ -417,8 +631,8 @@ public class BTree {
 				if (pred != null && pred.keyCount > this.minRecords) {
 					node.makeWritable();
 					/* Case 2b: Delete key by overwriting it with its predecessor (which occurs in a leaf node) */
-					long subst = deleteImp(-1, pred.node, DELMODE_DELETE_MAXIMUM);
-					putRecord(node.chunk, node.node, keyIndexInNode, subst);
+					long subst = deleteImp(-1, null, pred.node, DELMODE_DELETE_MAXIMUM);
+					putRecord(node.chunk, node.node, keyIndexInNode, subst, getKeyPrefix(subst));
 					return key;
 				}
 
@@ -429,7 +643,7 @@ public class BTree {
 					node.makeWritable();
 					pred.makeWritable();
 					mergeNodes(succ, node, keyIndexInNode, pred);
-					return deleteImp(key, pred.node, mode);
+					return deleteImp(key, keyPrefix, pred.node, mode);
 				}
 				return key;
 			} else {
@@ -441,7 +655,7 @@ public class BTree {
 				case DELMODE_NORMAL:
 					subtreeIndex = node.keyCount;
 					for (int i= 0; i < node.keyCount; i++)
-						if (this.cmp.compare(this.nd, getRecord(node.chunk, node.node, i), key)>0) {
+						if (compareRecord(node.chunk, node.node, i, key, keyPrefix) > 0) {
 							subtreeIndex = i;
 							break;
 						}
@@ -458,7 +672,7 @@ public class BTree {
 				}
 
 				if (child.keyCount > this.minRecords) {
-					return deleteImp(key, child.node, mode);
+					return deleteImp(key, keyPrefix, child.node, mode);
 				} else {
 					child.makeWritable();
 					node.makeWritable();
@@ -466,37 +680,33 @@ public class BTree {
 					if (sibR != null && sibR.keyCount > this.minRecords) {
 						sibR.makeWritable();
 						/* Case 3a (i): child will underflow upon deletion, take a key from rightSibling */
-						long rightKey = getRecord(node.chunk, node.node, subtreeIndex);
-						long leftmostRightSiblingKey = getRecord(sibR.chunk, sibR.node, 0);
-						append(child, rightKey, getChild(sibR.chunk, sibR.node, 0));
+						append(child, node, subtreeIndex, getChild(sibR.chunk, sibR.node, 0));
+						copyRecord(sibR.chunk, sibR.node, 0, node.chunk, node.node, subtreeIndex);
 						nodeContentDelete(sibR, 0, 1);
-						putRecord(node.chunk, node.node, subtreeIndex, leftmostRightSiblingKey);
-						return deleteImp(key, child.node, mode);
+						return deleteImp(key, keyPrefix, child.node, mode);
 					}
 
 					BTNode sibL = node.getChild(subtreeIndex - 1);
 					if (sibL != null && sibL.keyCount > this.minRecords) {
 						sibL.makeWritable();
 						/* Case 3a (ii): child will underflow upon deletion, take a key from leftSibling */
-						long leftKey = getRecord(node.chunk, node.node, subtreeIndex - 1);
-						prepend(child, leftKey, getChild(sibL.chunk, sibL.node, sibL.keyCount));
-						long rightmostLeftSiblingKey = getRecord(sibL.chunk, sibL.node, sibL.keyCount - 1);
+						prepend(child, node, subtreeIndex - 1, getChild(sibL.chunk, sibL.node, sibL.keyCount));
+						copyRecord(sibL.chunk, sibL.node, sibL.keyCount - 1, node.chunk, node.node, subtreeIndex - 1);
 						putRecord(sibL.chunk, sibL.node, sibL.keyCount - 1, 0);
 						putChild(sibL.chunk, sibL.node, sibL.keyCount, 0);
-						putRecord(node.chunk, node.node, subtreeIndex - 1, rightmostLeftSiblingKey);
-						return deleteImp(key, child.node, mode);
+						return deleteImp(key, keyPrefix, child.node, mode);
 					}
 
 					/* Case 3b (i,ii): leftSibling, child, rightSibling all have minimum number of keys */
 
 					if (sibL != null) { // merge child into leftSibling
 						mergeNodes(child, node, subtreeIndex - 1, sibL);
-						return deleteImp(key, sibL.node, mode);
+						return deleteImp(key, keyPrefix, sibL.node, mode);
 					}
 
 					if (sibR != null) { // merge rightSibling into child
 						mergeNodes(sibR, node, subtreeIndex, child);
-						return deleteImp(key, child.node, mode);
+						return deleteImp(key, keyPrefix, child.node, mode);
 					}
 
 					throw new BTreeKeyNotFoundException(
@@ -519,12 +729,17 @@ public class BTree {
 	public void mergeNodes(BTNode src, BTNode keyProvider, int kIndex, BTNode dst)
 	throws IndexException {
 		nodeContentCopy(src, 0, dst, dst.keyCount + 1, src.keyCount + 1);
-		long midKey = getRecord(keyProvider.chunk, keyProvider.node, kIndex);
-		putRecord(dst.chunk, dst.node, dst.keyCount, midKey);
+		copyRecord(keyProvider.chunk, keyProvider.node, kIndex, dst.chunk, dst.node, dst.keyCount);
 		long keySucc = kIndex + 1 == this.maxRecords ? 0 : getRecord(keyProvider.chunk, keyProvider.node, kIndex + 1);
+		byte[] keySuccPrefix = kIndex + 1 == this.maxRecords ? null
+				: readKeyPrefix(keyProvider.chunk, keyProvider.node, kIndex + 1);
 		this.db.free(getChild(keyProvider.chunk, keyProvider.node,  kIndex + 1), Database.POOL_BTREE);
 		nodeContentDelete(keyProvider, kIndex + 1, 1);
-		putRecord(keyProvider.chunk, keyProvider.node, kIndex, keySucc);
+		if (keySuccPrefix != null) {
+			putRecord(keyProvider.chunk, keyProvider.node, kIndex, keySucc, keySuccPrefix);
+		} else {
+			putRecord(keyProvider.chunk, keyProvider.node, kIndex, keySucc);
+		}
 		if (kIndex == 0 && keySucc == 0) {
 			/*
 			 * The root node is excused from the property that a node must have a least MIN keys
@@ -543,24 +758,26 @@ public class BTree {
 	 * Insert the key and (its predecessor) child at the left side of the specified node. Bounds checking
 	 * is not performed.
 	 * @param node the node to prepend to
-	 * @param key the new leftmost (least) key
+	 * @param keyProvider the node containing the new leftmost (least) key
+	 * @param kIndex the index of the new leftmost key in keyProvider
 	 * @param child the new leftmost (least) subtree root
 	 */
-	private void prepend(BTNode node, long key, long child) {
+	private void prepend(BTNode node, BTNode keyProvider, int kIndex, long child) {
 		nodeContentCopy(node, 0, node, 1, node.keyCount + 1);
-		putRecord(node.chunk, node.node, 0, key);
+		copyRecord(keyProvider.chunk, keyProvider.node, kIndex, node.chunk, node.node, 0);
 		putChild(node.chunk, node.node, 0, child);
 	}
 
 	/**
 	 * Insert the key and (its successor) child at the right side of the specified node. Bounds
 	 * checking is not performed.
-	 * @param node
-	 * @param key
-	 * @param child
+	 * @param node the node to append to
+	 * @param keyProvider the node containing the new rightmost (greatest) key
+	 * @param kIndex the index of the new rightmost key in keyProvider
+	 * @param child the new rightmost (greatest) subtree root
 	 */
-	private void append(BTNode node, long key, long child) {
-		putRecord(node.chunk, node.node, node.keyCount, key);
+	private void append(BTNode node, BTNode keyProvider, int kIndex, long child) {
+		copyRecord(keyProvider.chunk, keyProvider.node, kIndex, node.chunk, node.node, node.keyCount);
 		putChild(node.chunk, node.node, node.keyCount + 1, child);
 	}
 
@@ -586,8 +803,7 @@ public class BTree {
 				putChild(dst.chunk, dst.node, dstIndex, srcChild);
 
 				if (srcIndex < src.keyCount) {
-					long srcKey = getRecord(src.chunk, src.node, srcIndex);
-					putRecord(dst.chunk, dst.node, dstIndex, srcKey);
+					copyRecord(src.chunk, src.node, srcIndex, dst.chunk, dst.node, dstIndex);
 				}
 			}
 		}
@@ -607,7 +823,11 @@ public class BTree {
 			long newKey = (index + length) < node.keyCount ? getRecord(node.chunk, node.node, index + length) : 0;
 			long newChild = (index + length) < node.keyCount + 1 ? getChild(node.chunk, node.node, index + length) : 0;
 			if (index < this.maxRecords) {
-				putRecord(node.chunk, node.node, index, newKey);
+				if (newKey != 0) {
+					copyRecord(node.chunk, node.node, index + length, node.chunk, node.node, index);
+				} else {
+					putRecord(node.chunk, node.node, index, 0);
+				}
 			}
 			if (index < this.maxChildren) {
 				putChild(node.chunk, node.node, index, newChild);
@@ -622,10 +842,29 @@ public class BTree {
 	 * @param visitor
 	 */
 	public boolean accept(IBTreeVisitor visitor) throws IndexException {
-		return accept(this.db.getRecPtr(this.rootPointer), visitor);
+		byte[] prefix = null;
+		if (this.keyPrefixSize != 0 && visitor instanceof IBTreePrefixVisitor) {
+			prefix = new byte[this.keyPrefixSize];
+		}
+		return accept(this.db.getRecPtr(this.rootPointer), visitor, prefix);
+	}
+
+	/**
+	 * Compares the record in the given slot using the visitor, trying the stored key prefix first if the visitor
+	 * supports it. The prefix array is used as a scratch buffer, or is null if the prefixes can't be used.
+	 */
+	private int compare(IBTreeVisitor visitor, Chunk chunk, long node, int index, byte[] prefix) {
+		if (prefix != null) {
+			chunk.get(node + this.offsetKeyPrefixes + index * this.keyPrefixSize, prefix);
+			int result = ((IBTreePrefixVisitor) visitor).compareKeyPrefix(prefix);
+			if (result != IBTreePrefixVisitor.UNKNOWN) {
+				return result;
+			}
+		}
+		return visitor.compare(getRecord(chunk, node, index));
 	}
 
-	private boolean accept(long node, IBTreeVisitor visitor) throws IndexException {
+	private boolean accept(long node, IBTreeVisitor visitor, byte[] prefix) throws IndexException {
 		// If found is false, we are still in search mode.
 		// Once found is true visit everything.
 		// Return false when ready to quit.
@@ -652,7 +891,7 @@ public class BTree {
 				if (checkRec == 0) {
 					upper= middle;
 				} else {
-					int compare= visitor.compare(checkRec);
+					int compare= compare(visitor, chunk, node, middle, prefix);
 					if (compare >= 0) {
 						upper= middle;
 					} else {
@@ -668,18 +907,18 @@ public class BTree {
 				if (record == 0)
 					break;
 
-				int compare= visitor.compare(record);
+				int compare= compare(visitor, chunk, node, i, prefix);
 				if (compare > 0) {
 					// Start point is to the left.
-					return accept(getChild(chunk, node, i), visitor);
+					return accept(getChild(chunk, node, i), visitor, prefix);
 				}  else if (compare == 0) {
-					if (!accept(getChild(chunk, node, i), visitor))
+					if (!accept(getChild(chunk, node, i), visitor, prefix))
 						return false;
 					if (!visitor.visit(record))
 						return false;
 				}
 			}
-			return accept(getChild(chunk, node, i), visitor);
+			return accept(getChild(chunk, node, i), visitor, prefix);
 		} finally {
 			if (visitor instanceof IBTreeVisitor2) {
 				((IBTreeVisitor2) visitor).postNode(node);
@@ -764,6 +1003,19 @@ public class BTree {
 				}
 			}
 
+			// Check: Stored key prefixes match the records
+			if (BTree.this.keyPrefixSize != 0) {
+				for (int i= 0; i < keyCount; i++) {
+					Chunk chunk = BTree.this.db.getChunk(node);
+					long record = getRecord(chunk, node, i);
+					if (record != 0 && compareKeyPrefixes(readKeyPrefix(chunk, node, i), getKeyPrefix(record)) != 0) {
+						this.valid = false;
+						this.msg += MessageFormat.format("[{0} wrong key prefix for record {1}]", //$NON-NLS-1$
+								new Object[] { new Long(node), new Long(record) });
+					}
+				}
+			}
+
 			// Check: Key number constrains child numbers
 			if (childCount != 0 && childCount != keyCount + 1) {
 				this.valid = false;
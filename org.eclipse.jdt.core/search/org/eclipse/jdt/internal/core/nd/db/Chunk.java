@@ -18,12 +18,21 @@ package org.eclipse.jdt.internal.core.nd.db;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 /**
  * Caches the content of a piece of the database.
+ * <p>
+ * The content is normally held in a private heap buffer. When the owning {@link Database} uses memory-mapped I/O, a
+ * clean chunk may instead be a read-only view onto the mapped file. Such a chunk copies its content into a private
+ * heap buffer the first time it is dirtied, so that modifications only reach the file when the chunk is flushed.
+ * <p>
+ * When the database uses snapshot reads, the chunks that readers can see are never modified. A write transaction
+ * instead works on views created with {@link #Chunk(Chunk)}, which borrow the content of the committed chunk in the
+ * same way until they are first dirtied.
  */
 final class Chunk {
-	final private byte[] fBuffer= new byte[Database.CHUNK_SIZE];
+	private ByteBuffer fBuffer;
 
 	final Database fDatabase;
 	/**
@@ -38,23 +47,77 @@ final class Chunk {
 	boolean fDirty;
 	/**
 	 * True iff this {@link Chunk} was accessed since the last time it was tested for eviction in the
-	 * {@link ChunkCache}. Protected by synchronizing on the {@link ChunkCache} itself.
+	 * {@link ChunkCache}. May be set without holding any lock. Only cleared while holding the cache monitor for this
+	 * chunk.
 	 */
-	boolean fCacheHitFlag;
+	volatile boolean fCacheHitFlag;
 	/**
-	 * Holds the index into the {@link ChunkCache}'s page table, or -1 if this {@link Chunk} isn't present in the page
-	 * table. Protected by synchronizing on the {@link ChunkCache} itself.
+	 * Holds the index into the page table of this chunk's {@link ChunkCache} segment, or -1 if this {@link Chunk}
+	 * isn't present in the page table. Only modified while holding the cache monitor for this chunk, but may be read
+	 * without it.
 	 */
-	int fCacheIndex= -1;
+	volatile int fCacheIndex= -1;
+	/**
+	 * Set by scan-resistant page tables for chunks that have proven to be reused, see
+	 * {@link ChunkCache.EvictionPolicy#SCAN_RESISTANT}. Only accessed while holding the cache monitor for this chunk.
+	 */
+	boolean fCacheHot;
+	/**
+	 * For a view created by a write transaction, holds the committed chunk the view was created from until the
+	 * transaction is committed. Null for all other chunks.
+	 */
+	Chunk fBase;
 
 	Chunk(Database db, int sequenceNumber) {
 		this.fDatabase= db;
 		this.fSequenceNumber= sequenceNumber;
+		this.fBuffer= ByteBuffer.allocate(Database.CHUNK_SIZE);
+	}
+
+	/**
+	 * Creates a view of the given committed chunk for the current write transaction. The view shares the content of
+	 * the base chunk until it is first dirtied.
+	 */
+	Chunk(Chunk base) {
+		this.fDatabase= base.fDatabase;
+		this.fSequenceNumber= base.fSequenceNumber;
+		this.fBuffer= base.fBuffer.asReadOnlyBuffer();
+		this.fBase= base;
+	}
+
+	/**
+	 * Returns a new chunk with a private copy of the content of this chunk.
+	 */
+	Chunk createCopy() {
+		Chunk result = new Chunk(this.fDatabase, this.fSequenceNumber);
+		ByteBuffer source = this.fBuffer.duplicate();
+		source.clear();
+		result.fBuffer.put(source);
+		return result;
+	}
+
+	/**
+	 * Returns true iff the content of this chunk is borrowed, either from a memory-mapped region of the database file
+	 * or from the base chunk of a view.
+	 */
+	boolean isShared() {
+		return !this.fBuffer.hasArray();
+	}
+
+	/**
+	 * Replaces borrowed content with a private copy of the same content.
+	 */
+	private void detachBuffer() {
+		ByteBuffer copy = ByteBuffer.allocate(Database.CHUNK_SIZE);
+		ByteBuffer source = this.fBuffer.duplicate();
+		source.clear();
+		copy.put(source);
+		this.fBuffer = copy;
 	}
 
 	public void makeDirty() {
 		if (this.fSequenceNumber >= Database.NUM_HEADER_CHUNKS) {
-			Chunk chunk = this.fDatabase.fChunks[this.fSequenceNumber];
+			Chunk chunk = this.fDatabase.getWritableCopy(this.fSequenceNumber);
 			if (chunk != this) {
 				throw new IllegalStateException("CHUNK " + this.fSequenceNumber + ": found two copies. Copy 1: " //$NON-NLS-1$ //$NON-NLS-2$
 						+ System.identityHashCode(this) + ", Copy 2: " + System.identityHashCode(chunk)); //$NON-NLS-1$
@@ -70,6 +133,9 @@ final class Chunk {
 				throw new IllegalStateException("CHUNK " + this.fSequenceNumber //$NON-NLS-1$
 						+ " dirtied out of order: Only the most-recently-fetched chunk is allowed to be dirtied"); //$NON-NLS-1$
 			}
+			if (isShared()) {
+				detachBuffer();
+			}
 			this.fDirty = true;
 			this.fDatabase.chunkDirtied(this);
 		}
@@ -77,8 +143,15 @@ final class Chunk {
 
 	void read() throws IndexException {
 		try {
-			final ByteBuffer buf= ByteBuffer.wrap(this.fBuffer);
-			this.fDatabase.read(buf, (long) this.fSequenceNumber * Database.CHUNK_SIZE);
+			final long position = (long) this.fSequenceNumber * Database.CHUNK_SIZE;
+			ByteBuffer mapped = this.fDatabase.getMappedChunk(position);
+			if (mapped != null) {
+				this.fBuffer = mapped;
+				return;
+			}
+			final ByteBuffer buf= this.fBuffer.duplicate();
+			buf.clear();
+			this.fDatabase.readChunk(buf, this.fSequenceNumber);
 		} catch (IOException e) {
 			throw new IndexException(new DBStatus(e));
 		}
@@ -95,7 +168,8 @@ final class Chunk {
 		}
 		boolean wasCanceled = false;
 		try {
-			final ByteBuffer buf= ByteBuffer.wrap(this.fBuffer);
+			final ByteBuffer buf= this.fBuffer.duplicate();
+			buf.clear();
 			wasCanceled = this.fDatabase.write(buf, (long) this.fSequenceNumber * Database.CHUNK_SIZE);
 		} catch (IOException e) {
 			throw new IndexException(new DBStatus(e));
@@ -111,39 +185,34 @@ final class Chunk {
 
 	public void putByte(final long offset, final byte value) {
 		makeDirty();
-		this.fBuffer[recPtrToIndex(offset)]= value;
+		this.fBuffer.put(recPtrToIndex(offset), value);
 		recordWrite(offset, 1);
 	}
 
 	public byte getByte(final long offset) {
-		return this.fBuffer[recPtrToIndex(offset)];
+		return this.fBuffer.get(recPtrToIndex(offset));
 	}
 
 	/**
 	 * Returns a copy of the entire chunk.
 	 */
 	public byte[] getBytes() {
-		final byte[] bytes = new byte[this.fBuffer.length];
-		System.arraycopy(this.fBuffer, 0, bytes, 0, this.fBuffer.length);
-		return bytes;
+		return getBytes(0, Database.CHUNK_SIZE);
 	}
 
 	public byte[] getBytes(final long offset, final int length) {
 		final byte[] bytes = new byte[length];
-		System.arraycopy(this.fBuffer, recPtrToIndex(offset), bytes, 0, length);
+		get(offset, bytes, 0, length);
 		return bytes;
 	}
 
 	public void putBytes(final long offset, final byte[] bytes) {
-		makeDirty();
-		System.arraycopy(bytes, 0, this.fBuffer, recPtrToIndex(offset), bytes.length);
-		recordWrite(offset, bytes.length);
+		put(offset, bytes, 0, bytes.length);
 	}
 
 	public void putInt(final long offset, final int value) {
 		makeDirty();
-		int idx= recPtrToIndex(offset);
-		putInt(value, this.fBuffer, idx);
+		this.fBuffer.putInt(recPtrToIndex(offset), value);
 		recordWrite(offset, 4);
 	}
 
@@ -155,7 +224,7 @@ final class Chunk {
 	}
 
 	public int getInt(final long offset) {
-		return getInt(this.fBuffer, recPtrToIndex(offset));
+		return this.fBuffer.getInt(recPtrToIndex(offset));
 	}
 
 	static final int getInt(final byte[] buffer, int idx) {
@@ -198,8 +267,8 @@ final class Chunk {
 	 */
 	public void putRecPtr(final long offset, final long value) {
 		makeDirty();
-		int idx = recPtrToIndex(offset);
-		Database.putRecPtr(value, this.fBuffer, idx);
+		final int denseValue = value == 0 ? 0 : compressFreeRecPtr(value - Database.BLOCK_HEADER_SIZE);
+		this.fBuffer.putInt(recPtrToIndex(offset), denseValue);
 		recordWrite(offset, 4);
 	}
 
@@ -209,43 +278,37 @@ final class Chunk {
 	 */
 	public void putFreeRecPtr(final long offset, final long value) {
 		makeDirty();
-		int idx = recPtrToIndex(offset);
-		putInt(compressFreeRecPtr(value), this.fBuffer, idx);
+		this.fBuffer.putInt(recPtrToIndex(offset), compressFreeRecPtr(value));
 		recordWrite(offset, 4);
 	}
 
 	public long getRecPtr(final long offset) {
-		final int idx = recPtrToIndex(offset);
-		return Database.getRecPtr(this.fBuffer, idx);
+		long address = getFreeRecPtr(offset);
+		return address != 0 ? (address + Database.BLOCK_HEADER_SIZE) : address;
 	}
 
 	public long getFreeRecPtr(final long offset) {
-		final int idx = recPtrToIndex(offset);
-		int value = getInt(this.fBuffer, idx);
+		int value = this.fBuffer.getInt(recPtrToIndex(offset));
 		return expandToFreeRecPtr(value);
 	}
 
 	public void put3ByteUnsignedInt(final long offset, final int value) {
 		makeDirty();
 		int idx= recPtrToIndex(offset);
-		this.fBuffer[idx]= (byte) (value >> 16);
-		this.fBuffer[++idx]= (byte) (value >> 8);
-		this.fBuffer[++idx]= (byte) (value);
+		this.fBuffer.put(idx, (byte) (value >> 16));
+		this.fBuffer.putShort(idx + 1, (short) value);
 		recordWrite(offset, 3);
 	}
 
 	public int get3ByteUnsignedInt(final long offset) {
 		int idx= recPtrToIndex(offset);
-		return ((this.fBuffer[idx] & 0xff) << 16) |
-				((this.fBuffer[++idx] & 0xff) <<  8) |
-				((this.fBuffer[++idx] & 0xff) <<  0);
+		return ((this.fBuffer.get(idx) & 0xff) << 16) |
+				(this.fBuffer.getShort(idx + 1) & 0xffff);
 	}
 
 	public void putShort(final long offset, final short value) {
 		makeDirty();
-		int idx= recPtrToIndex(offset);
-		this.fBuffer[idx]= (byte) (value >> 8);
-		this.fBuffer[++idx]= (byte) (value);
+		this.fBuffer.putShort(recPtrToIndex(offset), value);
 		recordWrite(offset, 2);
 	}
 
@@ -254,20 +317,11 @@ final class Chunk {
 	}
 
 	public short getShort(final long offset) {
-		int idx= recPtrToIndex(offset);
-		return (short) (((this.fBuffer[idx] << 8) | (this.fBuffer[++idx] & 0xff)));
+		return this.fBuffer.getShort(recPtrToIndex(offset));
 	}
 
 	public long getLong(final long offset) {
-		int idx= recPtrToIndex(offset);
-		return ((((long) this.fBuffer[idx] & 0xff) << 56) |
-				(((long) this.fBuffer[++idx] & 0xff) << 48) |
-				(((long) this.fBuffer[++idx] & 0xff) << 40) |
-				(((long) this.fBuffer[++idx] & 0xff) << 32) |
-				(((long) this.fBuffer[++idx] & 0xff) << 24) |
-				(((long) this.fBuffer[++idx] & 0xff) << 16) |
-				(((long) this.fBuffer[++idx] & 0xff) <<  8) |
-				(((long) this.fBuffer[++idx] & 0xff) <<  0));
+		return this.fBuffer.getLong(recPtrToIndex(offset));
 	}
 
 	public double getDouble(long offset) {
@@ -280,46 +334,33 @@ final class Chunk {
 
 	public void putLong(final long offset, final long value) {
 		makeDirty();
-		int idx= recPtrToIndex(offset);
-
-		this.fBuffer[idx]=   (byte) (value >> 56);
-		this.fBuffer[++idx]= (byte) (value >> 48);
-		this.fBuffer[++idx]= (byte) (value >> 40);
-		this.fBuffer[++idx]= (byte) (value >> 32);
-		this.fBuffer[++idx]= (byte) (value >> 24);
-		this.fBuffer[++idx]= (byte) (value >> 16);
-		this.fBuffer[++idx]= (byte) (value >> 8);
-		this.fBuffer[++idx]= (byte) (value);
+		this.fBuffer.putLong(recPtrToIndex(offset), value);
 		recordWrite(offset, 8);
 	}
 
 	public void putChar(final long offset, final char value) {
 		makeDirty();
-		int idx= recPtrToIndex(offset);
-		this.fBuffer[idx]= (byte) (value >> 8);
-		this.fBuffer[++idx]= (byte) (value);
+		this.fBuffer.putChar(recPtrToIndex(offset), value);
 		recordWrite(offset, 2);
 	}
 
 	public void putChars(final long offset, char[] chars, int start, int len) {
 		makeDirty();
-		int idx= recPtrToIndex(offset)-1;
+		int idx= recPtrToIndex(offset);
 		final int end= start + len;
 		for (int i = start; i < end; i++) {
-			char value= chars[i];
-			this.fBuffer[++idx]= (byte) (value >> 8);
-			this.fBuffer[++idx]= (byte) (value);
+			this.fBuffer.putChar(idx, chars[i]);
+			idx += 2;
 		}
 		recordWrite(offset, len * 2);
 	}
 
 	public void putCharsAsBytes(final long offset, char[] chars, int start, int len) {
 		makeDirty();
-		int idx= recPtrToIndex(offset)-1;
+		int idx= recPtrToIndex(offset);
 		final int end= start + len;
 		for (int i = start; i < end; i++) {
-			char value= chars[i];
-			this.fBuffer[++idx]= (byte) (value);
+			this.fBuffer.put(idx++, (byte) chars[i]);
 		}
 		recordWrite(offset, len);
 	}
@@ -333,12 +374,12 @@ final class Chunk {
 	}
 
 	public char getChar(final long offset) {
-		int idx= recPtrToIndex(offset);
-		return (char) (((this.fBuffer[idx] << 8) | (this.fBuffer[++idx] & 0xff)));
+		return this.fBuffer.getChar(recPtrToIndex(offset));
 	}
 
 	public void getChars(final long offset, final char[] result, int start, int len) {
-		final ByteBuffer buf= ByteBuffer.wrap(this.fBuffer);
+		final ByteBuffer buf= this.fBuffer.duplicate();
+		buf.clear();
 		buf.position(recPtrToIndex(offset));
 		buf.asCharBuffer().get(result, start, len);
 	}
@@ -346,7 +387,7 @@ final class Chunk {
 	public void getCharsFromBytes(final long offset, final char[] result, int start, int len) {
 		final int pos = recPtrToIndex(offset);
 		for (int i = 0; i < len; i++) {
-			result[start + i] =  (char) (this.fBuffer[pos + i] & 0xff);
+			result[start + i] =  (char) (this.fBuffer.get(pos + i) & 0xff);
 		}
 	}
 
@@ -354,13 +395,11 @@ final class Chunk {
 		makeDirty();
 		int idx = recPtrToIndex(offset);
 		final int end = idx + length;
-		if (end > this.fBuffer.length) {
+		if (end > Database.CHUNK_SIZE) {
 			throw new IndexException("Attempting to clear beyond end of chunk. Chunk = " + this.fSequenceNumber //$NON-NLS-1$
 					+ ", offset = " + offset + ", length = " + length); //$NON-NLS-1$//$NON-NLS-2$
 		}
-		for (; idx < end; idx++) {
-			this.fBuffer[idx] = 0;
-		}
+		Arrays.fill(this.fBuffer.array(), idx, end, (byte) 0);
 		recordWrite(offset, length);
 	}
 
@@ -371,7 +410,7 @@ final class Chunk {
 	void put(final long offset, final byte[] data, int dataPos, final int len) {
 		makeDirty();
 		int idx = recPtrToIndex(offset);
-		System.arraycopy(data, dataPos, this.fBuffer, idx, len);
+		System.arraycopy(data, dataPos, this.fBuffer.array(), idx, len);
 		recordWrite(offset, len);
 	}
 
@@ -381,7 +420,14 @@ final class Chunk {
 
 	public void get(final long offset, byte[] data, int dataPos, int len) {
 		int idx = recPtrToIndex(offset);
-		System.arraycopy(this.fBuffer, idx, data, dataPos, len);
+		if (this.fBuffer.hasArray()) {
+			System.arraycopy(this.fBuffer.array(), idx, data, dataPos, len);
+		} else {
+			final ByteBuffer buf= this.fBuffer.duplicate();
+			buf.clear();
+			buf.position(idx);
+			buf.get(data, dataPos, len);
+		}
 	}
 
 	/**
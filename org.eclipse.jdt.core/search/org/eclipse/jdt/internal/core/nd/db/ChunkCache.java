@@ -17,31 +17,112 @@ import org.eclipse.core.runtime.preferences.IEclipsePreferences;
 import org.eclipse.core.runtime.preferences.InstanceScope;
 import org.eclipse.jdt.core.JavaCore;
 
+/**
+ * Holds the {@link Chunk}s that are kept in memory. The page table is split into a number of independent segments,
+ * each of which is protected by its own monitor. A chunk always lives in the same segment, which is selected from its
+ * database and sequence number, so threads reading different chunks rarely contend for the same monitor. The chunks
+ * to evict from a full segment are chosen by the cache's {@link EvictionPolicy}.
+ */
 public final class ChunkCache {
 	private static ChunkCache sSharedInstance;
 
-	private Chunk[] fPageTable;
-	private boolean fTableIsFull;
-	private int fPointer;
+	/**
+	 * Minimum number of page table entries per segment. Small caches use fewer segments rather than tiny ones.
+	 */
+	private static final int MIN_SEGMENT_LENGTH = 64;
+
+	private final Segment[] fSegments;
+	private final int fSegmentMask;
+	private volatile EvictionPolicy fEvictionPolicy;
 
 	public static final String CHUNK_CACHE_SIZE_MB = "chunkCacheSizeMb"; //$NON-NLS-1$
 	public static final String CHUNK_CACHE_SIZE_PERCENT = "chunkCacheSizePercent"; //$NON-NLS-1$
+	/**
+	 * Preference holding the {@link EvictionPolicy#getId() id} of the eviction policy used by the shared cache.
+	 */
+	public static final String CHUNK_CACHE_EVICTION_POLICY = "chunkCacheEvictionPolicy"; //$NON-NLS-1$
 
 	public static final double CHUNK_CACHE_SIZE_MB_DEFAULT = 128.0;
 	public static final double CHUNK_CACHE_SIZE_PERCENT_DEFAULT = 5.0;
+	public static final String CHUNK_CACHE_EVICTION_POLICY_DEFAULT = EvictionPolicy.CLOCK.getId();
+
+	/**
+	 * Strategies for choosing the chunks to evict when the cache is full.
+	 */
+	public enum EvictionPolicy {
+		/**
+		 * Evicts the first chunk that hasn't been accessed since the last time the CLOCK hand passed it. Cheap and
+		 * adequate for random access, but a single sequential pass over a database larger than the cache, such as a
+		 * rescan or garbage collection, replaces every chunk in the cache.
+		 */
+		CLOCK("clock") { //$NON-NLS-1$
+			@Override
+			PageTable createPageTable(int length) {
+				return new ClockPageTable(length);
+			}
+		},
+		/**
+		 * Admits newly read chunks into a small probationary region and only retains chunks for longer if they are read
+		 * again after having been evicted from it, so sequential passes over the database don't displace the chunks
+		 * used by interactive lookups.
+		 */
+		SCAN_RESISTANT("scanResistant") { //$NON-NLS-1$
+			@Override
+			PageTable createPageTable(int length) {
+				return new ScanResistantPageTable(length);
+			}
+		};
+
+		private final String fId;
+
+		private EvictionPolicy(String id) {
+			this.fId = id;
+		}
+
+		/**
+		 * Returns the value used for this policy in the {@link ChunkCache#CHUNK_CACHE_EVICTION_POLICY} preference.
+		 */
+		public String getId() {
+			return this.fId;
+		}
+
+		abstract PageTable createPageTable(int length);
+
+		/**
+		 * Returns the policy with the given id (ignoring case), or the given default if there is no such policy.
+		 */
+		public static EvictionPolicy fromId(String id, EvictionPolicy defaultPolicy) {
+			if (id != null) {
+				for (EvictionPolicy next : values()) {
+					if (next.fId.equalsIgnoreCase(id.trim())) {
+						return next;
+					}
+				}
+			}
+			return defaultPolicy;
+		}
+	}
 
 	static {
 		IEclipsePreferences node = InstanceScope.INSTANCE.getNode(JavaCore.PLUGIN_ID);
 		long chunkSize = getChunkCacheSize(node);
-		sSharedInstance= new ChunkCache(chunkSize);
+		sSharedInstance= new ChunkCache(chunkSize, Runtime.getRuntime().availableProcessors() * 4,
+				getEvictionPolicy(node));
 		node.addPreferenceChangeListener(event -> {
 			String key = event.getKey();
 			if (key.equals(CHUNK_CACHE_SIZE_MB) | key.equals(CHUNK_CACHE_SIZE_PERCENT)) {
 				sSharedInstance.setMaxSize(getChunkCacheSize(node));
+			} else if (key.equals(CHUNK_CACHE_EVICTION_POLICY)) {
+				sSharedInstance.setEvictionPolicy(getEvictionPolicy(node));
 			}
 		});
 	}
 
+	private static EvictionPolicy getEvictionPolicy(IEclipsePreferences node) {
+		return EvictionPolicy.fromId(node.get(CHUNK_CACHE_EVICTION_POLICY, CHUNK_CACHE_EVICTION_POLICY_DEFAULT),
+				EvictionPolicy.CLOCK);
+	}
+
 	private static long getChunkCacheSize(IEclipsePreferences node) {
 		double maxSizeMb = node.getDouble(CHUNK_CACHE_SIZE_MB, CHUNK_CACHE_SIZE_MB_DEFAULT);
 		double maxSizePercent = node.getDouble(CHUNK_CACHE_SIZE_PERCENT, CHUNK_CACHE_SIZE_PERCENT_DEFAULT);
@@ -62,79 +143,86 @@ public final class ChunkCache {
 	}
 
 	public ChunkCache(long maxSize) {
-		this.fPageTable= new Chunk[computeLength(maxSize)];
+		this(maxSize, Runtime.getRuntime().availableProcessors() * 4);
 	}
 
-	public synchronized void add(Chunk chunk) {
-		if (chunk.fCacheIndex >= 0) {
-			chunk.fCacheHitFlag= true;
-			return;
+	public ChunkCache(long maxSize, int concurrencyLevel) {
+		this(maxSize, concurrencyLevel, EvictionPolicy.CLOCK);
+	}
+
+	/**
+	 * Creates a new cache holding chunks with a maximum total memory of <code>maxSize</code>.
+	 *
+	 * @param maxSize the total size of the chunks in bytes
+	 * @param concurrencyLevel the desired number of independently locked segments. The actual number is rounded up to
+	 * a power of two and reduced if the cache is too small to give each segment a reasonable size.
+	 * @param evictionPolicy the policy used to choose the chunks to evict when the cache is full
+	 */
+	public ChunkCache(long maxSize, int concurrencyLevel, EvictionPolicy evictionPolicy) {
+		int length = computeLength(maxSize);
+		int numSegments = 1;
+		while (numSegments < concurrencyLevel && length / (numSegments * 2) >= MIN_SEGMENT_LENGTH) {
+			numSegments *= 2;
 		}
-		if (this.fTableIsFull) {
-			evictChunk();
-			chunk.fCacheIndex= this.fPointer;
-			this.fPageTable[this.fPointer]= chunk;
-		} else {
-			chunk.fCacheIndex= this.fPointer;
-			this.fPageTable[this.fPointer]= chunk;
-
-			this.fPointer++;
-			if (this.fPointer == this.fPageTable.length) {
-				this.fPointer= 0;
-				this.fTableIsFull= true;
-			}
+		this.fSegments = new Segment[numSegments];
+		this.fSegmentMask = numSegments - 1;
+		this.fEvictionPolicy = evictionPolicy;
+		for (int i = 0; i < numSegments; i++) {
+			this.fSegments[i] = new Segment(evictionPolicy.createPageTable(getSegmentLength(length, i)));
 		}
 	}
 
 	/**
-	 * Evicts a chunk from the page table and the chunk table.
-	 * After this method returns, {@link #fPointer}  will contain
-	 * the index of the evicted chunk within the page table.
+	 * Returns the number of page table entries assigned to the given segment when the whole table has the given
+	 * length.
 	 */
-	private void evictChunk() {
-		/*
-		 * Use the CLOCK algorithm to determine which chunk to evict.
-		 * i.e., if the chunk in the current slot of the page table has been
-		 * recently referenced (i.e. the reference flag is set), unset the
-		 * reference flag and move to the next slot.  Otherwise, evict the
-		 * chunk in the current slot.
-		 */
-		while (true) {
-			Chunk chunk = this.fPageTable[this.fPointer];
-			if (chunk.fCacheHitFlag) {
-				chunk.fCacheHitFlag = false;
-				this.fPointer = (this.fPointer + 1) % this.fPageTable.length;
-			} else {
-				chunk.fCacheIndex = -1;
-				chunk.fDatabase.checkIfChunkReleased(chunk);
-				this.fPageTable[this.fPointer] = null;
-				return;
-			}
+	private int getSegmentLength(int totalLength, int segmentIndex) {
+		int numSegments = this.fSegments.length;
+		int result = totalLength / numSegments;
+		if (segmentIndex < totalLength % numSegments) {
+			result++;
 		}
+		return Math.max(1, result);
 	}
 
-	public synchronized void remove(Chunk chunk) {
-		final int idx= chunk.fCacheIndex;
-		if (idx >= 0) {
-			if (this.fTableIsFull) {
-				this.fPointer= this.fPageTable.length-1;
-				this.fTableIsFull= false;
-			} else {
-				this.fPointer--;
-			}
-			chunk.fCacheIndex= -1;
-			final Chunk move= this.fPageTable[this.fPointer];
-			this.fPageTable[idx]= move;
-			move.fCacheIndex= idx;
-			this.fPageTable[this.fPointer]= null;
+	/**
+	 * Returns the monitor that protects the cache entry of the chunk with the given sequence number in the given
+	 * database. The database also uses it to protect the corresponding slot of its chunk table, which allows the
+	 * cache to release evicted chunks without acquiring any other lock.
+	 */
+	Object getMonitor(Database database, int sequenceNumber) {
+		return getSegment(database, sequenceNumber);
+	}
+
+	private Segment getSegment(Database database, int sequenceNumber) {
+		int hash = database.fCacheSegmentSeed + sequenceNumber * 0x9E3779B9;
+		hash ^= hash >>> 16;
+		return this.fSegments[hash & this.fSegmentMask];
+	}
+
+	public void add(Chunk chunk) {
+		if (chunk.fCacheIndex >= 0) {
+			// Fast path: recording a hit doesn't need the segment's monitor. If the chunk is evicted concurrently,
+			// the flag is simply ignored.
+			chunk.fCacheHitFlag= true;
+			return;
 		}
+		getSegment(chunk.fDatabase, chunk.fSequenceNumber).add(chunk);
+	}
+
+	public void remove(Chunk chunk) {
+		getSegment(chunk.fDatabase, chunk.fSequenceNumber).remove(chunk);
 	}
 
 	/**
 	 * Returns the maximum size of the chunk cache in bytes.
 	 */
-	public synchronized long getMaxSize() {
-		return (long) this.fPageTable.length * Database.CHUNK_SIZE;
+	public long getMaxSize() {
+		long result = 0;
+		for (Segment segment : this.fSegments) {
+			result += segment.getLength();
+		}
+		return result * Database.CHUNK_SIZE;
 	}
 
 	/**
@@ -142,45 +230,88 @@ public final class ChunkCache {
 	 * maximum total memory of <code>maxSize</code>.
 	 * @param maxSize the total size of the chunks in bytes.
 	 */
-	public synchronized void setMaxSize(long maxSize) {
+	public void setMaxSize(long maxSize) {
 		final int newLength= computeLength(maxSize);
-		final int oldLength= this.fTableIsFull ? this.fPageTable.length : this.fPointer;
-		if (newLength > oldLength) {
-			Chunk[] newTable= new Chunk[newLength];
-			System.arraycopy(this.fPageTable, 0, newTable, 0, oldLength);
-			this.fTableIsFull= false;
-			this.fPointer= oldLength;
-			this.fPageTable= newTable;
-		} else {
-			for (int i = newLength; i < oldLength; i++) {
-				Chunk chunk = this.fPageTable[i];
-				chunk.fCacheIndex = -1;
-				chunk.fDatabase.checkIfChunkReleased(chunk);
-			}
-			Chunk[] newTable= new Chunk[newLength];
-			System.arraycopy(this.fPageTable, 0, newTable, 0, newLength);
-			this.fTableIsFull= true;
-			this.fPointer= 0;
-			this.fPageTable= newTable;
+		for (int i = 0; i < this.fSegments.length; i++) {
+			this.fSegments[i].setLength(getSegmentLength(newLength, i));
 		}
 	}
 
-	private int computeLength(long maxSize) {
+	public EvictionPolicy getEvictionPolicy() {
+		return this.fEvictionPolicy;
+	}
+
+	/**
+	 * Switches to the given eviction policy. The chunks that are currently cached are retained, but any history
+	 * collected by the previous policy is discarded.
+	 */
+	public synchronized void setEvictionPolicy(EvictionPolicy evictionPolicy) {
+		if (evictionPolicy == this.fEvictionPolicy) {
+			return;
+		}
+		this.fEvictionPolicy = evictionPolicy;
+		for (Segment segment : this.fSegments) {
+			segment.setEvictionPolicy(evictionPolicy);
+		}
+	}
+
+	private static int computeLength(long maxSize) {
 		long maxLength= Math.min(maxSize / Database.CHUNK_SIZE, Integer.MAX_VALUE);
 		return Math.max(1, (int) maxLength);
 	}
 
-	public synchronized void clear() {
-		for (int i = 0; i < this.fPageTable.length; i++) {
-			Chunk chunk = this.fPageTable[i];
-			if (chunk == null) {
-				continue;
+	public void clear() {
+		for (Segment segment : this.fSegments) {
+			segment.clear();
+		}
+	}
+
+	/**
+	 * One independently locked part of the page table. The choice of chunks to evict is delegated to a
+	 * {@link PageTable} created by the current {@link EvictionPolicy}.
+	 */
+	private static final class Segment {
+		private PageTable fTable;
+
+		Segment(PageTable table) {
+			this.fTable= table;
+		}
+
+		synchronized int getLength() {
+			return this.fTable.getLength();
+		}
+
+		synchronized void add(Chunk chunk) {
+			if (chunk.fCacheIndex >= 0) {
+				chunk.fCacheHitFlag= true;
+				return;
+			}
+			this.fTable.add(chunk);
+		}
+
+		synchronized void remove(Chunk chunk) {
+			this.fTable.remove(chunk);
+		}
+
+		synchronized void setLength(int newLength) {
+			this.fTable.setLength(newLength);
+		}
+
+		/**
+		 * Replaces the page table with one created by the given policy, keeping the chunks that are currently cached.
+		 */
+		synchronized void setEvictionPolicy(EvictionPolicy policy) {
+			PageTable newTable = policy.createPageTable(this.fTable.getLength());
+			for (Chunk chunk : this.fTable.removeAll()) {
+				newTable.add(chunk);
+			}
+			this.fTable = newTable;
+		}
+
+		synchronized void clear() {
+			for (Chunk chunk : this.fTable.removeAll()) {
+				PageTable.release(chunk);
 			}
-			chunk.fCacheIndex = -1;
-			chunk.fDatabase.checkIfChunkReleased(chunk);
-			this.fPageTable[i] = null;
 		}
-		this.fTableIsFull = false;
-		this.fPointer = 0;
 	}
 }
@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.jdt.internal.core.nd.db;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link PageTable} managed with the CLOCK algorithm. See {@link ChunkCache.EvictionPolicy#CLOCK}.
+ */
+final class ClockPageTable extends PageTable {
+	private Chunk[] fPageTable;
+	private boolean fTableIsFull;
+	private int fPointer;
+
+	ClockPageTable(int length) {
+		this.fPageTable= new Chunk[length];
+	}
+
+	@Override
+	int getLength() {
+		return this.fPageTable.length;
+	}
+
+	@Override
+	void add(Chunk chunk) {
+		if (this.fTableIsFull) {
+			evictChunk();
+			chunk.fCacheIndex= this.fPointer;
+			this.fPageTable[this.fPointer]= chunk;
+		} else {
+			chunk.fCacheIndex= this.fPointer;
+			this.fPageTable[this.fPointer]= chunk;
+
+			this.fPointer++;
+			if (this.fPointer == this.fPageTable.length) {
+				this.fPointer= 0;
+				this.fTableIsFull= true;
+			}
+		}
+	}
+
+	/**
+	 * Evicts a chunk from the page table and the chunk table.
+	 * After this method returns, {@link #fPointer}  will contain
+	 * the index of the evicted chunk within the page table.
+	 */
+	private void evictChunk() {
+		/*
+		 * Use the CLOCK algorithm to determine which chunk to evict.
+		 * i.e., if the chunk in the current slot of the page table has been
+		 * recently referenced (i.e. the reference flag is set), unset the
+		 * reference flag and move to the next slot.  Otherwise, evict the
+		 * chunk in the current slot.
+		 */
+		while (true) {
+			Chunk chunk = this.fPageTable[this.fPointer];
+			if (chunk.fCacheHitFlag) {
+				chunk.fCacheHitFlag = false;
+				this.fPointer = (this.fPointer + 1) % this.fPageTable.length;
+			} else {
+				release(chunk);
+				this.fPageTable[this.fPointer] = null;
+				return;
+			}
+		}
+	}
+
+	@Override
+	void remove(Chunk chunk) {
+		final int idx= chunk.fCacheIndex;
+		if (idx >= 0) {
+			if (this.fTableIsFull) {
+				this.fPointer= this.fPageTable.length-1;
+				this.fTableIsFull= false;
+			} else {
+				this.fPointer--;
+			}
+			chunk.fCacheIndex= -1;
+			final Chunk move= this.fPageTable[this.fPointer];
+			this.fPageTable[idx]= move;
+			move.fCacheIndex= idx;
+			this.fPageTable[this.fPointer]= null;
+		}
+	}
+
+	@Override
+	void setLength(int newLength) {
+		final int oldLength= this.fTableIsFull ? this.fPageTable.length : this.fPointer;
+		if (newLength > oldLength) {
+			Chunk[] newTable= new Chunk[newLength];
+			System.arraycopy(this.fPageTable, 0, newTable, 0, oldLength);
+			this.fTableIsFull= false;
+			this.fPointer= oldLength;
+			this.fPageTable= newTable;
+		} else {
+			for (int i = newLength; i < oldLength; i++) {
+				release(this.fPageTable[i]);
+			}
+			Chunk[] newTable= new Chunk[newLength];
+			System.arraycopy(this.fPageTable, 0, newTable, 0, newLength);
+			this.fTableIsFull= true;
+			this.fPointer= 0;
+			this.fPageTable= newTable;
+		}
+	}
+
+	@Override
+	List<Chunk> removeAll() {
+		List<Chunk> result = new ArrayList<>();
+		for (int i = 0; i < this.fPageTable.length; i++) {
+			Chunk chunk = this.fPageTable[i];
+			if (chunk == null) {
+				continue;
+			}
+			chunk.fCacheIndex = -1;
+			result.add(chunk);
+			this.fPageTable[i] = null;
+		}
+		this.fTableIsFull = false;
+		this.fPointer = 0;
+		return result;
+	}
+}
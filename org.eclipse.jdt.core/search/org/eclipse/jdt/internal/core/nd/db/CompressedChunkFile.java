@@ -0,0 +1,537 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.jdt.internal.core.nd.db;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Stores the non-header chunks of a {@link Database} in compressed form. The chunks are compressed with
+ * {@link Deflater#BEST_SPEED} and stored in slots made of one or more sectors of {@link #SECTOR_SIZE} bytes. Chunks
+ * that don't compress well are stored as they are. The decompressed chunks are cached by the {@link ChunkCache}, just
+ * like the chunks of an uncompressed database.
+ * <p>
+ * The header chunk remains at the start of the file, so that the version number and the incomplete marker work the
+ * same way as for uncompressed databases. The rest of the file has the following structure:
+ *
+ * <pre>
+ * offset                      content
+ *                             _____________________________
+ * CHUNK_SIZE                 | {@link #MAGIC}
+ * CHUNK_SIZE + INT_SIZE      | number of chunks in the database, including the header chunk
+ * DIRECTORY_OFFSET           | sector of the table page for chunks 0 .. ENTRIES_PER_TABLE_PAGE - 1, or 0
+ * ..                         | ...
+ * DATA_START_SECTOR * SECTOR_SIZE | slots of table pages and chunks
+ * </pre>
+ *
+ * A table page is an uncompressed slot of {@link Database#CHUNK_SIZE} bytes that contains one entry for each of
+ * {@link #ENTRIES_PER_TABLE_PAGE} consecutive chunks. Each entry holds the first sector of the slot of the chunk (or 0
+ * if the chunk hasn't been written yet) followed by the number of bytes stored in the slot. A chunk that is stored
+ * uncompressed has a length of {@link Database#CHUNK_SIZE}.
+ * <p>
+ * A chunk is written to a new slot whenever it is flushed, and its previous slot is reused by later flushes. The
+ * free slots are only kept in memory and are recomputed from the table pages when the database is first written after
+ * opening it.
+ * <p>
+ * Readers may run concurrently with a flush when the database uses snapshot reads. The entry of a chunk is only
+ * updated once its new slot has been written, and its previous slot is only reused after that. So a reader checks
+ * that the entry of the chunk didn't change while it was reading the slot and reads the chunk again otherwise.
+ */
+final class CompressedChunkFile {
+	static final int SECTOR_SIZE = 256;
+	/**
+	 * Marks the files that use this format. Stored after the header chunk.
+	 */
+	static final int MAGIC = 0x4E44435A;
+	private static final int MAX_SECTORS_PER_SLOT = Database.CHUNK_SIZE / SECTOR_SIZE;
+	private static final int ENTRY_SIZE = Database.INT_SIZE * 2;
+	static final int ENTRIES_PER_TABLE_PAGE = Database.CHUNK_SIZE / ENTRY_SIZE;
+	private static final int MAX_TABLE_PAGES = (int) (Database.MAX_DB_SIZE / Database.CHUNK_SIZE
+			/ ENTRIES_PER_TABLE_PAGE);
+	private static final int NUM_CHUNKS_OFFSET = Database.CHUNK_SIZE + Database.INT_SIZE;
+	private static final int DIRECTORY_OFFSET = NUM_CHUNKS_OFFSET + Database.INT_SIZE;
+	static final int DATA_START_SECTOR = (DIRECTORY_OFFSET + MAX_TABLE_PAGES * Database.INT_SIZE + SECTOR_SIZE - 1)
+			/ SECTOR_SIZE;
+	/**
+	 * Chunks are only stored compressed if this saves at least one sector.
+	 */
+	private static final int MAX_COMPRESSED_SIZE = Database.CHUNK_SIZE - SECTOR_SIZE;
+	private static final int MAX_POOLED_INFLATERS = 8;
+
+	private final Database fDatabase;
+	/**
+	 * The first sector of each table page, or 0 if the table page hasn't been written yet. Synchronize on this before
+	 * accessing.
+	 */
+	private final int[] fDirectory = new int[MAX_TABLE_PAGES];
+	/**
+	 * The entries of the table pages that have been loaded, indexed by table page number. Each entry holds the first
+	 * sector of the slot in its upper half and the stored length in its lower half. Synchronize on this before
+	 * accessing.
+	 */
+	private long[][] fTablePages = new long[0][];
+	private final BitSet fDirtyTablePages = new BitSet();
+	private final BitSet fDirtyDirectoryEntries = new BitSet();
+	/**
+	 * The sequence number, first sector and length of each chunk that was written to a new slot which hasn't been
+	 * published yet. Only accessed by the thread that flushes the database.
+	 */
+	private final IntList fPendingEntries = new IntList();
+
+	/**
+	 * The free slots, indexed by their number of sectors. Null until the free slots have been computed. Only
+	 * accessed by the thread that flushes the database.
+	 */
+	private IntList[] fFreeSlots;
+	/**
+	 * The first sector after the last slot in use. Only accessed by the thread that flushes the database.
+	 */
+	private int fEndSector = DATA_START_SECTOR;
+
+	private final Deflater fDeflater = new Deflater(Deflater.BEST_SPEED);
+	private final byte[] fCompressionBuffer = new byte[Database.CHUNK_SIZE];
+	private final ArrayDeque<Inflater> fInflaters = new ArrayDeque<>();
+
+	CompressedChunkFile(Database database) {
+		this.fDatabase = database;
+	}
+
+	/**
+	 * Reads the directory from a file of the given length. Returns the number of chunks in the file, including the
+	 * header chunk, or 0 if the file is empty. Returns 1 if the file doesn't use this format, in which case it is
+	 * treated like a file that only contains a header.
+	 */
+	int open(long fileLength) throws IOException {
+		if (fileLength < Database.CHUNK_SIZE) {
+			return 0;
+		}
+		if (fileLength < DATA_START_SECTOR * (long) SECTOR_SIZE) {
+			return 1;
+		}
+		ByteBuffer buf = ByteBuffer.allocate(DATA_START_SECTOR * SECTOR_SIZE - Database.CHUNK_SIZE);
+		this.fDatabase.read(buf, Database.CHUNK_SIZE);
+		buf.flip();
+		if (buf.getInt() != MAGIC) {
+			return 1;
+		}
+		int numChunks = buf.getInt();
+		synchronized (this) {
+			buf.asIntBuffer().get(this.fDirectory, 0, Math.min(MAX_TABLE_PAGES, buf.remaining() / Database.INT_SIZE));
+		}
+		return Math.max(1, numChunks);
+	}
+
+	/**
+	 * Forgets all chunks. Must be called after the file has been truncated to its header chunk.
+	 */
+	synchronized void clear() {
+		Arrays.fill(this.fDirectory, 0);
+		this.fTablePages = new long[0][];
+		this.fDirtyTablePages.clear();
+		this.fDirtyDirectoryEntries.clear();
+		this.fPendingEntries.size = 0;
+		this.fFreeSlots = createFreeSlotLists();
+		this.fEndSector = DATA_START_SECTOR;
+	}
+
+	/**
+	 * Releases the native resources used for compression. The file must not be used afterwards.
+	 */
+	void close() {
+		this.fDeflater.end();
+		synchronized (this.fInflaters) {
+			for (Inflater next : this.fInflaters) {
+				next.end();
+			}
+			this.fInflaters.clear();
+		}
+	}
+
+	/**
+	 * Reads the chunk with the given sequence number into the given buffer. Leaves the buffer unchanged if the chunk
+	 * hasn't been written yet.
+	 */
+	void read(int sequenceNumber, ByteBuffer buf) throws IOException {
+		long entry = getEntry(sequenceNumber);
+		while (getSector(entry) != 0) {
+			int length = getLength(entry);
+			byte[] stored = new byte[length];
+			this.fDatabase.read(ByteBuffer.wrap(stored), (long) getSector(entry) * SECTOR_SIZE);
+			boolean valid = decode(stored, buf.duplicate());
+			// If the entry changed, the slot may have been reused for another chunk while it was read
+			long currentEntry = getEntry(sequenceNumber);
+			if (currentEntry == entry) {
+				if (!valid) {
+					throw new IOException("Corrupted compressed chunk " + sequenceNumber); //$NON-NLS-1$
+				}
+				return;
+			}
+			entry = currentEntry;
+		}
+	}
+
+	private boolean decode(byte[] stored, ByteBuffer buf) {
+		if (stored.length == Database.CHUNK_SIZE) {
+			buf.put(stored);
+			return true;
+		}
+		byte[] target;
+		int offset;
+		if (buf.hasArray()) {
+			target = buf.array();
+			offset = buf.arrayOffset() + buf.position();
+		} else {
+			target = new byte[Database.CHUNK_SIZE];
+			offset = 0;
+		}
+		Inflater inflater = acquireInflater();
+		try {
+			inflater.setInput(stored);
+			int length = inflater.inflate(target, offset, Database.CHUNK_SIZE);
+			if (length != Database.CHUNK_SIZE || !inflater.finished()) {
+				return false;
+			}
+		} catch (DataFormatException e) {
+			return false;
+		} finally {
+			releaseInflater(inflater);
+		}
+		if (!buf.hasArray()) {
+			buf.put(target);
+		}
+		return true;
+	}
+
+	private Inflater acquireInflater() {
+		synchronized (this.fInflaters) {
+			Inflater result = this.fInflaters.poll();
+			if (result != null) {
+				return result;
+			}
+		}
+		return new Inflater();
+	}
+
+	private void releaseInflater(Inflater inflater) {
+		inflater.reset();
+		synchronized (this.fInflaters) {
+			if (this.fInflaters.size() < MAX_POOLED_INFLATERS) {
+				this.fInflaters.add(inflater);
+				return;
+			}
+		}
+		inflater.end();
+	}
+
+	/**
+	 * Compresses the given chunk and passes it to the given writer. The chunk is written to a new slot, so that
+	 * concurrent readers can keep reading its previous slot. Must be followed by a call to
+	 * {@link #writeTable(ChunkWriter, int)} once all dirty chunks have reached the file.
+	 *
+	 * @return true iff an attempt was made to interrupt the write with {@link Thread#interrupt()}
+	 */
+	boolean write(ChunkWriter writer, int sequenceNumber, byte[] content) throws IOException {
+		this.fDeflater.reset();
+		this.fDeflater.setInput(content);
+		this.fDeflater.finish();
+		int length = this.fDeflater.deflate(this.fCompressionBuffer);
+		byte[] data;
+		if (this.fDeflater.finished() && length <= MAX_COMPRESSED_SIZE) {
+			int sectors = getSectorsForLength(length);
+			data = Arrays.copyOf(this.fCompressionBuffer, sectors * SECTOR_SIZE);
+		} else {
+			length = Database.CHUNK_SIZE;
+			data = content;
+		}
+
+		int sector = allocate(sequenceNumber, length);
+		return writer.write((long) sector * SECTOR_SIZE, data);
+	}
+
+	/**
+	 * Publishes the slots of the chunks written by {@link #write(ChunkWriter, int, byte[])} and writes the modified
+	 * table pages, the directory and the given number of chunks. Must only be called once the chunks have reached the
+	 * file.
+	 *
+	 * @return true iff an attempt was made to interrupt the write with {@link Thread#interrupt()}
+	 */
+	boolean writeTable(ChunkWriter writer, int numChunks) throws IOException {
+		boolean wasInterrupted = false;
+		long[][] pagesToWrite;
+		int[] sectors;
+		synchronized (this) {
+			publishPendingEntries();
+			int numDirtyPages = this.fDirtyTablePages.cardinality();
+			pagesToWrite = new long[numDirtyPages][];
+			sectors = new int[numDirtyPages];
+			int index = 0;
+			for (int page = this.fDirtyTablePages.nextSetBit(0); page >= 0; page = this.fDirtyTablePages
+					.nextSetBit(page + 1)) {
+				if (this.fDirectory[page] == 0) {
+					this.fDirectory[page] = allocateSectors(MAX_SECTORS_PER_SLOT);
+					this.fDirtyDirectoryEntries.set(page);
+				}
+				pagesToWrite[index] = this.fTablePages[page].clone();
+				sectors[index] = this.fDirectory[page];
+				index++;
+			}
+			this.fDirtyTablePages.clear();
+		}
+
+		for (int i = 0; i < pagesToWrite.length; i++) {
+			ByteBuffer page = ByteBuffer.allocate(Database.CHUNK_SIZE);
+			page.asLongBuffer().put(pagesToWrite[i]);
+			wasInterrupted = writer.write((long) sectors[i] * SECTOR_SIZE, page.array()) || wasInterrupted;
+		}
+
+		ByteBuffer header = ByteBuffer.allocate(Database.INT_SIZE * 2);
+		header.putInt(MAGIC);
+		header.putInt(numChunks);
+		wasInterrupted = writer.write(Database.CHUNK_SIZE, header.array()) || wasInterrupted;
+		synchronized (this) {
+			for (int page = this.fDirtyDirectoryEntries.nextSetBit(0); page >= 0; page = this.fDirtyDirectoryEntries
+					.nextSetBit(page + 1)) {
+				ByteBuffer entry = ByteBuffer.allocate(Database.INT_SIZE);
+				entry.putInt(this.fDirectory[page]);
+				wasInterrupted = writer.write(DIRECTORY_OFFSET + (long) page * Database.INT_SIZE, entry.array())
+						|| wasInterrupted;
+			}
+			this.fDirtyDirectoryEntries.clear();
+		}
+		return wasInterrupted;
+	}
+
+	/**
+	 * Releases the slots of all chunks starting at the given sequence number and writes the table with the given
+	 * number of chunks.
+	 *
+	 * @return true iff an attempt was made to interrupt the write with {@link Thread#interrupt()}
+	 */
+	boolean truncate(ChunkWriter writer, int numChunks) throws IOException {
+		synchronized (this) {
+			ensureFreeSlotsComputed();
+			for (int page = numChunks / ENTRIES_PER_TABLE_PAGE; page < MAX_TABLE_PAGES; page++) {
+				long[] entries = getTablePage(page);
+				if (entries == null) {
+					continue;
+				}
+				int firstSequenceNumber = page * ENTRIES_PER_TABLE_PAGE;
+				for (int index = Math.max(0, numChunks - firstSequenceNumber); index < entries.length; index++) {
+					if (getSector(entries[index]) != 0) {
+						this.fPendingEntries.add(firstSequenceNumber + index);
+						this.fPendingEntries.add(0);
+						this.fPendingEntries.add(0);
+					}
+				}
+			}
+		}
+		return writeTable(writer, numChunks);
+	}
+
+	/**
+	 * Returns the length that the file needs to have to hold all slots that are currently in use. The free slots at
+	 * the end of the file are forgotten, so that the file can be truncated to the returned length.
+	 */
+	synchronized long trimFreeSlots() throws IOException {
+		this.fFreeSlots = null;
+		ensureFreeSlotsComputed();
+		return (long) this.fEndSector * SECTOR_SIZE;
+	}
+
+	/**
+	 * Assigns a new slot to the chunk with the given sequence number which can hold the given number of bytes and
+	 * returns its first sector. The slot is only used by readers once it is published by
+	 * {@link #writeTable(ChunkWriter, int)}.
+	 */
+	private int allocate(int sequenceNumber, int length) throws IOException {
+		int sector;
+		synchronized (this) {
+			sector = allocateSectors(getSectorsForLength(length));
+		}
+		this.fPendingEntries.add(sequenceNumber);
+		this.fPendingEntries.add(sector);
+		this.fPendingEntries.add(length);
+		return sector;
+	}
+
+	/**
+	 * Makes the readers use the slots assigned by {@link #allocate(int, int)} and releases the slots that the chunks
+	 * used before. Must be called while synchronized on this.
+	 */
+	private void publishPendingEntries() throws IOException {
+		IntList pending = this.fPendingEntries;
+		for (int i = 0; i < pending.size; i += 3) {
+			int sequenceNumber = pending.elements[i];
+			int page = sequenceNumber / ENTRIES_PER_TABLE_PAGE;
+			long[] entries = getTablePage(page);
+			if (entries == null) {
+				entries = new long[ENTRIES_PER_TABLE_PAGE];
+				if (page >= this.fTablePages.length) {
+					this.fTablePages = Arrays.copyOf(this.fTablePages, page + 1);
+				}
+				this.fTablePages[page] = entries;
+			}
+			int index = sequenceNumber % ENTRIES_PER_TABLE_PAGE;
+			long oldEntry = entries[index];
+			entries[index] = createEntry(pending.elements[i + 1], pending.elements[i + 2]);
+			this.fDirtyTablePages.set(page);
+			if (getSector(oldEntry) != 0) {
+				this.fFreeSlots[getSectorsForLength(getLength(oldEntry))].add(getSector(oldEntry));
+			}
+		}
+		pending.size = 0;
+	}
+
+	/**
+	 * Returns the first sector of a free slot of the given size and marks it as used.
+	 */
+	private int allocateSectors(int sectors) throws IOException {
+		ensureFreeSlotsComputed();
+		for (int size = sectors; size <= MAX_SECTORS_PER_SLOT; size++) {
+			IntList slots = this.fFreeSlots[size];
+			if (!slots.isEmpty()) {
+				int result = slots.remove();
+				if (size > sectors) {
+					this.fFreeSlots[size - sectors].add(result + sectors);
+				}
+				return result;
+			}
+		}
+		int result = this.fEndSector;
+		this.fEndSector += sectors;
+		return result;
+	}
+
+	/**
+	 * Computes the free slots from the table pages. The gaps between the slots in use become free slots of at most
+	 * {@link #MAX_SECTORS_PER_SLOT} sectors.
+	 */
+	private void ensureFreeSlotsComputed() throws IOException {
+		if (this.fFreeSlots != null) {
+			return;
+		}
+		IntList usedSlots = new IntList();
+		for (int page = 0; page < MAX_TABLE_PAGES; page++) {
+			long[] entries = getTablePage(page);
+			if (entries == null) {
+				continue;
+			}
+			usedSlots.add(this.fDirectory[page]);
+			usedSlots.add(MAX_SECTORS_PER_SLOT);
+			for (long next : entries) {
+				if (getSector(next) != 0) {
+					usedSlots.add(getSector(next));
+					usedSlots.add(getSectorsForLength(getLength(next)));
+				}
+			}
+		}
+		// Sort the slots by their first sector
+		long[] sorted = new long[usedSlots.size / 2];
+		for (int i = 0; i < sorted.length; i++) {
+			sorted[i] = ((long) usedSlots.elements[i * 2] << 32) | usedSlots.elements[i * 2 + 1];
+		}
+		Arrays.sort(sorted);
+
+		IntList[] freeSlots = createFreeSlotLists();
+		int end = DATA_START_SECTOR;
+		for (long next : sorted) {
+			int sector = (int) (next >>> 32);
+			for (int gapSize; (gapSize = Math.min(sector - end, MAX_SECTORS_PER_SLOT)) > 0; end += gapSize) {
+				freeSlots[gapSize].add(end);
+			}
+			end = Math.max(end, sector + (int) next);
+		}
+		this.fFreeSlots = freeSlots;
+		this.fEndSector = end;
+	}
+
+	private static IntList[] createFreeSlotLists() {
+		IntList[] result = new IntList[MAX_SECTORS_PER_SLOT + 1];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = new IntList();
+		}
+		return result;
+	}
+
+	private synchronized long getEntry(int sequenceNumber) throws IOException {
+		long[] entries = getTablePage(sequenceNumber / ENTRIES_PER_TABLE_PAGE);
+		return entries == null ? 0 : entries[sequenceNumber % ENTRIES_PER_TABLE_PAGE];
+	}
+
+	/**
+	 * Returns the entries of the given table page, reading them if necessary. Returns null if the table page hasn't
+	 * been created yet. Must be called while synchronized on this.
+	 */
+	private long[] getTablePage(int page) throws IOException {
+		if (page < this.fTablePages.length && this.fTablePages[page] != null) {
+			return this.fTablePages[page];
+		}
+		int sector = this.fDirectory[page];
+		if (sector == 0) {
+			return null;
+		}
+		ByteBuffer buf = ByteBuffer.allocate(Database.CHUNK_SIZE);
+		this.fDatabase.read(buf, (long) sector * SECTOR_SIZE);
+		buf.clear();
+		long[] entries = new long[ENTRIES_PER_TABLE_PAGE];
+		buf.asLongBuffer().get(entries);
+		if (page >= this.fTablePages.length) {
+			this.fTablePages = Arrays.copyOf(this.fTablePages, page + 1);
+		}
+		this.fTablePages[page] = entries;
+		return entries;
+	}
+
+	private static long createEntry(int sector, int length) {
+		return ((long) sector << 32) | length;
+	}
+
+	private static int getSector(long entry) {
+		return (int) (entry >>> 32);
+	}
+
+	private static int getLength(long entry) {
+		return (int) entry;
+	}
+
+	private static int getSectorsForLength(int length) {
+		return (length + SECTOR_SIZE - 1) / SECTOR_SIZE;
+	}
+
+	/**
+	 * A growable list of ints.
+	 */
+	private static final class IntList {
+		int[] elements = new int[16];
+		int size;
+
+		boolean isEmpty() {
+			return this.size == 0;
+		}
+
+		void add(int element) {
+			if (this.size == this.elements.length) {
+				this.elements = Arrays.copyOf(this.elements, this.size * 2);
+			}
+			this.elements[this.size++] = element;
+		}
+
+		int remove() {
+			return this.elements[--this.size];
+		}
+	}
+}
@@ -23,17 +23,23 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.ClosedByInterruptException;
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.FileChannel;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
 
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.SubMonitor;
 import org.eclipse.jdt.internal.core.nd.IndexExceptionBuilder;
 import org.eclipse.jdt.internal.core.nd.db.ModificationLog.Tag;
 import org.eclipse.osgi.util.NLS;
@@ -161,12 +167,31 @@ public class Database {
 		}
 	}
 
+	private static final int WRITE_BUFFER_SIZE = CHUNK_SIZE * 32;
 	/**
-	 * For loops that scan through the chunks list, this imposes a maximum number of iterations before the loop must
-	 * release the chunk cache mutex.
+	 * Size of the regions of the database file that are mapped into memory at once when using memory-mapped I/O.
+	 * Must be a multiple of {@link #CHUNK_SIZE}.
 	 */
-	private static final int MAX_ITERATIONS_PER_LOCK = 256;
-	private static final int WRITE_BUFFER_SIZE = CHUNK_SIZE * 32;
+	private static final int MAPPED_REGION_SIZE = CHUNK_SIZE * 8192;
+
+	/**
+	 * True iff databases should read their chunks through memory-mapped regions of the database file rather than
+	 * copying them into the heap with explicit reads. This is used as the default for databases that don't
+	 * request a specific I/O mode.
+	 */
+	public static final boolean USE_MEMORY_MAPPED_IO = Boolean.getBoolean("org.eclipse.jdt.core.nd.mmap"); //$NON-NLS-1$
+
+	/**
+	 * True iff databases should store their chunks in compressed form (see {@link CompressedChunkFile}). This is used
+	 * as the default for databases that don't request a specific storage format.
+	 */
+	public static final boolean USE_COMPRESSED_CHUNKS = Boolean.getBoolean("org.eclipse.jdt.core.nd.compress"); //$NON-NLS-1$
+
+	/**
+	 * Set in the version number stored in the header of databases that store their chunks in compressed form. This
+	 * makes sure that a database is treated as having an unsupported version if it is opened with the other format.
+	 */
+	private static final int COMPRESSED_VERSION_FLAG = 0x40000000;
 
 	/**
 	 * True iff large chunk self-diagnostics should be enabled.
@@ -177,33 +202,63 @@ public class Database {
 
 	private final File fLocation;
 	private final boolean fReadOnly;
+	private final boolean fUseMemoryMappedIO;
+	/**
+	 * Stores the non-header chunks if this database uses compressed chunks, or null otherwise.
+	 */
+	private final CompressedChunkFile fCompressedFile;
 	private RandomAccessFile fFile;
+	/**
+	 * Read-only memory-mapped regions of the database file, indexed by region number. Only used when
+	 * {@link #fUseMemoryMappedIO} is true. Synchronize on {@link #fMappedRegionsMutex} before accessing.
+	 */
+	private MappedByteBuffer[] fMappedRegions = new MappedByteBuffer[0];
+	private final Object fMappedRegionsMutex = new Object();
 	private boolean fExclusiveLock;	 // Necessary for any write operation.
 	private boolean fLocked;		 // Necessary for any operation.
 	private boolean fIsMarkedIncomplete;
+	/**
+	 * Number of calls to {@link #keepIncomplete()} that haven't been matched by a call to
+	 * {@link #stopKeepingIncomplete()} yet. While positive, flushes leave the file marked as incomplete.
+	 */
+	private volatile int fKeepIncompleteCount;
+	/**
+	 * True iff {@link #compact(IProgressMonitor)} removed chunks from the end of the database, so the file needs to be
+	 * truncated on the next flush.
+	 */
+	private boolean fTruncateOnFlush;
 
 	private int fVersion;
 	private final Chunk fHeaderChunk;
 	/**
 	 * Stores the {@link Chunk} associated with each page number or null if the chunk isn't loaded. Synchronize on
-	 * {@link #fCache} before accessing.
+	 * {@link ChunkCache#getMonitor(Database, int)} for the page number before accessing an element. The array itself
+	 * is only replaced while holding the write lock.
 	 */
-	Chunk[] fChunks;
+	volatile Chunk[] fChunks;
 	private int fChunksUsed;
 	private ChunkCache fCache;
+	/**
+	 * Used by the {@link ChunkCache} to spread the chunks of different databases over its segments.
+	 */
+	final int fCacheSegmentSeed = System.identityHashCode(this);
 
 	private long malloced;
 	private long freed;
-	private long cacheHits;
-	private long cacheMisses;
+	/**
+	 * Cache hits and misses, indexed by the ordinal of the {@link ChunkCache.EvictionPolicy} that was active when the
+	 * chunk was requested.
+	 */
+	private final LongAdder[] cacheHits = createCounters();
+	private final LongAdder[] cacheMisses = createCounters();
 	private long bytesWritten;
-	private long totalReadTimeMs;
+	private final LongAdder totalReadTimeMs = new LongAdder();
 
 	private MemoryStats memoryUsage;
 	public Chunk fMostRecentlyFetchedChunk;
 	/**
 	 * Contains the set of Chunks in this Database for which the Chunk.dirty flag is set to true.
-	 * Protected by the database write lock. This set does not contain the header chunk, which is
+	 * Synchronize on the set itself before accessing. This set does not contain the header chunk, which is
 	 * always handled as a special case by the code that flushes chunks.
 	 */
 	private HashSet<Chunk> dirtyChunkSet = new HashSet<>();
@@ -214,6 +269,30 @@ public class Database {
 	private long validateCounter;
 	public static final double MIN_BYTES_PER_MILLISECOND = 20480.0;
 
+	/**
+	 * True iff readers see the most recently committed version of the database while a write transaction is in
+	 * progress, rather than being excluded by the writer. See {@link #setSnapshotReads(boolean)}.
+	 */
+	private volatile boolean fSnapshotReads;
+	/**
+	 * The most recently committed version. Only used with snapshot reads.
+	 */
+	private volatile Version fNewestVersion;
+	/**
+	 * The version seen by each thread that holds a read lock. Only used with snapshot reads.
+	 */
+	private final ThreadLocal<Snapshot> fSnapshots = new ThreadLocal<>();
+	/**
+	 * The thread running the current write transaction, or null if there is none. Only used with snapshot reads.
+	 */
+	private volatile Thread fWriter;
+	/**
+	 * The chunks that were fetched or created by the current write transaction, indexed by sequence number. These are
+	 * only visible to {@link #fWriter} and are published when the transaction is committed. Only accessed by the
+	 * writer thread.
+	 */
+	private HashMap<Integer, Chunk> fTransactionChunks;
+
 	private final ModificationLog log = new ModificationLog(0);
 	private final Tag mallocTag;
 	private final Tag freeTag;
@@ -227,15 +306,54 @@ public class Database {
 	 * @throws IndexException
 	 */
 	public Database(File location, ChunkCache cache, int version, boolean openReadOnly) throws IndexException {
+		this(location, cache, version, openReadOnly, USE_MEMORY_MAPPED_IO);
+	}
+
+	/**
+	 * Construct a new Database object, creating a backing file if necessary.
+	 * @param location the local file path for the database
+	 * @param cache the cache to be used optimization
+	 * @param version the version number to store in the database (only applicable for new databases)
+	 * @param openReadOnly whether this Database object will ever need writing to
+	 * @param useMemoryMappedIO whether clean chunks should be read directly from memory-mapped regions of the
+	 * database file. Dirty chunks are always written through explicit writes when the database is flushed.
+	 * @throws IndexException
+	 */
+	public Database(File location, ChunkCache cache, int version, boolean openReadOnly, boolean useMemoryMappedIO)
+			throws IndexException {
+		this(location, cache, version, openReadOnly, useMemoryMappedIO, USE_COMPRESSED_CHUNKS);
+	}
+
+	/**
+	 * Construct a new Database object, creating a backing file if necessary.
+	 * @param location the local file path for the database
+	 * @param cache the cache to be used optimization
+	 * @param version the version number to store in the database (only applicable for new databases)
+	 * @param openReadOnly whether this Database object will ever need writing to
+	 * @param useMemoryMappedIO whether clean chunks should be read directly from memory-mapped regions of the
+	 * database file. Ignored if the chunks are compressed.
+	 * @param compressChunks whether the chunks should be stored in compressed form. An existing database that was
+	 * written with the other format is reported as having version 0.
+	 * @throws IndexException
+	 */
+	public Database(File location, ChunkCache cache, int version, boolean openReadOnly, boolean useMemoryMappedIO,
+			boolean compressChunks) throws IndexException {
 		this.mallocTag = ModificationLog.createTag("Calling Database.malloc"); //$NON-NLS-1$
 		this.freeTag = ModificationLog.createTag("Calling Database.free"); //$NON-NLS-1$
 		try {
 			this.fLocation = location;
 			this.fReadOnly= openReadOnly;
+			this.fUseMemoryMappedIO= useMemoryMappedIO && !compressChunks;
+			this.fCompressedFile = compressChunks ? new CompressedChunkFile(this) : null;
 			this.fCache= cache;
 			openFile();
 
-			int nChunksOnDisk = (int) (this.fFile.length() / CHUNK_SIZE);
+			int nChunksOnDisk;
+			if (this.fCompressedFile != null) {
+				nChunksOnDisk = this.fCompressedFile.open(this.fFile.length());
+			} else {
+				nChunksOnDisk = (int) (this.fFile.length() / CHUNK_SIZE);
+			}
 			this.fHeaderChunk= new Chunk(this, 0);
 			if (nChunksOnDisk <= 0) {
 				this.fVersion= version;
@@ -243,7 +361,7 @@ public class Database {
 				this.fChunksUsed = this.fChunks.length;
 			} else {
 				this.fHeaderChunk.read();
-				this.fVersion= this.fHeaderChunk.getInt(VERSION_OFFSET);
+				this.fVersion= fromStoredVersion(this.fHeaderChunk.getInt(VERSION_OFFSET));
 				this.fChunks = new Chunk[nChunksOnDisk];	// chunk[0] is unused.
 				this.fChunksUsed = nChunksOnDisk;
 			}
@@ -253,6 +371,25 @@ public class Database {
 		this.memoryUsage = new MemoryStats(this.fHeaderChunk, MALLOC_STATS_OFFSET);
 	}
 
+	/**
+	 * Returns the version number to store in the header for the given version.
+	 */
+	private int toStoredVersion(int version) {
+		return this.fCompressedFile != null ? version | COMPRESSED_VERSION_FLAG : version;
+	}
+
+	/**
+	 * Returns the version number of a database with the given version number stored in its header, or 0 if it was
+	 * written with the other format.
+	 */
+	private int fromStoredVersion(int storedVersion) {
+		boolean isCompressed = (storedVersion & COMPRESSED_VERSION_FLAG) != 0;
+		if (isCompressed != (this.fCompressedFile != null)) {
+			return 0;
+		}
+		return storedVersion & ~COMPRESSED_VERSION_FLAG;
+	}
+
 	private static int divideRoundingUp(long num, long den) {
 		return (int) ((num + den - 1) / den);
 	}
@@ -287,6 +424,97 @@ public class Database {
 		} while (true);
 	}
 
+	/**
+	 * Reads the content of the chunk with the given sequence number into the given buffer.
+	 */
+	void readChunk(ByteBuffer buf, int sequenceNumber) throws IOException {
+		if (this.fCompressedFile != null && sequenceNumber >= NUM_HEADER_CHUNKS) {
+			this.fCompressedFile.read(sequenceNumber, buf);
+		} else {
+			read(buf, (long) sequenceNumber * CHUNK_SIZE);
+		}
+	}
+
+	/**
+	 * Returns a read-only view onto the memory-mapped content of the chunk at the given position in the file, or null
+	 * if the chunk should be read with an explicit read. This is the case if this database doesn't use memory-mapped
+	 * I/O, if the position refers to a header chunk, or if the chunk hasn't been written to the file yet.
+	 */
+	ByteBuffer getMappedChunk(long position) throws IOException {
+		// Committed chunks must not change when newer versions are flushed, so snapshot reads can't use mapped views.
+		if (!this.fUseMemoryMappedIO || this.fSnapshotReads || position < (long) NUM_HEADER_CHUNKS * CHUNK_SIZE) {
+			return null;
+		}
+		final int regionNumber = (int) (position / MAPPED_REGION_SIZE);
+		final int offsetInRegion = (int) (position % MAPPED_REGION_SIZE);
+		MappedByteBuffer region = getMappedRegion(regionNumber, offsetInRegion + CHUNK_SIZE);
+		if (region == null) {
+			return null;
+		}
+		ByteBuffer view = region.duplicate();
+		view.limit(offsetInRegion + CHUNK_SIZE);
+		view.position(offsetInRegion);
+		return view.slice();
+	}
+
+	/**
+	 * Returns the mapped region with the given region number, mapping it if necessary. Returns null if the file
+	 * does not yet contain the given number of bytes in that region.
+	 */
+	private MappedByteBuffer getMappedRegion(int regionNumber, int requiredLength) throws IOException {
+		synchronized (this.fMappedRegionsMutex) {
+			MappedByteBuffer region = null;
+			if (regionNumber < this.fMappedRegions.length) {
+				region = this.fMappedRegions[regionNumber];
+			}
+			if (region != null && region.capacity() >= requiredLength) {
+				return region;
+			}
+			final long regionStart = (long) regionNumber * MAPPED_REGION_SIZE;
+			final long availableBytes = Math.min(MAPPED_REGION_SIZE, this.fFile.length() - regionStart);
+			if (availableBytes < requiredLength) {
+				return null;
+			}
+			try {
+				region = this.fFile.getChannel().map(FileChannel.MapMode.READ_ONLY, regionStart, availableBytes);
+			} catch (ClosedChannelException e) {
+				// Always reopen the file if possible or subsequent reads will fail. Existing mappings remain valid.
+				openFile();
+				if (e instanceof ClosedByInterruptException) {
+					throw new OperationCanceledException();
+				}
+				// Let the caller fall back to an explicit read, which will retry.
+				return null;
+			}
+			if (regionNumber >= this.fMappedRegions.length) {
+				MappedByteBuffer[] newRegions = new MappedByteBuffer[regionNumber + 1];
+				System.arraycopy(this.fMappedRegions, 0, newRegions, 0, this.fMappedRegions.length);
+				this.fMappedRegions = newRegions;
+			}
+			this.fMappedRegions[regionNumber] = region;
+			return region;
+		}
+	}
+
+	/**
+	 * Forgets all memory-mapped regions. Must be called before the file is truncated or closed. Note that the
+	 * mappings themselves are only released once they are garbage collected, so some platforms may refuse to
+	 * truncate the file until that happens.
+	 */
+	private void discardMappedRegions() {
+		synchronized (this.fMappedRegionsMutex) {
+			this.fMappedRegions = new MappedByteBuffer[0];
+		}
+	}
+
+	public boolean isMemoryMapped() {
+		return this.fUseMemoryMappedIO;
+	}
+
+	public boolean isCompressed() {
+		return this.fCompressedFile != null;
+	}
+
 	public ModificationLog getLog() {
 		return this.log;
 	}
@@ -355,9 +583,28 @@ public class Database {
 		return this.fVersion;
 	}
 
+	/**
+	 * Keeps the file marked as incomplete when the database is flushed, until {@link #stopKeepingIncomplete()} has
+	 * been called as many times as this method. Meant for changes that must reach the file as a whole or not at all: a
+	 * database opened while its file is marked as incomplete reports version 0, so it is deleted and recreated. Must be
+	 * called while holding the write lock.
+	 */
+	public void keepIncomplete() {
+		this.fKeepIncompleteCount++;
+	}
+
+	/**
+	 * Allows the next flush to mark the file as complete again, see {@link #keepIncomplete()}. Must be called while
+	 * holding the write lock.
+	 */
+	public void stopKeepingIncomplete() {
+		assert this.fKeepIncompleteCount > 0;
+		this.fKeepIncompleteCount--;
+	}
+
 	public void setVersion(int version) throws IndexException {
 		assert this.fExclusiveLock;
-		this.fHeaderChunk.putInt(VERSION_OFFSET, version);
+		this.fHeaderChunk.putInt(VERSION_OFFSET, toStoredVersion(version));
 		this.fVersion= version;
 	}
 
@@ -372,6 +619,9 @@ public class Database {
 		assert this.fExclusiveLock;
 		boolean wasCanceled = false;
 		removeChunksFromCache();
+		if (this.fTransactionChunks != null) {
+			this.fTransactionChunks.clear();
+		}
 
 		this.log.clear();
 		this.fVersion= version;
@@ -379,13 +629,20 @@ public class Database {
 		this.fHeaderChunk.clear(0, CHUNK_SIZE);
 		// Chunks have been removed from the cache, so we may just reset the array of chunks.
 		this.fChunks = new Chunk[] {null};
-		this.dirtyChunkSet.clear();
+		synchronized (this.dirtyChunkSet) {
+			this.dirtyChunkSet.clear();
+		}
 		this.fChunksUsed = this.fChunks.length;
+		this.fTruncateOnFlush = false;
+		discardMappedRegions();
 		try {
 			wasCanceled = this.fHeaderChunk.flush() || wasCanceled; // Zero out header chunk.
 			wasCanceled = performUninterruptableWrite(() -> {
 				this.fFile.getChannel().truncate(CHUNK_SIZE);
 			}) || wasCanceled;
+			if (this.fCompressedFile != null) {
+				this.fCompressedFile.clear();
+			}
 			this.bytesWritten += CHUNK_SIZE;
 		} catch (IOException e) {
 			Package.log(e);
@@ -412,21 +669,17 @@ public class Database {
 	}
 
 	private void removeChunksFromCache() {
-		int scanIndex = NUM_HEADER_CHUNKS;
-		while (scanIndex < this.fChunksUsed) {
-			synchronized (this.fCache) {
-				int countMax = Math.min(MAX_ITERATIONS_PER_LOCK, this.fChunksUsed - scanIndex);
-				for (int count = 0; count < countMax; count++) {
-					Chunk chunk = this.fChunks[scanIndex++];
-					if (chunk != null) {
-						this.fCache.remove(chunk);
-						if (DEBUG_PAGE_CACHE) {
-							System.out.println("CHUNK " + chunk.fSequenceNumber //$NON-NLS-1$
-									+ ": removing from vector in removeChunksFromCache - instance " //$NON-NLS-1$
-									+ System.identityHashCode(chunk));
-						}
-						this.fChunks[chunk.fSequenceNumber] = null;
+		for (int scanIndex = NUM_HEADER_CHUNKS; scanIndex < this.fChunksUsed; scanIndex++) {
+			synchronized (this.fCache.getMonitor(this, scanIndex)) {
+				Chunk chunk = this.fChunks[scanIndex];
+				if (chunk != null) {
+					this.fCache.remove(chunk);
+					if (DEBUG_PAGE_CACHE) {
+						System.out.println("CHUNK " + chunk.fSequenceNumber //$NON-NLS-1$
+								+ ": removing from vector in removeChunksFromCache - instance " //$NON-NLS-1$
+								+ System.identityHashCode(chunk));
 					}
+					this.fChunks[chunk.fSequenceNumber] = null;
 				}
 			}
 		}
@@ -440,16 +693,79 @@ public class Database {
 	public Chunk getChunk(long offset) throws IndexException {
 		assert offset >= 0;
 		assertLocked();
+		if (this.fSnapshotReads) {
+			if (this.fWriter == Thread.currentThread()) {
+				if (offset >= CHUNK_SIZE) {
+					return getTransactionChunk(offset);
+				}
+			} else {
+				Snapshot snapshot = this.fSnapshots.get();
+				if (snapshot != null) {
+					return getSnapshotChunk(snapshot.fVersion, offset);
+				}
+			}
+		}
 		if (offset < CHUNK_SIZE) {
 			this.fMostRecentlyFetchedChunk = this.fHeaderChunk;
 			return this.fHeaderChunk;
 		}
+		Chunk chunk = fetchCommittedChunk(offset);
+		this.fMostRecentlyFetchedChunk = chunk;
+		return chunk;
+	}
+
+	/**
+	 * Returns the chunk that contains the given offset in the given version.
+	 */
+	private Chunk getSnapshotChunk(Version version, long offset) throws IndexException {
+		if (offset < CHUNK_SIZE) {
+			return version.fHeader;
+		}
+		return version.resolve((int) (offset / CHUNK_SIZE), fetchCommittedChunk(offset));
+	}
+
+	/**
+	 * Returns the view of the chunk that contains the given offset for the current write transaction, creating it if
+	 * necessary.
+	 */
+	private Chunk getTransactionChunk(long offset) throws IndexException {
+		Integer index = Integer.valueOf((int) (offset / CHUNK_SIZE));
+		Chunk chunk = this.fTransactionChunks.get(index);
+		if (chunk == null) {
+			chunk = new Chunk(fetchCommittedChunk(offset));
+			this.fTransactionChunks.put(index, chunk);
+		}
+		this.fMostRecentlyFetchedChunk = chunk;
+		return chunk;
+	}
+
+	/**
+	 * Returns the most recently committed chunk that contains the given (non-header) offset, reading it if necessary.
+	 */
+	private Chunk fetchCommittedChunk(long offset) throws IndexException {
 		long long_index = offset / CHUNK_SIZE;
 		assert long_index < Integer.MAX_VALUE;
 
 		final int index = (int) long_index;
+		Chunk[] chunks = this.fChunks;
+		if (index > 0 && index < chunks.length) {
+			// Fast path for cache hits, without taking the segment monitor. The chunk table slot is read without
+			// synchronization, but a chunk is only added to the cache after it was read and stored in its slot, and
+			// is removed from the cache before its slot changes. Reading the volatile cache index thus guarantees that
+			// the chunk is complete and that it was still the current chunk when it was found.
+			Chunk cached = chunks[index];
+			if (cached != null && cached.fCacheIndex >= 0) {
+				cached.fCacheHitFlag = true;
+				this.cacheHits[this.fCache.getEvictionPolicy().ordinal()].increment();
+				return cached;
+			}
+		}
+		final Object monitor = this.fCache.getMonitor(this, index);
+		// A chunk read from disk must not be inserted if a newer version was committed in the meantime, since the
+		// content on disk may predate that version.
+		final Version versionBeforeRead = this.fNewestVersion;
 		Chunk chunk;
-		synchronized (this.fCache) {
+		synchronized (monitor) {
 			assert this.fLocked;
 			if (index < 0 || index >= this.fChunks.length) {
 				databaseCorruptionDetected();
@@ -469,13 +785,14 @@ public class Database {
 			readEndMs = System.currentTimeMillis();
 		}
 
-		synchronized (this.fCache) {
-			if (cacheMiss) {
-				this.cacheMisses++;
-				this.totalReadTimeMs += (readEndMs - readStartMs);
-			} else {
-				this.cacheHits++;
-			}
+		int policy = this.fCache.getEvictionPolicy().ordinal();
+		if (cacheMiss) {
+			this.cacheMisses[policy].increment();
+			this.totalReadTimeMs.add(readEndMs - readStartMs);
+		} else {
+			this.cacheHits[policy].increment();
+		}
+		synchronized (monitor) {
 			Chunk newChunk = this.fChunks[index];
 			if (newChunk != chunk && newChunk != null) {
 				// Another thread fetched this chunk in the meantime. In this case, we should use the chunk fetched
@@ -487,6 +804,9 @@ public class Database {
 				}
 				chunk = newChunk;
 			} else if (cacheMiss) {
+				if (this.fNewestVersion != versionBeforeRead) {
+					return chunk;
+				}
 				if (DEBUG_PAGE_CACHE) {
 					System.out.println("CHUNK " + chunk.fSequenceNumber + ": inserted into vector - instance " //$NON-NLS-1$//$NON-NLS-2$
 							+ System.identityHashCode(chunk));
@@ -494,12 +814,133 @@ public class Database {
 				this.fChunks[index] = chunk;
 			}
 			this.fCache.add(chunk);
-			this.fMostRecentlyFetchedChunk = chunk;
 		}
 
 		return chunk;
 	}
 
+	/**
+	 * Returns the chunk with the given sequence number that may currently be modified: the view or new chunk of the
+	 * current write transaction when using snapshot reads, or the chunk in the chunk table otherwise.
+	 */
+	Chunk getWritableCopy(int sequenceNumber) {
+		HashMap<Integer, Chunk> transactionChunks = this.fTransactionChunks;
+		if (transactionChunks != null && this.fWriter == Thread.currentThread()) {
+			return transactionChunks.get(Integer.valueOf(sequenceNumber));
+		}
+		return this.fChunks[sequenceNumber];
+	}
+
+	/**
+	 * Enables or disables snapshot reads. With snapshot reads, a write transaction started with {@link #beginWrite()}
+	 * doesn't modify any chunk that is visible to readers. Instead, it works on private copies of the chunks that are
+	 * published atomically by {@link #commitWrite()}. Readers that called {@link #beginSnapshot()} keep seeing the
+	 * version that was committed at that time until they call {@link #endSnapshot()}, so they don't need to be
+	 * excluded while the database is being written. Other threads access the current state of the database, as they
+	 * would without snapshot reads.
+	 * <p>
+	 * Must only be called while no read or write locks are held. Memory-mapped reads are not used while snapshot reads
+	 * are enabled.
+	 */
+	public void setSnapshotReads(boolean enabled) {
+		if (enabled && !this.fSnapshotReads) {
+			this.fNewestVersion = new Version(this.fHeaderChunk.createCopy());
+		} else if (!enabled) {
+			this.fNewestVersion = null;
+		}
+		this.fSnapshotReads = enabled;
+	}
+
+	public boolean isSnapshotReads() {
+		return this.fSnapshotReads;
+	}
+
+	/**
+	 * Makes the current thread see the most recently committed version until the matching call to
+	 * {@link #endSnapshot()}. Calls may be nested, in which case the outermost call determines the version. Only used
+	 * with snapshot reads.
+	 */
+	public void beginSnapshot() {
+		Snapshot snapshot = this.fSnapshots.get();
+		if (snapshot == null) {
+			snapshot = new Snapshot(this.fNewestVersion);
+			this.fSnapshots.set(snapshot);
+		}
+		snapshot.fDepth++;
+	}
+
+	/**
+	 * Ends a snapshot started by {@link #beginSnapshot()}.
+	 */
+	public void endSnapshot() {
+		Snapshot snapshot = this.fSnapshots.get();
+		if (snapshot != null && --snapshot.fDepth <= 0) {
+			this.fSnapshots.remove();
+		}
+	}
+
+	/**
+	 * Starts a write transaction for the current thread. Only used with snapshot reads. The caller is responsible for
+	 * ensuring that there is at most one write transaction at a time.
+	 */
+	public void beginWrite() {
+		assert this.fSnapshotReads;
+		this.fTransactionChunks = new HashMap<>();
+		this.fWriter = Thread.currentThread();
+	}
+
+	/**
+	 * Atomically publishes the changes made by the current write transaction to readers that begin a snapshot from now
+	 * on. Readers with older snapshots keep seeing the chunks that were replaced.
+	 */
+	public void commitWrite() {
+		assert this.fWriter == Thread.currentThread();
+		ArrayList<Chunk> published = new ArrayList<>();
+		HashMap<Integer, Chunk> replaced = new HashMap<>();
+		for (Chunk chunk : this.fTransactionChunks.values()) {
+			if (!chunk.fDirty) {
+				continue;
+			}
+			published.add(chunk);
+			if (chunk.fBase != null) {
+				replaced.put(Integer.valueOf(chunk.fSequenceNumber), chunk.fBase);
+				chunk.fBase = null;
+			}
+		}
+
+		// Readers of the current version must find the replaced chunks as soon as the new ones can be fetched. The new
+		// version is only announced once all of its chunks are in place, since a reader of that version could otherwise
+		// read an outdated chunk from the file.
+		Version previous = this.fNewestVersion;
+		previous.fReplaced = replaced;
+		for (Chunk chunk : published) {
+			int index = chunk.fSequenceNumber;
+			synchronized (this.fCache.getMonitor(this, index)) {
+				Chunk old = this.fChunks[index];
+				if (old != null) {
+					this.fCache.remove(old);
+					if (old.fDirty) {
+						// The new chunk contains all of the changes that were made to the old one.
+						old.fDirty = false;
+						synchronized (this.dirtyChunkSet) {
+							this.dirtyChunkSet.remove(old);
+						}
+					}
+				}
+				this.fChunks[index] = chunk;
+				this.fCache.add(chunk);
+			}
+			synchronized (this.dirtyChunkSet) {
+				this.dirtyChunkSet.add(chunk);
+			}
+		}
+		Version newest = new Version(this.fHeaderChunk.createCopy());
+		previous.fNext = newest;
+		this.fNewestVersion = newest;
+		this.fTransactionChunks = null;
+		this.fWriter = null;
+	}
+
 	public void assertLocked() {
 		if (!this.fLocked) {
 			throw new IllegalStateException("Database not locked!"); //$NON-NLS-1$
@@ -1179,29 +1620,40 @@ public class Database {
 
 	private int createNewChunks(int numChunks) throws IndexException {
 		assert this.fExclusiveLock;
-		synchronized (this.fCache) {
-			final int firstChunkIndex = this.fChunksUsed;
-			final int lastChunkIndex = firstChunkIndex + numChunks - 1;
-
-			final Chunk lastChunk = new Chunk(this, lastChunkIndex);
-
-			if (lastChunkIndex >= this.fChunks.length) {
-				int increment = Math.max(1024, this.fChunks.length / 20);
-				int newNumChunks = Math.max(lastChunkIndex + 1, this.fChunks.length + increment);
-				Chunk[] newChunks = new Chunk[newNumChunks];
-				System.arraycopy(this.fChunks, 0, newChunks, 0, this.fChunks.length);
-				this.fChunks = newChunks;
-			}
+		final int firstChunkIndex = this.fChunksUsed;
+		final int lastChunkIndex = firstChunkIndex + numChunks - 1;
+
+		final Chunk lastChunk = new Chunk(this, lastChunkIndex);
 
+		if (lastChunkIndex >= this.fChunks.length) {
+			// No other thread can insert chunks while we hold the write lock. The cache may still concurrently
+			// release a clean chunk from the old array, in which case the copy keeps referring to it. That is
+			// harmless: the chunk's content is still valid and it is simply added back to the cache on its next use.
+			Chunk[] oldChunks = this.fChunks;
+			int increment = Math.max(1024, oldChunks.length / 20);
+			int newNumChunks = Math.max(lastChunkIndex + 1, oldChunks.length + increment);
+			Chunk[] newChunks = new Chunk[newNumChunks];
+			System.arraycopy(oldChunks, 0, newChunks, 0, oldChunks.length);
+			this.fChunks = newChunks;
+		}
+
+		synchronized (this.fCache.getMonitor(this, lastChunkIndex)) {
 			this.fChunksUsed = lastChunkIndex + 1;
 			if (DEBUG_PAGE_CACHE) {
 				System.out.println("CHUNK " + lastChunk.fSequenceNumber + ": inserted into vector - instance "  //$NON-NLS-1$//$NON-NLS-2$
 						+ System.identityHashCode(lastChunk));
 			}
-			this.fChunks[lastChunkIndex] = lastChunk;
+			if (this.fTransactionChunks != null) {
+				// New chunks are published along with the rest of the transaction
+				this.fTransactionChunks.put(Integer.valueOf(lastChunkIndex), lastChunk);
+			} else {
+				this.fChunks[lastChunkIndex] = lastChunk;
+			}
 			this.fMostRecentlyFetchedChunk = lastChunk;
 			lastChunk.makeDirty();
-			this.fCache.add(lastChunk);
+			if (this.fTransactionChunks == null) {
+				this.fCache.add(lastChunk);
+			}
 			long result = (long) firstChunkIndex * CHUNK_SIZE;
 
 			/*
@@ -1378,6 +1830,135 @@ public class Database {
 		linkFreeBlockToTrie(chunkNum, numChunks);
 	}
 
+	/**
+	 * Returns the space of freed blocks to the allocator and shrinks the database where possible. Chunks that only
+	 * contain free small blocks are turned back into free large blocks, which merge with their free neighbors and can
+	 * be reused for allocations of any size. A free block at the end of the database is removed, and the file is
+	 * truncated on the next flush. Allocated blocks are never moved, since the database doesn't know where the
+	 * pointers to them are stored.
+	 * <p>
+	 * Must be called while holding the write lock. When using snapshot reads, readers must be excluded since the
+	 * removed chunks are no longer available to older versions. The progress and the results are reported through
+	 * {@link #getMemoryStats()}.
+	 *
+	 * @return the number of bytes that were returned to the free space or removed from the end of the database
+	 */
+	public long compact(IProgressMonitor monitor) throws IndexException {
+		assert this.fExclusiveLock;
+		SubMonitor subMonitor = SubMonitor.convert(monitor, 2);
+		this.memoryUsage.compactionStarted();
+		long bytesReclaimed = 0;
+		long bytesTruncated = 0;
+		try {
+			final int chunksUsed = this.fChunksUsed;
+			ArrayList<Integer> reclaimableChunks = new ArrayList<>();
+			SubMonitor scanMonitor = subMonitor.split(1).setWorkRemaining(chunksUsed);
+			for (int chunkNum = NUM_HEADER_CHUNKS; chunkNum < chunksUsed;) {
+				int blockHeader = getBlockHeaderForChunkNum(chunkNum);
+				if (blockHeader == 0) {
+					throw describeProblem()
+						.addProblemAddress("block header", (long) chunkNum * CHUNK_SIZE, INT_SIZE) //$NON-NLS-1$
+						.build("Found a block of size 0 while compacting chunk " + chunkNum); //$NON-NLS-1$
+				}
+				if (blockHeader == -1 && containsOnlyFreeSmallBlocks(chunkNum)) {
+					reclaimableChunks.add(Integer.valueOf(chunkNum));
+				}
+				int numChunks = Math.abs(blockHeader);
+				chunkNum += numChunks;
+				scanMonitor.split(numChunks);
+				this.memoryUsage.setCompactionProgress((double) chunkNum / chunksUsed);
+			}
+
+			subMonitor.split(1);
+			for (Integer next : reclaimableChunks) {
+				reclaimSmallBlocks(next.intValue());
+			}
+			bytesTruncated = (long) removeFreeBlockAtEnd() * CHUNK_SIZE;
+			// Reclaimed chunks that were removed from the end of the database only count as truncated
+			for (Integer next : reclaimableChunks) {
+				if (next.intValue() < this.fChunksUsed) {
+					bytesReclaimed += CHUNK_SIZE;
+				}
+			}
+		} finally {
+			this.memoryUsage.compactionFinished(bytesReclaimed, bytesTruncated);
+		}
+
+		if (DEBUG_FREE_SPACE) {
+			validateFreeSpace();
+		}
+		return bytesReclaimed + bytesTruncated;
+	}
+
+	/**
+	 * Returns true iff the given chunk is divided into small blocks which are all free.
+	 */
+	private boolean containsOnlyFreeSmallBlocks(int chunkNum) {
+		long block = (long) chunkNum * CHUNK_SIZE + LargeBlock.HEADER_SIZE;
+		long end = block + MAX_BLOCK_DELTAS * BLOCK_SIZE_DELTA;
+		Chunk chunk = getChunk(block);
+		while (block < end) {
+			// Large blocks have a block size of 0 and allocated small blocks have a negative size
+			int blockSize = chunk.getShort(block);
+			if (blockSize <= 0) {
+				return false;
+			}
+			block += blockSize;
+		}
+		return block == end;
+	}
+
+	/**
+	 * Removes the free small blocks of the given chunk from the free lists and returns the chunk to the free space
+	 * trie.
+	 */
+	private void reclaimSmallBlocks(int chunkNum) {
+		long block = (long) chunkNum * CHUNK_SIZE + LargeBlock.HEADER_SIZE;
+		long end = block + MAX_BLOCK_DELTAS * BLOCK_SIZE_DELTA;
+		while (block < end) {
+			Chunk chunk = getChunk(block);
+			int blockSize = chunk.getShort(block);
+			removeBlock(chunk, blockSize, block);
+			block += blockSize;
+		}
+		freeLargeChunk(chunkNum, 1);
+	}
+
+	/**
+	 * Removes the free block at the end of the database, if there is one, and returns its number of chunks.
+	 */
+	private int removeFreeBlockAtEnd() {
+		int numChunks = getBlockFooterForChunkBefore(this.fChunksUsed);
+		if (numChunks <= 0) {
+			return 0;
+		}
+		int firstChunkNum = this.fChunksUsed - numChunks;
+		unlinkFreeBlock(firstChunkNum);
+		for (int index = firstChunkNum; index < this.fChunksUsed; index++) {
+			if (this.fTransactionChunks != null) {
+				this.fTransactionChunks.remove(Integer.valueOf(index));
+			}
+			synchronized (this.fCache.getMonitor(this, index)) {
+				Chunk chunk = this.fChunks[index];
+				if (chunk != null) {
+					this.fCache.remove(chunk);
+					if (chunk.fDirty) {
+						chunk.fDirty = false;
+						synchronized (this.dirtyChunkSet) {
+							this.dirtyChunkSet.remove(chunk);
+						}
+					}
+					this.fChunks[index] = null;
+				}
+			}
+		}
+		this.fMostRecentlyFetchedChunk = null;
+		this.fChunksUsed = firstChunkNum;
+		this.fTruncateOnFlush = true;
+		this.fHeaderChunk.makeDirty();
+		return numChunks;
+	}
+
 	public void putByte(long offset, byte value) throws IndexException {
 		getChunk(offset).putByte(offset, value);
 	}
@@ -1567,15 +2148,24 @@ public class Database {
 		assert this.fExclusiveLock;
 		flush();
 		removeChunksFromCache();
+		if (this.fTransactionChunks != null) {
+			this.fTransactionChunks.clear();
+		}
 
 		this.log.clear();
 		// Chunks have been removed from the cache, so we are fine.
 		this.fHeaderChunk.clear(0, CHUNK_SIZE);
 		this.memoryUsage.refresh();
 		this.fHeaderChunk.fDirty= false;
-		this.dirtyChunkSet.clear();
+		synchronized (this.dirtyChunkSet) {
+			this.dirtyChunkSet.clear();
+		}
 		this.fChunks= new Chunk[] { null };
 		this.fChunksUsed = this.fChunks.length;
+		discardMappedRegions();
+		if (this.fCompressedFile != null) {
+			this.fCompressedFile.close();
+		}
 		try {
 			this.fFile.close();
 		} catch (IOException e) {
@@ -1591,10 +2181,11 @@ public class Database {
 	}
 
 	/**
-	 * Called from any thread via the cache, protected by {@link #fCache}.
+	 * Called from any thread via the cache, protected by the cache monitor for the chunk (see
+	 * {@link ChunkCache#getMonitor(Database, int)}).
 	 */
 	void checkIfChunkReleased(final Chunk chunk) {
-		if (!chunk.fDirty && chunk.fCacheIndex < 0) {
+		if (!chunk.fDirty && chunk.fCacheIndex < 0 && this.fChunks[chunk.fSequenceNumber] == chunk) {
 			if (DEBUG_PAGE_CACHE) {
 				System.out.println("CHUNK " + chunk.fSequenceNumber //$NON-NLS-1$
 						+ ": removing from vector in releaseChunk - instance " + System.identityHashCode(chunk)); //$NON-NLS-1$
@@ -1607,15 +2198,25 @@ public class Database {
 		if (chunk.fSequenceNumber < NUM_HEADER_CHUNKS) {
 			return;
 		}
-		this.dirtyChunkSet.add(chunk);
+		if (this.fTransactionChunks != null) {
+			// Chunks of a write transaction are only flushed once they have been committed
+			return;
+		}
+		synchronized (this.dirtyChunkSet) {
+			this.dirtyChunkSet.add(chunk);
+		}
 	}
 
 	void chunkCleaned(final Chunk chunk) {
 		if (chunk.fSequenceNumber < NUM_HEADER_CHUNKS) {
 			return;
 		}
-		this.dirtyChunkSet.remove(chunk);
-		checkIfChunkReleased(chunk);
+		synchronized (this.dirtyChunkSet) {
+			this.dirtyChunkSet.remove(chunk);
+		}
+		synchronized (this.fCache.getMonitor(this, chunk.fSequenceNumber)) {
+			checkIfChunkReleased(chunk);
+		}
 	}
 
 	/**
@@ -1647,14 +2248,14 @@ public class Database {
 		boolean wasInterrupted = false;
 		assert this.fLocked;
 		ArrayList<Chunk> dirtyChunks= new ArrayList<>();
-		synchronized (this.fCache) {
+		synchronized (this.dirtyChunkSet) {
 			dirtyChunks.addAll(this.dirtyChunkSet);
 		}
 		sortBySequenceNumber(dirtyChunks);
 
 		long startTime = System.currentTimeMillis();
 		// Also handles header chunk.
-		wasInterrupted = flushAndUnlockChunks(dirtyChunks, true) || wasInterrupted;
+		wasInterrupted = flushAndUnlockChunks(dirtyChunks, this.fKeepIncompleteCount == 0) || wasInterrupted;
 		long elapsedTime = System.currentTimeMillis() - startTime;
 		this.totalFlushTime += elapsedTime;
 
@@ -1673,23 +2274,21 @@ public class Database {
 	 */
 	private boolean flushAndUnlockChunks(final ArrayList<Chunk> dirtyChunks, boolean isComplete) throws IndexException {
 		boolean wasInterrupted = false;
-		assert !Thread.holdsLock(this.fCache);
 		final boolean haveDirtyChunks = !dirtyChunks.isEmpty();
 		if (haveDirtyChunks || this.fHeaderChunk.fDirty) {
 			wasInterrupted = markFileIncomplete() || wasInterrupted;
 		}
 		if (haveDirtyChunks) {
 			double desiredWriteBytesPerMs = Database.MIN_BYTES_PER_MILLISECOND;
-			synchronized (this.fCache) {
-				if (this.cacheMisses > 100) {
-					double measuredReadBytesPerMs = getAverageReadBytesPerMs();
-					if (measuredReadBytesPerMs > 0) {
-						desiredWriteBytesPerMs = measuredReadBytesPerMs / 2;
-					}
+			if (getCacheMisses() > 100) {
+				double measuredReadBytesPerMs = getAverageReadBytesPerMs();
+				if (measuredReadBytesPerMs > 0) {
+					desiredWriteBytesPerMs = measuredReadBytesPerMs / 2;
 				}
 			}
 			desiredWriteBytesPerMs = Math.max(desiredWriteBytesPerMs, Database.MIN_BYTES_PER_MILLISECOND);
 			ChunkWriter writer = new ChunkWriter(WRITE_BUFFER_SIZE, desiredWriteBytesPerMs, this::write);
+			ArrayList<Chunk> writtenChunks = new ArrayList<>();
 			try {
 				for (Chunk chunk : dirtyChunks) {
 					if (chunk.fDirty) {
@@ -1699,29 +2298,51 @@ public class Database {
 									+ System.identityHashCode(chunk));
 						}
 						byte[] nextBytes;
-						synchronized (this.fCache) {
+						synchronized (this.fCache.getMonitor(this, chunk.fSequenceNumber)) {
 							nextBytes = chunk.getBytes();
-							chunk.fDirty = false;
-							chunkCleaned(chunk);
 						}
-						wasCanceled = writer.write((long) chunk.fSequenceNumber * Database.CHUNK_SIZE, nextBytes);
+						if (this.fCompressedFile != null) {
+							wasCanceled = this.fCompressedFile.write(writer, chunk.fSequenceNumber, nextBytes);
+						} else {
+							wasCanceled = writer.write((long) chunk.fSequenceNumber * Database.CHUNK_SIZE, nextBytes);
+						}
+						writtenChunks.add(chunk);
 
 						wasInterrupted = wasCanceled || wasInterrupted;
 					}
 				}
 				writer.flush();
-				synchronized (this.fCache) {
-					this.pageWritesBytes += writer.getBytesWritten();
-					this.totalWriteTimeMs += writer.getTotalWriteTimeMs();
+				if (this.fCompressedFile != null) {
+					wasInterrupted = this.fCompressedFile.writeTable(writer, this.fChunksUsed) || wasInterrupted;
+					writer.flush();
+				}
+				// The chunks may only be released once their content has reached the file. Otherwise, a concurrent
+				// reader could read their previous content from the file while the writer is still buffering it.
+				for (Chunk chunk : writtenChunks) {
+					synchronized (this.fCache.getMonitor(this, chunk.fSequenceNumber)) {
+						chunk.fDirty = false;
+						chunkCleaned(chunk);
+					}
 				}
+				if (this.fUseMemoryMappedIO) {
+					// Force the chunks to disk before the header marks the file as complete again.
+					wasInterrupted = performUninterruptableWrite(() -> this.fFile.getChannel().force(false))
+							|| wasInterrupted;
+				}
+				this.pageWritesBytes += writer.getBytesWritten();
+				this.totalWriteTimeMs += writer.getTotalWriteTimeMs();
 			} catch (IOException e) {
 				throw new IndexException(new DBStatus(e));
 			}
 		}
 
+		if (this.fTruncateOnFlush) {
+			wasInterrupted = truncateFile() || wasInterrupted;
+		}
+
 		if (isComplete) {
 			if (this.fHeaderChunk.fDirty || this.fIsMarkedIncomplete) {
-				this.fHeaderChunk.putInt(VERSION_OFFSET, this.fVersion);
+				this.fHeaderChunk.putInt(VERSION_OFFSET, toStoredVersion(this.fVersion));
 				wasInterrupted = this.fHeaderChunk.flush() || wasInterrupted;
 				this.fIsMarkedIncomplete= false;
 			}
@@ -1729,6 +2350,32 @@ public class Database {
 		return wasInterrupted;
 	}
 
+	/**
+	 * Removes the chunks after the last chunk in use from the file. Returns true iff an attempt was made to interrupt
+	 * the write with {@link Thread#interrupt()}.
+	 */
+	private boolean truncateFile() throws IndexException {
+		boolean wasInterrupted = markFileIncomplete();
+		try {
+			long length = (long) this.fChunksUsed * CHUNK_SIZE;
+			if (this.fCompressedFile != null) {
+				ChunkWriter writer = new ChunkWriter(WRITE_BUFFER_SIZE, MIN_BYTES_PER_MILLISECOND, this::write);
+				wasInterrupted = this.fCompressedFile.truncate(writer, this.fChunksUsed) || wasInterrupted;
+				wasInterrupted = writer.flush() || wasInterrupted;
+				length = this.fCompressedFile.trimFreeSlots();
+			}
+			final long newLength = length;
+			discardMappedRegions();
+			wasInterrupted = performUninterruptableWrite(() -> {
+				this.fFile.getChannel().truncate(newLength);
+			}) || wasInterrupted;
+		} catch (IOException e) {
+			throw new IndexException(new DBStatus(e));
+		}
+		this.fTruncateOnFlush = false;
+		return wasInterrupted;
+	}
+
 	private boolean markFileIncomplete() throws IndexException {
 		boolean wasInterrupted = false;
 		if (!this.fIsMarkedIncomplete) {
@@ -1745,13 +2392,17 @@ public class Database {
 	}
 
 	public void resetCacheCounters() {
-		this.cacheHits = 0;
-		this.cacheMisses = 0;
+		for (LongAdder next : this.cacheHits) {
+			next.reset();
+		}
+		for (LongAdder next : this.cacheMisses) {
+			next.reset();
+		}
 		this.bytesWritten = 0;
 		this.totalFlushTime = 0;
 		this.pageWritesBytes = 0;
 		this.totalWriteTimeMs = 0;
-		this.totalReadTimeMs = 0;
+		this.totalReadTimeMs.reset();
 	}
 
 	public long getBytesWritten() {
@@ -1759,8 +2410,8 @@ public class Database {
 	}
 
 	public double getAverageReadBytesPerMs() {
-		long reads = this.cacheMisses;
-		long time = this.totalReadTimeMs;
+		long reads = getCacheMisses();
+		long time = this.totalReadTimeMs.sum();
 
 		if (time == 0) {
 			return 0;
@@ -1777,15 +2428,46 @@ public class Database {
 	}
 
 	public long getBytesRead() {
-		return this.cacheMisses * CHUNK_SIZE;
+		return getCacheMisses() * CHUNK_SIZE;
 	}
 
 	public long getCacheHits() {
-		return this.cacheHits;
+		return sum(this.cacheHits);
 	}
 
 	public long getCacheMisses() {
-		return this.cacheMisses;
+		return sum(this.cacheMisses);
+	}
+
+	/**
+	 * Returns the number of chunk requests that were served from the cache while it used the given eviction policy.
+	 */
+	public long getCacheHits(ChunkCache.EvictionPolicy policy) {
+		return this.cacheHits[policy.ordinal()].sum();
+	}
+
+	/**
+	 * Returns the number of chunk requests that had to be read from disk while the cache used the given eviction
+	 * policy.
+	 */
+	public long getCacheMisses(ChunkCache.EvictionPolicy policy) {
+		return this.cacheMisses[policy.ordinal()].sum();
+	}
+
+	private static LongAdder[] createCounters() {
+		LongAdder[] result = new LongAdder[ChunkCache.EvictionPolicy.values().length];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = new LongAdder();
+		}
+		return result;
+	}
+
+	private static long sum(LongAdder[] counters) {
+		long result = 0;
+		for (LongAdder next : counters) {
+			result += next.sum();
+		}
+		return result;
 	}
 
 	public long getCumulativeFlushTimeMs() {
@@ -1843,7 +2525,9 @@ public class Database {
 	}
 
 	public int getDirtyChunkCount() {
-		return this.dirtyChunkSet.size();
+		synchronized (this.dirtyChunkSet) {
+			return this.dirtyChunkSet.size();
+		}
 	}
 
 	public static String formatByteString(long valueInBytes) {
@@ -1860,26 +2544,89 @@ public class Database {
 		return mbFormat.format(value) + suffix;
 	}
 
+	/**
+	 * Returns statistics about the chunks of this database. The chunk table isn't locked as a whole, so the result
+	 * may be slightly inconsistent if other threads are accessing the database concurrently.
+	 */
 	public ChunkStats getChunkStats() {
-		synchronized (this.fCache) {
-			int count = 0;
-			int dirtyChunks = 0;
-			int nonDirtyChunksNotInCache = 0;
-			for (Chunk next : this.fChunks) {
-				if (next != null) {
-					count++;
-					if (next.fDirty) {
-						dirtyChunks++;
-					} else if (next.fCacheIndex < 0) {
-						nonDirtyChunksNotInCache++;
-					}
+		Chunk[] chunks = this.fChunks;
+		int count = 0;
+		int dirtyChunks = 0;
+		int nonDirtyChunksNotInCache = 0;
+		for (int index = 0; index < chunks.length; index++) {
+			Chunk next;
+			synchronized (this.fCache.getMonitor(this, index)) {
+				next = chunks[index];
+			}
+			if (next != null) {
+				count++;
+				if (next.fDirty) {
+					dirtyChunks++;
+				} else if (next.fCacheIndex < 0) {
+					nonDirtyChunksNotInCache++;
 				}
 			}
-			return new ChunkStats(this.fChunks.length, count, dirtyChunks, nonDirtyChunksNotInCache);
 		}
+		return new ChunkStats(chunks.length, count, dirtyChunks, nonDirtyChunksNotInCache);
 	}
 
 	public IndexExceptionBuilder describeProblem() {
 		return new IndexExceptionBuilder(this);
 	}
+
+	/**
+	 * A committed version of the database, as seen by readers when using snapshot reads. Versions form a list from
+	 * older to newer ones, so a version is garbage collected as soon as no reader holds a snapshot of it or of an
+	 * older version.
+	 */
+	private static final class Version {
+		/**
+		 * A private copy of the header chunk as of this version.
+		 */
+		final Chunk fHeader;
+		/**
+		 * The chunks as of this version that are replaced by the next version, indexed by sequence number. Set before
+		 * the replacements are published, and thus before {@link #fNext}.
+		 */
+		volatile Map<Integer, Chunk> fReplaced;
+		volatile Version fNext;
+
+		Version(Chunk header) {
+			this.fHeader = header;
+		}
+
+		/**
+		 * Given the most recently committed chunk with the given sequence number, returns the chunk as of this version.
+		 * The committed chunk must have been obtained before calling this method.
+		 */
+		Chunk resolve(int sequenceNumber, Chunk committed) {
+			Integer key = null;
+			for (Version version = this; version != null; version = version.fNext) {
+				Map<Integer, Chunk> replacedChunks = version.fReplaced;
+				if (replacedChunks == null) {
+					break;
+				}
+				if (key == null) {
+					key = Integer.valueOf(sequenceNumber);
+				}
+				Chunk replaced = replacedChunks.get(key);
+				if (replaced != null) {
+					return replaced;
+				}
+			}
+			return committed;
+		}
+	}
+
+	/**
+	 * The version seen by one reader thread.
+	 */
+	private static final class Snapshot {
+		final Version fVersion;
+		int fDepth;
+
+		Snapshot(Version version) {
+			this.fVersion = version;
+		}
+	}
 }
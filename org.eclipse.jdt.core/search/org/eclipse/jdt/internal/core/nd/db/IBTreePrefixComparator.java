@@ -0,0 +1,33 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.jdt.internal.core.nd.db;
+
+import org.eclipse.jdt.internal.core.nd.Nd;
+
+/**
+ * A comparator that can summarize the key of a record in a short, fixed-size byte prefix. A {@link BTree} using such
+ * a comparator stores the prefix of each record inline in its nodes, so most comparisons performed while searching a
+ * node can be decided without dereferencing the records, which usually live in other chunks.
+ */
+public interface IBTreePrefixComparator extends IBTreeComparator {
+	/**
+	 * Returns the size of the key prefixes in bytes. Must not change for the lifetime of the b-tree.
+	 */
+	int getKeyPrefixSize();
+
+	/**
+	 * Writes the key prefix of the given record into the given array, whose length is the {@link #getKeyPrefixSize()
+	 * prefix size}. Prefixes must be consistent with {@link #compare(Nd, long, long)}: if the prefix of one record is
+	 * smaller than the prefix of another, compared as unsigned bytes in lexicographic order, the first record must
+	 * also compare smaller. Records with equal prefixes may compare in any order.
+	 */
+	void getKeyPrefix(Nd nd, long record, byte[] prefix);
+}
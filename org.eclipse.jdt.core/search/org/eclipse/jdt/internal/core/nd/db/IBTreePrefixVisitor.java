@@ -0,0 +1,29 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.jdt.internal.core.nd.db;
+
+/**
+ * A visitor that can compare the key prefixes stored by a {@link BTree} whose comparator is an
+ * {@link IBTreePrefixComparator}, which saves dereferencing the records for most of the comparisons performed while
+ * searching the b-tree.
+ */
+public interface IBTreePrefixVisitor extends IBTreeVisitor {
+	/**
+	 * Returned by {@link #compareKeyPrefix(byte[])} if the prefix is not sufficient to compare the record.
+	 */
+	public static final int UNKNOWN = Integer.MIN_VALUE;
+
+	/**
+	 * Compares a record against the internally held key, given only the key prefix of the record. Returns the same
+	 * result as {@link #compare(long)} would, or {@link #UNKNOWN} if that can't be decided from the prefix alone.
+	 */
+	public abstract int compareKeyPrefix(byte[] recordPrefix);
+}
@@ -34,6 +34,12 @@ public class MemoryStats {
 	public final long address;
 	private Chunk db;
 
+	// Statistics about Database.compact, which are not stored in the database
+	private volatile double compactionProgress = 1.0;
+	private volatile int numCompactions;
+	private volatile long bytesReclaimedByCompaction;
+	private volatile long bytesTruncatedByCompaction;
+
 	public static final class PoolStats {
 		public static int POOL_ID_OFFSET = 0;
 		public static int NUM_ALLOCATIONS_OFFSET = POOL_ID_OFFSET + Database.SHORT_SIZE;
@@ -96,6 +102,15 @@ public class MemoryStats {
 			builder.append(Database.formatByteString(next.totalSize));
 			builder.append("\n"); //$NON-NLS-1$
 		}
+		if (this.numCompactions > 0) {
+			builder.append("Compactions "); //$NON-NLS-1$
+			builder.append(this.numCompactions);
+			builder.append(", "); //$NON-NLS-1$
+			builder.append(Database.formatByteString(this.bytesReclaimedByCompaction));
+			builder.append(" reclaimed, "); //$NON-NLS-1$
+			builder.append(Database.formatByteString(this.bytesTruncatedByCompaction));
+			builder.append(" truncated\n"); //$NON-NLS-1$
+		}
 		System.out.println(builder.toString());
 	}
 
@@ -137,6 +152,65 @@ public class MemoryStats {
 		return unsorted;
 	}
 
+	/**
+	 * Returns the total size of the blocks that are currently allocated in all pools.
+	 */
+	public long getTotalAllocatedSize() {
+		if (this.stats.isEmpty()) {
+			refresh();
+		}
+		long result = 0;
+		for (PoolStats next : this.stats.values()) {
+			result += next.totalSize;
+		}
+		return result;
+	}
+
+	void compactionStarted() {
+		this.compactionProgress = 0.0;
+	}
+
+	void setCompactionProgress(double progress) {
+		this.compactionProgress = progress;
+	}
+
+	void compactionFinished(long bytesReclaimed, long bytesTruncated) {
+		this.numCompactions++;
+		this.bytesReclaimedByCompaction += bytesReclaimed;
+		this.bytesTruncatedByCompaction += bytesTruncated;
+		this.compactionProgress = 1.0;
+	}
+
+	/**
+	 * Returns the fraction (between 0 and 1) of the database that the running compaction has scanned so far, or 1 if
+	 * no compaction is running.
+	 */
+	public double getCompactionProgress() {
+		return this.compactionProgress;
+	}
+
+	/**
+	 * Returns the number of compactions since the database was opened.
+	 */
+	public int getNumCompactions() {
+		return this.numCompactions;
+	}
+
+	/**
+	 * Returns the number of bytes of free small blocks that compactions have returned to the free space for
+	 * allocations of any size since the database was opened.
+	 */
+	public long getBytesReclaimedByCompaction() {
+		return this.bytesReclaimedByCompaction;
+	}
+
+	/**
+	 * Returns the number of bytes that compactions have removed from the end of the database since it was opened.
+	 */
+	public long getBytesTruncatedByCompaction() {
+		return this.bytesTruncatedByCompaction;
+	}
+
 	public void recordMalloc(short poolId, long size) {
 		PoolStats toRecord = getPoolStats(poolId);
 		toRecord.setAllocations(this.db, toRecord.numAllocations + 1);
@@ -0,0 +1,58 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.jdt.internal.core.nd.db;
+
+import java.util.List;
+
+/**
+ * Decides which {@link Chunk}s are kept in one segment of a {@link ChunkCache}. All methods are only called while
+ * holding the monitor of the segment that owns the table.
+ * <p>
+ * A chunk is in the table iff its {@link Chunk#fCacheIndex} is non-negative. Hits on chunks that are already in the
+ * table are recorded by the cache itself, without calling the table, by setting {@link Chunk#fCacheHitFlag}.
+ */
+abstract class PageTable {
+	/**
+	 * Inserts a chunk that isn't currently in any page table, evicting another chunk if the table is full.
+	 */
+	abstract void add(Chunk chunk);
+
+	/**
+	 * Removes the given chunk from the table without releasing it from its database. Does nothing if the chunk isn't
+	 * in the table.
+	 */
+	abstract void remove(Chunk chunk);
+
+	/**
+	 * Returns the maximum number of chunks held by the table.
+	 */
+	abstract int getLength();
+
+	/**
+	 * Changes the maximum number of chunks held by the table, evicting chunks if the table shrinks.
+	 */
+	abstract void setLength(int newLength);
+
+	/**
+	 * Removes all chunks from the table and returns them. The chunks are not released from their databases, which
+	 * allows the caller to either release them or to insert them into another table.
+	 */
+	abstract List<Chunk> removeAll();
+
+	/**
+	 * Marks a chunk as no longer being in the table and lets its database drop it if it is clean.
+	 */
+	static void release(Chunk chunk) {
+		chunk.fCacheIndex = -1;
+		chunk.fCacheHot = false;
+		chunk.fDatabase.checkIfChunkReleased(chunk);
+	}
+}
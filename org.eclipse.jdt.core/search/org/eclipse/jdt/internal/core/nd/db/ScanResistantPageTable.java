@@ -0,0 +1,191 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.jdt.internal.core.nd.db;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * A {@link PageTable} that protects frequently used chunks from sequential scans, using a variant of the 2Q
+ * algorithm. See {@link ChunkCache.EvictionPolicy#SCAN_RESISTANT}.
+ * <p>
+ * Newly fetched chunks are cold and are kept in a FIFO queue that holds at most a quarter of the table. Hits on cold
+ * chunks are ignored, since a scan normally touches each of its chunks several times in a row. When a cold chunk
+ * leaves the queue it is evicted, but its identity is remembered in a bounded list of non-resident "ghost" entries. A
+ * chunk that is fetched again while it still has a ghost entry has been reused over a longer period and becomes hot.
+ * Hot chunks are managed with the CLOCK algorithm and are only evicted when the cold queue is within its quota.
+ */
+final class ScanResistantPageTable extends PageTable {
+	private Chunk[] fPageTable;
+	/**
+	 * Stack of the unused indices in {@link #fPageTable}.
+	 */
+	private int[] fFreeSlots;
+	private int fFreeCount;
+	private final ArrayDeque<Chunk> fColdQueue = new ArrayDeque<>();
+	private int fHotCount;
+	/**
+	 * CLOCK hand for hot chunks. Cold chunks and empty slots are skipped.
+	 */
+	private int fHand;
+	/**
+	 * Keys of recently evicted cold chunks, oldest first. See {@link #getKey(Chunk)}.
+	 */
+	private final LinkedHashSet<Long> fGhosts = new LinkedHashSet<>();
+	private int fMaxColdChunks;
+	private int fMaxGhosts;
+
+	ScanResistantPageTable(int length) {
+		initTable(length, 0);
+	}
+
+	/**
+	 * Allocates a new table of the given length whose first <code>used</code> slots will be filled in by the caller.
+	 */
+	private void initTable(int length, int used) {
+		this.fPageTable = new Chunk[length];
+		this.fFreeSlots = new int[length];
+		this.fFreeCount = 0;
+		for (int i = length - 1; i >= used; i--) {
+			this.fFreeSlots[this.fFreeCount++] = i;
+		}
+		this.fHand = 0;
+		this.fMaxColdChunks = Math.max(1, length / 4);
+		this.fMaxGhosts = Math.max(1, length / 2);
+		trimGhosts();
+	}
+
+	private static Long getKey(Chunk chunk) {
+		// Collisions between databases only affect the hit rate, not correctness
+		return Long.valueOf(((long) chunk.fDatabase.fCacheSegmentSeed << 32) | (chunk.fSequenceNumber & 0xffffffffL));
+	}
+
+	@Override
+	int getLength() {
+		return this.fPageTable.length;
+	}
+
+	@Override
+	void add(Chunk chunk) {
+		boolean hot = this.fGhosts.remove(getKey(chunk));
+		if (this.fFreeCount == 0) {
+			evictChunk();
+		}
+		int slot = this.fFreeSlots[--this.fFreeCount];
+		this.fPageTable[slot] = chunk;
+		chunk.fCacheIndex = slot;
+		if (hot) {
+			chunk.fCacheHot = true;
+			this.fHotCount++;
+		} else {
+			this.fColdQueue.addLast(chunk);
+		}
+	}
+
+	/**
+	 * Evicts one chunk from the page table and the chunk table, leaving its slot in the free list.
+	 */
+	private void evictChunk() {
+		if (!this.fColdQueue.isEmpty() && (this.fColdQueue.size() >= this.fMaxColdChunks || this.fHotCount == 0)) {
+			Chunk chunk = this.fColdQueue.removeFirst();
+			this.fGhosts.add(getKey(chunk));
+			trimGhosts();
+			evict(chunk);
+			return;
+		}
+
+		while (true) {
+			Chunk chunk = this.fPageTable[this.fHand];
+			this.fHand = (this.fHand + 1) % this.fPageTable.length;
+			if (chunk == null || !chunk.fCacheHot) {
+				continue;
+			}
+			if (chunk.fCacheHitFlag) {
+				chunk.fCacheHitFlag = false;
+			} else {
+				this.fHotCount--;
+				evict(chunk);
+				return;
+			}
+		}
+	}
+
+	private void evict(Chunk chunk) {
+		int slot = chunk.fCacheIndex;
+		this.fPageTable[slot] = null;
+		this.fFreeSlots[this.fFreeCount++] = slot;
+		release(chunk);
+	}
+
+	private void trimGhosts() {
+		Iterator<Long> iter = this.fGhosts.iterator();
+		while (this.fGhosts.size() > this.fMaxGhosts) {
+			iter.next();
+			iter.remove();
+		}
+	}
+
+	@Override
+	void remove(Chunk chunk) {
+		final int idx = chunk.fCacheIndex;
+		if (idx >= 0) {
+			if (chunk.fCacheHot) {
+				this.fHotCount--;
+				chunk.fCacheHot = false;
+			} else {
+				this.fColdQueue.remove(chunk);
+			}
+			this.fPageTable[idx] = null;
+			this.fFreeSlots[this.fFreeCount++] = idx;
+			chunk.fCacheIndex = -1;
+		}
+	}
+
+	@Override
+	void setLength(int newLength) {
+		while (this.fPageTable.length - this.fFreeCount > newLength) {
+			evictChunk();
+		}
+		Chunk[] oldTable = this.fPageTable;
+		int used = oldTable.length - this.fFreeCount;
+		initTable(newLength, used);
+		int next = 0;
+		for (Chunk chunk : oldTable) {
+			if (chunk != null) {
+				this.fPageTable[next] = chunk;
+				chunk.fCacheIndex = next;
+				next++;
+			}
+		}
+	}
+
+	@Override
+	List<Chunk> removeAll() {
+		List<Chunk> result = new ArrayList<>();
+		for (int i = 0; i < this.fPageTable.length; i++) {
+			Chunk chunk = this.fPageTable[i];
+			if (chunk == null) {
+				continue;
+			}
+			chunk.fCacheIndex = -1;
+			chunk.fCacheHot = false;
+			result.add(chunk);
+		}
+		this.fColdQueue.clear();
+		this.fGhosts.clear();
+		this.fHotCount = 0;
+		initTable(this.fPageTable.length, 0);
+		return result;
+	}
+}
@@ -14,7 +14,13 @@
 package org.eclipse.jdt.internal.core.nd.field;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
 
 import org.eclipse.jdt.internal.core.nd.ITypeFactory;
 import org.eclipse.jdt.internal.core.nd.Nd;
@@ -24,17 +30,30 @@ import org.eclipse.jdt.internal.core.nd.db.ModificationLog;
 import org.eclipse.jdt.internal.core.nd.db.Database;
 import org.eclipse.jdt.internal.core.nd.db.ModificationLog.Tag;
 import org.eclipse.jdt.internal.core.nd.db.IBTreeComparator;
+import org.eclipse.jdt.internal.core.nd.db.IBTreePrefixComparator;
+import org.eclipse.jdt.internal.core.nd.db.IBTreePrefixVisitor;
 import org.eclipse.jdt.internal.core.nd.db.IBTreeVisitor;
 import org.eclipse.jdt.internal.core.nd.db.IString;
 import org.eclipse.jdt.internal.core.nd.db.IndexException;
+import org.eclipse.jdt.internal.core.nd.db.ShortString;
 
 /**
  * Declares a field representing a case-insensitive search tree over elements which are a subtype of NdNode.
  */
 public class FieldSearchIndex<T extends NdNode> extends BaseField implements IDestructableField {
+	/**
+	 * Number of characters of each key stored inline in the b-tree nodes of indices created with
+	 * {@link #create(StructDef, FieldSearchKey, boolean)}.
+	 */
+	public static final int KEY_PREFIX_SIZE = 16;
 	private final ITypeFactory<BTree> btreeFactory;
 	FieldSearchKey<?> searchKey;
 	private final Tag destructTag;
+	/**
+	 * The records whose insertion has been deferred, for each {@link Nd} that called
+	 * {@link #deferInsertions(Nd)}.
+	 */
+	private final Map<Nd, Set<Long>> deferredInsertions = Collections.synchronizedMap(new WeakHashMap<>());
 	private static IResultRank anything = new IResultRank() {
 		@Override
 		public long getRank(Nd nd, long address) {
@@ -119,9 +138,10 @@ public class FieldSearchIndex<T extends NdNode> extends BaseField implements IDe
 		public long getRank(Nd nd, long address);
 	}
 
-	private abstract class SearchCriteriaToBtreeVisitorAdapter implements IBTreeVisitor {
+	private abstract class SearchCriteriaToBtreeVisitorAdapter implements IBTreePrefixVisitor {
 		private final SearchCriteria searchCriteria;
 		private final Nd nd;
+		private byte[] searchPrefix;
 
 		public SearchCriteriaToBtreeVisitorAdapter(SearchCriteria searchCriteria, Nd nd) {
 			this.searchCriteria = searchCriteria;
@@ -139,6 +159,26 @@ public class FieldSearchIndex<T extends NdNode> extends BaseField implements IDe
 			}
 		}
 
+		@Override
+		public int compareKeyPrefix(byte[] recordPrefix) {
+			if (this.searchPrefix == null) {
+				this.searchPrefix = new byte[recordPrefix.length];
+				getKeyPrefix(this.searchCriteria.getSearchString(), this.searchPrefix);
+			}
+			for (int i = 0; i < recordPrefix.length; i++) {
+				int recordByte = recordPrefix[i] & 0xFF;
+				int searchByte = this.searchPrefix[i] & 0xFF;
+				if (recordByte != searchByte) {
+					// The search string has ended, so the key starts with it
+					if (searchByte == 0 && this.searchCriteria.isPrefixSearch()) {
+						return 0;
+					}
+					return recordByte < searchByte ? -1 : 1;
+				}
+			}
+			return UNKNOWN;
+		}
+
 		@Override
 		public boolean visit(long address) throws IndexException {
 			if (this.searchCriteria.requiresSpecificNodeType()) {
@@ -169,21 +209,59 @@ public class FieldSearchIndex<T extends NdNode> extends BaseField implements IDe
 		protected abstract boolean acceptResult(long address);
 	}
 
-	private FieldSearchIndex(FieldSearchKey<?> searchKey, String structName, int fieldNumber) {
-		this.btreeFactory = BTree.getFactory(new IBTreeComparator() {
-			@Override
-			public int compare(Nd nd, long record1, long record2) {
-				IString key1 = FieldSearchIndex.this.searchKey.get(nd, record1);
-				IString key2 = FieldSearchIndex.this.searchKey.get(nd, record2);
+	private class SearchKeyComparator implements IBTreeComparator {
+		@Override
+		public int compare(Nd nd, long record1, long record2) {
+			IString key1 = FieldSearchIndex.this.searchKey.get(nd, record1);
+			IString key2 = FieldSearchIndex.this.searchKey.get(nd, record2);
 
-				int cmp = key1.compareCompatibleWithIgnoreCase(key2);
-				if (cmp == 0) {
-					cmp = Long.signum(record1 - record2);
-				}
+			int cmp = key1.compareCompatibleWithIgnoreCase(key2);
+			if (cmp == 0) {
+				cmp = Long.signum(record1 - record2);
+			}
+
+			return cmp;
+		}
+	}
+
+	private class PrefixSearchKeyComparator extends SearchKeyComparator implements IBTreePrefixComparator {
+		@Override
+		public int getKeyPrefixSize() {
+			return KEY_PREFIX_SIZE;
+		}
+
+		@Override
+		public void getKeyPrefix(Nd nd, long record, byte[] prefix) {
+			FieldSearchIndex.getKeyPrefix(FieldSearchIndex.this.searchKey.get(nd, record).getChars(), prefix);
+		}
+	}
 
-				return cmp;
+	/**
+	 * Encodes the start of the given key such that comparing the results as unsigned bytes is consistent with
+	 * {@link ShortString#compareCompatibleWithIgnoreCase(char[], char[])}. Each character is folded to upper case the
+	 * same way and stored in one byte, offset by one so that 0 marks the end of the key. The encoding stops with 0xFF
+	 * at the first character that doesn't fit in a byte, since those all compare greater than the others.
+	 */
+	static void getKeyPrefix(char[] key, byte[] prefix) {
+		Arrays.fill(prefix, (byte) 0);
+		int length = Math.min(key.length, prefix.length);
+		for (int i = 0; i < length; i++) {
+			char c = key[i];
+			if (c >= 'a' && c <= 'z') {
+				c -= 32;
 			}
-		});
+			if (c >= 0x7F) {
+				prefix[i] = (byte) 0xFF;
+				return;
+			}
+			prefix[i] = (byte) (c + 1);
+		}
+	}
+
+	private FieldSearchIndex(FieldSearchKey<?> searchKey, String structName, int fieldNumber,
+			boolean inlineKeyPrefixes) {
+		this.btreeFactory = BTree.getFactory(
+				inlineKeyPrefixes ? new PrefixSearchKeyComparator() : new SearchKeyComparator());
 
 		if (searchKey != null) {
 			if (searchKey.searchIndex != null && searchKey.searchIndex != this) {
@@ -201,8 +279,19 @@ public class FieldSearchIndex<T extends NdNode> extends BaseField implements IDe
 
 	public static <T extends NdNode, B> FieldSearchIndex<T> create(StructDef<B> builder,
 			final FieldSearchKey<B> searchKey) {
+		return create(builder, searchKey, false);
+	}
+
+	/**
+	 * Creates a search index. If inlineKeyPrefixes is true, the b-tree nodes store the first {@link #KEY_PREFIX_SIZE}
+	 * characters of each key, so that most comparisons made while searching the index can be decided without reading
+	 * the keys themselves from other chunks. This makes the nodes larger and changes their layout in the database.
+	 */
+	public static <T extends NdNode, B> FieldSearchIndex<T> create(StructDef<B> builder,
+			final FieldSearchKey<B> searchKey, boolean inlineKeyPrefixes) {
 
-		FieldSearchIndex<T> result = new FieldSearchIndex<T>(searchKey, builder.getStructName(), builder.getNumFields());
+		FieldSearchIndex<T> result = new FieldSearchIndex<T>(searchKey, builder.getStructName(), builder.getNumFields(),
+				inlineKeyPrefixes);
 
 		builder.add(result);
 		builder.addDestructableField(result);
@@ -214,6 +303,87 @@ public class FieldSearchIndex<T extends NdNode> extends BaseField implements IDe
 		return this.btreeFactory.create(nd, address + this.offset);
 	}
 
+	/**
+	 * Inserts the given record into the index whose b-tree is at the standard location
+	 * ({@link Database#DATA_AREA_OFFSET}), or defers its insertion. See {@link #deferInsertions(Nd)}.
+	 */
+	void insert(Nd nd, long record) {
+		Set<Long> deferred = this.deferredInsertions.get(nd);
+		if (deferred != null) {
+			deferred.add(record);
+		} else {
+			get(nd, Database.DATA_AREA_OFFSET).insert(record);
+		}
+	}
+
+	/**
+	 * Removes the given record from the index whose b-tree is at the standard location, or cancels its deferred
+	 * insertion.
+	 */
+	void delete(Nd nd, long record) {
+		Set<Long> deferred = this.deferredInsertions.get(nd);
+		if (deferred == null || !deferred.remove(record)) {
+			get(nd, Database.DATA_AREA_OFFSET).delete(record);
+		}
+	}
+
+	/**
+	 * Defers the insertion of new records into this index for the given {@link Nd} until
+	 * {@link #finishDeferredInsertions(Nd, long)} is called. The records are then sorted in memory and bulk-loaded into
+	 * the b-tree, which is much faster than inserting them one at a time if the index was empty. Meant for building an
+	 * index from scratch. Until then, searches don't find the new records, so this must not be used for an index that
+	 * needs to be searched while it is being built. Must be called while holding the write lock.
+	 * <p>
+	 * The deferred records only exist in memory, so the database file is kept marked as incomplete until they have
+	 * been inserted, see {@link Database#keepIncomplete()}. If the process ends before, the database is recreated
+	 * when it is opened again instead of silently lacking these records.
+	 */
+	public void deferInsertions(Nd nd) {
+		if (this.deferredInsertions.putIfAbsent(nd, new LinkedHashSet<>()) == null) {
+			nd.getDB().keepIncomplete();
+		}
+	}
+
+	/**
+	 * Inserts all records whose insertion was deferred by {@link #deferInsertions(Nd)}, and stops deferring new ones.
+	 * Must be called while holding the write lock.
+	 */
+	public void finishDeferredInsertions(Nd nd, long address) {
+		Set<Long> deferred = this.deferredInsertions.remove(nd);
+		if (deferred == null) {
+			return;
+		}
+		nd.getDB().stopKeepingIncomplete();
+		if (deferred.isEmpty()) {
+			return;
+		}
+
+		// Sort by the same criteria as the comparator of the b-tree, but only read each key from the database once
+		int count = deferred.size();
+		long[] records = new long[count];
+		char[][] keys = new char[count][];
+		Integer[] order = new Integer[count];
+		int index = 0;
+		for (Long next : deferred) {
+			records[index] = next.longValue();
+			keys[index] = this.searchKey.get(nd, records[index]).getChars();
+			order[index] = Integer.valueOf(index);
+			index++;
+		}
+		Arrays.sort(order, (i1, i2) -> {
+			int cmp = ShortString.compareCompatibleWithIgnoreCase(keys[i1.intValue()], keys[i2.intValue()]);
+			if (cmp == 0) {
+				cmp = Long.signum(records[i1.intValue()] - records[i2.intValue()]);
+			}
+			return cmp;
+		});
+		long[] sortedRecords = new long[count];
+		for (int i = 0; i < count; i++) {
+			sortedRecords[i] = records[order[i].intValue()];
+		}
+		get(nd, address).bulkLoad(sortedRecords);
+	}
+
 	@Override
 	public void destruct(Nd nd, long address) {
 		Database db = nd.getDB();
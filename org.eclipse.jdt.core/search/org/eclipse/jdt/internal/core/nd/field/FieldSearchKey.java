@@ -15,7 +15,6 @@ package org.eclipse.jdt.internal.core.nd.field;
 
 import org.eclipse.jdt.internal.core.nd.Nd;
 import org.eclipse.jdt.internal.core.nd.NdNode;
-import org.eclipse.jdt.internal.core.nd.db.BTree;
 import org.eclipse.jdt.internal.core.nd.db.ModificationLog;
 import org.eclipse.jdt.internal.core.nd.db.ModificationLog.Tag;
 import org.eclipse.jdt.internal.core.nd.db.Database;
@@ -72,9 +71,8 @@ public class FieldSearchKey<T> extends BaseField implements IDestructableField {
 		try {
 			cleanup(nd, address);
 
-			BTree btree = this.searchIndex.get(nd, Database.DATA_AREA_OFFSET);
 			db.putRecPtr(address + this.offset, db.newString(newString).getRecord());
-			btree.insert(address);
+			this.searchIndex.insert(nd, address);
 		} finally {
 			db.getLog().end(this.putTag);
 		}
@@ -106,7 +104,7 @@ public class FieldSearchKey<T> extends BaseField implements IDestructableField {
 
 		if (isInIndex) {
 			// Remove this entry from the search index
-			this.searchIndex.get(nd, Database.DATA_AREA_OFFSET).delete(address);
+			this.searchIndex.delete(nd, address);
 
 			get(nd, address).delete();
 			nd.getDB().putRecPtr(address + this.offset, 0);
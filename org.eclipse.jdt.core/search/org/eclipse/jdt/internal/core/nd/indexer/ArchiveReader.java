@@ -0,0 +1,350 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.jdt.internal.core.nd.indexer;
+
+import static org.eclipse.jdt.internal.compiler.util.Util.UTF_8;
+import static org.eclipse.jdt.internal.compiler.util.Util.getInputStreamAsCharArray;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.jdt.internal.compiler.classfmt.ClassFileReader;
+import org.eclipse.jdt.internal.compiler.classfmt.ClassFormatException;
+import org.eclipse.jdt.internal.compiler.env.IDependent;
+import org.eclipse.jdt.internal.compiler.lookup.TypeConstants;
+import org.eclipse.jdt.internal.compiler.util.SuffixConstants;
+import org.eclipse.jdt.internal.compiler.util.Util;
+import org.eclipse.jdt.internal.core.JarPackageFragmentRoot;
+import org.eclipse.jdt.internal.core.JavaModelManager;
+import org.eclipse.jdt.internal.core.nd.java.JavaIndex;
+import org.eclipse.jdt.internal.core.nd.java.JavaNames;
+import org.eclipse.jdt.internal.core.nd.java.model.BinaryTypeDescriptor;
+
+/**
+ * Unzips and parses the class files of archives on a number of worker threads, so that the {@link Indexer} only needs
+ * to write the results to the index. The archives are read in the order in which they were scheduled, and each worker
+ * hands over the content of its archive in batches of {@link #BATCH_SIZE} entries through a small bounded queue. This
+ * limits the number of parsed class files held in memory to a few batches per worker.
+ * <p>
+ * The consumer must process the archives in the order in which they were scheduled and {@link Archive#dispose()
+ * dispose} each of them once it is done, even if it didn't read all of its entries. Otherwise, the workers may wait
+ * forever for the consumer to make room in the queue.
+ */
+final class ArchiveReader implements AutoCloseable {
+	/**
+	 * Number of worker threads used by the indexer. Defaults to one less than the number of processors, since the
+	 * indexer thread is busy writing the results, but at most 8.
+	 */
+	public static final int NUM_THREADS = Math.max(1, Integer.getInteger("org.eclipse.jdt.core.nd.indexerThreads", //$NON-NLS-1$
+			Math.min(8, Runtime.getRuntime().availableProcessors() - 1)).intValue());
+	/**
+	 * Maximum number of archive entries in each batch.
+	 */
+	static final int BATCH_SIZE = 64;
+	/**
+	 * Maximum number of batches that a worker reads ahead of the consumer.
+	 */
+	private static final int MAX_PENDING_BATCHES = 4;
+	/**
+	 * Time (milliseconds) between checks for disposal while a worker waits for room in the queue.
+	 */
+	private static final long OFFER_TIMEOUT_MS = 100;
+
+	private final LinkedBlockingQueue<Archive> scheduledArchives = new LinkedBlockingQueue<>();
+	private final Thread[] workers;
+	private volatile boolean closed;
+
+	ArchiveReader(int numThreads) {
+		this.workers = new Thread[Math.max(1, numThreads)];
+		for (int i = 0; i < this.workers.length; i++) {
+			this.workers[i] = new Thread(this::runWorker, "Java indexer archive reader"); //$NON-NLS-1$
+			this.workers[i].setDaemon(true);
+			this.workers[i].start();
+		}
+	}
+
+	/**
+	 * Schedules the given archive to be read by the next available worker.
+	 */
+	Archive schedule(JarPackageFragmentRoot jarRoot) {
+		Archive result = new Archive(jarRoot);
+		if (this.closed) {
+			result.dispose();
+		} else {
+			this.scheduledArchives.add(result);
+		}
+		return result;
+	}
+
+	private void runWorker() {
+		try {
+			while (!this.closed) {
+				this.scheduledArchives.take().read();
+			}
+		} catch (InterruptedException e) {
+			// The reader was closed
+		}
+	}
+
+	/**
+	 * Disposes all archives that haven't been read yet, stops the workers and waits for them, so that no archive is
+	 * still open once the indexer is done or canceled.
+	 */
+	@Override
+	public void close() {
+		this.closed = true;
+		for (Archive next; (next = this.scheduledArchives.poll()) != null;) {
+			next.dispose();
+		}
+		for (Thread next : this.workers) {
+			next.interrupt();
+		}
+		boolean interrupted = false;
+		for (Thread next : this.workers) {
+			while (next.isAlive()) {
+				try {
+					next.join();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * An entry of an archive, as read by a worker.
+	 */
+	static final class Entry {
+		final String fileName;
+		final boolean isDirectory;
+		final boolean isClassFile;
+		/**
+		 * The content of the entry if it is the manifest, or null otherwise.
+		 */
+		char[] manifestContent;
+		/**
+		 * The descriptor of the class contained in this entry, or null if it isn't a class file.
+		 */
+		BinaryTypeDescriptor descriptor;
+		/**
+		 * The parsed class file, or null if it isn't a class file or couldn't be parsed.
+		 */
+		ClassFileReader classFileReader;
+		/**
+		 * The references read from the constant pool of the class file, or null if it couldn't be parsed.
+		 */
+		ClassFileReferences references;
+		/**
+		 * The reason why the class file couldn't be parsed, or null if it was parsed successfully.
+		 */
+		ClassFormatException classFormatException;
+
+		Entry(String fileName, boolean isDirectory, boolean isClassFile) {
+			this.fileName = fileName;
+			this.isDirectory = isDirectory;
+			this.isClassFile = isClassFile;
+		}
+	}
+
+	/**
+	 * The batches of entries read from one archive. Errors encountered by the worker are rethrown to the consumer after
+	 * it has received all of the entries that were read before the error.
+	 */
+	private static final class Batch {
+		final List<Entry> entries;
+		final Throwable exception;
+
+		Batch(List<Entry> entries, Throwable exception) {
+			this.entries = entries;
+			this.exception = exception;
+		}
+	}
+
+	/**
+	 * An archive that has been scheduled for reading.
+	 */
+	final class Archive {
+		private final char[] workspacePath;
+		private final char[] location;
+		private final String handleIdentifier;
+		private final ArrayBlockingQueue<Batch> batches = new ArrayBlockingQueue<>(MAX_PENDING_BATCHES);
+		private File file;
+		private CoreException fileException;
+		private volatile int size;
+		private volatile boolean disposed;
+		private Batch pending;
+		private boolean done;
+
+		Archive(JarPackageFragmentRoot jarRoot) {
+			// The Java model and the workspace are only accessed from the thread that schedules the archive
+			this.workspacePath = jarRoot.getPath().toString().toCharArray();
+			this.location = JavaIndex.getLocationForElement(jarRoot).toString().toCharArray();
+			this.handleIdentifier = jarRoot.getHandleIdentifier();
+			try {
+				this.file = JavaModelManager.getLocalFile(jarRoot.getPath());
+			} catch (CoreException e) {
+				this.fileException = e;
+			}
+		}
+
+		/**
+		 * Waits until the archive was opened and returns its number of entries.
+		 */
+		int getSize() throws IOException, CoreException {
+			if (this.pending == null && !this.done) {
+				this.pending = takeBatch();
+				rethrow(this.pending);
+			}
+			return this.size;
+		}
+
+		/**
+		 * Waits for the next batch of entries. Returns null once all entries have been returned.
+		 */
+		List<Entry> nextBatch() throws IOException, CoreException {
+			if (this.done) {
+				return null;
+			}
+			Batch next = this.pending;
+			this.pending = null;
+			if (next == null) {
+				next = takeBatch();
+			}
+			rethrow(next);
+			return next.entries;
+		}
+
+		/**
+		 * Discards any remaining entries. If the archive hasn't been fully read yet, stops the worker reading it.
+		 */
+		void dispose() {
+			this.disposed = true;
+			this.done = true;
+			this.pending = null;
+			this.batches.clear();
+		}
+
+		private Batch takeBatch() {
+			try {
+				Batch result = this.batches.take();
+				if (result.entries == null) {
+					this.done = true;
+				}
+				return result;
+			} catch (InterruptedException e) {
+				throw new OperationCanceledException();
+			}
+		}
+
+		private void rethrow(Batch batch) throws IOException, CoreException {
+			Throwable exception = batch.exception;
+			if (exception instanceof IOException) {
+				throw (IOException) exception;
+			} else if (exception instanceof CoreException) {
+				throw (CoreException) exception;
+			} else if (exception instanceof Error) {
+				throw (Error) exception;
+			} else if (exception != null) {
+				throw (RuntimeException) exception;
+			}
+		}
+
+		/**
+		 * Reads the archive on a worker thread. Returns false if it was disposed before it was fully read.
+		 */
+		boolean read() throws InterruptedException {
+			List<Entry> entries = new ArrayList<>();
+			Throwable exception = this.fileException;
+			if (exception == null) {
+				try (ZipFile zipFile = new ZipFile(this.file)) {
+					// Used for the error-handling unit tests
+					if (JavaModelManager.throwIoExceptionsInGetZipFile) {
+						if (Indexer.DEBUG) {
+							Package.logInfo("Throwing simulated IOException for error handling test case"); //$NON-NLS-1$
+						}
+						throw new IOException();
+					}
+					this.size = zipFile.size();
+					for (Enumeration<? extends ZipEntry> e = zipFile.entries(); e.hasMoreElements();) {
+						if (entries.size() >= BATCH_SIZE) {
+							if (!offer(new Batch(entries, null))) {
+								return false;
+							}
+							entries = new ArrayList<>();
+						}
+						ZipEntry member = e.nextElement();
+						String fileName = member.getName();
+						Entry entry = new Entry(fileName, member.isDirectory(), Util.isClassFileName(fileName));
+						entries.add(entry);
+						if (entry.isDirectory) {
+							continue;
+						}
+						if (!entry.isClassFile) {
+							if (fileName.equals(TypeConstants.META_INF_MANIFEST_MF)) {
+								try (InputStream inputStream = zipFile.getInputStream(member)) {
+									entry.manifestContent = getInputStreamAsCharArray(inputStream, -1, UTF_8);
+								}
+							}
+							continue;
+						}
+						String binaryName = fileName.substring(0,
+								fileName.length() - SuffixConstants.SUFFIX_STRING_class.length());
+						char[] fieldDescriptor = JavaNames.binaryNameToFieldDescriptor(binaryName.toCharArray());
+						String indexPath = this.handleIdentifier + IDependent.JAR_FILE_ENTRY_SEPARATOR + binaryName;
+						entry.descriptor = new BinaryTypeDescriptor(this.location, fieldDescriptor, this.workspacePath,
+								indexPath.toCharArray());
+						byte[] contents = Util.getZipEntryByteContent(member, zipFile);
+						try {
+							entry.classFileReader = new ClassFileReader(contents, entry.descriptor.indexPath, true);
+							entry.references = ClassFileReferences.read(contents, entry.descriptor.indexPath);
+						} catch (ClassFormatException classFormatException) {
+							entry.classFormatException = classFormatException;
+						}
+					}
+				} catch (IOException | RuntimeException | Error e) {
+					// Rethrown by the consumer, just like it would have been if it had read the archive itself
+					exception = e;
+				}
+			}
+			if (!entries.isEmpty() && !offer(new Batch(entries, null))) {
+				return false;
+			}
+			return offer(new Batch(null, exception));
+		}
+
+		/**
+		 * Hands the given batch over to the consumer, waiting for room in the queue if necessary. Returns false if the
+		 * archive was disposed in the meantime.
+		 */
+		private boolean offer(Batch batch) throws InterruptedException {
+			while (!this.disposed) {
+				if (this.batches.offer(batch, OFFER_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+}
@@ -0,0 +1,173 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.jdt.internal.core.nd.indexer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jdt.internal.compiler.classfmt.ClassFileConstants;
+import org.eclipse.jdt.internal.compiler.classfmt.ClassFileReader;
+import org.eclipse.jdt.internal.compiler.classfmt.ClassFileStruct;
+import org.eclipse.jdt.internal.compiler.classfmt.ClassFormatException;
+import org.eclipse.jdt.internal.core.nd.java.NdReference;
+
+/**
+ * The types, fields and methods referenced by the constant pool of a .class file (its Class, Fieldref, Methodref and
+ * InterfaceMethodref entries). Array types are skipped.
+ */
+final class ClassFileReferences {
+	static final ClassFileReferences EMPTY = new ClassFileReferences();
+
+	static final class Reference {
+		/**
+		 * One of the {@link NdReference} kinds.
+		 */
+		final byte kind;
+		/**
+		 * Binary name of the referenced type, or of the type declaring the referenced member.
+		 */
+		final char[] typeName;
+		/**
+		 * Name of the referenced member, null for a type reference.
+		 */
+		final char[] memberName;
+		/**
+		 * Field or method descriptor of the referenced member, null for a type reference.
+		 */
+		final char[] descriptor;
+
+		Reference(byte kind, char[] typeName, char[] memberName, char[] descriptor) {
+			this.kind = kind;
+			this.typeName = typeName;
+			this.memberName = memberName;
+			this.descriptor = descriptor;
+		}
+	}
+
+	final List<Reference> references = new ArrayList<>();
+
+	private ClassFileReferences() {
+	}
+
+	/**
+	 * Reads the references of the given class file contents.
+	 */
+	static ClassFileReferences read(byte[] contents, char[] fileName) throws ClassFormatException {
+		ClassFileStruct classFile = new ClassFileStruct(contents, null, 0) {
+			// only used to decode the constant pool
+		};
+		try {
+			int constantPoolCount = classFile.u2At(8);
+			int[] constantPoolOffsets = new int[constantPoolCount];
+			int readOffset = 10;
+			for (int i = 1; i < constantPoolCount; i++) {
+				constantPoolOffsets[i] = readOffset;
+				int tag = classFile.u1At(readOffset);
+				switch (tag) {
+					case ClassFileConstants.Utf8Tag :
+						readOffset += classFile.u2At(readOffset + 1) + ClassFileConstants.ConstantUtf8FixedSize;
+						break;
+					case ClassFileConstants.LongTag :
+					case ClassFileConstants.DoubleTag :
+						readOffset += ClassFileConstants.ConstantLongFixedSize;
+						i++; // takes two entries
+						break;
+					case ClassFileConstants.IntegerTag :
+					case ClassFileConstants.FloatTag :
+					case ClassFileConstants.FieldRefTag :
+					case ClassFileConstants.MethodRefTag :
+					case ClassFileConstants.InterfaceMethodRefTag :
+					case ClassFileConstants.NameAndTypeTag :
+					case ClassFileConstants.DynamicTag :
+					case ClassFileConstants.InvokeDynamicTag :
+						readOffset += 5;
+						break;
+					case ClassFileConstants.MethodHandleTag :
+						readOffset += ClassFileConstants.ConstantMethodHandleFixedSize;
+						break;
+					case ClassFileConstants.ClassTag :
+					case ClassFileConstants.StringTag :
+					case ClassFileConstants.MethodTypeTag :
+					case ClassFileConstants.ModuleTag :
+					case ClassFileConstants.PackageTag :
+						readOffset += 3;
+						break;
+					default :
+						throw new ClassFormatException(ClassFormatException.ErrUnknownConstantTag);
+				}
+			}
+			return read(classFile, constantPoolOffsets);
+		} catch (RuntimeException e) {
+			throw new ClassFormatException(e, fileName);
+		}
+	}
+
+	/**
+	 * Reads the references of the given class file, which must not have been fully initialized since it would have
+	 * released its contents.
+	 */
+	static ClassFileReferences read(ClassFileReader reader) throws ClassFormatException {
+		int[] constantPoolOffsets = reader.getConstantPoolOffsets();
+		if (constantPoolOffsets == null) {
+			return EMPTY;
+		}
+		try {
+			return read(reader, constantPoolOffsets);
+		} catch (RuntimeException e) {
+			throw new ClassFormatException(e, reader.getFileName());
+		}
+	}
+
+	private static ClassFileReferences read(ClassFileStruct classFile, int[] constantPoolOffsets) {
+		ClassFileReferences result = new ClassFileReferences();
+		for (int i = 1; i < constantPoolOffsets.length; i++) {
+			int offset = constantPoolOffsets[i];
+			if (offset == 0) {
+				continue; // second half of a long or double
+			}
+			switch (classFile.u1At(offset)) {
+				case ClassFileConstants.ClassTag : {
+					char[] typeName = utf8At(classFile, constantPoolOffsets, classFile.u2At(offset + 1));
+					if (typeName.length > 0 && typeName[0] != '[') {
+						result.add(NdReference.KIND_TYPE, typeName, null, null);
+					}
+					break;
+				}
+				case ClassFileConstants.FieldRefTag :
+				case ClassFileConstants.MethodRefTag :
+				case ClassFileConstants.InterfaceMethodRefTag : {
+					int classOffset = constantPoolOffsets[classFile.u2At(offset + 1)];
+					char[] typeName = utf8At(classFile, constantPoolOffsets, classFile.u2At(classOffset + 1));
+					if (typeName.length == 0 || typeName[0] == '[') {
+						break; // members of array types, such as clone()
+					}
+					int nameAndTypeOffset = constantPoolOffsets[classFile.u2At(offset + 3)];
+					char[] memberName = utf8At(classFile, constantPoolOffsets, classFile.u2At(nameAndTypeOffset + 1));
+					char[] descriptor = utf8At(classFile, constantPoolOffsets, classFile.u2At(nameAndTypeOffset + 3));
+					byte kind = classFile.u1At(offset) == ClassFileConstants.FieldRefTag ? NdReference.KIND_FIELD
+							: NdReference.KIND_METHOD;
+					result.add(kind, typeName, memberName, descriptor);
+					break;
+				}
+			}
+		}
+		return result;
+	}
+
+	private static char[] utf8At(ClassFileStruct classFile, int[] constantPoolOffsets, int index) {
+		int utf8Offset = constantPoolOffsets[index];
+		return classFile.utf8At(utf8Offset + 3, classFile.u2At(utf8Offset + 1));
+	}
+
+	private void add(byte kind, char[] typeName, char[] memberName, char[] descriptor) {
+		this.references.add(new Reference(kind, typeName, memberName, descriptor));
+	}
+}
@@ -50,6 +50,7 @@ import org.eclipse.jdt.internal.core.nd.java.NdConstantClass;
 import org.eclipse.jdt.internal.core.nd.java.NdConstantEnum;
 import org.eclipse.jdt.internal.core.nd.java.NdMethod;
 import org.eclipse.jdt.internal.core.nd.java.NdMethodParameter;
+import org.eclipse.jdt.internal.core.nd.java.NdReference;
 import org.eclipse.jdt.internal.core.nd.java.NdResourceFile;
 import org.eclipse.jdt.internal.core.nd.java.NdType;
 import org.eclipse.jdt.internal.core.nd.java.NdTypeAnnotation;
@@ -883,6 +884,16 @@ public final class ClassFileToIndexConverter {
 		}
 	}
 
+	/**
+	 * Records the types, fields and methods referenced by the constant pool of the given type.
+	 */
+	void addReferences(NdType type, ClassFileReferences references) {
+		for (ClassFileReferences.Reference next : references.references) {
+			new NdReference(getNd(), type, createTypeIdFromBinaryName(next.typeName), next.kind, next.memberName,
+					next.descriptor);
+		}
+	}
+
 	private void logInfo(String string) {
 		if (ENABLE_LOGGING) {
 			Package.logInfo(string);
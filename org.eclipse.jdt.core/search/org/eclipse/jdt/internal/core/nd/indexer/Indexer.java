@@ -13,19 +13,14 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.core.nd.indexer;
 
-import static org.eclipse.jdt.internal.compiler.util.Util.UTF_8;
-import static org.eclipse.jdt.internal.compiler.util.Util.getInputStreamAsCharArray;
-
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStream;
 import java.text.DecimalFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
-import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -33,9 +28,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.WeakHashMap;
-import java.util.zip.ZipEntry;
 import java.util.zip.ZipException;
-import java.util.zip.ZipFile;
 
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
@@ -60,9 +53,6 @@ import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jdt.core.JavaModelException;
 import org.eclipse.jdt.internal.compiler.classfmt.ClassFileReader;
 import org.eclipse.jdt.internal.compiler.classfmt.ClassFormatException;
-import org.eclipse.jdt.internal.compiler.env.IDependent;
-import org.eclipse.jdt.internal.compiler.lookup.TypeConstants;
-import org.eclipse.jdt.internal.compiler.util.SuffixConstants;
 import org.eclipse.jdt.internal.core.JarPackageFragmentRoot;
 import org.eclipse.jdt.internal.core.JavaElementDelta;
 import org.eclipse.jdt.internal.core.JavaModel;
@@ -74,7 +64,6 @@ import org.eclipse.jdt.internal.core.nd.db.IndexException;
 import org.eclipse.jdt.internal.core.nd.java.FileFingerprint;
 import org.eclipse.jdt.internal.core.nd.java.FileFingerprint.FingerprintTestResult;
 import org.eclipse.jdt.internal.core.nd.java.JavaIndex;
-import org.eclipse.jdt.internal.core.nd.java.JavaNames;
 import org.eclipse.jdt.internal.core.nd.java.NdResourceFile;
 import org.eclipse.jdt.internal.core.nd.java.NdType;
 import org.eclipse.jdt.internal.core.nd.java.NdTypeId;
@@ -117,6 +106,11 @@ public final class Indexer {
 	// reported by SubMonitor and small enough that it won't overflow a long when multiplied by a large
 	// database size.
 	private final static int TOTAL_TICKS_TO_REPORT_DURING_INDEXING = 1000;
+	/**
+	 * Fraction of the database that must be free, and that must have been freed since the last compaction, before the
+	 * database is compacted at the end of a rescan.
+	 */
+	private static final double COMPACTION_THRESHOLD = 0.25;
 
 	/**
 	 * True iff automatic reindexing (that is, the {@link #rescanAll()} method) is disabled. Synchronize on
@@ -129,9 +123,18 @@ public final class Indexer {
 	 */
 	private boolean indexerDirtiedWhileDisabled = false;
 	private final Object automaticIndexingMutex = new Object();
+	/**
+	 * Value of {@link Database#getBytesFreed()} when the database was last compacted. Only accessed while holding the
+	 * write lock.
+	 */
+	private long bytesFreedAtLastCompaction;
 
 	private final FileStateCache fileStateCache;
 	private static final Object mutex = new Object();
+	/**
+	 * Number of threads reading the archives while rescanning, see {@link ArchiveReader}.
+	 */
+	private volatile int archiveReaderThreads = ArchiveReader.NUM_THREADS;
 
 	private Object listenersMutex = new Object();
 	/**
@@ -277,13 +280,32 @@ public final class Indexer {
 				: (double) TOTAL_TICKS_TO_REPORT_DURING_INDEXING / (double) totalSizeToIndex;
 
 		int classesIndexed = 0;
-		SubMonitor loopMonitor = subMonitor.split(94).setWorkRemaining(TOTAL_TICKS_TO_REPORT_DURING_INDEXING);
-		for (IPath next : indexablesWithChanges) {
-			FingerprintTestResult nextFingerprint = fingerprints.get(next);
-			int ticks = (int) (nextFingerprint.getNewFingerprint().getSize() * tickCoefficient);
+		SubMonitor loopMonitor = subMonitor.split(93).setWorkRemaining(TOTAL_TICKS_TO_REPORT_DURING_INDEXING);
+		try (ArchiveReader archiveReader = new ArchiveReader(this.archiveReaderThreads)) {
+			// Start reading the archives in the background, in the same order in which they are written to the index
+			Map<IPath, ArchiveReader.Archive> archives = new HashMap<>();
+			for (IPath next : indexablesWithChanges) {
+				List<IJavaElement> elements = snapshot.get(next);
+				if (!elements.isEmpty() && elements.get(0) instanceof JarPackageFragmentRoot
+						&& fingerprints.get(next).getNewFingerprint().fileExists()) {
+					archives.put(next, archiveReader.schedule((JarPackageFragmentRoot) elements.get(0)));
+				}
+			}
+
+			for (IPath next : indexablesWithChanges) {
+				FingerprintTestResult nextFingerprint = fingerprints.get(next);
+				int ticks = (int) (nextFingerprint.getNewFingerprint().getSize() * tickCoefficient);
 
-			classesIndexed += rescanArchive(currentTimeMs, next, snapshot.get(next),
-					fingerprints.get(next).getNewFingerprint(), loopMonitor.split(ticks));
+				ArchiveReader.Archive archive = archives.get(next);
+				try {
+					classesIndexed += rescanArchive(currentTimeMs, next, snapshot.get(next),
+							fingerprints.get(next).getNewFingerprint(), archive, loopMonitor.split(ticks));
+				} finally {
+					if (archive != null) {
+						archive.dispose();
+					}
+				}
+			}
 		}
 
 		long endIndexingMs = System.currentTimeMillis();
@@ -302,6 +324,7 @@ public final class Indexer {
 		// Flush the database to disk
 		this.nd.acquireWriteLock(subMonitor.split(1));
 		try {
+			compactIfFragmented(subMonitor.split(1));
 			this.nd.getDB().flush();
 		} finally {
 			this.nd.releaseWriteLock();
@@ -355,7 +378,8 @@ public final class Indexer {
 			long totalReads = cacheMisses + cacheHits;
 			double cacheMissPercent = totalReads == 0 ? 0 : (cacheMisses * 100.0) / totalReads;
 			System.out.println("  Cache misses = " + cacheMisses + " (" //$NON-NLS-1$//$NON-NLS-2$
-					+ percentFormat.format(cacheMissPercent) + "%)"); //$NON-NLS-1$
+					+ percentFormat.format(cacheMissPercent) + "%), eviction policy = " //$NON-NLS-1$
+					+ db.getChunkCache().getEvictionPolicy().getId());
 
 			long bytesRead = db.getBytesRead();
 			long bytesWritten = db.getBytesWritten();
@@ -388,6 +412,26 @@ public final class Indexer {
 		}
 	}
 
+	/**
+	 * Compacts the database if a large part of it is free and enough has been freed since the last compaction. Must be
+	 * called while holding the write lock.
+	 */
+	private void compactIfFragmented(IProgressMonitor monitor) {
+		Database db = this.nd.getDB();
+		long databaseSize = db.getDatabaseSize();
+		long freeBytes = databaseSize - db.getMemoryStats().getTotalAllocatedSize();
+		long bytesFreedSinceCompaction = db.getBytesFreed() - this.bytesFreedAtLastCompaction;
+		if (freeBytes < databaseSize * COMPACTION_THRESHOLD
+				|| bytesFreedSinceCompaction < databaseSize * COMPACTION_THRESHOLD) {
+			return;
+		}
+		this.bytesFreedAtLastCompaction = db.getBytesFreed();
+		long bytesReclaimed = this.nd.compact(monitor);
+		if (DEBUG) {
+			Package.logInfo("Compacted the index, reclaimed " + Database.formatByteString(bytesReclaimed)); //$NON-NLS-1$
+		}
+	}
+
 	private void fireDelta(Set<IPath> indexablesWithChanges, IProgressMonitor monitor) {
 		SubMonitor subMonitor = SubMonitor.convert(monitor, 1);
 		IProject[] projects = this.root.getProjects();
@@ -597,10 +641,12 @@ public final class Indexer {
 
 	/**
 	 * Rescans an archive (a jar, zip, or class file on the filesystem). Returns the number of classes indexed.
+	 * @param archive the content of the archive if it is a jar or zip file, as read by an {@link ArchiveReader}
 	 * @throws JavaModelException
 	 */
 	private int rescanArchive(long currentTimeMillis, IPath thePath, List<IJavaElement> elementsMappingOntoLocation,
-			FileFingerprint fingerprint, IProgressMonitor monitor) throws JavaModelException {
+			FileFingerprint fingerprint, ArchiveReader.Archive archive, IProgressMonitor monitor)
+			throws JavaModelException {
 		SubMonitor subMonitor = SubMonitor.convert(monitor, 100);
 		if (elementsMappingOntoLocation.isEmpty()) {
 			return 0;
@@ -635,7 +681,7 @@ public final class Indexer {
 		int result = 0;
 		try {
 			if (fingerprint.fileExists()) {
-				result = addElement(resourceFile, element, subMonitor.split(50));
+				result = addElement(resourceFile, element, archive, subMonitor.split(50));
 			}
 		} catch (JavaModelException e) {
 			if (DEBUG) {
@@ -705,88 +751,26 @@ public final class Indexer {
 	 * Adds an archive to the index, under the given NdResourceFile.
 	 * @throws FileNotFoundException if the file does not exist
 	 */
-	private int addElement(NdResourceFile resourceFile, IJavaElement element, IProgressMonitor monitor)
-			throws JavaModelException, FileNotFoundException {
+	private int addElement(NdResourceFile resourceFile, IJavaElement element, ArchiveReader.Archive archive,
+			IProgressMonitor monitor) throws JavaModelException, FileNotFoundException {
 		SubMonitor subMonitor = SubMonitor.convert(monitor);
 
 		if (element instanceof JarPackageFragmentRoot) {
 			JarPackageFragmentRoot jarRoot = (JarPackageFragmentRoot) element;
 
-			IPath workspacePath = jarRoot.getPath();
-			IPath location = JavaIndex.getLocationForElement(jarRoot);
-
 			int classesIndexed = 0;
-			try (ZipFile zipFile = new ZipFile(JavaModelManager.getLocalFile(jarRoot.getPath()))) {
-				// Used for the error-handling unit tests
-				if (JavaModelManager.throwIoExceptionsInGetZipFile) {
-					if (DEBUG) {
-						Package.logInfo("Throwing simulated IOException for error handling test case"); //$NON-NLS-1$
-					}
-					throw new IOException();
-				}
-				subMonitor.setWorkRemaining(zipFile.size());
+			try {
+				subMonitor.setWorkRemaining(archive.getSize());
 
 				// Preallocate memory for the zipfile entries
 				this.nd.acquireWriteLock(subMonitor.split(5));
 				try {
-					resourceFile.allocateZipEntries(zipFile.size());
+					resourceFile.allocateZipEntries(archive.getSize());
 				} finally {
 					this.nd.releaseWriteLock();
 				}
-				for (Enumeration<? extends ZipEntry> e = zipFile.entries(); e.hasMoreElements();) {
-					SubMonitor nextEntry = subMonitor.split(1).setWorkRemaining(2);
-					ZipEntry member = e.nextElement();
-					String fileName = member.getName();
-					boolean classFileName = org.eclipse.jdt.internal.compiler.util.Util.isClassFileName(fileName);
-					if (member.isDirectory() || !classFileName) {
-						this.nd.acquireWriteLock(subMonitor.split(5));
-						try {
-							if (resourceFile.isInIndex()) {
-								if (DEBUG_INSERTIONS) {
-									Package.logInfo("Inserting non-class file " + fileName + " into " //$NON-NLS-1$//$NON-NLS-2$
-											+ resourceFile.getLocation().getString() + " " + resourceFile.address); //$NON-NLS-1$
-								}
-								resourceFile.addZipEntry(fileName);
-
-								if (fileName.equals(TypeConstants.META_INF_MANIFEST_MF)) {
-									try (InputStream inputStream = zipFile.getInputStream(member)) {
-										char[] chars = getInputStreamAsCharArray(inputStream, -1, UTF_8);
-
-										resourceFile.setManifestContent(chars);
-									}
-								}
-							}
-						} finally {
-							this.nd.releaseWriteLock();
-						}
-					}
-					if (member.isDirectory()) {
-						// Note that non-empty directories are stored implicitly (as the parent directory of a file
-						// or class within the jar). Empty directories are not currently stored in the index.
-						continue;
-					}
-					nextEntry.split(1);
-
-					if (classFileName) {
-						String binaryName = fileName.substring(0,
-								fileName.length() - SuffixConstants.SUFFIX_STRING_class.length());
-						char[] fieldDescriptor = JavaNames.binaryNameToFieldDescriptor(binaryName.toCharArray());
-						String indexPath = jarRoot.getHandleIdentifier() + IDependent.JAR_FILE_ENTRY_SEPARATOR
-								+ binaryName;
-						BinaryTypeDescriptor descriptor = new BinaryTypeDescriptor(location.toString().toCharArray(),
-								fieldDescriptor, workspacePath.toString().toCharArray(), indexPath.toCharArray());
-						try {
-							byte[] contents = org.eclipse.jdt.internal.compiler.util.Util.getZipEntryByteContent(member,
-									zipFile);
-							ClassFileReader classFileReader = new ClassFileReader(contents, descriptor.indexPath, true);
-							if (addClassToIndex(resourceFile, descriptor.fieldDescriptor, descriptor.indexPath,
-									classFileReader, nextEntry.split(1))) {
-								classesIndexed++;
-							}
-						} catch (CoreException | ClassFormatException exception) {
-							Package.log("Unable to index " + descriptor.toString(), exception); //$NON-NLS-1$
-						}
-					}
+				for (List<ArchiveReader.Entry> batch; (batch = archive.nextBatch()) != null;) {
+					classesIndexed += addEntries(resourceFile, batch, subMonitor.split(batch.size()));
 				}
 			} catch (ZipException e) {
 				Package.log("The zip file " + jarRoot.getPath() + " was corrupt", e);  //$NON-NLS-1$//$NON-NLS-2$
@@ -819,10 +803,12 @@ public final class Indexer {
 
 			boolean indexed = false;
 			try {
-				ClassFileReader classFileReader = BinaryTypeFactory.rawReadTypeTestForExists(descriptor, true, false);
+				// Not fully initialized, so that the constant pool is still available to read the references from
+				ClassFileReader classFileReader = BinaryTypeFactory.rawReadTypeTestForExists(descriptor, false, false);
 				if (classFileReader != null) {
+					ClassFileReferences references = ClassFileReferences.read(classFileReader);
 					indexed = addClassToIndex(resourceFile, descriptor.fieldDescriptor, descriptor.indexPath,
-							classFileReader, iterationMonitor);
+							classFileReader, references, iterationMonitor);
 				}
 			} catch (CoreException | ClassFormatException e) {
 				Package.log("Unable to index " + classFile.toString(), e); //$NON-NLS-1$
@@ -835,21 +821,71 @@ public final class Indexer {
 		}
 	}
 
+	/**
+	 * Adds a batch of entries read from an archive to the index, under a single write lock. Returns the number of
+	 * classes indexed.
+	 */
+	private int addEntries(NdResourceFile resourceFile, List<ArchiveReader.Entry> entries, IProgressMonitor monitor) {
+		SubMonitor subMonitor = SubMonitor.convert(monitor, entries.size() + 5);
+		List<ArchiveReader.Entry> classesToTest = DEBUG_SELFTEST ? new ArrayList<>() : null;
+
+		int classesIndexed = 0;
+		this.nd.acquireWriteLock(subMonitor.split(5));
+		try {
+			for (ArchiveReader.Entry next : entries) {
+				SubMonitor entryMonitor = subMonitor.split(1);
+				if (!resourceFile.isInIndex()) {
+					break;
+				}
+				if (next.isDirectory || !next.isClassFile) {
+					if (DEBUG_INSERTIONS) {
+						Package.logInfo("Inserting non-class file " + next.fileName + " into " //$NON-NLS-1$//$NON-NLS-2$
+								+ resourceFile.getLocation().getString() + " " + resourceFile.address); //$NON-NLS-1$
+					}
+					resourceFile.addZipEntry(next.fileName);
+					if (next.manifestContent != null) {
+						resourceFile.setManifestContent(next.manifestContent);
+					}
+					continue;
+				}
+				if (next.classFileReader == null) {
+					Package.log("Unable to index " + next.descriptor.toString(), next.classFormatException); //$NON-NLS-1$
+					continue;
+				}
+				try {
+					insertClass(resourceFile, next.descriptor.fieldDescriptor, next.classFileReader, next.references,
+							entryMonitor);
+					classesIndexed++;
+					if (classesToTest != null) {
+						classesToTest.add(next);
+					}
+				} catch (CoreException | ClassFormatException exception) {
+					Package.log("Unable to index " + next.descriptor.toString(), exception); //$NON-NLS-1$
+				}
+			}
+		} finally {
+			this.nd.releaseWriteLock();
+		}
+
+		if (classesToTest != null) {
+			for (ArchiveReader.Entry next : classesToTest) {
+				testIndexedClass(resourceFile, next.descriptor.fieldDescriptor, next.descriptor.indexPath,
+						next.classFileReader);
+			}
+		}
+		return classesIndexed;
+	}
+
 	private boolean addClassToIndex(NdResourceFile resourceFile, char[] fieldDescriptor, char[] indexPath,
-			ClassFileReader binaryType, IProgressMonitor monitor) throws ClassFormatException, CoreException {
+			ClassFileReader binaryType, ClassFileReferences references, IProgressMonitor monitor)
+			throws ClassFormatException, CoreException {
 		SubMonitor subMonitor = SubMonitor.convert(monitor, 100);
-		ClassFileToIndexConverter converter = new ClassFileToIndexConverter(resourceFile);
 
 		boolean indexed = false;
 		this.nd.acquireWriteLock(subMonitor.split(5));
 		try {
 			if (resourceFile.isInIndex()) {
-				if (DEBUG_INSERTIONS) {
-					Package.logInfo("Inserting " + new String(fieldDescriptor) + " into " //$NON-NLS-1$//$NON-NLS-2$
-							+ resourceFile.getLocation().getString() + " " + resourceFile.address); //$NON-NLS-1$
-				}
-				converter.addType(binaryType, fieldDescriptor, subMonitor.split(45));
-				resourceFile.setJdkLevel(binaryType.getVersion());
+				insertClass(resourceFile, fieldDescriptor, binaryType, references, subMonitor.split(45));
 				indexed = true;
 			}
 		} finally {
@@ -857,35 +893,58 @@ public final class Indexer {
 		}
 
 		if (DEBUG_SELFTEST && indexed) {
-			// When this debug flag is on, we test everything written to the index by reading it back immediately after
-			// indexing and comparing it with the original class file.
-			JavaIndex index = JavaIndex.getIndex(this.nd);
-			try (IReader readLock = this.nd.acquireReadLock()) {
-				NdTypeId typeId = index.findType(fieldDescriptor);
-				NdType targetType = null;
-				if (typeId != null) {
-					List<NdType> implementations = typeId.getTypes();
-					for (NdType nextType : implementations) {
-						NdResourceFile nextResourceFile = nextType.getResourceFile();
-						if (nextResourceFile.equals(resourceFile)) {
-							targetType = nextType;
-							break;
-						}
+			testIndexedClass(resourceFile, fieldDescriptor, indexPath, binaryType);
+		}
+		return indexed;
+	}
+
+	/**
+	 * Adds a class to the index. Must be called while holding the write lock, and only if the resource file is still
+	 * in the index.
+	 */
+	private void insertClass(NdResourceFile resourceFile, char[] fieldDescriptor, ClassFileReader binaryType,
+			ClassFileReferences references, IProgressMonitor monitor) throws ClassFormatException, CoreException {
+		if (DEBUG_INSERTIONS) {
+			Package.logInfo("Inserting " + new String(fieldDescriptor) + " into " //$NON-NLS-1$//$NON-NLS-2$
+					+ resourceFile.getLocation().getString() + " " + resourceFile.address); //$NON-NLS-1$
+		}
+		ClassFileToIndexConverter converter = new ClassFileToIndexConverter(resourceFile);
+		NdType type = converter.addType(binaryType, fieldDescriptor, monitor);
+		converter.addReferences(type, references);
+		resourceFile.setJdkLevel(binaryType.getVersion());
+	}
+
+	/**
+	 * Tests everything written to the index for the given class by reading it back and comparing it with the original
+	 * class file. Only used when {@link #DEBUG_SELFTEST} is on.
+	 */
+	private void testIndexedClass(NdResourceFile resourceFile, char[] fieldDescriptor, char[] indexPath,
+			ClassFileReader binaryType) {
+		JavaIndex index = JavaIndex.getIndex(this.nd);
+		try (IReader readLock = this.nd.acquireReadLock()) {
+			NdTypeId typeId = index.findType(fieldDescriptor);
+			NdType targetType = null;
+			if (typeId != null) {
+				List<NdType> implementations = typeId.getTypes();
+				for (NdType nextType : implementations) {
+					NdResourceFile nextResourceFile = nextType.getResourceFile();
+					if (nextResourceFile.equals(resourceFile)) {
+						targetType = nextType;
+						break;
 					}
 				}
+			}
 
-				if (targetType != null) {
-					IndexBinaryType actualType = new IndexBinaryType(TypeRef.create(targetType), indexPath);
-					IndexTester.testType(binaryType, actualType);
-				} else {
-					Package.logInfo(
-							"Could not find class in index immediately after indexing it: " + new String(indexPath)); //$NON-NLS-1$
-				}
-			} catch (RuntimeException e) {
-				Package.log("Error during indexing: " + new String(indexPath), e); //$NON-NLS-1$
+			if (targetType != null) {
+				IndexBinaryType actualType = new IndexBinaryType(TypeRef.create(targetType), indexPath);
+				IndexTester.testType(binaryType, actualType);
+			} else {
+				Package.logInfo(
+						"Could not find class in index immediately after indexing it: " + new String(indexPath)); //$NON-NLS-1$
 			}
+		} catch (RuntimeException e) {
+			Package.log("Error during indexing: " + new String(indexPath), e); //$NON-NLS-1$
 		}
-		return indexed;
 	}
 
 	/**
@@ -955,6 +1014,13 @@ public final class Indexer {
 		this.fileStateCache = FileStateCache.getCache(toPopulate);
 	}
 
+	/**
+	 * Sets the number of threads reading the archives while rescanning. 1 reads them on a single worker thread.
+	 */
+	public void setArchiveReaderThreads(int numThreads) {
+		this.archiveReaderThreads = Math.max(1, numThreads);
+	}
+
 	public void rescanAll() {
 		if (DEBUG_SCHEDULING) {
 			Package.logInfo("Scheduling rescanAll now"); //$NON-NLS-1$
@@ -1066,7 +1132,24 @@ public final class Indexer {
 		if (!JavaIndex.isEnabled()) {
 			return;
 		}
-		rescan(subMonitor.split(97));
+		// The database is empty, so the search indices that aren't used during indexing can be bulk-loaded
+		JavaIndex javaIndex = JavaIndex.getIndex(this.nd);
+		this.nd.acquireWriteLock(subMonitor.split(1));
+		try {
+			javaIndex.startBulkIndexing();
+		} finally {
+			this.nd.releaseWriteLock();
+		}
+		try {
+			rescan(subMonitor.split(95));
+		} finally {
+			this.nd.acquireWriteLock(null);
+			try {
+				javaIndex.finishBulkIndexing();
+			} finally {
+				this.nd.releaseWriteLock(0, true);
+			}
+		}
 	}
 
 	public void requestRebuildIndex() {
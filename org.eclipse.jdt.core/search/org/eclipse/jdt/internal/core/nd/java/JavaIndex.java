@@ -14,6 +14,8 @@
 package org.eclipse.jdt.internal.core.nd.java;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import org.eclipse.core.resources.IResource;
@@ -39,9 +41,9 @@ import org.eclipse.jdt.internal.core.nd.util.CharArrayUtils;
 
 public class JavaIndex {
 	// Version constants
-	static final int CURRENT_VERSION = Nd.version(1, 49);
-	static final int MAX_SUPPORTED_VERSION = Nd.version(1, 49);
-	static final int MIN_SUPPORTED_VERSION = Nd.version(1, 49);
+	static final int CURRENT_VERSION = Nd.version(1, 51);
+	static final int MAX_SUPPORTED_VERSION = Nd.version(1, 51);
+	static final int MIN_SUPPORTED_VERSION = Nd.version(1, 51);
 
 	// Fields for the search header
 	public static final FieldSearchIndex<NdResourceFile> FILES;
@@ -52,8 +54,8 @@ public class JavaIndex {
 	static {
 		type = StructDef.create(JavaIndex.class);
 		FILES = FieldSearchIndex.create(type, NdResourceFile.FILENAME);
-		SIMPLE_INDEX = FieldSearchIndex.create(type, NdTypeId.SIMPLE_NAME);
-		TYPES = FieldSearchIndex.create(type, NdTypeId.FIELD_DESCRIPTOR);
+		SIMPLE_INDEX = FieldSearchIndex.create(type, NdTypeId.SIMPLE_NAME, true);
+		TYPES = FieldSearchIndex.create(type, NdTypeId.FIELD_DESCRIPTOR, true);
 		type.done();
 
 		// This struct needs to fit within the first database chunk.
@@ -125,6 +127,25 @@ public class JavaIndex {
 		FileStateCache.getCache(getNd()).clear();
 	}
 
+	/**
+	 * Starts building the search indices that aren't needed by the indexer itself in bulk, see
+	 * {@link FieldSearchIndex#deferInsertions(Nd)}. Meant to be used while the index is populated from scratch. Until
+	 * {@link #finishBulkIndexing()} is called, types can't be found by their simple name, and the database isn't marked
+	 * as complete on disk, so that it is recreated if it is opened again before. Must be called while holding the write
+	 * lock.
+	 */
+	public void startBulkIndexing() {
+		SIMPLE_INDEX.deferInsertions(this.nd);
+	}
+
+	/**
+	 * Adds all records collected since {@link #startBulkIndexing()} to the search indices. Must be called while holding
+	 * the write lock.
+	 */
+	public void finishBulkIndexing() {
+		SIMPLE_INDEX.finishDeferredInsertions(this.nd, this.address);
+	}
+
 	public List<NdResourceFile> findResourcesWithPath(String thePath) {
 		return FILES.findAll(this.nd, this.address, FieldSearchIndex.SearchCriteria.create(thePath.toCharArray()));
 	}
@@ -153,6 +174,34 @@ public class JavaIndex {
 		return TYPES.visitAll(this.nd, this.address, searchCriteria, visitor);
 	}
 
+	/**
+	 * Returns the references to a type or to one of its members from the constant pools of the indexed types. Answers
+	 * the references to the type itself if the member name is null, and the references to all the fields or methods
+	 * with the given name if the member descriptor is null. Must be called while holding the read lock.
+	 *
+	 * @param fieldDescriptor the field descriptor of the referenced type, or of the type declaring the member
+	 * @param memberName the name of the referenced field or method, or null
+	 * @param memberDescriptor the field or method descriptor of the referenced member, or null
+	 */
+	public List<NdReference> findReferences(char[] fieldDescriptor, char[] memberName, char[] memberDescriptor) {
+		NdTypeId typeId = findType(fieldDescriptor);
+		if (typeId == null) {
+			return Collections.emptyList();
+		}
+		List<NdReference> result = new ArrayList<>();
+		for (NdReference next : typeId.getReferences()) {
+			if (memberName == null) {
+				if (next.getKind() == NdReference.KIND_TYPE) {
+					result.add(next);
+				}
+			} else if (next.getKind() != NdReference.KIND_TYPE && next.getMemberName().compare(memberName, true) == 0
+					&& (memberDescriptor == null || next.getDescriptor().compare(memberDescriptor, true) == 0)) {
+				result.add(next);
+			}
+		}
+		return result;
+	}
+
 	/**
 	 * Returns a type ID or creates a new one if it does not exist. The caller must
 	 * attach a reference to it after calling this method or it may leak.
@@ -297,6 +346,7 @@ public class JavaIndex {
 		registry.register(0x01E0, NdTypeInterface.type.getFactory());
 		registry.register(0x01F0, NdVariable.type.getFactory());
 		registry.register(0x0200, NdWorkspaceLocation.type.getFactory());
+		registry.register(0x0210, NdReference.type.getFactory());
 		return registry;
 	}
 }
@@ -0,0 +1,122 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.jdt.internal.core.nd.java;
+
+import org.eclipse.jdt.internal.core.nd.Nd;
+import org.eclipse.jdt.internal.core.nd.NdNode;
+import org.eclipse.jdt.internal.core.nd.db.IString;
+import org.eclipse.jdt.internal.core.nd.field.FieldByte;
+import org.eclipse.jdt.internal.core.nd.field.FieldManyToOne;
+import org.eclipse.jdt.internal.core.nd.field.FieldString;
+import org.eclipse.jdt.internal.core.nd.field.StructDef;
+
+/**
+ * Represents one type, field or method referenced by the constant pool of a specific type. This is an intermediate
+ * object between the referencing {@link NdType} and the {@link NdTypeId} of the referenced type (or of the type that
+ * declares the referenced member), so that the references to a type or to one of its members can be found from its
+ * {@link NdTypeId} without reading the referencing class files again.
+ */
+public class NdReference extends NdNode {
+	public static final FieldManyToOne<NdType> REFERENCING_TYPE;
+	public static final FieldManyToOne<NdTypeId> REFERENCED_TYPE;
+	public static final FieldString MEMBER_NAME;
+	public static final FieldString DESCRIPTOR;
+	public static final FieldByte KIND;
+
+	@SuppressWarnings("hiding")
+	public static StructDef<NdReference> type;
+
+	static {
+		type = StructDef.create(NdReference.class, NdNode.type);
+		REFERENCING_TYPE = FieldManyToOne.createOwner(type, NdType.REFERENCES);
+		REFERENCED_TYPE = FieldManyToOne.create(type, NdTypeId.REFERENCES);
+		MEMBER_NAME = type.addString();
+		DESCRIPTOR = type.addString();
+		KIND = type.addByte();
+		type.done();
+	}
+
+	public static final byte KIND_TYPE = 0;
+	public static final byte KIND_FIELD = 1;
+	public static final byte KIND_METHOD = 2;
+
+	public NdReference(Nd nd, long address) {
+		super(nd, address);
+	}
+
+	public NdReference(Nd nd, NdType referencingType, NdTypeId referencedType, byte kind, char[] memberName,
+			char[] descriptor) {
+		super(nd);
+
+		REFERENCING_TYPE.put(nd, this.address, referencingType);
+		REFERENCED_TYPE.put(nd, this.address, referencedType);
+		KIND.put(nd, this.address, kind);
+		if (memberName != null) {
+			MEMBER_NAME.put(nd, this.address, memberName);
+		}
+		if (descriptor != null) {
+			DESCRIPTOR.put(nd, this.address, descriptor);
+		}
+	}
+
+	/**
+	 * Returns the type whose constant pool holds this reference.
+	 */
+	public NdType getReferencingType() {
+		return REFERENCING_TYPE.get(getNd(), this.address);
+	}
+
+	/**
+	 * Returns the referenced type, or the type declaring the referenced member.
+	 */
+	public NdTypeId getReferencedType() {
+		return REFERENCED_TYPE.get(getNd(), this.address);
+	}
+
+	/**
+	 * Returns one of {@link #KIND_TYPE}, {@link #KIND_FIELD} or {@link #KIND_METHOD}.
+	 */
+	public byte getKind() {
+		return KIND.get(getNd(), this.address);
+	}
+
+	/**
+	 * Returns the name of the referenced field or method, which is empty for a type reference.
+	 */
+	public IString getMemberName() {
+		return MEMBER_NAME.get(getNd(), this.address);
+	}
+
+	/**
+	 * Returns the descriptor of the referenced field or method, which is empty for a type reference.
+	 */
+	public IString getDescriptor() {
+		return DESCRIPTOR.get(getNd(), this.address);
+	}
+
+	@Override
+	public String toString() {
+		try {
+			StringBuilder result = new StringBuilder();
+			result.append(getReferencedType().toString());
+			if (getKind() != KIND_TYPE) {
+				result.append('.');
+				result.append(getMemberName().getString());
+				result.append(getDescriptor().getString());
+			}
+			return result.toString();
+		} catch (RuntimeException e) {
+			// This is called most often from the debugger, so we want to return something meaningful even
+			// if the code is buggy, the database is corrupt, or we don't have a read lock.
+			return super.toString();
+		}
+	}
+}
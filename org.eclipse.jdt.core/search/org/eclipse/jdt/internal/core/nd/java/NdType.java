@@ -49,6 +49,7 @@ public class NdType extends NdBinding {
 	 * .class files that have been moved to the wrong folder.
 	 */
 	public static final FieldString FIELD_DESCRIPTOR_FROM_CLASS;
+	public static final FieldOneToMany<NdReference> REFERENCES;
 
 	@SuppressWarnings("hiding")
 	public static final StructDef<NdType> type;
@@ -71,6 +72,7 @@ public class NdType extends NdBinding {
 		TAG_BITS = type.addLong();
 		FIELD_DESCRIPTOR_FROM_CLASS = type.addString();
 		ENCLOSING_METHOD = type.addString();
+		REFERENCES = FieldOneToMany.create(type, NdReference.REFERENCING_TYPE);
 		type.done();
 	}
 
@@ -135,6 +137,13 @@ public class NdType extends NdBinding {
 		return INTERFACES.asList(getNd(), this.address);
 	}
 
+	/**
+	 * Returns the types, fields and methods referenced by the constant pool of this type.
+	 */
+	public List<NdReference> getReferences() {
+		return REFERENCES.asList(getNd(), this.address);
+	}
+
 	public NdResourceFile getResourceFile() {
 		return FILE.get(getNd(), this.address);
 	}
@@ -32,6 +32,7 @@ public class NdTypeId extends NdTypeSignature {
 	public static final FieldOneToMany<NdType> TYPES;
 	public static final FieldOneToMany<NdComplexTypeSignature> USED_AS_COMPLEX_TYPE;
 	public static final FieldOneToMany<NdType> DECLARED_TYPES;
+	public static final FieldOneToMany<NdReference> REFERENCES;
 
 	@SuppressWarnings("hiding")
 	public static final StructDef<NdTypeId> type;
@@ -45,6 +46,7 @@ public class NdTypeId extends NdTypeSignature {
 		TYPES = FieldOneToMany.create(type, NdType.TYPENAME, 2);
 		USED_AS_COMPLEX_TYPE = FieldOneToMany.create(type, NdComplexTypeSignature.RAW_TYPE);
 		DECLARED_TYPES = FieldOneToMany.create(type, NdType.DECLARING_TYPE);
+		REFERENCES = FieldOneToMany.create(type, NdReference.REFERENCED_TYPE);
 		type.useStandardRefCounting().done();
 	}
 
@@ -146,6 +148,13 @@ public class NdTypeId extends NdTypeSignature {
 		return DECLARED_TYPES.asList(getNd(), this.address);
 	}
 
+	/**
+	 * Returns the references to this type and to its members from the constant pools of the indexed types.
+	 */
+	public List<NdReference> getReferences() {
+		return REFERENCES.asList(getNd(), this.address);
+	}
+
 	@Override
 	public NdTypeId getRawType() {
 		return this;
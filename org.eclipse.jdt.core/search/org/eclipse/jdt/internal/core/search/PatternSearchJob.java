@@ -14,12 +14,19 @@
 package org.eclipse.jdt.internal.core.search;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.SubMonitor;
 import org.eclipse.jdt.core.search.*;
+import org.eclipse.jdt.internal.compiler.env.AccessRuleSet;
 import org.eclipse.jdt.internal.core.JavaModelManager;
 import org.eclipse.jdt.internal.core.index.FileIndexLocation;
 import org.eclipse.jdt.internal.core.index.Index;
@@ -29,9 +36,16 @@ import org.eclipse.jdt.internal.core.search.matching.MatchLocator;
 import org.eclipse.jdt.internal.core.search.processing.IJob;
 import org.eclipse.jdt.internal.core.search.processing.JobManager;
 import org.eclipse.jdt.internal.core.util.Util;
+import org.eclipse.jdt.internal.core.util.WorkerPools;
 
 public class PatternSearchJob implements IJob {
 
+// maximum number of indexes that a search job queries at the same time, 1 to query them one after the other
+// (read by each job, so that tests can change it)
+public static final String INDEX_QUERY_THREADS_PROPERTY = "jdt.core.indexQueryThreads"; //$NON-NLS-1$
+public static int INDEX_QUERY_THREADS = Math.max(1, Integer.getInteger(INDEX_QUERY_THREADS_PROPERTY, 1).intValue());
+private static final String INDEX_QUERY_THREAD_NAME = "Java search index query"; //$NON-NLS-1$
+
 protected SearchPattern pattern;
 protected IJavaSearchScope scope;
 protected SearchParticipant participant;
@@ -68,8 +82,13 @@ public boolean execute(IProgressMonitor progressMonitor) {
 	try {
 		int max = indexes.length;
 		SubMonitor loopMonitor = subMonitor.split(2).setWorkRemaining(max);
-		for (int i = 0; i < max; i++) {
-			isComplete &= search(indexes[i], loopMonitor.split(1));
+		int threads = INDEX_QUERY_THREADS;
+		if (max > 1 && threads > 1 && canSearchIndexesConcurrently()) {
+			isComplete = searchConcurrently(indexes, threads, loopMonitor);
+		} else {
+			for (int i = 0; i < max; i++) {
+				isComplete &= search(indexes[i], loopMonitor.split(1));
+			}
 		}
 		if (JobManager.VERBOSE)
 			Util.verbose("-> execution time: " + this.executionTime + "ms - " + this);//$NON-NLS-1$//$NON-NLS-2$
@@ -78,6 +97,51 @@ public boolean execute(IProgressMonitor progressMonitor) {
 		SubMonitor.done(progressMonitor);
 	}
 }
+/**
+ * Answers whether the indexes can be queried on several threads at the same time. This requires a pattern that
+ * doesn't change while querying an index and a scope that can be asked whether it encloses a document from any
+ * thread. The requestor is always called by one thread at a time.
+ */
+protected boolean canSearchIndexesConcurrently() {
+	return (this.scope instanceof JavaSearchScope || this.scope instanceof JavaWorkspaceScope)
+			&& MatchLocator.canQueryIndexesConcurrently(this.pattern);
+}
+/*
+ * Queries the given indexes on the threads of the index query pool. The progress and the cancellation are handled by
+ * the calling thread, which waits until all queries have ended before returning.
+ */
+private boolean searchConcurrently(Index[] indexes, int threads, SubMonitor loopMonitor) {
+	final AtomicBoolean canceled = new AtomicBoolean();
+	final IProgressMonitor queryMonitor = new NullProgressMonitor() {
+		@Override
+		public boolean isCanceled() {
+			return canceled.get();
+		}
+	};
+	final IndexQueryRequestor queryRequestor = new IndexQueryRequestor() {
+		@Override
+		public synchronized boolean acceptIndexMatch(String documentPath, SearchPattern indexRecord, SearchParticipant searchParticipant, AccessRuleSet access) {
+			return PatternSearchJob.this.requestor.acceptIndexMatch(documentPath, indexRecord, searchParticipant, access);
+		}
+	};
+	List<Callable<Boolean>> queries = new ArrayList<>(indexes.length);
+	for (int i = 0, length = indexes.length; i < length; i++) {
+		final Index index = indexes[i];
+		queries.add(() -> Boolean.valueOf(search(index, queryRequestor, queryMonitor)));
+	}
+	// the remaining queries are stopped and waited for on cancellation, they must not hold the index monitors or
+	// call the requestor once the job has ended
+	final boolean[] isComplete = { COMPLETE };
+	try {
+		WorkerPools.invokeAll(WorkerPools.getPool(INDEX_QUERY_THREAD_NAME, threads), queries, loopMonitor, canceled, complete -> {
+			isComplete[0] &= complete.booleanValue();
+			loopMonitor.split(1);
+		});
+	} catch (CoreException e) {
+		throw new IllegalStateException(e); // not thrown by the queries
+	}
+	return isComplete[0];
+}
 public Index[] getIndexes(IProgressMonitor progressMonitor) {
 	// acquire the in-memory indexes on the fly
 	IndexLocation[] indexLocations;
@@ -107,6 +171,9 @@ public String getJobFamily() {
 	return ""; //$NON-NLS-1$
 }
 public boolean search(Index index, IProgressMonitor progressMonitor) {
+	return search(index, this.requestor, progressMonitor);
+}
+protected boolean search(Index index, IndexQueryRequestor queryRequestor, IProgressMonitor progressMonitor) {
 	if (index == null) return COMPLETE;
 	if (progressMonitor != null && progressMonitor.isCanceled()) throw new OperationCanceledException();
 	ReadWriteMonitor monitor = index.monitor;
@@ -114,8 +181,8 @@ public boolean search(Index index, IProgressMonitor progressMonitor) {
 	try {
 		monitor.enterRead(); // ask permission to read
 		long start = System.currentTimeMillis();
-		MatchLocator.findIndexMatches(this.pattern, index, this.requestor, this.participant, this.scope, progressMonitor);
-		this.executionTime += System.currentTimeMillis() - start;
+		MatchLocator.findIndexMatches(this.pattern, index, queryRequestor, this.participant, this.scope, progressMonitor);
+		addExecutionTime(System.currentTimeMillis() - start);
 		return COMPLETE;
 	} catch (IOException e) {
 		if (e instanceof java.io.EOFException)
@@ -125,6 +192,9 @@ public boolean search(Index index, IProgressMonitor progressMonitor) {
 		monitor.exitRead(); // finished reading
 	}
 }
+private synchronized void addExecutionTime(long time) {
+	this.executionTime += time;
+}
 @Override
 public String toString() {
 	return "searching " + this.pattern.toString(); //$NON-NLS-1$
@@ -32,6 +32,10 @@ public void finished() {
 			((Index) values[i]).stopQuery();
 }
 @Override
+protected boolean canSearchIndexesConcurrently() {
+	return false; // the indexes are collected by search(Index, IProgressMonitor)
+}
+@Override
 public Index[] getIndexes(IProgressMonitor progressMonitor) {
 	if (this.indexes.elementSize == 0) {
 		return super.getIndexes(progressMonitor);
@@ -17,7 +17,10 @@ import java.io.File;
 import java.io.IOException;
 import java.net.URI;
 import java.nio.charset.Charset;
+import java.util.ArrayDeque;
 import java.util.Enumeration;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipError;
 import java.util.zip.ZipFile;
@@ -29,6 +32,7 @@ import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.Path;
 import org.eclipse.jdt.core.compiler.CharOperation;
 import org.eclipse.jdt.core.search.IJavaSearchScope;
+import org.eclipse.jdt.core.search.SearchDocument;
 import org.eclipse.jdt.core.search.SearchEngine;
 import org.eclipse.jdt.core.search.SearchParticipant;
 import org.eclipse.jdt.internal.compiler.env.AutomaticModuleNaming;
@@ -37,14 +41,21 @@ import org.eclipse.jdt.internal.compiler.util.SimpleLookupTable;
 import org.eclipse.jdt.internal.compiler.util.Util;
 import org.eclipse.jdt.internal.core.JavaModelManager;
 import org.eclipse.jdt.internal.core.index.Index;
+import org.eclipse.jdt.internal.core.index.IndexEntryBuffer;
 import org.eclipse.jdt.internal.core.index.IndexLocation;
 import org.eclipse.jdt.internal.core.search.JavaSearchDocument;
 import org.eclipse.jdt.internal.core.search.processing.JobManager;
+import org.eclipse.jdt.internal.core.util.WorkerPools;
 
 @SuppressWarnings("rawtypes")
 class AddJarFileToIndex extends BinaryContainer {
 
 	private static final char JAR_SEPARATOR = IJavaSearchScope.JAR_FILE_ENTRY_SEPARATOR.charAt(0);
+	// default number of threads decoding the class files of a jar, 1 to decode them in the indexing thread
+	public static final String INDEXING_THREADS_PROPERTY = "jdt.core.jarIndexingThreads"; //$NON-NLS-1$
+	public static final int INDEXING_THREADS = Math.max(1, Integer.getInteger(INDEXING_THREADS_PROPERTY, 1).intValue());
+	private static final String INDEXING_THREAD_NAME = "Java indexing"; //$NON-NLS-1$
+
 	IFile resource;
 	private IndexLocation indexFileURL;
 	private final boolean forceIndexUpdate;
@@ -106,6 +117,13 @@ class AddJarFileToIndex extends BinaryContainer {
 				return true;
 			}
 
+			// a library that was never indexed on this machine may be in the shared index cache
+			String sharedIndexKey = null;
+			if (!this.forceIndexUpdate && !this.manager.computeIndexLocation(this.containerPath).exists()) {
+				sharedIndexKey = SharedIndexCache.computeKey(getLibraryFile());
+				if (addSharedIndex(sharedIndexKey)) return true;
+			}
+
 			index = this.manager.getIndexForUpdate(this.containerPath, true, /*reuse index file*/ true /*create if none*/);
 			if (index == null) {
 				if (JobManager.VERBOSE)
@@ -225,23 +243,48 @@ class AddJarFileToIndex extends BinaryContainer {
 					indexPath = new Path(indexLocation.getCanonicalFilePath());
 				}
 				boolean hasModuleInfoClass = false;
-				for (Enumeration e = zip.entries(); e.hasMoreElements();) {
-					if (this.isCancelled) {
-						if (JobManager.VERBOSE)
-							org.eclipse.jdt.internal.core.util.Util.verbose("-> indexing of " + zip.getName() + " has been cancelled"); //$NON-NLS-1$ //$NON-NLS-2$
-						return false;
-					}
+				// class files decoded by the indexing pool, added to the index in the order of the zip entries
+				int indexingThreads = this.manager.getJarIndexingThreads();
+				ForkJoinPool pool = indexingThreads > 1 ? WorkerPools.getPool(INDEXING_THREAD_NAME, indexingThreads) : null;
+				ArrayDeque<Future<IndexEntryBuffer>> pendingDocuments = pool != null ? new ArrayDeque<>() : null;
+				int maxPendingDocuments = indexingThreads * 4; // class files being decoded or waiting to be added
+				try {
+					for (Enumeration e = zip.entries(); e.hasMoreElements();) {
+						if (this.isCancelled) {
+							if (JobManager.VERBOSE)
+								org.eclipse.jdt.internal.core.util.Util.verbose("-> indexing of " + zip.getName() + " has been cancelled"); //$NON-NLS-1$ //$NON-NLS-2$
+							return false;
+						}
 
-					// iterate each entry to index it
-					ZipEntry ze = (ZipEntry) e.nextElement();
-					String zipEntryName = ze.getName();
-					if (Util.isClassFileName(zipEntryName) &&
-							isValidPackageNameForClassOrisModule(zipEntryName)) {
-						hasModuleInfoClass |= zipEntryName.contains(TypeConstants.MODULE_INFO_NAME_STRING);
-						// index only classes coming from valid packages - https://bugs.eclipse.org/bugs/show_bug.cgi?id=293861
-						final byte[] classFileBytes = org.eclipse.jdt.internal.compiler.util.Util.getZipEntryByteContent(ze, zip);
-						JavaSearchDocument entryDocument = new JavaSearchDocument(ze, zipFilePath, classFileBytes, participant);
-						this.manager.indexDocument(entryDocument, participant, index, indexPath);
+						// iterate each entry to index it
+						ZipEntry ze = (ZipEntry) e.nextElement();
+						String zipEntryName = ze.getName();
+						if (Util.isClassFileName(zipEntryName) &&
+								isValidPackageNameForClassOrisModule(zipEntryName)) {
+							hasModuleInfoClass |= zipEntryName.contains(TypeConstants.MODULE_INFO_NAME_STRING);
+							// index only classes coming from valid packages - https://bugs.eclipse.org/bugs/show_bug.cgi?id=293861
+							final byte[] classFileBytes = org.eclipse.jdt.internal.compiler.util.Util.getZipEntryByteContent(ze, zip);
+							JavaSearchDocument entryDocument = new JavaSearchDocument(ze, zipFilePath, classFileBytes, participant);
+							if (pendingDocuments == null) {
+								this.manager.indexDocument(entryDocument, participant, index, indexPath);
+							} else {
+								if (pendingDocuments.size() >= maxPendingDocuments)
+									addIndexEntries(pendingDocuments.poll(), index);
+								pendingDocuments.add(indexDocumentConcurrently(pool, entryDocument, participant, index, indexPath));
+							}
+						}
+					}
+					if (pendingDocuments != null) {
+						while (!pendingDocuments.isEmpty())
+							addIndexEntries(pendingDocuments.poll(), index);
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return false;
+				} finally {
+					if (pendingDocuments != null) {
+						for (Future<IndexEntryBuffer> pendingDocument : pendingDocuments)
+							pendingDocument.cancel(false);
 					}
 				}
 				if (!hasModuleInfoClass) {
@@ -265,6 +308,7 @@ class AddJarFileToIndex extends BinaryContainer {
 				}
 				else {
 					this.manager.saveIndex(index);
+					SharedIndexCache.publish(sharedIndexKey, index);
 				}
 				if (JobManager.VERBOSE)
 					org.eclipse.jdt.internal.core.util.Util.verbose("-> done indexing of " //$NON-NLS-1$
@@ -288,6 +332,36 @@ class AddJarFileToIndex extends BinaryContainer {
 		}
 		return true;
 	}
+	/*
+	 * Adds the entries of a document decoded by the indexing pool to the index, once it is ready.
+	 */
+	private static void addIndexEntries(Future<IndexEntryBuffer> document, Index index) throws InterruptedException {
+		try {
+			WorkerPools.getResult(document).addTo(index);
+		} catch (CoreException e) {
+			throw new IllegalStateException(e); // not thrown by the indexer
+		}
+	}
+	/*
+	 * Decodes the given document on the given indexing pool. Its entries are recorded in a buffer, so that the index
+	 * is only updated by the indexing thread.
+	 */
+	private Future<IndexEntryBuffer> indexDocumentConcurrently(ForkJoinPool pool, SearchDocument document, SearchParticipant participant, Index index, IPath indexPath) {
+		IndexEntryBuffer entries = new IndexEntryBuffer(index);
+		return pool.submit(() -> {
+			this.manager.indexDocument(document, participant, entries, indexPath);
+			return entries;
+		});
+	}
+	/*
+	 * Answers the jar file on the local file system, or null if there is none.
+	 */
+	private File getLibraryFile() {
+		if (this.resource == null)
+			return this.containerPath.toFile(); // external jar
+		IPath location = this.resource.getLocation();
+		return location == null ? null : location.toFile();
+	}
 	@Override
 	public String getJobFamily() {
 		if (this.resource != null)
@@ -169,6 +169,13 @@ public class AddJrtToIndex extends BinaryContainer {
 				return true;
 			}
 
+			// a library that was never indexed on this machine may be in the shared index cache
+			String sharedIndexKey = null;
+			if (!this.forceIndexUpdate && !this.manager.computeIndexLocation(this.containerPath).exists()) {
+				sharedIndexKey = SharedIndexCache.computeKey(getLibraryFile());
+				if (addSharedIndex(sharedIndexKey)) return true;
+			}
+
 			final Index index = this.manager.getIndexForUpdate(this.containerPath, true, /*reuse index file*/ true /*create if none*/);
 			if (index == null) {
 				if (JobManager.VERBOSE)
@@ -272,6 +279,7 @@ public class AddJrtToIndex extends BinaryContainer {
 				}
 				else {
 					this.manager.saveIndex(index);
+					SharedIndexCache.publish(sharedIndexKey, index);
 				}
 				if (JobManager.VERBOSE)
 					org.eclipse.jdt.internal.core.util.Util.verbose("-> done indexing of " //$NON-NLS-1$
@@ -290,6 +298,16 @@ public class AddJrtToIndex extends BinaryContainer {
 		}
 		return true;
 	}
+	/*
+	 * Answers the module image of the JDK, which holds the indexed class files, or null if there is none.
+	 */
+	private File getLibraryFile() {
+		IPath jrtPath = this.resource == null ? this.containerPath : this.resource.getLocation();
+		if (jrtPath == null)
+			return null;
+		File libDirectory = jrtPath.toFile().getParentFile(); // the jrt-fs.jar is in the lib directory of the JDK
+		return libDirectory == null ? null : new File(libDirectory, "modules"); //$NON-NLS-1$
+	}
 	@Override
 	public String getJobFamily() {
 		if (this.resource != null)
@@ -19,6 +19,9 @@ import org.eclipse.jdt.internal.compiler.classfmt.ClassFileConstants;
 import org.eclipse.jdt.internal.compiler.parser.Scanner;
 import org.eclipse.jdt.internal.compiler.parser.TerminalTokens;
 import org.eclipse.jdt.internal.compiler.util.SuffixConstants;
+import org.eclipse.jdt.internal.core.index.IndexLocation;
+import org.eclipse.jdt.internal.core.search.processing.JobManager;
+import org.eclipse.jdt.internal.core.util.Util;
 
 public abstract class BinaryContainer extends IndexRequest {
 
@@ -27,6 +30,18 @@ public abstract class BinaryContainer extends IndexRequest {
 		super(containerPath, manager);
 	}
 
+	/*
+	 * Starts using the index of the shared index cache for the library with the given key. Answers false if the
+	 * cache has no usable index, then the library must be indexed.
+	 */
+	protected boolean addSharedIndex(String sharedIndexKey) {
+		IndexLocation sharedIndex = sharedIndexKey == null ? null : SharedIndexCache.find(sharedIndexKey);
+		if (sharedIndex == null)
+			return false;
+		if (JobManager.VERBOSE)
+			Util.verbose("-> using shared index " + sharedIndex + " for " + this.containerPath); //$NON-NLS-1$ //$NON-NLS-2$
+		return this.manager.addIndex(this.containerPath, sharedIndex);
+	}
 	private boolean isIdentifier() throws InvalidInputException {
 		switch(this.scanner.scanIdentifier()) {
 			// assert and enum will not be recognized as java identifiers
@@ -0,0 +1,72 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.jdt.internal.core.search.indexing;
+
+import java.io.IOException;
+
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.jdt.internal.core.index.Index;
+import org.eclipse.jdt.internal.core.search.processing.JobManager;
+import org.eclipse.jdt.internal.core.util.Util;
+
+/*
+ * Merge the segments which saving the index of a project or a library appended to its index file.
+ */
+public class CompactIndex extends IndexRequest {
+	public CompactIndex(IPath containerPath, IndexManager manager) {
+		super(containerPath, manager);
+	}
+	@Override
+	public boolean equals(Object o) {
+		if (o instanceof CompactIndex)
+			return this.containerPath.equals(((CompactIndex) o).containerPath);
+		return false;
+	}
+	@Override
+	public int hashCode() {
+		return this.containerPath.hashCode();
+	}
+	@Override
+	public void ensureReadyToRun() {
+		// compacting does not change the contents of the index, so its state is left as is
+	}
+	@Override
+	public boolean execute(IProgressMonitor progressMonitor) {
+
+		if (this.isCancelled || progressMonitor != null && progressMonitor.isCanceled()) return true;
+
+		/* ensure no concurrent write access to index */
+		Index index = this.manager.getIndex(this.containerPath, true /*reuse index file*/, false /*don't create if none*/);
+		if (index == null) return true;
+		ReadWriteMonitor monitor = index.monitor;
+		if (monitor == null) return true; // index got deleted since acquired
+
+		try {
+			monitor.enterWrite(); // ask permission to write
+			if (index.needsCompaction())
+				index.compact();
+		} catch (IOException e) {
+			if (JobManager.VERBOSE) {
+				Util.verbose("-> failed to compact index " + this.containerPath + " because of the following exception:", System.err); //$NON-NLS-1$ //$NON-NLS-2$
+				e.printStackTrace();
+			}
+			return false;
+		} finally {
+			monitor.exitWrite(); // free write lock
+		}
+		return true;
+	}
+	@Override
+	public String toString() {
+		return "compacting index for " + this.containerPath; //$NON-NLS-1$
+	}
+}
@@ -21,6 +21,8 @@ import java.net.URL;
 import java.util.ArrayList;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.zip.CRC32;
 
 import org.eclipse.core.resources.IContainer;
@@ -68,9 +70,11 @@ public class IndexManager extends JobManager implements IIndexConstants {
 
 	// key = containerPath, value = indexLocation path
 	// indexLocation path is created by appending an index file name to the getJavaPluginWorkingLocation() path
-	public SimpleLookupTable indexLocations = new SimpleLookupTable();
+	public final Map<IPath, IndexLocation> indexLocations = new ConcurrentHashMap<>();
 	// key = indexLocation path, value = an index
-	private SimpleLookupTable indexes = new SimpleLookupTable();
+	private final Map<IndexLocation, Index> indexes = new ConcurrentHashMap<>();
+	// key = indexLocation path, value = the index being read from its file, see readAndRecordIndex()
+	private final Map<IndexLocation, CompletableFuture<Index>> pendingReads = new ConcurrentHashMap<>();
 
 	/**
 	 * The new indexer is disabled, see bug 544898
@@ -103,6 +107,9 @@ public class IndexManager extends JobManager implements IIndexConstants {
 	public static final String MANAGE_PRODUCT_INDEXES_PROPERTY = "jdt.core.manageProductIndexes"; //$NON-NLS-1$
 	private static final boolean IS_MANAGING_PRODUCT_INDEXES_PROPERTY = Boolean.getBoolean(MANAGE_PRODUCT_INDEXES_PROPERTY);
 
+	// number of threads decoding the class files of a jar being indexed
+	private volatile int jarIndexingThreads = AddJarFileToIndex.INDEXING_THREADS;
+
 	// Debug
 	public static boolean DEBUG = false;
 
@@ -178,7 +185,7 @@ public void cleanUpIndexes() {
  * Compute the pre-built index location for a specified URL
  */
 public synchronized IndexLocation computeIndexLocation(IPath containerPath, final URL newIndexURL) {
-	IndexLocation indexLocation = (IndexLocation) this.indexLocations.get(containerPath);
+	IndexLocation indexLocation = this.indexLocations.get(containerPath);
 	if (indexLocation == null) {
 		if(newIndexURL != null) {
 			indexLocation = IndexLocation.createIndexLocation(newIndexURL);
@@ -205,9 +212,14 @@ public synchronized IndexLocation computeIndexLocation(IPath containerPath, fina
 	}
 	return indexLocation;
 }
-public synchronized IndexLocation computeIndexLocation(IPath containerPath) {
-	IndexLocation indexLocation = (IndexLocation) this.indexLocations.get(containerPath);
-	if (indexLocation == null) {
+public IndexLocation computeIndexLocation(IPath containerPath) {
+	IndexLocation indexLocation = this.indexLocations.get(containerPath);
+	if (indexLocation != null)
+		return indexLocation;
+	synchronized (this) {
+		indexLocation = this.indexLocations.get(containerPath);
+		if (indexLocation != null)
+			return indexLocation;
 		String pathString = containerPath.toOSString();
 		CRC32 checksumCalculator = new CRC32();
 		checksumCalculator.update(pathString.getBytes());
@@ -217,8 +229,8 @@ public synchronized IndexLocation computeIndexLocation(IPath containerPath) {
 		// to share the indexLocation between the indexLocations and indexStates tables, get the key from the indexStates table
 		indexLocation = (IndexLocation) getIndexStates().getKey(new FileIndexLocation(new File(getSavedIndexesDirectory(), fileName)));
 		this.indexLocations.put(containerPath, indexLocation);
+		return indexLocation;
 	}
-	return indexLocation;
 }
 /**
  * Use {@link #deleteIndexFiles(IProgressMonitor)}
@@ -288,8 +300,8 @@ public SourceElementParser getSourceElementParser(IJavaProject project, ISourceE
  * @param indexLocation The path of the index file
  * @return The corresponding index or <code>null</code> if not found
  */
-public synchronized Index getIndex(IndexLocation indexLocation) {
-	return (Index) this.indexes.get(indexLocation); // is null if unknown, call if the containerPath must be computed
+public Index getIndex(IndexLocation indexLocation) {
+	return this.indexes.get(indexLocation); // is null if unknown, call if the containerPath must be computed
 }
 /**
  * Returns the index for a given project, according to the following algorithm:
@@ -299,7 +311,7 @@ public synchronized Index getIndex(IndexLocation indexLocation) {
  *
  * Warning: Does not check whether index is consistent (not being used)
  */
-public synchronized Index getIndex(IPath containerPath, boolean reuseExistingFile, boolean createIfMissing) {
+public Index getIndex(IPath containerPath, boolean reuseExistingFile, boolean createIfMissing) {
 	IndexLocation indexLocation = computeIndexLocation(containerPath);
 	return getIndex(containerPath, indexLocation, reuseExistingFile, createIfMissing);
 }
@@ -311,37 +323,53 @@ public synchronized Index getIndex(IPath containerPath, boolean reuseExistingFil
  *
  * Warning: Does not check whether index is consistent (not being used)
  */
-public synchronized Index getIndex(IPath containerPath, IndexLocation indexLocation, boolean reuseExistingFile, boolean createIfMissing) {
+public Index getIndex(IPath containerPath, IndexLocation indexLocation, boolean reuseExistingFile, boolean createIfMissing) {
 	// Path is already canonical per construction
 	Index index = getIndex(indexLocation);
-	if (index == null) {
+	if (index != null)
+		return index;
+
+	Integer currentIndexState;
+	synchronized (this) {
+		index = getIndex(indexLocation);
+		if (index != null)
+			return index;
 		Object state = getIndexStates().get(indexLocation);
-		Integer currentIndexState = state == null ? UNKNOWN_STATE : (Integer) state;
+		currentIndexState = state == null ? UNKNOWN_STATE : (Integer) state;
 		if (currentIndexState == UNKNOWN_STATE) {
 			// should only be reachable for query jobs
 			// IF you put an index in the cache, then AddJarFileToIndex fails because it thinks there is nothing to do
 			rebuildIndex(indexLocation, containerPath);
 			return null;
 		}
+	}
 
-		// index isn't cached, consider reusing an existing index file
-		String containerPathString = containerPath.getDevice() == null ? containerPath.toString() : containerPath.toOSString();
+	// index isn't cached, consider reusing an existing index file
+	String containerPathString = containerPath.getDevice() == null ? containerPath.toString() : containerPath.toOSString();
+	boolean readFailed = false;
+	if (reuseExistingFile && indexLocation.exists()) { // check before creating index so as to avoid creating a new empty index if file is missing
+		index = readAndRecordIndex(indexLocation, containerPathString);
+		if (index != null)
+			return index;
+		readFailed = true;
+	}
+
+	synchronized (this) {
+		index = getIndex(indexLocation);
+		if (index != null)
+			return index;
+		Object state = getIndexStates().get(indexLocation);
+		currentIndexState = state == null ? UNKNOWN_STATE : (Integer) state;
 		if (reuseExistingFile) {
-			if (indexLocation.exists()) { // check before creating index so as to avoid creating a new empty index if file is missing
-				try {
-					index = new Index(indexLocation, containerPathString, true /*reuse index file*/);
-					this.indexes.put(indexLocation, index);
-					return index;
-				} catch (IOException e) {
-					// failed to read the existing file or its no longer compatible
-					if (currentIndexState != REBUILDING_STATE && currentIndexState != REUSE_STATE) { // rebuild index if existing file is corrupt, unless the index is already being rebuilt
-						if (VERBOSE)
-							Util.verbose("-> cannot reuse existing index: "+indexLocation+" path: "+containerPathString); //$NON-NLS-1$ //$NON-NLS-2$
-						rebuildIndex(indexLocation, containerPath);
-						return null;
-					}
-					/*index = null;*/ // will fall thru to createIfMissing & create a empty index for the rebuild all job to populate
+			if (readFailed) {
+				// failed to read the existing file or its no longer compatible
+				if (currentIndexState != REBUILDING_STATE && currentIndexState != REUSE_STATE) { // rebuild index if existing file is corrupt, unless the index is already being rebuilt
+					if (VERBOSE)
+						Util.verbose("-> cannot reuse existing index: "+indexLocation+" path: "+containerPathString); //$NON-NLS-1$ //$NON-NLS-2$
+					rebuildIndex(indexLocation, containerPath);
+					return null;
 				}
+				/*index = null;*/ // will fall thru to createIfMissing & create a empty index for the rebuild all job to populate
 			}
 			if (currentIndexState == SAVED_STATE) { // rebuild index if existing file is missing
 				rebuildIndex(indexLocation, containerPath);
@@ -352,7 +380,7 @@ public synchronized Index getIndex(IPath containerPath, IndexLocation indexLocat
 				if (VERBOSE)
 					Util.verbose("-> cannot reuse given index: "+indexLocation+" path: "+containerPathString); //$NON-NLS-1$ //$NON-NLS-2$
 				if(!IS_MANAGING_PRODUCT_INDEXES_PROPERTY) {
-					this.indexLocations.put(containerPath, null);
+					this.indexLocations.remove(containerPath);
 					indexLocation = computeIndexLocation(containerPath);
 					rebuildIndex(indexLocation, containerPath);
 				}
@@ -368,8 +396,8 @@ public synchronized Index getIndex(IPath containerPath, IndexLocation indexLocat
 				if (VERBOSE)
 					Util.verbose("-> create empty index: "+indexLocation+" path: "+containerPathString); //$NON-NLS-1$ //$NON-NLS-2$
 				index = new Index(indexLocation, containerPathString, false /*do not reuse index file*/);
-				this.indexes.put(indexLocation, index);
-				return index;
+				Index existing = this.indexes.putIfAbsent(indexLocation, index);
+				return existing != null ? existing : index;
 			} catch (IOException e) {
 				if (VERBOSE)
 					Util.verbose("-> unable to create empty index: "+indexLocation+" path: "+containerPathString); //$NON-NLS-1$ //$NON-NLS-2$
@@ -379,7 +407,17 @@ public synchronized Index getIndex(IPath containerPath, IndexLocation indexLocat
 		}
 	}
 	//System.out.println(" index name: " + path.toOSString() + " <----> " + index.getIndexFile().getName());
-	return index;
+	return null;
+}
+/*
+ * Returns the container path that was mapped to the given index location, or null if none.
+ */
+private IPath getContainerPath(IndexLocation indexLocation) {
+	for (Map.Entry<IPath, IndexLocation> entry : this.indexLocations.entrySet()) {
+		if (indexLocation.equals(entry.getValue()))
+			return entry.getKey();
+	}
+	return null;
 }
 /**
  * Returns all the existing indexes for a list of index locations.
@@ -405,7 +443,7 @@ public Index[] getIndexes(IndexLocation[] locations, IProgressMonitor progressMo
 		Index index = getIndex(indexLocation);
 		if (index == null) {
 			// only need containerPath if the index must be built
-			IPath containerPath = (IPath) this.indexLocations.keyForValue(indexLocation);
+			IPath containerPath = getContainerPath(indexLocation);
 			if (containerPath != null) {// sanity check
 				index = getIndex(containerPath, indexLocation, true /*reuse index file*/, false /*do not create if none*/);
 				if (index != null && this.javaLikeNamesChanged && !index.isIndexForJar()) {
@@ -418,21 +456,15 @@ public Index[] getIndexes(IndexLocation[] locations, IProgressMonitor progressMo
 							Util.verbose("Change in javaLikeNames - removing index file for " + containerPath ); //$NON-NLS-1$
 						indexFile.delete();
 					}
-					this.indexes.put(indexLocation, null);
+					this.indexes.remove(indexLocation);
 					rebuildIndex(indexLocation, containerPath);
 					index = null;
 				}
 			} else {
 				if (indexLocation.isParticipantIndex() && indexLocation.exists()) { // the index belongs to non-jdt search participant
-					try {
-						IPath container = getParticipantsContainer(indexLocation);
-						if (container != null) {
-							index = new Index(indexLocation, container.toOSString(), true /*reuse index file*/);
-							this.indexes.put(indexLocation, index);
-						}
-					} catch (IOException e) {
-						// ignore
-					}
+					IPath container = getParticipantsContainer(indexLocation);
+					if (container != null)
+						index = readAndRecordIndex(indexLocation, container.toOSString());
 				}
 			}
 		}
@@ -448,12 +480,13 @@ public Index[] getIndexes(IndexLocation[] locations, IProgressMonitor progressMo
 	}
 	return locatedIndexes;
 }
-public synchronized Index getIndexForUpdate(IPath containerPath, boolean reuseExistingFile, boolean createIfMissing) {
+public Index getIndexForUpdate(IPath containerPath, boolean reuseExistingFile, boolean createIfMissing) {
 	IndexLocation indexLocation = computeIndexLocation(containerPath);
-	if (getIndexStates().get(indexLocation) == REBUILDING_STATE)
-		return getIndex(containerPath, indexLocation, reuseExistingFile, createIfMissing);
-
-	return null; // abort the job since the index has been removed from the REBUILDING_STATE
+	synchronized (this) {
+		if (getIndexStates().get(indexLocation) != REBUILDING_STATE)
+			return null; // abort the job since the index has been removed from the REBUILDING_STATE
+	}
+	return getIndex(containerPath, indexLocation, reuseExistingFile, createIfMissing);
 }
 private SimpleLookupTable getIndexStates() {
 	if (this.indexStates != null) return this.indexStates;
@@ -599,6 +632,20 @@ public void indexAll(IProject project) {
 		enable();
 	}
 }
+/**
+ * Answers the number of threads decoding the class files of a jar being indexed, 1 if they are decoded by the
+ * indexing thread.
+ */
+public int getJarIndexingThreads() {
+	return this.jarIndexingThreads;
+}
+/**
+ * Sets the number of threads decoding the class files of a jar being indexed. The default is given by the
+ * "jdt.core.jarIndexingThreads" system property. The jars whose indexing has started keep their number of threads.
+ */
+public void setJarIndexingThreads(int jarIndexingThreads) {
+	this.jarIndexingThreads = Math.max(1, jarIndexingThreads);
+}
 public void indexLibrary(IPath path, IProject requestingProject, URL indexURL) {
 	this.indexLibrary(path, requestingProject, indexURL, false);
 }
@@ -660,7 +707,7 @@ synchronized boolean addIndex(IPath containerPath, IndexLocation indexFile) {
 	Index index = getIndex(containerPath, indexFile, true, false);
 	if (index == null) {
 		indexFile.close();
-		this.indexLocations.put(containerPath, null);
+		this.indexLocations.remove(containerPath);
 		return false;
 	}
 	writeIndexMapFile();
@@ -687,8 +734,9 @@ public synchronized void jobWasCancelled(IPath containerPath) {
 	Index index = getIndex(indexLocation);
 	if (index != null) {
 		index.monitor = null;
-		this.indexes.removeKey(indexLocation);
+		this.indexes.remove(indexLocation);
 	}
+	this.pendingReads.remove(indexLocation);
 	updateIndexState(indexLocation, UNKNOWN_STATE);
 }
 /**
@@ -780,6 +828,7 @@ public synchronized Index recreateIndex(IPath containerPath) {
 			Util.verbose("-> recreating index: "+indexLocation+" for path: "+containerPathString); //$NON-NLS-1$ //$NON-NLS-2$
 		index = new Index(indexLocation, containerPathString, false /*do not reuse index file*/);
 		this.indexes.put(indexLocation, index);
+		this.pendingReads.remove(indexLocation);
 		index.monitor = monitor;
 		return index;
 	} catch (IOException e) {
@@ -810,7 +859,8 @@ public synchronized void removeIndex(IPath containerPath) {
 	// New index is disabled, see bug 544898
 	// this.indexer.makeWorkspacePathDirty(containerPath);
 	IndexLocation indexLocation = computeIndexLocation(containerPath);
-	Index index = getIndex(indexLocation);
+	Index index = this.indexes.remove(indexLocation);
+	this.pendingReads.remove(indexLocation);
 	File indexFile = null;
 	if (index != null) {
 		index.monitor = null;
@@ -820,15 +870,14 @@ public synchronized void removeIndex(IPath containerPath) {
 		indexFile = indexLocation.getIndexFile(); // index is not cached yet, but still want to delete the file
 	if (this.indexStates.get(indexLocation) == REUSE_STATE) {
 		indexLocation.close();
-		this.indexLocations.put(containerPath, null);
+		this.indexLocations.remove(containerPath);
 	} else if (indexFile != null && indexFile.exists()) {
 		if (DEBUG)
 			Util.verbose("removing index file " + indexFile); //$NON-NLS-1$
 		indexFile.delete();
 	}
-	this.indexes.removeKey(indexLocation);
 	if (IS_MANAGING_PRODUCT_INDEXES_PROPERTY) {
-		this.indexLocations.removeKey(containerPath);
+		this.indexLocations.remove(containerPath);
 	}
 	updateIndexState(indexLocation, null);
 }
@@ -840,21 +889,15 @@ public synchronized void removeIndexPath(IPath path) {
 		Util.verbose("removing index path " + path); //$NON-NLS-1$
 	// New index is disabled, see bug 544898
 	// this.indexer.makeWorkspacePathDirty(path);
-	Object[] keyTable = this.indexes.keyTable;
-	Object[] valueTable = this.indexes.valueTable;
-	IndexLocation[] locations = null;
-	int max = this.indexes.elementSize;
-	int count = 0;
-	for (int i = 0, l = keyTable.length; i < l; i++) {
-		IndexLocation indexLocation = (IndexLocation) keyTable[i];
-		if (indexLocation == null)
-			continue;
+	ArrayList<IndexLocation> toRemove = null;
+	for (Map.Entry<IndexLocation, Index> entry : this.indexes.entrySet()) {
+		IndexLocation indexLocation = entry.getKey();
 		if (indexLocation.startsWith(path)) {
-			Index index = (Index) valueTable[i];
+			Index index = entry.getValue();
 			index.monitor = null;
-			if (locations == null)
-				locations = new IndexLocation[max];
-			locations[count++] = indexLocation;
+			if (toRemove == null)
+				toRemove = new ArrayList<>();
+			toRemove.add(indexLocation);
 			if (this.indexStates.get(indexLocation) == REUSE_STATE) {
 				indexLocation.close();
 			} else {
@@ -862,13 +905,22 @@ public synchronized void removeIndexPath(IPath path) {
 					Util.verbose("removing index file " + indexLocation); //$NON-NLS-1$
 				indexLocation.delete();
 			}
-		} else {
-			max--;
 		}
 	}
-	if (locations != null) {
-		for (int i = 0; i < count; i++)
-			this.indexes.removeKey(locations[i]);
+	for (IndexLocation indexLocation : this.pendingReads.keySet()) {
+		if (indexLocation.startsWith(path) && !this.indexes.containsKey(indexLocation)) { // the index is being read
+			if (toRemove == null)
+				toRemove = new ArrayList<>();
+			toRemove.add(indexLocation);
+		}
+	}
+	if (toRemove != null) {
+		IndexLocation[] locations = toRemove.toArray(new IndexLocation[toRemove.size()]);
+		int count = locations.length;
+		for (int i = 0; i < count; i++) {
+			this.indexes.remove(locations[i]);
+			this.pendingReads.remove(locations[i]);
+		}
 		removeIndexesState(locations);
 		if (this.participantsContainers != null) {
 			boolean update = false;
@@ -890,10 +942,7 @@ public synchronized void removeIndexFamily(IPath path) {
 	// this.indexer.makeWorkspacePathDirty(path);
 	// only finds cached index files... shutdown removes all non-cached index files
 	ArrayList toRemove = null;
-	Object[] containerPaths = this.indexLocations.keyTable;
-	for (int i = 0, length = containerPaths.length; i < length; i++) {
-		IPath containerPath = (IPath) containerPaths[i];
-		if (containerPath == null) continue;
+	for (IPath containerPath : this.indexLocations.keySet()) {
 		if (path.isPrefixOf(containerPath)) {
 			if (toRemove == null)
 				toRemove = new ArrayList();
@@ -926,11 +975,10 @@ public void removeSourceFolderFromIndex(JavaProject javaProject, IPath sourceFol
 public void reset() {
 	super.reset();
 	synchronized (this) {
-		if (this.indexes != null) {
-			this.indexes = new SimpleLookupTable();
-			this.indexStates = null;
-		}
-		this.indexLocations = new SimpleLookupTable();
+		this.indexes.clear();
+		this.pendingReads.clear();
+		this.indexStates = null;
+		this.indexLocations.clear();
 		this.javaPluginLocation = null;
 	}
 }
@@ -989,10 +1037,13 @@ public void saveIndex(Index index) throws IOException {
 	}
 	synchronized (this) {
 		IPath containerPath = new Path(index.containerPath);
+		if (index.needsCompaction()) // merge the segments appended by the saves in the background
+			requestIfNotWaiting(new CompactIndex(containerPath, this));
 		if (this.jobEnd > this.jobStart) {
 			for (int i = this.jobEnd; i > this.jobStart; i--) { // skip the current job
 				IJob job = this.awaitingJobs[i];
-				if (job instanceof IndexRequest)
+				if (isJobRunning(job)) continue; // the job saving this index, when several jobs are running
+				if (job instanceof IndexRequest && !(job instanceof CompactIndex)) // compacting does not change the index
 					if (((IndexRequest) job).containerPath.equals(containerPath)) return;
 			}
 		}
@@ -1006,14 +1057,7 @@ public void saveIndex(Index index) throws IOException {
 public void saveIndexes() {
 	// only save cached indexes... the rest were not modified
 	ArrayList toSave = new ArrayList();
-	synchronized(this) {
-		Object[] valueTable = this.indexes.valueTable;
-		for (int i = 0, l = valueTable.length; i < l; i++) {
-			Index index = (Index) valueTable[i];
-			if (index != null)
-				toSave.add(index);
-		}
-	}
+	toSave.addAll(this.indexes.values());
 
 	boolean allSaved = true;
 	for (int i = 0, length = toSave.size(); i < length; i++) {
@@ -1096,15 +1140,56 @@ public String toString() {
 	buffer.append(super.toString());
 	buffer.append("In-memory indexes:\n"); //$NON-NLS-1$
 	int count = 0;
-	Object[] valueTable = this.indexes.valueTable;
-	for (int i = 0, l = valueTable.length; i < l; i++) {
-		Index index = (Index) valueTable[i];
-		if (index != null)
-			buffer.append(++count).append(" - ").append(index.toString()).append('\n'); //$NON-NLS-1$
-	}
+	for (Index index : this.indexes.values())
+		buffer.append(++count).append(" - ").append(index.toString()).append('\n'); //$NON-NLS-1$
 	return buffer.toString();
 }
 
+/*
+ * Reads the given index file & records the index in memory. The file is read outside of the manager lock so that other
+ * indexes can be looked up meanwhile, concurrent readers of the same index wait for the first one and share its result.
+ * The index is not recorded if it is removed or recreated during the read, which forgets the pending read.
+ * Answers null if the index was not recorded.
+ */
+private Index readAndRecordIndex(IndexLocation indexLocation, String containerPathString) {
+	CompletableFuture<Index> read = new CompletableFuture<>();
+	CompletableFuture<Index> pendingRead = this.pendingReads.putIfAbsent(indexLocation, read);
+	if (pendingRead != null)
+		return pendingRead.join();
+
+	Index index = null;
+	try {
+		index = readIndex(indexLocation, containerPathString);
+	} finally {
+		synchronized (this) {
+			if (!this.pendingReads.remove(indexLocation, read)) {
+				if (VERBOSE)
+					Util.verbose("-> index removed while reading it: "+indexLocation+" path: "+containerPathString); //$NON-NLS-1$ //$NON-NLS-2$
+				index = null;
+			} else if (index != null) {
+				Index existing = this.indexes.putIfAbsent(indexLocation, index);
+				if (existing != null)
+					index = existing;
+			}
+		}
+		read.complete(index);
+	}
+	return index;
+}
+/*
+ * Reads the given index file, answers null if it cannot be read or is no longer compatible.
+ */
+private Index readIndex(IndexLocation indexLocation, String containerPathString) {
+	try {
+		return new Index(indexLocation, containerPathString, true /*reuse index file*/);
+	} catch (IOException e) {
+		if (VERBOSE) {
+			Util.verbose("-> failed to read index: "+indexLocation+" path: "+containerPathString); //$NON-NLS-1$ //$NON-NLS-2$
+			e.printStackTrace();
+		}
+		return null;
+	}
+}
 private void readIndexMap() {
 	try {
 		char[] indexMaps = org.eclipse.jdt.internal.compiler.util.Util.getFileCharContent(this.indexNamesMapFile, null);
@@ -1116,6 +1201,8 @@ private void readIndexMap() {
 				for (int i = 1, l = names.length-1 ; i < l ; i+=2) {
 					IndexLocation indexPath = IndexLocation.createIndexLocation(new URL(new String(names[i])));
 					if (indexPath == null) continue;
+					if (SharedIndexCache.contains(indexPath))
+						indexPath = FileIndexLocation.createReadOnly(indexPath.getIndexFile());
 					this.indexLocations.put(new Path(new String(names[i+1])), indexPath );
 					this.indexStates.put(indexPath, REUSE_STATE);
 				}
@@ -1253,7 +1340,7 @@ private void writeIndexMapFile() {
 		for (int i = 0, l = states.length; i < l; i++) {
 			IndexLocation location = (IndexLocation)keys[i];
 			if (location != null && states[i] == REUSE_STATE) {
-				IPath container = (IPath)this.indexLocations.keyForValue(location);
+				IPath container = getContainerPath(location);
 				if (container != null) {
 					writer.write(location.toString());
 					writer.write('\n');
@@ -46,6 +46,11 @@ public abstract class IndexRequest implements IJob {
 	public String getJobFamily() {
 		return this.containerPath.toString();
 	}
+	@Override
+	public Object getSchedulingKey() {
+		// requests updating different indexes can run concurrently
+		return this.containerPath;
+	}
 	protected Integer updatedIndexState() {
 		return IndexManager.UPDATING_STATE;
 	}
@@ -0,0 +1,145 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.jdt.internal.core.search.indexing;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.eclipse.jdt.internal.core.index.DiskIndex;
+import org.eclipse.jdt.internal.core.index.FileIndexLocation;
+import org.eclipse.jdt.internal.core.index.Index;
+import org.eclipse.jdt.internal.core.index.IndexLocation;
+import org.eclipse.jdt.internal.core.search.processing.JobManager;
+import org.eclipse.jdt.internal.core.util.Util;
+
+/**
+ * A directory of library indexes shared between workspaces and machines, for example on a network drive.
+ * <p>
+ * Indexes are stored by the SHA-256 of the library they were built from (a jar, or the module image of a JDK),
+ * so that a library found in the cache does not need to be indexed. Indexes of the cache are used in place
+ * like pre-built indexes: they are never written or deleted by the index manager, and are memory-mapped.
+ * New indexes are only added to the cache if {@link #UPDATE_PROPERTY} is set.
+ * </p>
+ */
+public class SharedIndexCache {
+
+	public static final String LOCATION_PROPERTY = "jdt.core.sharedIndexLocation"; //$NON-NLS-1$
+	public static final String UPDATE_PROPERTY = "jdt.core.updateSharedIndexes"; //$NON-NLS-1$
+	private static final String INDEX_SUFFIX = ".index"; //$NON-NLS-1$
+
+	// the indexes of each index file format are kept in their own directory
+	private static volatile File DIRECTORY = getDirectory(System.getProperty(LOCATION_PROPERTY));
+	private static volatile boolean UPDATE = Boolean.getBoolean(UPDATE_PROPERTY);
+
+	private SharedIndexCache() {
+		// not instantiable
+	}
+
+	/**
+	 * Answers the key of the given library in the cache, or null if the cache is not used or the library
+	 * cannot be read. The file name is part of the key since it determines the automatic module name of a jar.
+	 */
+	public static String computeKey(File library) {
+		if (DIRECTORY == null || library == null || !library.isFile())
+			return null;
+		try (InputStream stream = new FileInputStream(library)) {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256"); //$NON-NLS-1$
+			byte[] buffer = new byte[65536];
+			int read;
+			while ((read = stream.read(buffer)) != -1)
+				digest.update(buffer, 0, read);
+			StringBuilder key = new StringBuilder(80);
+			for (byte b : digest.digest())
+				key.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+			return key.append('-').append(library.getName()).toString();
+		} catch (IOException | NoSuchAlgorithmException e) {
+			if (JobManager.VERBOSE)
+				Util.verbose("-> cannot compute the shared index key of " + library + ": " + e); //$NON-NLS-1$ //$NON-NLS-2$
+			return null;
+		}
+	}
+
+	/**
+	 * Answers whether the given index location belongs to the cache.
+	 */
+	public static boolean contains(IndexLocation indexLocation) {
+		File directory = DIRECTORY;
+		if (directory == null)
+			return false;
+		File indexFile = indexLocation.getIndexFile();
+		return indexFile != null && directory.equals(indexFile.getParentFile());
+	}
+
+	/**
+	 * Answers the location of the cached index for the given key, or null if the cache has none.
+	 */
+	public static IndexLocation find(String key) {
+		File directory = DIRECTORY;
+		if (directory == null)
+			return null;
+		File indexFile = new File(directory, key + INDEX_SUFFIX);
+		if (!indexFile.isFile())
+			return null;
+		return FileIndexLocation.createReadOnly(indexFile);
+	}
+
+	private static File getDirectory(String location) {
+		if (location == null || location.isEmpty())
+			return null;
+		String signature = DiskIndex.SIGNATURE;
+		return new File(location, signature.substring(signature.lastIndexOf(' ') + 1));
+	}
+
+	/**
+	 * Sets the location of the cache, null to not use a cache, and whether new indexes are added to it. They are
+	 * given by {@link #LOCATION_PROPERTY} and {@link #UPDATE_PROPERTY} by default.
+	 */
+	public static void setLocation(String location, boolean update) {
+		DIRECTORY = getDirectory(location);
+		UPDATE = update;
+	}
+
+	/**
+	 * Adds the given index, which has just been built and saved for the library with the given key, to the cache.
+	 * The index must be held for writing, so that it does not change while it is copied.
+	 */
+	public static void publish(String key, Index index) {
+		File directory = DIRECTORY;
+		if (!UPDATE || directory == null || key == null)
+			return;
+		File indexFile = index.getIndexFile();
+		File sharedFile = new File(directory, key + INDEX_SUFFIX);
+		if (indexFile == null || !indexFile.isFile() || sharedFile.exists())
+			return;
+		try {
+			directory.mkdirs();
+			// other machines may read the cache at any time, so only complete files must appear in it
+			File tempFile = File.createTempFile(key, null, directory);
+			try {
+				Files.copy(indexFile.toPath(), tempFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+				Files.move(tempFile.toPath(), sharedFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+			} finally {
+				tempFile.delete();
+			}
+			if (JobManager.VERBOSE)
+				Util.verbose("-> added " + index + " to the shared indexes as " + sharedFile); //$NON-NLS-1$ //$NON-NLS-2$
+		} catch (IOException e) {
+			if (JobManager.VERBOSE)
+				Util.verbose("-> cannot add " + index + " to the shared indexes: " + e); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+}
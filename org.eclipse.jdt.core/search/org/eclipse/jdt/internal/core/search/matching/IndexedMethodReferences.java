@@ -0,0 +1,214 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.jdt.internal.core.search.matching;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.jdt.core.Signature;
+import org.eclipse.jdt.core.compiler.CharOperation;
+import org.eclipse.jdt.core.search.SearchPattern;
+import org.eclipse.jdt.internal.core.ClassFile;
+import org.eclipse.jdt.internal.core.nd.IReader;
+import org.eclipse.jdt.internal.core.nd.Nd;
+import org.eclipse.jdt.internal.core.nd.db.IndexException;
+import org.eclipse.jdt.internal.core.nd.indexer.Indexer;
+import org.eclipse.jdt.internal.core.nd.java.JavaIndex;
+import org.eclipse.jdt.internal.core.nd.java.NdReference;
+import org.eclipse.jdt.internal.core.nd.java.NdType;
+import org.eclipse.jdt.internal.core.nd.java.NdTypeId;
+import org.eclipse.jdt.internal.core.nd.java.NdTypeInterface;
+import org.eclipse.jdt.internal.core.nd.java.NdTypeSignature;
+import org.eclipse.jdt.internal.core.nd.java.TypeRef;
+import org.eclipse.jdt.internal.core.nd.java.model.BinaryTypeDescriptor;
+import org.eclipse.jdt.internal.core.nd.java.model.BinaryTypeFactory;
+import org.eclipse.jdt.internal.core.util.Util;
+
+/**
+ * Tells from the constant pool references stored in the Java index whether a class file may contain a reference to
+ * the methods searched by a method reference pattern, so that the class files which cannot are neither parsed nor
+ * resolved by the match locator.
+ * <p>
+ * A class file may reference a searched method if its constant pool has a method reference whose name and number of
+ * parameters match the pattern, and whose receiver type may match the declaring type of the pattern: the receiver type
+ * is the declaring type or one of its subtypes, or one of the super types collected for the polymorphic search. The
+ * answer is always yes when the index is not up to date with the class file or does not know the whole hierarchy of a
+ * receiver type.
+ */
+public class IndexedMethodReferences {
+
+	private final MethodPattern pattern;
+	private final MethodLocator locator;
+	private final char[] declaringTypePattern;
+	private final char[] simpleDeclaringTypePattern;
+	private final Map<Long, Boolean> receiverTypes = new HashMap<>();
+
+	private IndexedMethodReferences(MethodPattern pattern, MethodLocator locator) {
+		this.pattern = pattern;
+		this.locator = locator;
+		if (locator.allSuperDeclaringTypeNames != null) {
+			// any receiver type may match otherwise, see MethodLocator#resolveLevel(MessageSend)
+			this.declaringTypePattern = locator.getQualifiedPattern(pattern.declaringSimpleName, pattern.declaringQualification);
+		} else {
+			this.declaringTypePattern = null;
+		}
+		this.simpleDeclaringTypePattern = this.declaringTypePattern == null ? null
+				: CharOperation.concat(new char[] {'*', '.'}, this.declaringTypePattern);
+	}
+
+	/**
+	 * Answers the filter for the given pattern and its initialized locator, or null if the pattern does not only
+	 * search method references whose matches can be told from the constant pools of the class files.
+	 */
+	public static IndexedMethodReferences create(SearchPattern pattern, PatternLocator locator) {
+		if (pattern.getClass() != MethodPattern.class || !(locator instanceof MethodLocator))
+			return null;
+		MethodPattern methodPattern = (MethodPattern) pattern;
+		if (!methodPattern.findReferences || methodPattern.findDeclarations || methodPattern.selector == null)
+			return null;
+		MethodLocator methodLocator = (MethodLocator) locator;
+		if (methodLocator.matchMode != SearchPattern.R_EXACT_MATCH && methodLocator.matchMode != SearchPattern.R_PATTERN_MATCH)
+			return null;
+		return new IndexedMethodReferences(methodPattern, methodLocator);
+	}
+
+	/**
+	 * Answers whether the given class file may reference a searched method. Answers true when the index cannot tell.
+	 */
+	public boolean mayReference(ClassFile classFile) {
+		BinaryTypeDescriptor descriptor = BinaryTypeFactory.createDescriptor(classFile);
+		if (descriptor == null || descriptor.location == null)
+			return true;
+		JavaIndex index = JavaIndex.getIndex();
+		Nd nd = index.getNd();
+		try (IReader lock = nd.acquireReadLock()) {
+			NdType type = TypeRef.create(nd, descriptor.location, descriptor.fieldDescriptor).get();
+			if (type == null || !index.isUpToDate(type.getResourceFile()))
+				return true;
+			return mayReference(type);
+		} catch (CoreException e) {
+			return true;
+		} catch (IndexException e) {
+			Util.log(e, "Index corruption detected. Rebuilding index."); //$NON-NLS-1$
+			Indexer.getInstance().requestRebuildIndex();
+			return true;
+		}
+	}
+
+	/**
+	 * Answers whether the constant pool of the given indexed type references a searched method. The caller must hold
+	 * a read lock on the index.
+	 */
+	public boolean mayReference(NdType type) {
+		for (NdReference reference : type.getReferences()) {
+			if (reference.getKind() != NdReference.KIND_METHOD)
+				continue;
+			if (!this.locator.matchesName(this.pattern.selector, reference.getMemberName().getChars()))
+				continue;
+			if (!matchesParameterCount(reference.getDescriptor().getChars()))
+				continue;
+			if (this.declaringTypePattern == null || mayMatchReceiverType(reference.getReferencedType()))
+				return true;
+		}
+		return false;
+	}
+
+	private boolean matchesParameterCount(char[] descriptor) {
+		if (this.pattern.parameterCount < 0 || this.pattern.varargs)
+			return true;
+		try {
+			return Signature.getParameterCount(descriptor) == this.pattern.parameterCount;
+		} catch (IllegalArgumentException e) {
+			return true;
+		}
+	}
+
+	/*
+	 * Answers whether the given receiver type of a method reference may match the declaring type of the pattern, see
+	 * MethodLocator#resolveLevelAsSubtype and MethodLocator#resolveLevelAsSuperInvocation.
+	 */
+	private boolean mayMatchReceiverType(NdTypeId receiverType) {
+		if (receiverType == null)
+			return true;
+		Long key = Long.valueOf(receiverType.getAddress());
+		Boolean result = this.receiverTypes.get(key);
+		if (result == null) {
+			result = Boolean.valueOf(isSuperDeclaringType(receiverType) || mayBeSubtypeOfDeclaringType(receiverType));
+			this.receiverTypes.put(key, result);
+		}
+		return result.booleanValue();
+	}
+
+	private boolean isSuperDeclaringType(NdTypeId typeId) {
+		char[][] compoundName = CharOperation.splitOn('/', typeId.getBinaryName());
+		for (char[][] superTypeName : this.locator.allSuperDeclaringTypeNames) {
+			if (CharOperation.equals(superTypeName, compoundName))
+				return true;
+		}
+		return false;
+	}
+
+	/*
+	 * Walks the super types of the given type known by the index. Answers true if one of them matches the declaring
+	 * type of the pattern, or if one of them is not indexed.
+	 */
+	private boolean mayBeSubtypeOfDeclaringType(NdTypeId typeId) {
+		Set<Long> visited = new HashSet<>();
+		List<NdTypeId> typesToVisit = new ArrayList<>();
+		typesToVisit.add(typeId);
+		visited.add(Long.valueOf(typeId.getAddress()));
+		while (!typesToVisit.isEmpty()) {
+			NdTypeId next = typesToVisit.remove(typesToVisit.size() - 1);
+			if (matchesDeclaringType(next.getBinaryName()))
+				return true;
+			List<NdType> types = next.getTypes();
+			if (types.isEmpty())
+				return true; // unknown hierarchy
+			for (NdType type : types) {
+				NdTypeSignature superclass = type.getSuperclass();
+				if (superclass != null)
+					addSuperType(superclass.getRawType(), visited, typesToVisit);
+				for (NdTypeInterface nextInterface : type.getInterfaces())
+					addSuperType(nextInterface.getInterface().getRawType(), visited, typesToVisit);
+			}
+		}
+		return false;
+	}
+
+	private static void addSuperType(NdTypeId superType, Set<Long> visited, List<NdTypeId> typesToVisit) {
+		if (superType != null && visited.add(Long.valueOf(superType.getAddress())))
+			typesToVisit.add(superType);
+	}
+
+	/*
+	 * The declaring type pattern may be qualified by the enclosing types only, or not be qualified at all, so it may
+	 * match any trailing part of the qualified name. A '$' of the binary name may separate a member type from its
+	 * enclosing type, or be part of the name.
+	 */
+	private boolean matchesDeclaringType(char[] binaryName) {
+		char[] qualifiedName = CharOperation.replaceOnCopy(binaryName, '/', '.');
+		if (matchesDeclaringTypeName(qualifiedName))
+			return true;
+		return CharOperation.indexOf('$', qualifiedName) >= 0
+				&& matchesDeclaringTypeName(CharOperation.replaceOnCopy(qualifiedName, '$', '.'));
+	}
+
+	private boolean matchesDeclaringTypeName(char[] qualifiedName) {
+		boolean isCaseSensitive = this.locator.isCaseSensitive;
+		return CharOperation.match(this.declaringTypePattern, qualifiedName, isCaseSensitive)
+				|| CharOperation.match(this.simpleDeclaringTypePattern, qualifiedName, isCaseSensitive);
+	}
+}
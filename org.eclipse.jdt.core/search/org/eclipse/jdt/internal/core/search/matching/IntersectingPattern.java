@@ -31,6 +31,10 @@ public IntersectingPattern(int patternKind, int matchRule) {
 	super(patternKind, matchRule);
 }
 @Override
+boolean isIndexQueryBatchable() {
+	return false; // the next queries depend on the results of the previous ones
+}
+@Override
 public void findIndexMatches(Index index, IndexQueryRequestor requestor, SearchParticipant participant, IJavaSearchScope scope, IProgressMonitor progressMonitor) throws IOException {
 	if (progressMonitor != null && progressMonitor.isCanceled()) throw new OperationCanceledException();
 
@@ -274,6 +274,15 @@ public class JavaSearchPattern extends SearchPattern implements IIndexConstants
 		return !hasSignatures() && hasTypeArguments();
 	}
 
+	/**
+	 * Returns whether the index is only searched with the queries of <code>queryIn(Index)</code>,
+	 * so that they can be run together with the queries of other patterns.
+	 * @return default is true
+	 */
+	boolean isIndexQueryBatchable() {
+		return true;
+	}
+
 	/**
 	 * Return whether two suffixes are compatible.
 	 *
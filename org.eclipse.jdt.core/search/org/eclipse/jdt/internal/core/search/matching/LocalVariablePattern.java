@@ -35,6 +35,10 @@ public LocalVariablePattern(LocalVariable localVariable, int limitTo, int matchR
 	this.localVariable = localVariable;
 }
 @Override
+boolean isIndexQueryBatchable() {
+	return false; // the index is not searched
+}
+@Override
 public void findIndexMatches(Index index, IndexQueryRequestor requestor, SearchParticipant participant, IJavaSearchScope scope, IProgressMonitor progressMonitor) {
     IPackageFragmentRoot root = (IPackageFragmentRoot)this.localVariable.getAncestor(IJavaElement.PACKAGE_FRAGMENT_ROOT);
 	String documentPath;
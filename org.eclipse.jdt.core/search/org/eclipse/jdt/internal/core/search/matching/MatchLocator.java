@@ -17,6 +17,10 @@ package org.eclipse.jdt.internal.core.search.matching;
 
 import java.io.File;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -25,6 +29,10 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.regex.Pattern;
 import java.util.zip.ZipFile;
 
@@ -92,10 +100,12 @@ import org.eclipse.jdt.internal.core.SourceMethod;
 import org.eclipse.jdt.internal.core.SourceType;
 import org.eclipse.jdt.internal.core.SourceTypeElementInfo;
 import org.eclipse.jdt.internal.core.index.Index;
+import org.eclipse.jdt.internal.core.nd.java.JavaIndex;
 import org.eclipse.jdt.internal.core.search.*;
 import org.eclipse.jdt.internal.core.util.ASTNodeFinder;
 import org.eclipse.jdt.internal.core.util.HandleFactory;
 import org.eclipse.jdt.internal.core.util.Util;
+import org.eclipse.jdt.internal.core.util.WorkerPools;
 
 @SuppressWarnings({"rawtypes", "unchecked"})
 public class MatchLocator implements ITypeRequestor {
@@ -120,6 +130,25 @@ static {
 			break;
 	}
 }
+/**
+ * Number of threads locating the matches of a search, each on its own batches of possible matches.
+ * Batches of {@link #MAX_AT_ONCE} possible matches are located one after the other when 1 (the default).
+ * Read when a search starts locating its matches.
+ */
+public static final String LOCATE_THREADS_PROPERTY = "jdt.core.matchLocatorThreads"; //$NON-NLS-1$
+public static int LOCATE_THREADS = Math.max(1, Integer.getInteger(LOCATE_THREADS_PROPERTY, 1).intValue());
+private static final String LOCATE_THREAD_NAME = "Java search match locator"; //$NON-NLS-1$
+/**
+ * Whether the size of the batches of possible matches located one after the other starts at {@link #MAX_AT_ONCE}
+ * and is then adapted to the used heap and to the time spent per possible match, or stays fixed (the default).
+ */
+public static final String ADAPTIVE_BATCHES_PROPERTY = "jdt.core.matchLocatorAdaptiveBatches"; //$NON-NLS-1$
+public static final boolean ADAPTIVE_BATCHES = Boolean.parseBoolean(System.getProperty(ADAPTIVE_BATCHES_PROPERTY, "false")); //$NON-NLS-1$
+public static final int MIN_BATCH_SIZE = 25;
+public static final int MAX_BATCH_SIZE = 4 * MAX_AT_ONCE;
+// heap usage ratios above which the batches shrink & below which they can grow
+private static final double HIGH_HEAP_USAGE = 0.7;
+private static final double LOW_HEAP_USAGE = 0.4;
 
 // permanent state
 public SearchPattern pattern;
@@ -174,6 +203,19 @@ private final boolean searchPackageDeclaration;
 private int sourceStartOfMethodToRetain;
 private int sourceEndOfMethodToRetain;
 
+// batches of possible matches left to the workers of a concurrent search, & the number of workers
+private List<MatchBatch> pendingBatches;
+private int locateThreads;
+
+// tells which class files cannot reference the searched methods when the new index is enabled
+private IndexedMethodReferences indexedMethodReferences;
+
+// size of the next batch of possible matches, time spent per possible match of the previous batch & start of the
+// location of the current batch, once its lookup environment is initialized
+private int batchSize = MAX_AT_ONCE;
+private long nanosPerMatch;
+private long batchStart;
+
 public static class WorkingCopyDocument extends JavaSearchDocument {
 	public org.eclipse.jdt.core.ICompilationUnit workingCopy;
 	WorkingCopyDocument(org.eclipse.jdt.core.ICompilationUnit workingCopy, SearchParticipant participant) {
@@ -187,6 +229,22 @@ public static class WorkingCopyDocument extends JavaSearchDocument {
 	}
 }
 
+/*
+ * Possible matches of a project that are located together, with one lookup environment.
+ */
+private static class MatchBatch {
+	final JavaProject javaProject;
+	final PossibleMatch[] possibleMatches;
+	final int start;
+	final int length;
+	MatchBatch(JavaProject javaProject, PossibleMatch[] possibleMatches, int start, int length) {
+		this.javaProject = javaProject;
+		this.possibleMatches = possibleMatches;
+		this.start = start;
+		this.length = length;
+	}
+}
+
 public static class WrappedCoreException extends RuntimeException {
 	private static final long serialVersionUID = 8354329870126121212L; // backward compatible
 	public CoreException coreException;
@@ -296,6 +354,27 @@ public static void findIndexMatches(SearchPattern pattern, Index index, IndexQue
 	pattern.findIndexMatches(index, requestor, participant, scope, monitor);
 }
 
+/**
+ * Returns whether the given pattern can query several indexes at the same time. Intersecting patterns that issue
+ * more than one query per index keep the state of the query in the pattern, and patterns of other participants are
+ * not known to be safe.
+ */
+public static boolean canQueryIndexesConcurrently(SearchPattern pattern) {
+	if (pattern instanceof OrPattern) {
+		SearchPattern[] patterns = ((OrPattern) pattern).patterns;
+		for (int i = 0, length = patterns.length; i < length; i++) {
+			if (!canQueryIndexesConcurrently(patterns[i]))
+				return false;
+		}
+		return true;
+	}
+	if (pattern instanceof TypeReferencePattern)
+		return ((TypeReferencePattern) pattern).segments == null; // a single query on the simple name
+	if (pattern instanceof IntersectingPattern)
+		return false;
+	return pattern instanceof JavaSearchPattern;
+}
+
 public static IJavaElement getProjectOrJar(IJavaElement element) {
 	while (!(element instanceof IJavaProject) && !(element instanceof JarPackageFragmentRoot)) {
 		element = element.getParent();
@@ -1258,6 +1337,7 @@ private boolean skipMatch(JavaProject javaProject, PossibleMatch possibleMatch)
 }
 protected void locateMatches(JavaProject javaProject, PossibleMatch[] possibleMatches, int start, int length) throws CoreException {
 	initialize(javaProject, length);
+	this.batchStart = System.nanoTime();
 
 	// create and resolve binding (equivalent to beginCompilation() in Compiler)
 	boolean mustResolvePattern = this.pattern.mustResolve;
@@ -1369,12 +1449,165 @@ protected void locateMatches(JavaProject javaProject, PossibleMatchSet matchSet,
 	}
 	// locate matches (processed matches are limited to avoid problem while using VM default memory heap size)
 	for (int index = 0; index < length;) {
-		int max = Math.min(MAX_AT_ONCE, length - index);
-		locateMatches(javaProject, possibleMatches, index, max);
-		index += max;
+		if (this.pendingBatches != null) {
+			int max = Math.min(MAX_AT_ONCE, length - index);
+			this.pendingBatches.add(new MatchBatch(javaProject, possibleMatches, index, max));
+			index += max;
+			// the possible matches of the pending batches are kept in memory, so only a few batches per worker wait
+			if (this.pendingBatches.size() >= 2 * this.locateThreads)
+				locateMatchesConcurrently();
+		} else {
+			int max = Math.min(this.batchSize, length - index);
+			locateMatches(javaProject, possibleMatches, index, max);
+			// the last batch of a project is usually partial, its time per possible match is not comparable
+			if (ADAPTIVE_BATCHES && max == this.batchSize)
+				adaptBatchSize(max, System.nanoTime() - this.batchStart);
+			index += max;
+		}
 	}
 	this.patternLocator.clear();
 }
+/*
+ * Adapts the size of the next batches after locating a full batch of the given length, see nextBatchSize.
+ */
+private void adaptBatchSize(int length, long nanos) {
+	double heapUsage = getHeapUsageAfterCollection();
+	long previousNanosPerMatch = this.nanosPerMatch;
+	this.nanosPerMatch = nanos / length;
+	int previousSize = this.batchSize;
+	this.batchSize = nextBatchSize(this.batchSize, heapUsage, previousNanosPerMatch, this.nanosPerMatch);
+	if (BasicSearchEngine.VERBOSE) {
+		System.out.println("Located batch of " + length + " possible matches in " + nanos / 1000000 + "ms (" //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				+ this.nanosPerMatch / 1000 + "us per match), heap usage after collection " + Math.round(heapUsage * 100) //$NON-NLS-1$
+				+ "%: batch size " + previousSize + " -> " + this.batchSize); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+}
+/**
+ * Answers the size of the next batch of possible matches, after a full batch of the given size. Batches shrink when
+ * the heap is getting full, or when a possible match takes much longer to locate than in the previous batch while
+ * the heap is not nearly empty (a sign of garbage collection pressure). They grow when the heap is mostly free, so
+ * that fewer lookup environments load the same binary types again. The size stays between {@link #MIN_BATCH_SIZE}
+ * and {@link #MAX_BATCH_SIZE}.
+ *
+ * @param batchSize the size of the batch which has just been located
+ * @param heapUsage the ratio of the heap used after the last garbage collection
+ * @param previousNanosPerMatch the time spent per possible match of the previous batch, 0 if unknown
+ * @param nanosPerMatch the time spent per possible match of the batch
+ */
+public static int nextBatchSize(int batchSize, double heapUsage, long previousNanosPerMatch, long nanosPerMatch) {
+	if (heapUsage > HIGH_HEAP_USAGE)
+		return Math.max(MIN_BATCH_SIZE, batchSize / 2);
+	if (heapUsage > LOW_HEAP_USAGE && previousNanosPerMatch > 0 && nanosPerMatch > 2 * previousNanosPerMatch)
+		return Math.max(MIN_BATCH_SIZE, batchSize * 3 / 4);
+	if (heapUsage < LOW_HEAP_USAGE)
+		return Math.min(MAX_BATCH_SIZE, batchSize * 3 / 2);
+	return batchSize;
+}
+/*
+ * Answers the ratio of the heap which was still used after the last garbage collection: the current usage also
+ * counts the garbage which has not been collected yet, so it is high well before the heap is actually full. Answers
+ * the current usage if the memory pools don't know their usage after a collection.
+ */
+private static double getHeapUsageAfterCollection() {
+	long used = 0, max = 0;
+	for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+		MemoryUsage usage = pool.getType() == MemoryType.HEAP ? pool.getCollectionUsage() : null;
+		if (usage == null)
+			continue;
+		used += usage.getUsed();
+		max += usage.getMax() > 0 ? usage.getMax() : usage.getCommitted();
+	}
+	if (max > 0)
+		return (double) used / max;
+	MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+	return (double) heap.getUsed() / (heap.getMax() > 0 ? heap.getMax() : heap.getCommitted());
+}
+/*
+ * Locates the pending batches of possible matches on the threads of the locate pool. Each thread uses its own match
+ * locator, with its own parser & lookup environment, and the matches are reported to the requestor by one thread at a
+ * time. The cancellation is handled by the calling thread, which waits until all threads have ended before returning.
+ */
+private void locateMatchesConcurrently() throws CoreException {
+	final Queue<MatchBatch> batches = new ConcurrentLinkedQueue<>(this.pendingBatches);
+	this.pendingBatches.clear();
+	final AtomicBoolean canceled = new AtomicBoolean();
+	final IProgressMonitor parentMonitor = this.progressMonitor;
+	final IProgressMonitor workerMonitor = new NullProgressMonitor() {
+		@Override
+		public boolean isCanceled() {
+			return canceled.get();
+		}
+		@Override
+		public void worked(int work) {
+			if (parentMonitor != null) {
+				synchronized (parentMonitor) {
+					parentMonitor.worked(work);
+				}
+			}
+		}
+	};
+	final SearchRequestor workerRequestor = new SearchRequestor() {
+		@Override
+		public synchronized void acceptSearchMatch(SearchMatch match) throws CoreException {
+			MatchLocator.this.requestor.acceptSearchMatch(match);
+		}
+	};
+	List<Callable<Void>> workers = new ArrayList<>();
+	for (int i = 0, length = Math.min(this.locateThreads, batches.size()); i < length; i++) {
+		final MatchLocator locator = new MatchLocator(this.pattern, workerRequestor, this.scope, workerMonitor);
+		locator.workingCopies = this.workingCopies;
+		locator.progressStep = this.progressStep;
+		locator.patternLocator.initializePolymorphicSearch(locator, this.patternLocator);
+		workers.add(() -> {
+			locator.locateMatches(batches);
+			return null;
+		});
+	}
+	// the remaining workers are stopped and waited for on cancellation, they must not call the requestor once the
+	// search has ended
+	WorkerPools.invokeAll(WorkerPools.getPool(LOCATE_THREAD_NAME, this.locateThreads), workers, parentMonitor, canceled, result -> {/* nothing to collect */});
+}
+/*
+ * Locates the matches of the batches taken from the given queue until it is empty, on a thread of the locate pool.
+ */
+private void locateMatches(Queue<MatchBatch> batches) throws CoreException {
+	JavaModelManager manager = JavaModelManager.getJavaModelManager();
+	this.bindings = new SimpleLookupTable();
+	try {
+		// optimize access to zip files during search operation
+		manager.cacheZipFiles(this);
+		this.handleFactory = new HandleFactory();
+
+		MatchBatch batch;
+		JavaProject previousJavaProject = null;
+		while ((batch = batches.poll()) != null) {
+			if (this.progressMonitor.isCanceled())
+				throw new OperationCanceledException();
+			if (previousJavaProject != null && !previousJavaProject.equals(batch.javaProject))
+				this.patternLocator.clear();
+			previousJavaProject = batch.javaProject;
+			try {
+				locateMatches(batch.javaProject, batch.possibleMatches, batch.start, batch.length);
+			} catch (JavaModelException e) {
+				// problem with classpath in this project -> skip the batch
+			}
+		}
+	} finally {
+		if (this.nameEnvironment != null)
+			this.nameEnvironment.cleanup();
+		this.unitScope = null;
+		manager.flushZipFiles(this);
+		this.bindings = null;
+	}
+}
+/**
+ * Answers whether the matches can be located on several threads at the same time. This requires a pattern that
+ * doesn't change while it is used and a scope that can be asked whether it encloses an element from any thread.
+ */
+private boolean canLocateMatchesConcurrently() {
+	return (this.scope instanceof JavaSearchScope || this.scope instanceof JavaWorkspaceScope)
+			&& canQueryIndexesConcurrently(this.pattern);
+}
 /**
  * Locate the matches in the given files and report them using the search requestor.
  */
@@ -1428,6 +1661,16 @@ public void locateMatches(SearchDocument[] searchDocuments) throws CoreException
 		// initialize pattern for polymorphic search (i.e. method reference pattern)
 		this.patternLocator.initializePolymorphicSearch(this);
 
+		// collect the batches of possible matches first when they are located concurrently
+		this.locateThreads = LOCATE_THREADS;
+		if (this.locateThreads > 1 && canLocateMatchesConcurrently())
+			this.pendingBatches = new ArrayList<>();
+
+		// the constant pools stored in the new index tell which class files cannot reference the searched methods
+		if (JavaIndex.isEnabled())
+			this.indexedMethodReferences = IndexedMethodReferences.create(this.pattern, this.patternLocator);
+		boolean filterClassFiles = false;
+
 		JavaProject previousJavaProject = null;
 		PossibleMatchSet matchSet = new PossibleMatchSet();
 		Util.sort(searchDocuments, new Util.Comparer() {
@@ -1497,6 +1740,18 @@ public void locateMatches(SearchDocument[] searchDocuments) throws CoreException
 					matchSet.reset();
 				}
 				previousJavaProject = javaProject;
+				// the references in doc comments are not compiled into the class files
+				filterClassFiles = this.indexedMethodReferences != null
+						&& !JavaCore.ENABLED.equals(javaProject.getOption(JavaCore.COMPILER_DOC_COMMENT_SUPPORT, true));
+			}
+			if (filterClassFiles && openable instanceof ClassFile
+					&& !this.indexedMethodReferences.mayReference((ClassFile) openable)) {
+				if (this.progressMonitor != null) {
+					this.progressWorked++;
+					if ((this.progressWorked%this.progressStep)==0) this.progressMonitor.worked(this.progressStep);
+				}
+				displayed++;
+				continue; // no method reference of the class file can match
 			}
 			PossibleMatch possibleMatch = new PossibleMatch(this, resource, openable, searchDocument,this.pattern.mustResolve);
 			matchSet.add(possibleMatch);
@@ -1517,12 +1772,16 @@ public void locateMatches(SearchDocument[] searchDocuments) throws CoreException
 				// problem with classpath in last project -> ignore
 			}
 		}
+		if (this.pendingBatches != null && !this.pendingBatches.isEmpty())
+			locateMatchesConcurrently();
 
 		if (this.searchPackageDeclaration) {
 			locatePackageDeclarations(searchParticipant, javaModelProjects);
 		}
 
 	} finally {
+		this.pendingBatches = null;
+		this.indexedMethodReferences = null;
 		if (this.progressMonitor != null)
 			this.progressMonitor.done();
 		if (this.nameEnvironment != null)
@@ -18,6 +18,7 @@ import java.io.IOException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.jdt.core.search.*;
 import org.eclipse.jdt.internal.core.index.Index;
+import org.eclipse.jdt.internal.core.index.IndexQueryBatch;
 import org.eclipse.jdt.internal.core.search.IndexQueryRequestor;
 import org.eclipse.jdt.internal.core.search.indexing.IIndexConstants;
 
@@ -61,13 +62,29 @@ public class OrPattern extends SearchPattern implements IIndexConstants {
 		// per construction, OR pattern can only be used with a PathCollector (which already gather results using a set)
 		try {
 			index.startQuery();
+			Index batch = batchIndexQueries(index);
 			for (int i = 0, length = this.patterns.length; i < length; i++)
-				this.patterns[i].findIndexMatches(index, requestor, participant, scope, progressMonitor);
+				this.patterns[i].findIndexMatches(batch != null && ((JavaSearchPattern) this.patterns[i]).isIndexQueryBatchable() ? batch : index, requestor, participant, scope, progressMonitor);
 		} finally {
 			index.stopQuery();
 		}
 	}
 
+	/*
+	 * Runs the index queries of the patterns together, so that each category table is searched once for all of them.
+	 * Answers the index holding their results, or null if there is nothing to batch.
+	 */
+	private Index batchIndexQueries(Index index) throws IOException {
+		IndexQueryBatch batch = new IndexQueryBatch(index);
+		for (int i = 0, length = this.patterns.length; i < length; i++)
+			if (((JavaSearchPattern) this.patterns[i]).isIndexQueryBatchable())
+				this.patterns[i].currentPattern().queryIn(batch);
+		if (batch.getQueryCount() < 2) return null;
+
+		batch.runQueries();
+		return batch;
+	}
+
 	@Override
 	public SearchPattern getBlankPattern() {
 		return null;
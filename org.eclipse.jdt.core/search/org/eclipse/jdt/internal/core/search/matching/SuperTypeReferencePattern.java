@@ -43,6 +43,15 @@ public static final int ONLY_SUPER_CLASSES = 2; // used for hierarchy with a cla
 
 protected static char[][] CATEGORIES = { SUPER_REF };
 
+/**
+ * Whether the exact, case sensitive queries on the supertype references are answered from the references of each index
+ * grouped by supertype name, which are kept in memory until the index is saved, rather than by prefix queries (the
+ * default). A type hierarchy runs one such query per type of the hierarchy, see
+ * {@link Index#queryWordGroup(char[], char[], char)}.
+ */
+public static final String GROUP_SUPER_REFERENCES_PROPERTY = "jdt.core.groupSuperTypeReferences"; //$NON-NLS-1$
+public static final boolean GROUP_SUPER_REFERENCES = Boolean.parseBoolean(System.getProperty(GROUP_SUPER_REFERENCES_PROPERTY, "false")); //$NON-NLS-1$
+
 public static char[] createIndexKey(
 	int modifiers,
 	char[] packageName,
@@ -256,6 +265,8 @@ public EntryResult[] queryIn(Index index) throws IOException {
 	// cannot include the superQualification since it may not exist in the index
 	switch(getMatchMode()) {
 		case R_EXACT_MATCH :
+			if (GROUP_SUPER_REFERENCES && isCaseSensitive())
+				return index.queryWordGroup(SUPER_REF, this.superSimpleName, SEPARATOR);
 			// do a prefix query with the superSimpleName
 			matchRule &= ~R_EXACT_MATCH;
 			matchRule |= R_PREFIX_MATCH;
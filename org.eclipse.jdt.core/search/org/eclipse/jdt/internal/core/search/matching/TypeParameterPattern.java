@@ -77,6 +77,11 @@ public class TypeParameterPattern extends JavaSearchPattern {
 		}
 	}
 
+	@Override
+	boolean isIndexQueryBatchable() {
+		return false; // the index is not searched
+	}
+
 	/*
 	 * Same than LocalVariablePattern.
 	 */
@@ -49,6 +49,16 @@ public interface IJob {
 	 */
 	public String getJobFamily();
 
+	/**
+	 * Answers the key of the resource (typically an index) this job works on, or {@code null} if the job must not run
+	 * at the same time as any other job. Jobs with distinct keys may be executed concurrently by the job manager, jobs
+	 * with the same key are always executed one after the other in the order they were requested. Default
+	 * implementation returns {@code null}.
+	 */
+	public default Object getSchedulingKey() {
+		return null;
+	}
+
 	/**
 	 * Answers if we need some sleep after index write operations. Default implementation returns {@code false}.
 	 *
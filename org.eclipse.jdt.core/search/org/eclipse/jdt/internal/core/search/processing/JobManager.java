@@ -13,6 +13,11 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.core.search.processing;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 import org.eclipse.core.runtime.*;
 import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jdt.internal.core.util.Messages;
@@ -25,6 +30,13 @@ public abstract class JobManager implements Runnable {
 	protected int jobStart = 0;
 	protected int jobEnd = -1;
 	protected volatile boolean executing;
+	/* jobs of the queue that are being executed, they stay in the queue until they complete */
+	private final ArrayList<IJob> runningJobs = new ArrayList<>();
+
+	/* maximum number of background jobs executed at the same time, jobs with the same scheduling key never run concurrently */
+	public static final String JOB_THREADS_PROPERTY = "jdt.core.indexerJobThreads"; //$NON-NLS-1$
+	public static final int JOB_THREADS = Math.max(1, Integer.getInteger(JOB_THREADS_PROPERTY, 1).intValue());
+	private volatile int jobThreads = JOB_THREADS;
 
 	/* background processing */
 	protected volatile Thread processingThread;
@@ -62,6 +74,13 @@ public abstract class JobManager implements Runnable {
 			return this.awaitingJobs[this.jobStart];
 		return null;
 	}
+	/**
+	 * Sets the maximum number of background jobs executed at the same time, {@link #JOB_THREADS} by default.
+	 */
+	public synchronized void setJobThreads(int jobThreads) {
+		this.jobThreads = Math.max(1, jobThreads);
+		notifyAll(); // more jobs may be started
+	}
 	public synchronized void disable() {
 		this.enableCount--;
 		if (VERBOSE)
@@ -78,22 +97,28 @@ public abstract class JobManager implements Runnable {
 
 		try {
 			IJob currentJob;
-			// cancel current job if it belongs to the given family
+			ArrayList<IJob> activeJobs;
+			// cancel current jobs if they belong to the given family
 			synchronized(this){
+				activeJobs = new ArrayList<>(this.runningJobs);
 				currentJob = currentJob();
+				if (currentJob != null && !activeJobs.contains(currentJob))
+					activeJobs.add(0, currentJob);
 				disable();
 			}
-			if (currentJob != null && (jobFamily == null || currentJob.belongsTo(jobFamily))) {
-				currentJob.cancel();
+			for (IJob activeJob : activeJobs) {
+				if (jobFamily == null || activeJob.belongsTo(jobFamily)) {
+					activeJob.cancel();
 
-				// wait until current active job has finished
-				while (this.processingThread != null && this.executing){
-					try {
-						if (VERBOSE)
-							Util.verbose("-> waiting end of current background job - " + currentJob); //$NON-NLS-1$
-						Thread.sleep(50);
-					} catch(InterruptedException e){
-						// ignore
+					// wait until the active job has finished
+					while (this.processingThread != null && isJobRunning(activeJob)) {
+						try {
+							if (VERBOSE)
+								Util.verbose("-> waiting end of current background job - " + activeJob); //$NON-NLS-1$
+							Thread.sleep(50);
+						} catch(InterruptedException e){
+							// ignore
+						}
 					}
 				}
 			}
@@ -129,11 +154,39 @@ public abstract class JobManager implements Runnable {
 			Util.verbose("ENABLING  background indexing"); //$NON-NLS-1$
 		notifyAll(); // wake up the background thread if it is waiting (context must be synchronized)
 	}
+	protected synchronized boolean isJobRunning(IJob job) {
+		for (int i = 0, length = this.runningJobs.size(); i < length; i++)
+			if (this.runningJobs.get(i) == job) return true;
+		return false;
+	}
 	protected synchronized boolean isJobWaiting(IJob request) {
 		for (int i = this.jobEnd; i > this.jobStart; i--) // don't check job at jobStart, as it may have already started
-			if (request.equals(this.awaitingJobs[i])) return true;
+			if (request.equals(this.awaitingJobs[i]) && !isJobRunning(this.awaitingJobs[i])) return true;
 		return false;
 	}
+	/**
+	 * Removes the given job from the queue once it has been completed. When several jobs are executed at the same
+	 * time, jobs other than the first one of the queue can complete first.
+	 */
+	private synchronized void jobCompleted(IJob job) {
+		for (int i = 0, length = this.runningJobs.size(); i < length; i++) {
+			if (this.runningJobs.get(i) == job) {
+				this.runningJobs.remove(i);
+				break;
+			}
+		}
+		this.executing = !this.runningJobs.isEmpty();
+		for (int i = this.jobStart; i <= this.jobEnd; i++) {
+			if (this.awaitingJobs[i] == job) {
+				// move the job to the front of the queue, the other ones keep their order
+				System.arraycopy(this.awaitingJobs, this.jobStart, this.awaitingJobs, this.jobStart + 1, i - this.jobStart);
+				this.awaitingJobs[this.jobStart] = job;
+				moveToNextJob();
+				break;
+			}
+		}
+		notifyAll(); // wake up the background thread, jobs waiting for this one can now be started
+	}
 	/**
 	 * Advance to the next available job, once the current one has been completed.
 	 * Note: clients awaiting until the job count is zero are still waiting at this point.
@@ -149,6 +202,27 @@ public abstract class JobManager implements Runnable {
 			}
 		}
 	}
+	/**
+	 * Answers the next job of the queue that can be started, or null if there is none. A job can be started when
+	 * no job before it in the queue has the same scheduling key or a <code>null</code> key, so jobs
+	 * working on the same resource are executed in the order they were requested.
+	 */
+	private synchronized IJob nextJob() {
+		if (this.enableCount <= 0 || this.runningJobs.size() >= this.jobThreads)
+			return null;
+		if (this.runningJobs.isEmpty())
+			return currentJob();
+		HashSet<Object> keys = new HashSet<>();
+		for (int i = this.jobStart; i <= this.jobEnd; i++) {
+			IJob job = this.awaitingJobs[i];
+			Object key = job.getSchedulingKey();
+			if (key == null)
+				return null; // must wait until all the previous jobs have completed
+			if (keys.add(key) && !isJobRunning(job))
+				return job;
+		}
+		return null;
+	}
 	/**
 	 * When idle, give chance to do something
 	 */
@@ -346,6 +420,8 @@ public abstract class JobManager implements Runnable {
 
 		long idlingStart = -1;
 		activateProcessing();
+		ExecutorService workers = null;
+		int workerCount = 0;
 		try {
 			class ProgressJob extends Job {
 				ProgressJob(String name) {
@@ -379,7 +455,11 @@ public abstract class JobManager implements Runnable {
 						if (this.processingThread == null) continue;
 
 						// must check for new job inside this sync block to avoid timing hole
-						if ((job = currentJob()) == null) {
+						if ((job = nextJob()) == null && !this.runningJobs.isEmpty()) {
+							this.wait(); // wait until a running job completes, it may let the next ones start
+							continue;
+						}
+						if (job == null) {
 							if (this.progressJob != null) {
 								this.progressJob.cancel();
 								this.progressJob = null;
@@ -391,6 +471,8 @@ public abstract class JobManager implements Runnable {
 							this.wait(); // wait until a new job is posted (or reenabled:38901)
 						} else {
 							idlingStart = -1;
+							this.runningJobs.add(job);
+							this.executing = true;
 						}
 					}
 					if (job == null) {
@@ -403,28 +485,33 @@ public abstract class JobManager implements Runnable {
 						Util.verbose(awaitingJobsCount() + " awaiting jobs"); //$NON-NLS-1$
 						Util.verbose("STARTING background job - " + job); //$NON-NLS-1$
 					}
-					try {
-						this.executing = true;
-						if (this.progressJob == null) {
-							this.progressJob = new ProgressJob(Messages.bind(Messages.jobmanager_indexing, "", "")); //$NON-NLS-1$ //$NON-NLS-2$
-							this.progressJob.setPriority(Job.LONG);
-							this.progressJob.setSystem(true);
-							this.progressJob.schedule();
-						}
-						/*boolean status = */job.execute(null);
-						//if (status == FAILED) request(job);
-					} finally {
-						this.executing = false;
-						if (VERBOSE)
-							Util.verbose("FINISHED background job - " + job); //$NON-NLS-1$
-						moveToNextJob();
-						if (this.awaitingClients == 0 && job.waitNeeded()) {
-							if (VERBOSE) {
-								Util.verbose("WAITING after job - " + job); //$NON-NLS-1$
-							}
-							Thread.sleep(5);
-						}
+					if (this.progressJob == null) {
+						this.progressJob = new ProgressJob(Messages.bind(Messages.jobmanager_indexing, "", "")); //$NON-NLS-1$ //$NON-NLS-2$
+						this.progressJob.setPriority(Job.LONG);
+						this.progressJob.setSystem(true);
+						this.progressJob.schedule();
+					}
+					int threads = this.jobThreads;
+					if (threads == 1) {
+						executeJob(job);
+						continue;
 					}
+					if (workers == null || workerCount != threads) {
+						if (workers != null)
+							workers.shutdown(); // jobs being executed are completed first
+						workers = newWorkers(workerCount = threads);
+					}
+					IJob backgroundJob = job;
+					workers.execute(() -> {
+						try {
+							executeJob(backgroundJob);
+						} catch (InterruptedException e) {
+							// background indexing was interrupted
+						} catch (RuntimeException e) {
+							// only this job failed, keep running the other ones
+							Util.log(e, "Background Indexer Crash Recovery"); //$NON-NLS-1$
+						}
+					});
 				} catch (InterruptedException e) { // background indexing was interrupted
 				}
 			}
@@ -450,8 +537,37 @@ public abstract class JobManager implements Runnable {
 				reset(); // this will fork a new thread with no waiting jobs, some indexes will be inconsistent
 			}
 			throw e;
+		} finally {
+			if (workers != null)
+				workers.shutdown(); // jobs being executed are completed first
 		}
 	}
+	private void executeJob(IJob job) throws InterruptedException {
+		try {
+			/*boolean status = */job.execute(null);
+			//if (status == FAILED) request(job);
+		} finally {
+			if (VERBOSE)
+				Util.verbose("FINISHED background job - " + job); //$NON-NLS-1$
+			jobCompleted(job);
+			if (this.awaitingClients == 0 && job.waitNeeded()) {
+				if (VERBOSE) {
+					Util.verbose("WAITING after job - " + job); //$NON-NLS-1$
+				}
+				Thread.sleep(5);
+			}
+		}
+	}
+	private ExecutorService newWorkers(int threads) {
+		return Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, processName());
+			thread.setDaemon(true);
+			thread.setPriority(Thread.NORM_PRIORITY-1);
+			// set the context loader to avoid leaking the current context loader
+			thread.setContextClassLoader(this.getClass().getClassLoader());
+			return thread;
+		});
+	}
 	/**
 	 * Stop background processing, and wait until the current job is completed before returning
 	 */